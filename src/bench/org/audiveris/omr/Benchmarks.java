@@ -0,0 +1,882 @@
+//------------------------------------------------------------------------------------------------//
+//                                                                                                //
+//                                      B e n c h m a r k s                                       //
+//                                                                                                //
+//------------------------------------------------------------------------------------------------//
+// <editor-fold defaultstate="collapsed" desc="hdr">
+//
+//  Copyright © Audiveris 2018. All rights reserved.
+//
+//  This program is free software: you can redistribute it and/or modify it under the terms of the
+//  GNU Affero General Public License as published by the Free Software Foundation, either version
+//  3 of the License, or (at your option) any later version.
+//
+//  This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+//  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+//  See the GNU Affero General Public License for more details.
+//
+//  You should have received a copy of the GNU Affero General Public License along with this
+//  program.  If not, see <http://www.gnu.org/licenses/>.
+//------------------------------------------------------------------------------------------------//
+// </editor-fold>
+package org.audiveris.omr;
+
+import ij.process.ByteProcessor;
+
+import org.audiveris.omr.glyph.GlyphFactory;
+import org.audiveris.omr.glyph.Shape;
+import org.audiveris.omr.image.Anchored.Anchor;
+import org.audiveris.omr.image.BandPipeline;
+import org.audiveris.omr.image.BitPlane;
+import org.audiveris.omr.image.ChamferDistance;
+import org.audiveris.omr.image.ChordMorphology;
+import org.audiveris.omr.image.DistanceTable;
+import org.audiveris.omr.image.GaussianGrayFilter;
+import org.audiveris.omr.image.MedianGrayFilter;
+import org.audiveris.omr.image.MorphoProcessor;
+import org.audiveris.omr.image.PixelDistance;
+import org.audiveris.omr.image.SeparableDistance;
+import org.audiveris.omr.image.StructureElement;
+import org.audiveris.omr.image.Template;
+import org.audiveris.omr.image.TemplateKernel;
+import org.audiveris.omr.image.Thinning;
+import org.audiveris.omr.image.VerticalFilter;
+import org.audiveris.omr.math.NeuralNetwork;
+import org.audiveris.omr.run.Orientation;
+import org.audiveris.omr.run.Run;
+import org.audiveris.omr.run.RunTable;
+import org.audiveris.omr.run.RunTableCodec;
+import org.audiveris.omr.run.RunTableFactory;
+import org.audiveris.omr.util.AbstractEntity;
+import org.audiveris.omr.util.BinaryXml;
+import org.audiveris.omr.util.Entities;
+import org.audiveris.omr.util.EntityGrid;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+import java.awt.Point;
+import java.awt.Rectangle;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import javax.imageio.ImageIO;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.stream.XMLStreamWriter;
+
+/**
+ * Class {@code Benchmarks} gathers the rough timings of optimized processing paths
+ * against their plain counterparts.
+ * <p>
+ * These are not unit tests: inputs are large, timings are just printed, and the only checks
+ * are that compared paths agree. This class lives in the separate 'bench' source set and is
+ * run on demand by the 'benchmark' Gradle task, never by 'test' or 'check'.
+ *
+ * @author Hervé Bitteur
+ */
+public class Benchmarks
+{
+
+    /** Number of runs per benchmark, first ones being warm up. */
+    private static final int LOOPS = 3;
+
+    private final Random random = new Random(123);
+
+    //---------------//
+    // testBinaryXml //
+    //---------------//
+    /**
+     * Plain XML versus binary XML, for parsing a sheet-like document.
+     */
+    @Test
+    public void testBinaryXml ()
+            throws Exception
+    {
+        final ByteArrayOutputStream xmlOs = new ByteArrayOutputStream();
+        final XMLStreamWriter xmlWriter = XMLOutputFactory.newInstance()
+                .createXMLStreamWriter(xmlOs, "UTF-8");
+        writeSheet(xmlWriter, new Random(1));
+
+        final ByteArrayOutputStream binOs = new ByteArrayOutputStream();
+        writeSheet(new BinaryXml.StreamWriter(binOs), new Random(1));
+
+        final byte[] xml = xmlOs.toByteArray();
+        final byte[] bin = binOs.toByteArray();
+        final XMLInputFactory factory = XMLInputFactory.newInstance();
+
+        for (int loop = 0; loop < LOOPS; loop++) {
+            long start = System.nanoTime();
+            final int xmlCount = readAll(
+                    factory.createXMLStreamReader(new ByteArrayInputStream(xml)));
+            final long xmlDur = System.nanoTime() - start;
+
+            start = System.nanoTime();
+
+            final int binCount = readAll(
+                    new BinaryXml.StreamReader(new ByteArrayInputStream(bin)));
+            final long binDur = System.nanoTime() - start;
+
+            System.out.println(
+                    "Sheet parse XML: " + millis(xmlDur) + " ms, size: " + xml.length
+                    + " / Binary: " + millis(binDur) + " ms, size: " + bin.length);
+            assertEquals(xmlCount, binCount);
+        }
+    }
+
+    //---------------//
+    // testDistances //
+    //---------------//
+    /**
+     * Chamfer versus separable distance transform.
+     */
+    @Test
+    public void testDistances ()
+    {
+        final ByteProcessor input = createImage(2000, 2500, 20);
+
+        for (int loop = 0; loop < LOOPS; loop++) {
+            long start = System.nanoTime();
+            final DistanceTable chamfer = new ChamferDistance.Short().computeToFore(input);
+            final long chamferDur = System.nanoTime() - start;
+
+            start = System.nanoTime();
+
+            final DistanceTable separable = new SeparableDistance().computeToFore(input);
+            final long separableDur = System.nanoTime() - start;
+
+            System.out.println(
+                    "Distances chamfer: " + millis(chamferDur) + " ms, separable: "
+                    + millis(separableDur) + " ms");
+
+            for (int i = (2000 * 2500) - 1; i >= 0; i -= 7) {
+                assertEquals(chamfer.getValue(i) == 0, separable.getValue(i) == 0);
+            }
+        }
+    }
+
+    //----------------//
+    // testEntityGrid //
+    //----------------//
+    /**
+     * Linear scan versus grid lookup of contained entities.
+     */
+    @Test
+    public void testEntityGrid ()
+    {
+        final List<Item> items = new ArrayList<>();
+        final EntityGrid<Item> grid = new EntityGrid<>(80);
+
+        for (int i = 1; i <= 20000; i++) {
+            final Item item = new Item(i, randomRect((i % 50 == 0) ? 300 : 30));
+            items.add(item);
+            grid.insert(item);
+        }
+
+        final List<Rectangle> rects = new ArrayList<>();
+
+        for (int i = 0; i < 2000; i++) {
+            rects.add(randomRect(60));
+        }
+
+        for (int loop = 0; loop < LOOPS; loop++) {
+            int scanCount = 0;
+            long start = System.nanoTime();
+
+            for (Rectangle rect : rects) {
+                scanCount += Entities.containedEntities(items.iterator(), rect).size();
+            }
+
+            final long scanDur = System.nanoTime() - start;
+            int gridCount = 0;
+            start = System.nanoTime();
+
+            for (Rectangle rect : rects) {
+                gridCount += Entities.containedEntities(grid.getCandidates(rect).iterator(), rect)
+                        .size();
+            }
+
+            final long gridDur = System.nanoTime() - start;
+            System.out.println(
+                    "Lookups scan: " + millis(scanDur) + " ms, grid: " + millis(gridDur)
+                    + " ms, " + grid);
+            assertEquals(scanCount, gridCount);
+        }
+    }
+
+    //------------//
+    // testFilter //
+    //------------//
+    /**
+     * Adaptive binarization through whole image versus direct run table.
+     */
+    @Test
+    public void testFilter ()
+    {
+        final ByteProcessor source = createScan(2480, 3508);
+        final RunTableFactory factory = new RunTableFactory(Orientation.VERTICAL);
+
+        for (int loop = 0; loop < LOOPS; loop++) {
+            long start = System.nanoTime();
+            final RunTable ref = factory.createTable(
+                    new VerticalFilter(source, 0.7, 0.9).filteredImage());
+            final long refDur = System.nanoTime() - start;
+
+            start = System.nanoTime();
+
+            final RunTable table = new VerticalFilter(source, 0.7, 0.9).filteredTable();
+            final long dur = System.nanoTime() - start;
+
+            System.out.println(
+                    String.format(
+                            "Megapixels per second, image: %.1f, table: %.1f",
+                            (source.getPixelCount() * 1e3) / refDur,
+                            (source.getPixelCount() * 1e3) / dur));
+            assertEquals(ref, table);
+        }
+    }
+
+    //------------//
+    // testGlyphs //
+    //------------//
+    /**
+     * Glyph building out of the example images.
+     */
+    @Test
+    public void testGlyphs ()
+            throws Exception
+    {
+        final File[] files = new File("data/examples").listFiles();
+
+        if (files == null) {
+            return;
+        }
+
+        for (File file : files) {
+            if (!file.getName().endsWith(".png")) {
+                continue;
+            }
+
+            final ByteProcessor img = new ByteProcessor(ImageIO.read(file));
+            img.threshold(127);
+
+            final RunTable table = new RunTableFactory(Orientation.VERTICAL).createTable(img);
+            int count = 0;
+            final long start = System.nanoTime();
+
+            for (int loop = 0; loop < LOOPS; loop++) {
+                count += GlyphFactory.buildGlyphs(table, null).size();
+            }
+
+            final long dur = System.nanoTime() - start;
+            System.out.println(
+                    file.getName() + ": " + (count / LOOPS) + " glyphs, "
+                    + millis(dur / LOOPS) + " ms, "
+                    + ((count * 1_000_000_000L) / Math.max(1, dur)) + " glyphs/s");
+        }
+    }
+
+    //------------//
+    // testMedian //
+    //------------//
+    /**
+     * Sliding median filter, for increasing radius values.
+     */
+    @Test
+    public void testMedian ()
+    {
+        final ByteProcessor input = createScan(1200, 800);
+        final ByteProcessor output = new ByteProcessor(1200, 800);
+        new MedianGrayFilter(1).filter(input, output); // Warm up
+
+        for (int radius = 1; radius <= 4; radius++) {
+            final long start = System.nanoTime();
+            new MedianGrayFilter(radius).filter(input, output);
+
+            final long dur = System.nanoTime() - start;
+            System.out.println("Median radius " + radius + ": " + millis(dur) + " ms");
+        }
+    }
+
+    //----------------//
+    // testMorphology //
+    //----------------//
+    /**
+     * Plain versus chord-based closing, plus opening on runs.
+     */
+    @Test
+    public void testMorphology ()
+    {
+        final ByteProcessor gray = createScan(1200, 800);
+        final ByteProcessor binary = (ByteProcessor) gray.duplicate();
+        binary.threshold(127);
+
+        final RunTable table = new RunTableFactory(Orientation.HORIZONTAL).createTable(binary);
+
+        for (int beam = 6; beam <= 24; beam += 6) {
+            final float radius = (float) ((0.8 * beam) - 1) / 2;
+            final StructureElement se = new StructureElement(0, 1, radius, new int[]{0, 0});
+            final ChordMorphology morpho = new ChordMorphology(se);
+
+            final ByteProcessor expected = (ByteProcessor) gray.duplicate();
+            long start = System.nanoTime();
+            new MorphoProcessor(se).close(expected);
+
+            final long refDur = System.nanoTime() - start;
+            final ByteProcessor actual = (ByteProcessor) gray.duplicate();
+            start = System.nanoTime();
+            morpho.close(actual);
+
+            final long chordDur = System.nanoTime() - start;
+            start = System.nanoTime();
+            morpho.open(table);
+
+            final long runDur = System.nanoTime() - start;
+            System.out.println(
+                    "Morphology beam " + beam + " plain: " + millis(refDur) + " ms, chords: "
+                    + millis(chordDur) + " ms, runs: " + millis(runDur) + " ms");
+            assertArrayEquals((byte[]) expected.getPixels(), (byte[]) actual.getPixels());
+        }
+    }
+
+    //-------------//
+    // testNetwork //
+    //-------------//
+    /**
+     * Pattern by pattern versus batch evaluation of a neural network.
+     */
+    @Test
+    public void testNetwork ()
+    {
+        final int inputs = 110;
+        final int outputs = 180;
+        final String[] inputLabels = new String[inputs];
+        final String[] outputLabels = new String[outputs];
+        Arrays.fill(inputLabels, "in");
+        Arrays.fill(outputLabels, "out");
+
+        final NeuralNetwork network = new NeuralNetwork(
+                inputs,
+                180,
+                outputs,
+                0.5,
+                inputLabels,
+                outputLabels);
+        final int count = 2000;
+        final float[] ins = new float[count * inputs];
+        final double[][] patterns = new double[count][inputs];
+
+        for (int i = 0; i < ins.length; i++) {
+            ins[i] = (random.nextInt(5) == 0) ? 0 : (float) random.nextGaussian();
+            patterns[i / inputs][i % inputs] = ins[i];
+        }
+
+        for (int loop = 0; loop < LOOPS; loop++) {
+            double runSum = 0;
+            long start = System.nanoTime();
+
+            for (double[] pattern : patterns) {
+                runSum += network.run(pattern, null, null)[0];
+            }
+
+            final long runDur = System.nanoTime() - start;
+            start = System.nanoTime();
+
+            final float[] outs = network.evaluate(ins, count, null);
+            final long batchDur = System.nanoTime() - start;
+            double batchSum = 0;
+
+            for (int p = 0; p < count; p++) {
+                batchSum += outs[p * outputs];
+            }
+
+            System.out.println(
+                    String.format(
+                            "Patterns per second, run: %,d, batch: %,d",
+                            (count * 1_000_000_000L) / runDur,
+                            (count * 1_000_000_000L) / batchDur));
+            assertEquals(runSum, batchSum, 1e-2);
+        }
+    }
+
+    //--------------//
+    // testPipeline //
+    //--------------//
+    /**
+     * Whole images versus band pipeline, for the spots processing chain.
+     */
+    @Test
+    public void testPipeline ()
+    {
+        final int threshold = 140;
+        final ByteProcessor source = createImage(2000, 1400, 3000);
+        final ChordMorphology morpho = new ChordMorphology(
+                new StructureElement(0, 1, 4.5f, new int[]{0, 0}));
+        final RunTableFactory factory = new RunTableFactory(Orientation.VERTICAL);
+
+        for (int loop = 0; loop < LOOPS; loop++) {
+            long start = System.nanoTime();
+            ByteProcessor buffer = new RunTableFactory(
+                    Orientation.HORIZONTAL,
+                    new RunTableFactory.LengthFilter(4)).createTable(source).getBuffer();
+            buffer = new MedianGrayFilter(1).filter(buffer);
+            buffer = new GaussianGrayFilter(2).filter(buffer);
+            morpho.close(buffer);
+            buffer.threshold(threshold);
+
+            final RunTable expected = factory.createTable(buffer);
+            final long refDur = System.nanoTime() - start;
+            start = System.nanoTime();
+
+            final BandPipeline.TableSink sink = new BandPipeline.TableSink(
+                    Orientation.VERTICAL,
+                    threshold,
+                    2000,
+                    1400);
+            final BandPipeline pipeline = new BandPipeline(source);
+            pipeline.add(new BandPipeline.LengthStage(4));
+            pipeline.add(new MedianGrayFilter(1));
+            pipeline.add(new GaussianGrayFilter(2));
+            pipeline.add(morpho.getStage(true));
+            pipeline.add(morpho.getStage(false));
+            pipeline.addSink(sink);
+            pipeline.run();
+
+            final RunTable table = sink.getTable();
+            final long dur = System.nanoTime() - start;
+            System.out.println(
+                    "Spots whole images: " + millis(refDur) + " ms, pipeline: " + millis(dur)
+                    + " ms");
+            assertEquals(expected, table);
+        }
+    }
+
+    //---------------//
+    // testRunTables //
+    //---------------//
+    /**
+     * XML versus binary run table files, for loading.
+     */
+    @Test
+    public void testRunTables ()
+            throws Exception
+    {
+        final int width = 2500;
+        final int height = 3500;
+        final RunTable table = new RunTable(Orientation.HORIZONTAL, width, height);
+
+        for (int y = 0; y < height; y++) {
+            int x = random.nextInt(50);
+
+            while (x < width) {
+                final int length = Math.min(1 + random.nextInt(30), width - x);
+                table.addRun(y, new Run(x, length));
+                x += (length + 1 + random.nextInt(200));
+            }
+        }
+
+        final Path xmlPath = Files.createTempFile("runtable", ".xml");
+        final Path binPath = Files.createTempFile("runtable", RunTableCodec.EXTENSION);
+
+        try {
+            table.marshal(xmlPath);
+            table.marshal(binPath);
+            System.out.println(
+                    "Sizes xml: " + Files.size(xmlPath) + " bin: " + Files.size(binPath));
+
+            for (int loop = 0; loop < LOOPS; loop++) {
+                for (Path path : new Path[]{xmlPath, binPath}) {
+                    System.gc();
+
+                    final Runtime rt = Runtime.getRuntime();
+                    final long memBefore = rt.totalMemory() - rt.freeMemory();
+                    final long start = System.nanoTime();
+                    final RunTable newTable = RunTable.unmarshal(path);
+                    final long dur = System.nanoTime() - start;
+                    final long memAfter = rt.totalMemory() - rt.freeMemory();
+                    System.out.println(
+                            path.getFileName() + " load: " + millis(dur) + " ms, heap delta: "
+                            + ((memAfter - memBefore) / 1024) + " KB");
+                    assertEquals(table, newTable);
+                }
+            }
+        } finally {
+            Files.deleteIfExists(xmlPath);
+            Files.deleteIfExists(binPath);
+        }
+    }
+
+    //---------------//
+    // testTemplates //
+    //---------------//
+    /**
+     * Template by template versus batch matching, on plain and packed distances.
+     */
+    @Test
+    public void testTemplates ()
+    {
+        final int width = 300;
+        final int height = 200;
+        final DistanceTable table = new DistanceTable.Short(width, height, 3);
+        final DistanceTable packed = new DistanceTable.Packed(width, height, 3);
+
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                final int r = random.nextInt(20);
+                final int value = (r < 8) ? 0 : ((r == 19) ? ChamferDistance.VALUE_UNKNOWN : r);
+                table.setValue(x, y, value);
+                packed.setValue(x, y, value);
+            }
+        }
+
+        final List<Template> templates = Arrays.asList(
+                createTemplate(Shape.NOTEHEAD_BLACK, 16, 14),
+                createTemplate(Shape.NOTEHEAD_VOID, 16, 14),
+                createTemplate(Shape.WHOLE_NOTE, 20, 14),
+                createTemplate(Shape.NOTEHEAD_BLACK_SMALL, 11, 10));
+        final TemplateKernel.Multi multi = new TemplateKernel.Multi(templates, Anchor.CENTER);
+
+        for (int loop = 0; loop < LOOPS; loop++) {
+            double kernelSum = 0;
+            long start = System.nanoTime();
+
+            for (int y = 10; y < (height - 10); y++) {
+                for (int x = 10; x < (width - 10); x++) {
+                    for (Template template : templates) {
+                        kernelSum += template.evaluate(x, y, Anchor.CENTER, table);
+                    }
+                }
+            }
+
+            final long kernelDur = System.nanoTime() - start;
+            double batchSum = 0;
+            start = System.nanoTime();
+
+            for (int y = 10; y < (height - 10); y++) {
+                for (int x = 10; x < (width - 10); x++) {
+                    for (double d : Template.evaluateBatch(multi, x, y, table)) {
+                        batchSum += d;
+                    }
+                }
+            }
+
+            final long batchDur = System.nanoTime() - start;
+            double packedSum = 0;
+            start = System.nanoTime();
+
+            for (int y = 10; y < (height - 10); y++) {
+                for (int x = 10; x < (width - 10); x++) {
+                    for (double d : Template.evaluateBatch(multi, x, y, packed)) {
+                        packedSum += d;
+                    }
+                }
+            }
+
+            final long packedDur = System.nanoTime() - start;
+            System.out.println(
+                    "Templates kernel: " + millis(kernelDur) + " ms, batch: "
+                    + millis(batchDur) + " ms, packed batch: " + millis(packedDur) + " ms, "
+                    + multi);
+            assertEquals(kernelSum, batchSum, 1e-6);
+            assertEquals(kernelSum, packedSum, 1e-6);
+        }
+    }
+
+    //--------------//
+    // testThinning //
+    //--------------//
+    /**
+     * ImageJ skeleton versus packed thinning.
+     */
+    @Test
+    public void testThinning ()
+    {
+        final ByteProcessor input = createImage(2000, 2500, 60);
+
+        for (int loop = 0; loop < LOOPS; loop++) {
+            long start = System.nanoTime();
+            final ByteProcessor ref = (ByteProcessor) input.duplicate();
+            ref.skeletonize();
+
+            final long refDur = System.nanoTime() - start;
+            start = System.nanoTime();
+
+            final BitPlane plane = BitPlane.fromFore(input);
+            Thinning.skeletonize(plane);
+
+            final long packedDur = System.nanoTime() - start;
+            System.out.println(
+                    "Skeleton ImageJ: " + millis(refDur) + " ms, packed: " + millis(packedDur)
+                    + " ms");
+            assertArrayEquals(
+                    (byte[]) ref.getPixels(),
+                    (byte[]) plane.toByteProcessor().getPixels());
+        }
+    }
+
+    //-------------//
+    // createImage //
+    //-------------//
+    /**
+     * Create a binary image with random ovals and thick lines.
+     */
+    private ByteProcessor createImage (int width,
+                                       int height,
+                                       int count)
+    {
+        final ByteProcessor img = new ByteProcessor(width, height);
+        img.setValue(255);
+        img.fill();
+        img.setValue(0);
+
+        for (int i = 0; i < count; i++) {
+            final int x = random.nextInt(width);
+            final int y = random.nextInt(height);
+            final int w = 1 + random.nextInt(Math.max(1, Math.min(300, width / 6)));
+            final int h = 1 + random.nextInt(Math.max(1, Math.min(300, height / 6)));
+
+            if (random.nextBoolean()) {
+                img.fillOval(x, y, w, h);
+            } else {
+                img.setLineWidth(1 + random.nextInt(5));
+                img.drawLine(x, y, x + w, y + h - (h / 2));
+            }
+        }
+
+        return img;
+    }
+
+    //------------//
+    // createScan //
+    //------------//
+    /**
+     * Create a gray image with uneven background, staff-like lines and dark blobs.
+     */
+    private ByteProcessor createScan (int width,
+                                      int height)
+    {
+        final ByteProcessor ip = new ByteProcessor(width, height);
+
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                final int light = 160 + ((80 * (x + y)) / (width + height));
+                ip.set(x, y, Math.min(255, light + random.nextInt(16)));
+            }
+        }
+
+        for (int y = 20; y < (height - 3); y += 12) {
+            for (int x = 10; x < (width - 10); x++) {
+                ip.set(x, y, 30 + random.nextInt(40));
+                ip.set(x, y + 1, 30 + random.nextInt(40));
+            }
+        }
+
+        for (int i = (width * height) / 2000; i > 0; i--) {
+            final int x0 = random.nextInt(width - 12);
+            final int y0 = random.nextInt(height - 12);
+            final int w = 2 + random.nextInt(10);
+            final int h = 2 + random.nextInt(10);
+
+            for (int y = y0; y < (y0 + h); y++) {
+                for (int x = x0; x < (x0 + w); x++) {
+                    ip.set(x, y, random.nextInt(90));
+                }
+            }
+        }
+
+        return ip;
+    }
+
+    //----------------//
+    // createTemplate //
+    //----------------//
+    /**
+     * Create an elliptic head template, with a hole unless shape is a black head.
+     */
+    private Template createTemplate (Shape shape,
+                                     int width,
+                                     int height)
+    {
+        final boolean hasHole = shape != Shape.NOTEHEAD_BLACK;
+        final List<PixelDistance> keyPoints = new ArrayList<>();
+        final double a = (width - 4) / 2.0;
+        final double b = (height - 4) / 2.0;
+
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                final double dx = (x - ((width - 1) / 2.0)) / a;
+                final double dy = (y - ((height - 1) / 2.0)) / b;
+                final double r = Math.hypot(dx, dy);
+
+                if (r > 1.2) {
+                    keyPoints.add(new PixelDistance(x, y, 2));
+                } else if (r <= 1) {
+                    keyPoints.add(new PixelDistance(x, y, (hasHole && (r < 0.5)) ? -1 : 0));
+                }
+            }
+        }
+
+        final Template template = new Template(
+                shape,
+                20,
+                null,
+                width,
+                height,
+                keyPoints,
+                new Rectangle(0, 0, width, height));
+        template.addAnchor(Anchor.CENTER, width / 2, height / 2);
+
+        return template;
+    }
+
+    //--------//
+    // millis //
+    //--------//
+    private static long millis (long nanos)
+    {
+        return nanos / 1_000_000;
+    }
+
+    //------------//
+    // randomRect //
+    //------------//
+    private Rectangle randomRect (int maxSide)
+    {
+        return new Rectangle(
+                random.nextInt(4000) - 20,
+                random.nextInt(3000) - 20,
+                1 + random.nextInt(maxSide),
+                1 + random.nextInt(maxSide));
+    }
+
+    //---------//
+    // readAll //
+    //---------//
+    /**
+     * Pull all events, reading names, attribute values and texts as an unmarshaller would.
+     *
+     * @return the number of events read
+     */
+    private static int readAll (XMLStreamReader reader)
+            throws Exception
+    {
+        int count = 0;
+
+        while (reader.hasNext()) {
+            switch (reader.next()) {
+            case XMLStreamConstants.START_ELEMENT:
+                reader.getLocalName();
+
+                for (int i = reader.getAttributeCount() - 1; i >= 0; i--) {
+                    reader.getAttributeLocalName(i);
+                    reader.getAttributeValue(i);
+                }
+
+                break;
+
+            case XMLStreamConstants.CHARACTERS:
+                reader.getText();
+
+                break;
+
+            default:
+            }
+
+            count++;
+        }
+
+        reader.close();
+
+        return count;
+    }
+
+    //------------//
+    // writeSheet //
+    //------------//
+    /**
+     * Write a document shaped like a sheet file: many small inter elements with
+     * numeric attributes, bounds and relations.
+     */
+    private static void writeSheet (XMLStreamWriter writer,
+                                    Random rnd)
+            throws Exception
+    {
+        writer.writeStartDocument();
+        writer.writeStartElement("sheet");
+        writer.writeAttribute("number", "1");
+
+        for (int s = 1; s <= 12; s++) {
+            writer.writeStartElement("system");
+            writer.writeAttribute("id", Integer.toString(s));
+
+            writer.writeStartElement("sig");
+
+            for (int i = 1; i <= 4000; i++) {
+                writer.writeStartElement((i % 3 == 0) ? "stem" : "head");
+                writer.writeAttribute("id", Integer.toString((s * 10000) + i));
+                writer.writeAttribute("shape", (i % 3 == 0) ? "STEM" : "NOTEHEAD_BLACK");
+                writer.writeAttribute("grade", String.format("%.3f", rnd.nextDouble()));
+                writer.writeStartElement("bounds");
+                writer.writeAttribute("x", Integer.toString(rnd.nextInt(2500)));
+                writer.writeAttribute("y", Integer.toString(rnd.nextInt(3500)));
+                writer.writeAttribute("w", Integer.toString(1 + rnd.nextInt(40)));
+                writer.writeAttribute("h", Integer.toString(1 + rnd.nextInt(40)));
+                writer.writeEndElement(); // bounds
+                writer.writeEndElement(); // inter
+            }
+
+            for (int r = 1; r <= 2000; r++) {
+                writer.writeStartElement("relation");
+                writer.writeAttribute("source", Integer.toString((s * 10000) + r));
+                writer.writeAttribute("target", Integer.toString((s * 10000) + r + 1));
+                writer.writeCharacters("head-stem");
+                writer.writeEndElement(); // relation
+            }
+
+            writer.writeEndElement(); // sig
+            writer.writeEndElement(); // system
+        }
+
+        writer.writeEndElement(); // sheet
+        writer.writeEndDocument();
+        writer.flush();
+    }
+
+    //------//
+    // Item //
+    //------//
+    private static class Item
+            extends AbstractEntity
+    {
+
+        final Rectangle bounds;
+
+        Item (int id,
+              Rectangle bounds)
+        {
+            this.id = id;
+            this.bounds = bounds;
+        }
+
+        @Override
+        public boolean contains (Point point)
+        {
+            return bounds.contains(point);
+        }
+
+        @Override
+        public Rectangle getBounds ()
+        {
+            return new Rectangle(bounds);
+        }
+    }
+}
@@ -28,6 +28,7 @@ import org.audiveris.omr.constant.ConstantManager;
 import org.audiveris.omr.constant.ConstantSet;
 import org.audiveris.omr.log.LogUtil;
 import org.audiveris.omr.sheet.BookManager;
+import org.audiveris.omr.step.StepTelemetry;
 import org.audiveris.omr.text.tesseract.TesseractOCR;
 import org.audiveris.omr.ui.MainGui;
 import org.audiveris.omr.ui.symbol.MusicFont;
@@ -40,6 +41,7 @@ import org.kohsuke.args4j.CmdLineException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.IOException;
 import java.util.List;
 import java.util.Locale;
 import java.util.concurrent.Callable;
@@ -152,10 +154,23 @@ public class Main
             // Run the required tasks, if any (and remember if at least one task failed)
             boolean failure = runBatchTasks();
 
+            // Export step telemetry?
+            if (StepTelemetry.isEnabled()) {
+                try {
+                    StepTelemetry.export(
+                            BookManager.getBaseFolder().resolve(StepTelemetry.getFileName()));
+                } catch (IOException ex) {
+                    logger.warn("Error exporting telemetry {}", ex.toString(), ex);
+                }
+            }
+
             // At this point all tasks have completed (except timeout...)
             // So shutdown gracefully the executors
             boolean timeout = !OmrExecutors.shutdown();
 
+            // Release the OCR engines kept in pool
+            TesseractOCR.getInstance().dispose();
+
             // Save global sample repository if modified
             if (SampleRepository.hasInstance()) {
                 SampleRepository repository = SampleRepository.getGlobalInstance(false);
@@ -149,6 +149,47 @@ public abstract class AbstractClassifier<M extends Object>
         return evaluate(glyph, null, count, minGrade, conditions, interline);
     }
 
+    //----------//
+    // evaluate //
+    //----------//
+    @Override
+    public List<Evaluation[]> evaluate (List<? extends Glyph> glyphs,
+                                        SystemInfo system,
+                                        int interline,
+                                        int count,
+                                        double minGrade,
+                                        EnumSet<Condition> conditions)
+    {
+        // Glyphs too small are just NOISE, and not submitted to classifier
+        final List<Glyph> bigs = new ArrayList<>();
+
+        for (Glyph glyph : glyphs) {
+            if (isBigEnough(glyph, interline)) {
+                bigs.add(glyph);
+            }
+        }
+
+        final List<Evaluation[]> naturals = bigs.isEmpty() ? new ArrayList<Evaluation[]>()
+                : getNaturalEvaluations(bigs, interline);
+        final List<Evaluation[]> results = new ArrayList<>(glyphs.size());
+        int ib = 0;
+
+        for (Glyph glyph : glyphs) {
+            final Evaluation[] evals;
+
+            if ((ib < bigs.size()) && (bigs.get(ib) == glyph)) {
+                evals = naturals.get(ib++);
+                Arrays.sort(evals, Evaluation.byReverseGrade); // From best to worst
+            } else {
+                evals = noiseEvaluations;
+            }
+
+            results.add(select(glyph, system, evals, count, minGrade, conditions));
+        }
+
+        return results;
+    }
+
     //---------------//
     // getDescriptor //
     //---------------//
@@ -496,9 +537,34 @@ public abstract class AbstractClassifier<M extends Object>
                                    EnumSet<Classifier.Condition> conditions,
                                    int interline)
     {
-        List<Evaluation> bests = new ArrayList<>();
         Evaluation[] evals = getSortedEvaluations(glyph, interline);
 
+        return select(glyph, system, evals, count, minGrade, conditions);
+    }
+
+    //--------//
+    // select //
+    //--------//
+    /**
+     * Select the best acceptable evaluations among the sorted ones.
+     *
+     * @param glyph      the evaluated glyph
+     * @param system     the containing system, if any
+     * @param evals      all glyph evaluations, sorted from best to worst
+     * @param count      the desired maximum sequence length
+     * @param minGrade   the minimum evaluation grade to be acceptable
+     * @param conditions optional conditions, perhaps null or empty
+     * @return the sequence of acceptable evaluations, perhaps empty but not null
+     */
+    private Evaluation[] select (Glyph glyph,
+                                 SystemInfo system,
+                                 Evaluation[] evals,
+                                 int count,
+                                 double minGrade,
+                                 EnumSet<Classifier.Condition> conditions)
+    {
+        List<Evaluation> bests = new ArrayList<>();
+
         EvalsLoop:
         for (Evaluation eval : evals) {
             // Bounding test?
@@ -56,7 +56,21 @@ public class ArtGlyphDescriptor
     public double[] getFeatures (Glyph glyph,
                                  int interline)
     {
-        ARTMoments moments = glyph.getARTMoments();
+        return getFeatures(
+                glyph.getARTMoments(),
+                glyph.getGeometricMoments(interline),
+                glyph.getNormalizedWeight(interline),
+                glyph.getWidth(),
+                glyph.getHeight());
+    }
+
+    @Override
+    public double[] getFeatures (ARTMoments moments,
+                                 GeometricMoments geos,
+                                 double normalizedWeight,
+                                 int width,
+                                 int height)
+    {
         double[] ins = new double[LENGTH];
         int i = 0;
 
@@ -70,14 +84,13 @@ public class ArtGlyphDescriptor
         }
 
         // We append 3 geometric moments
-        GeometricMoments geos = glyph.getGeometricMoments(interline);
         ins[i++] = geos.getN11();
         ins[i++] = geos.getN21();
         ins[i++] = geos.getN12();
 
         // We append weight and aspect
-        ins[i++] = glyph.getNormalizedWeight(interline);
-        ins[i++] = (double) glyph.getHeight() / glyph.getWidth();
+        ins[i++] = normalizedWeight;
+        ins[i++] = (double) height / width;
 
         return ins;
     }
@@ -154,25 +154,38 @@ public class BasicClassifier
     public Evaluation[] getNaturalEvaluations (Glyph glyph,
                                                int interline)
     {
-        double[] ins = descriptor.getFeatures(glyph, interline);
-        final INDArray features = Nd4j.create(ins);
-        normalize(features);
-
-        Shape[] values = Shape.values();
-        Evaluation[] evals = new Evaluation[SHAPE_COUNT];
+        return getNaturalEvaluations(Collections.singletonList(glyph), interline).get(0);
+    }
 
-        for (int i = 0; i < ins.length; i++) {
-            ins[i] = features.getDouble(i);
-        }
+    //-----------------------//
+    // getNaturalEvaluations //
+    //-----------------------//
+    @Override
+    public Evaluation[] getNaturalEvaluations (double[] features)
+    {
+        return evaluateFeatures(Collections.singletonList(features)).get(0);
+    }
 
-        double[] outs = new double[SHAPE_COUNT];
-        model.run(ins, null, outs);
+    //-----------------------//
+    // getNaturalEvaluations //
+    //-----------------------//
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Features of all glyphs are computed and normalized, then the network is run once on the
+     * whole batch.
+     */
+    @Override
+    public List<Evaluation[]> getNaturalEvaluations (List<? extends Glyph> glyphs,
+                                                     int interline)
+    {
+        final List<double[]> featuresList = new ArrayList<>(glyphs.size());
 
-        for (int s = 0; s < SHAPE_COUNT; s++) {
-            evals[s] = new Evaluation(values[s], outs[s]);
+        for (Glyph glyph : glyphs) {
+            featuresList.add(descriptor.getFeatures(glyph, interline));
         }
 
-        return evals;
+        return evaluateFeatures(featuresList);
     }
 
     //-------//
@@ -437,6 +450,50 @@ public class BasicClassifier
                 getMaxEpochs());
     }
 
+    //------------------//
+    // evaluateFeatures //
+    //------------------//
+    /**
+     * Normalize the provided raw features and run the network once on the whole batch.
+     *
+     * @param featuresList raw features, one array per glyph
+     * @return shape-ordered evaluations, one array per glyph, in list order
+     */
+    private List<Evaluation[]> evaluateFeatures (List<double[]> featuresList)
+    {
+        final int count = featuresList.size();
+        final int length = descriptor.length();
+        final double[] means = toArray(norms.means);
+        final double[] stds = toArray(norms.stds);
+        final float[] ins = new float[count * length];
+
+        for (int ig = 0; ig < count; ig++) {
+            final double[] features = featuresList.get(ig);
+            final int base = ig * length;
+
+            for (int i = 0; i < length; i++) {
+                ins[base + i] = (float) ((features[i] - means[i]) / stds[i]);
+            }
+        }
+
+        final float[] outs = model.evaluate(ins, count, null);
+        final Shape[] values = Shape.values();
+        final List<Evaluation[]> list = new ArrayList<>(count);
+
+        for (int ig = 0; ig < count; ig++) {
+            final Evaluation[] evals = new Evaluation[SHAPE_COUNT];
+            final int base = ig * SHAPE_COUNT;
+
+            for (int s = 0; s < SHAPE_COUNT; s++) {
+                evals[s] = new Evaluation(values[s], outs[base + s]);
+            }
+
+            list.add(evals);
+        }
+
+        return list;
+    }
+
     //-----------//
     // normalize //
     //-----------//
@@ -464,6 +521,20 @@ public class BasicClassifier
         return LazySingleton.INSTANCE;
     }
 
+    //---------//
+    // toArray //
+    //---------//
+    private static double[] toArray (INDArray vector)
+    {
+        final double[] array = new double[vector.columns()];
+
+        for (int i = 0; i < array.length; i++) {
+            array[i] = vector.getDouble(i);
+        }
+
+        return array;
+    }
+
     //---------------//
     // LazySingleton //
     //---------------//
@@ -30,6 +30,7 @@ import org.audiveris.omr.sheet.SystemInfo;
 //
 import java.util.Collection;
 import java.util.EnumSet;
+import java.util.List;
 
 /**
  * Interface {@code Classifier} defines the features of a glyph shape classifier.
@@ -97,6 +98,28 @@ public interface Classifier
                            double minGrade,
                            EnumSet<Condition> conditions);
 
+    /**
+     * Report, for each glyph of the provided batch, the sorted sequence of best
+     * evaluation(s) found by the classifier.
+     * <p>
+     * Features of all glyphs are computed and the underlying model is run only once for the whole
+     * batch.
+     *
+     * @param glyphs     the glyphs to evaluate
+     * @param system     the system containing the glyphs, if any (needed for CHECKED condition)
+     * @param interline  the relevant scaling information
+     * @param count      the desired maximum sequence length, min 1 and max SHAPE_COUNT
+     * @param minGrade   the minimum evaluation grade to be acceptable
+     * @param conditions optional conditions, perhaps null or empty
+     * @return the sequences of evaluations, one per glyph in glyphs order
+     */
+    List<Evaluation[]> evaluate (List<? extends Glyph> glyphs,
+                                 SystemInfo system,
+                                 int interline,
+                                 int count,
+                                 double minGrade,
+                                 EnumSet<Condition> conditions);
+
     /**
      * Report the underlying glyph descriptor
      *
@@ -129,6 +152,26 @@ public interface Classifier
     Evaluation[] getNaturalEvaluations (Glyph glyph,
                                         int interline);
 
+    /**
+     * Run the classifier with the specified raw glyph features, and return the natural
+     * sequence of all interpretations (ordered by Shape ordinal) with no additional check.
+     *
+     * @param features the glyph features, as provided by the glyph descriptor
+     * @return all shape-ordered evaluations
+     */
+    Evaluation[] getNaturalEvaluations (double[] features);
+
+    /**
+     * Run the classifier on a batch of glyphs, and return for each glyph the natural
+     * sequence of all interpretations (ordered by Shape ordinal) with no additional check.
+     *
+     * @param glyphs    the glyphs to be examined
+     * @param interline the relevant scaling interline
+     * @return shape-ordered evaluations, one array per glyph, in glyphs order
+     */
+    List<Evaluation[]> getNaturalEvaluations (List<? extends Glyph> glyphs,
+                                              int interline);
+
     /**
      * Use a threshold on glyph weight, to tell if the provided glyph is just {@link
      * Shape#NOISE} or a real glyph.
@@ -0,0 +1,158 @@
+//------------------------------------------------------------------------------------------------//
+//                                                                                                //
+//                             E v a l u a t i o n C o l l e c t o r                              //
+//                                                                                                //
+//------------------------------------------------------------------------------------------------//
+// <editor-fold defaultstate="collapsed" desc="hdr">
+//
+//  Copyright © Audiveris 2018. All rights reserved.
+//
+//  This program is free software: you can redistribute it and/or modify it under the terms of the
+//  GNU Affero General Public License as published by the Free Software Foundation, either version
+//  3 of the License, or (at your option) any later version.
+//
+//  This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+//  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+//  See the GNU Affero General Public License for more details.
+//
+//  You should have received a copy of the GNU Affero General Public License along with this
+//  program.  If not, see <http://www.gnu.org/licenses/>.
+//------------------------------------------------------------------------------------------------//
+// </editor-fold>
+package org.audiveris.omr.classifier;
+
+import org.audiveris.omr.glyph.Glyph;
+import org.audiveris.omr.sheet.SystemInfo;
+
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+
+/**
+ * Class {@code EvaluationCollector} gathers glyphs to be evaluated by a classifier, so
+ * that they can be evaluated as one batch.
+ * <p>
+ * Each glyph is enqueued with a callback.
+ * On {@link #flush()}, all pending glyphs are evaluated at once, then each callback is called in
+ * turn, following the enqueuing order.
+ *
+ * @author Hervé Bitteur
+ */
+public class EvaluationCollector
+{
+
+    /** The classifier to use. */
+    private final Classifier classifier;
+
+    /** Containing system, if any. */
+    private final SystemInfo system;
+
+    /** Relevant scaling information. */
+    private final int interline;
+
+    /** Maximum number of evaluations per glyph. */
+    private final int count;
+
+    /** Minimum grade for an acceptable evaluation. */
+    private final double minGrade;
+
+    /** Evaluation conditions, if any. */
+    private final EnumSet<Classifier.Condition> conditions;
+
+    /** Pending glyphs. */
+    private final List<Glyph> glyphs = new ArrayList<>();
+
+    /** Pending callbacks, parallel to glyphs. */
+    private final List<Callback> callbacks = new ArrayList<>();
+
+    /**
+     * Creates a new {@code EvaluationCollector} object.
+     *
+     * @param classifier the classifier to use
+     * @param system     the containing system, if any (needed for CHECKED condition)
+     * @param interline  the relevant scaling information
+     * @param count      the desired maximum sequence length per glyph
+     * @param minGrade   the minimum evaluation grade to be acceptable
+     * @param conditions optional conditions, perhaps null or empty
+     */
+    public EvaluationCollector (Classifier classifier,
+                                SystemInfo system,
+                                int interline,
+                                int count,
+                                double minGrade,
+                                EnumSet<Classifier.Condition> conditions)
+    {
+        this.classifier = classifier;
+        this.system = system;
+        this.interline = interline;
+        this.count = count;
+        this.minGrade = minGrade;
+        this.conditions = conditions;
+    }
+
+    //-----//
+    // add //
+    //-----//
+    /**
+     * Enqueue a glyph for evaluation.
+     *
+     * @param glyph    the glyph to evaluate
+     * @param callback the processing of glyph evaluations, once available
+     */
+    public void add (Glyph glyph,
+                     Callback callback)
+    {
+        glyphs.add(glyph);
+        callbacks.add(callback);
+    }
+
+    //-------//
+    // flush //
+    //-------//
+    /**
+     * Evaluate all pending glyphs as one batch, and hand each glyph evaluations to the
+     * related callback.
+     */
+    public void flush ()
+    {
+        if (glyphs.isEmpty()) {
+            return;
+        }
+
+        final List<Glyph> batchGlyphs = new ArrayList<>(glyphs);
+        final List<Callback> batchCallbacks = new ArrayList<>(callbacks);
+        glyphs.clear();
+        callbacks.clear();
+
+        final List<Evaluation[]> evals = classifier.evaluate(
+                batchGlyphs,
+                system,
+                interline,
+                count,
+                minGrade,
+                conditions);
+
+        for (int i = 0; i < batchGlyphs.size(); i++) {
+            batchCallbacks.get(i).process(batchGlyphs.get(i), evals.get(i));
+        }
+    }
+
+    //----------//
+    // Callback //
+    //----------//
+    /**
+     * Processing of glyph evaluations.
+     */
+    public static interface Callback
+    {
+
+        /**
+         * Process the evaluations of a glyph.
+         *
+         * @param glyph the evaluated glyph
+         * @param evals the acceptable evaluations, perhaps empty but not null
+         */
+        void process (Glyph glyph,
+                      Evaluation[] evals);
+    }
+}
@@ -22,6 +22,7 @@
 package org.audiveris.omr.classifier;
 
 import org.audiveris.omr.glyph.Glyph;
+import org.audiveris.omr.moments.ARTMoments;
 import org.audiveris.omr.moments.GeometricMoments;
 
 /**
@@ -56,17 +57,33 @@ public class GeoGlyphDescriptor
     @Override
     public double[] getFeatures (Glyph glyph,
                                  int interline)
+    {
+        // ART moments are not used
+        return getFeatures(
+                null,
+                glyph.getGeometricMoments(interline),
+                glyph.getNormalizedWeight(interline),
+                glyph.getWidth(),
+                glyph.getHeight());
+    }
+
+    @Override
+    public double[] getFeatures (ARTMoments arts,
+                                 GeometricMoments geos,
+                                 double normalizedWeight,
+                                 int width,
+                                 int height)
     {
         double[] ins = new double[LENGTH];
 
         // We take all the first moments
-        double[] k = glyph.getGeometricMoments(interline).getValues();
+        double[] k = geos.getValues();
 
         System.arraycopy(k, 0, ins, 0, MOMENT_COUNT);
 
         // We append aspect
         int i = MOMENT_COUNT;
-        /* 10 */ ins[i++] = (double) glyph.getHeight() / glyph.getWidth();
+        /* 10 */ ins[i++] = (double) height / width;
 
         return ins;
     }
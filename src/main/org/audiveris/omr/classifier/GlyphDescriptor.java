@@ -23,6 +23,8 @@ package org.audiveris.omr.classifier;
 
 import org.audiveris.omr.WellKnowns;
 import org.audiveris.omr.glyph.Glyph;
+import org.audiveris.omr.moments.ARTMoments;
+import org.audiveris.omr.moments.GeometricMoments;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -120,6 +122,29 @@ public abstract class GlyphDescriptor
     public abstract double[] getFeatures (Glyph glyph,
                                           int interline);
 
+    /**
+     * Gather the features of a glyph out of its moments and dimensions, with no need for
+     * the glyph itself.
+     * <p>
+     * This allows to evaluate a compound of glyphs before actually building it.
+     *
+     * @param arts             the glyph ART moments
+     * @param geos             the glyph geometric moments, based on the related staff interline
+     * @param normalizedWeight the glyph weight, normalized by interline area
+     * @param width            the glyph width
+     * @param height           the glyph height
+     * @return the glyph features, an array of size length(), or null if this descriptor cannot
+     *         work without the glyph
+     */
+    public double[] getFeatures (ARTMoments arts,
+                                 GeometricMoments geos,
+                                 double normalizedWeight,
+                                 int width,
+                                 int height)
+    {
+        return null;
+    }
+
     /**
      * Report a name for this descriptor
      *
@@ -65,9 +65,23 @@ public class MixGlyphDescriptor
     @Override
     public double[] getFeatures (Glyph glyph,
                                  int interline)
+    {
+        return getFeatures(
+                glyph.getARTMoments(),
+                glyph.getGeometricMoments(interline),
+                glyph.getNormalizedWeight(interline),
+                glyph.getWidth(),
+                glyph.getHeight());
+    }
+
+    @Override
+    public double[] getFeatures (ARTMoments arts,
+                                 GeometricMoments geos,
+                                 double normalizedWeight,
+                                 int width,
+                                 int height)
     {
         double[] ins = new double[LENGTH];
-        ARTMoments arts = glyph.getARTMoments();
         int i = 0;
 
         // We take the ART moments
@@ -80,7 +94,6 @@ public class MixGlyphDescriptor
         }
 
         // We append the geometric moments
-        GeometricMoments geos = glyph.getGeometricMoments(interline);
         double[] values = geos.getValues();
 
         for (int k = 0; k < geoCount; k++) {
@@ -88,7 +101,7 @@ public class MixGlyphDescriptor
         }
 
         // We append (vertical) aspect
-        ins[i++] = (double) glyph.getHeight() / glyph.getWidth();
+        ins[i++] = (double) height / width;
 
         return ins;
     }
@@ -21,18 +21,30 @@
 // </editor-fold>
 package org.audiveris.omr.glyph;
 
+import org.audiveris.omr.math.PointsCollector;
+import org.audiveris.omr.moments.ARTMoments;
+import org.audiveris.omr.moments.BasicARTExtractor;
+import org.audiveris.omr.moments.BasicARTMoments;
+import org.audiveris.omr.moments.GeometricMoments;
+
 import org.jgrapht.Graphs;
 import org.jgrapht.graph.SimpleGraph;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.awt.Point;
 import java.awt.Rectangle;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 /**
@@ -41,11 +53,17 @@ import java.util.Set;
  * <p>
  * The processing of any given subset consists in the following:
  * <ol>
- * <li>Build the compound of chosen vertices, and record acceptable evaluations.</li>
+ * <li>Evaluate the compound of chosen vertices, and record acceptable evaluations.</li>
  * <li>Build the set of new reachable vertices.</li>
  * <li>For each reachable vertex, recursively process the new set composed of current set + the
  * reachable vertex.</li>
  * </ol>
+ * Parts are indexed within the cluster, so that any subset is represented by a bit set.
+ * Subset weight and bounds are derived incrementally from those of the parts, and the moments of
+ * a compound are derived from data cached per part.
+ * The adapter can thus discard a hopeless subset (see {@link Adapter#isWorthBuilding}) before the
+ * compound glyph is actually built.
+ * <p>
  * TODO: implement a non-recursive version for better efficiency?
  *
  * @author Hervé Bitteur
@@ -61,6 +79,30 @@ public class GlyphCluster
     /** Group, if any, to be assigned to created glyphs. */
     private final GlyphGroup group;
 
+    /** Subsets already evaluated, as bit sets. */
+    private final Set<BitSet> evaluated = new HashSet<>();
+
+    /** Cluster parts, by decreasing weight. */
+    private Glyph[] parts;
+
+    /** Weight of each part. */
+    private int[] weights;
+
+    /** Bounds of each part. */
+    private Rectangle[] boxes;
+
+    /** Indices of neighbors, for each part. */
+    private int[][] neighbors;
+
+    /** Foreground points of each part, lazily computed. */
+    private PointsCollector[] collectors;
+
+    /** Sums for geometric moments of each part, lazily computed. */
+    private GeometricMoments.Accumulator[] accumulators;
+
+    /** Common origin for accumulators. */
+    private Point origin;
+
     /**
      * Creates a new Cluster object, with an adapter to the environment.
      *
@@ -82,102 +124,215 @@ public class GlyphCluster
      */
     public void decompose ()
     {
-        final Set<Glyph> considered = new LinkedHashSet<>(); // Parts considered so far
-
         //TODO: we could truncate this list by discarding the smallest items
         // since a too large list would result in explosion of combinations
-        final List<Glyph> seeds = adapter.getParts();
+        List<Glyph> seeds = adapter.getParts();
         Collections.sort(seeds, Glyphs.byReverseWeight);
 
         ///logger.debug("Decomposing {}", Glyphs.ids("cluster", seeds));
-        for (Glyph seed : seeds) {
-            considered.add(seed);
-            process(Collections.singleton(seed), considered);
+        initParts(seeds);
+
+        final BitSet considered = new BitSet(parts.length); // Parts considered so far
+
+        for (int i = 0; i < parts.length; i++) {
+            considered.set(i);
+
+            final BitSet mask = new BitSet(parts.length);
+            mask.set(i);
+            process(new int[]{i}, mask, weights[i], boxes[i], (BitSet) considered.clone());
         }
     }
 
+    //----------------//
+    // getAccumulator //
+    //---------------//
+    private GeometricMoments.Accumulator getAccumulator (int i)
+    {
+        if (accumulators[i] == null) {
+            final PointsCollector collector = getCollector(i);
+            final int[] xx = collector.getXValues();
+            final int[] yy = collector.getYValues();
+            final GeometricMoments.Accumulator accu = new GeometricMoments.Accumulator(
+                    origin.x,
+                    origin.y);
+
+            for (int k = collector.getSize() - 1; k >= 0; k--) {
+                accu.include(xx[k], yy[k]);
+            }
+
+            accumulators[i] = accu;
+        }
+
+        return accumulators[i];
+    }
+
+    //--------------//
+    // getCollector //
+    //--------------//
+    private PointsCollector getCollector (int i)
+    {
+        if (collectors[i] == null) {
+            final Glyph part = parts[i];
+            final PointsCollector collector = new PointsCollector(null, weights[i]);
+            part.getRunTable().cumulate(collector, new Point(part.getLeft(), part.getTop()));
+            collectors[i] = collector;
+        }
+
+        return collectors[i];
+    }
+
+    //-------------//
+    // getOutliers //
+    //-------------//
     /**
      * Retrieve all parts at acceptable distance from at least one member of the
-     * provided set.
+     * provided subset, and not yet seen.
      *
-     * @param set the provided set
-     * @return all the parts reachable from the set
+     * @param members the subset members
+     * @param seen    (read only) parts already seen, including subset members
+     * @return indices of all the new parts reachable from the subset
      */
-    private Set<Glyph> getOutliers (Set<Glyph> set)
+    private List<Integer> getOutliers (int[] members,
+                                       BitSet seen)
     {
-        Set<Glyph> outliers = new LinkedHashSet<>();
-
-        for (Glyph part : set) {
-            outliers.addAll(adapter.getNeighbors(part));
+        final List<Integer> outliers = new ArrayList<>();
+        final BitSet found = (BitSet) seen.clone();
+
+        for (int member : members) {
+            for (int n : neighbors[member]) {
+                if (!found.get(n)) {
+                    found.set(n);
+                    outliers.add(n);
+                }
+            }
         }
 
-        outliers.removeAll(set);
-
         return outliers;
     }
 
+    //-----------//
+    // initParts //
+    //-----------//
     /**
-     * Process the provided set of parts.
+     * Index the cluster parts and cache their weight, bounds and neighbors.
      *
-     * @param parts (read only) the set of current parts
-     * @param seen  (read only) all parts considered so far (current parts plus discarded ones)
+     * @param seeds the parts, by decreasing weight
      */
-    private void process (Set<Glyph> parts,
-                          Set<Glyph> seen)
+    private void initParts (List<Glyph> seeds)
     {
-        ///logger.debug(" {} {} {}", set.size(), Glyphs.ids("set", set), Glyphs.ids("seen", seen));
+        final int count = seeds.size();
+        final Map<Glyph, Integer> indices = new HashMap<>();
+        parts = seeds.toArray(new Glyph[count]);
+        weights = new int[count];
+        boxes = new Rectangle[count];
+        neighbors = new int[count][];
+        collectors = new PointsCollector[count];
+        accumulators = new GeometricMoments.Accumulator[count];
+
+        for (int i = 0; i < count; i++) {
+            indices.put(parts[i], i);
+            weights[i] = parts[i].getWeight();
+            boxes[i] = parts[i].getBounds();
+        }
 
-        // Check what we have got
-        final int weight = Glyphs.weightOf(parts);
+        for (int i = 0; i < count; i++) {
+            final List<Integer> list = new ArrayList<>();
 
+            for (Glyph neighbor : adapter.getNeighbors(parts[i])) {
+                final Integer index = indices.get(neighbor);
+
+                if (index != null) {
+                    list.add(index);
+                }
+            }
+
+            neighbors[i] = new int[list.size()];
+
+            for (int k = 0; k < neighbors[i].length; k++) {
+                neighbors[i][k] = list.get(k);
+            }
+        }
+
+        final Rectangle bounds = Glyphs.getBounds(seeds);
+        origin = (bounds != null) ? bounds.getLocation() : new Point(0, 0);
+    }
+
+    //---------//
+    // process //
+    //---------//
+    /**
+     * Process the provided subset of parts.
+     *
+     * @param members (read only) indices of the current parts, in order of insertion
+     * @param mask    (read only) bit set of the current parts
+     * @param weight  total weight of the current parts
+     * @param box     (read only) bounds of the current parts
+     * @param seen    (read only) all parts considered so far (current parts plus discarded ones)
+     */
+    private void process (int[] members,
+                          BitSet mask,
+                          int weight,
+                          Rectangle box,
+                          BitSet seen)
+    {
+        // Check what we have got
         if (adapter.isTooHeavy(weight)) {
-            logger.debug("Too high weight {} for {}", weight, parts);
+            logger.debug("Too high weight {} for {}", weight, members);
 
             return;
         }
 
-        Rectangle box = Glyphs.getBounds(parts);
-
         if (adapter.isTooLarge(box)) {
-            logger.debug("Too large  {} for {}", box, parts);
+            logger.debug("Too large  {} for {}", box, members);
 
             return;
         }
 
         if (!adapter.isTooLight(weight)) {
-            // Build compound and get acceptable evaluations for the compound
-            Glyph compound = (parts.size() > 1) ? GlyphFactory.buildGlyph(parts)
-                    : parts.iterator().next();
-            compound.addGroup(group);
+            // Evaluate each subset only once
+            if (evaluated.add(mask)) {
+                final Subset subset = new Subset(members, weight, box);
 
-            // Create all acceptable inters, if any, for the compound
-            adapter.evaluateGlyph(compound, parts);
+                if ((members.length == 1) || adapter.isWorthBuilding(subset)) {
+                    // Build compound and get acceptable evaluations for the compound
+                    final Glyph compound = subset.getCompound();
+                    compound.addGroup(group);
+
+                    // Create all acceptable inters, if any, for the compound
+                    adapter.evaluateGlyph(compound, subset.getParts());
+                }
+            }
         } else {
-            logger.debug("Too low weight {} for {}", weight, parts);
+            logger.debug("Too low weight {} for {}", weight, members);
         }
 
         // Then, identify all outliers immediately reachable from the compound
-        Set<Glyph> outliers = getOutliers(parts);
-        outliers.removeAll(seen);
+        final List<Integer> outliers = getOutliers(members, seen);
 
         if (outliers.isEmpty()) {
             return; // No further growth is possible
         }
 
-        ///logger.debug("      {}", Glyphs.ids("outliers", outliers));
-        Rectangle setBox = Glyphs.getBounds(parts);
-        Set<Glyph> newConsidered = new LinkedHashSet<>(seen);
+        final BitSet newConsidered = (BitSet) seen.clone();
 
-        for (Glyph outlier : outliers) {
-            newConsidered.add(outlier);
+        for (int outlier : outliers) {
+            newConsidered.set(outlier);
 
             // Check appending this atom does not make the resulting symbol too wide or too high
-            Rectangle symBox = outlier.getBounds().union(setBox);
+            Rectangle symBox = boxes[outlier].union(box);
 
             if (!adapter.isTooLarge(symBox)) {
-                Set<Glyph> largerSet = new LinkedHashSet<>(parts);
-                largerSet.add(outlier);
-                process(largerSet, newConsidered);
+                final int[] largerSet = Arrays.copyOf(members, members.length + 1);
+                largerSet[members.length] = outlier;
+
+                final BitSet largerMask = (BitSet) mask.clone();
+                largerMask.set(outlier);
+                process(
+                        largerSet,
+                        largerMask,
+                        weight + weights[outlier],
+                        symBox,
+                        (BitSet) newConsidered.clone());
             }
         }
     }
@@ -285,6 +440,17 @@ public class GlyphCluster
          * @return true if too small
          */
         boolean isTooSmall (Rectangle bounds);
+
+        /**
+         * Check whether the compound of a subset deserves to be built and evaluated.
+         * <p>
+         * This is called before the compound glyph is built, so that a hopeless subset can be
+         * discarded on its weight, bounds and moments only.
+         *
+         * @param subset the subset of several parts
+         * @return true if compound is worth building
+         */
+        boolean isWorthBuilding (Subset subset);
     }
 
     public abstract static class AbstractAdapter
@@ -356,5 +522,181 @@ public class GlyphCluster
         {
             return false;
         }
+
+        @Override
+        public boolean isWorthBuilding (Subset subset)
+        {
+            return true;
+        }
+    }
+
+    //--------//
+    // Subset //
+    //--------//
+    /**
+     * A subset of cluster parts, whose compound glyph is not necessarily built.
+     */
+    public class Subset
+    {
+
+        /** Indices of parts, in order of insertion. */
+        private final int[] members;
+
+        /** Total weight. */
+        private final int weight;
+
+        /** Bounds of compound. */
+        private final Rectangle box;
+
+        /** ART moments of compound, if already computed. */
+        private ARTMoments artMoments;
+
+        /** Geometric moments of compound, if already computed. */
+        private GeometricMoments geoMoments;
+
+        Subset (int[] members,
+                int weight,
+                Rectangle box)
+        {
+            this.members = members;
+            this.weight = weight;
+            this.box = box;
+        }
+
+        //---------------//
+        // getARTMoments //
+        //---------------//
+        /**
+         * Report the ART moments of the compound, computed out of the parts points.
+         *
+         * @return the ART moments
+         */
+        public ARTMoments getARTMoments ()
+        {
+            if (artMoments == null) {
+                if (members.length == 1) {
+                    artMoments = parts[members[0]].getARTMoments();
+                } else {
+                    // ART moments are not additive, they depend on compound center and radius
+                    final int[] xx = new int[weight];
+                    final int[] yy = new int[weight];
+                    int offset = 0;
+
+                    for (int member : members) {
+                        final PointsCollector collector = getCollector(member);
+                        final int size = collector.getSize();
+                        System.arraycopy(collector.getXValues(), 0, xx, offset, size);
+                        System.arraycopy(collector.getYValues(), 0, yy, offset, size);
+                        offset += size;
+                    }
+
+                    final BasicARTExtractor extractor = new BasicARTExtractor();
+                    artMoments = new BasicARTMoments();
+                    extractor.setDescriptor(artMoments);
+                    extractor.extract(xx, yy, weight);
+                }
+            }
+
+            return artMoments;
+        }
+
+        //-----------//
+        // getBounds //
+        //-----------//
+        /**
+         * Report the bounds of the compound.
+         *
+         * @return compound bounds
+         */
+        public Rectangle getBounds ()
+        {
+            return new Rectangle(box);
+        }
+
+        //---------------------//
+        // getGeometricMoments //
+        //---------------------//
+        /**
+         * Report the geometric moments of the compound, combined from those of the parts.
+         *
+         * @param interline the related interline
+         * @return the geometric moments
+         */
+        public GeometricMoments getGeometricMoments (int interline)
+        {
+            if (geoMoments == null) {
+                if (members.length == 1) {
+                    geoMoments = parts[members[0]].getGeometricMoments(interline);
+                } else {
+                    final GeometricMoments.Accumulator accu = new GeometricMoments.Accumulator(
+                            getAccumulator(members[0]));
+
+                    for (int k = 1; k < members.length; k++) {
+                        accu.include(getAccumulator(members[k]));
+                    }
+
+                    geoMoments = accu.getMoments(interline);
+                }
+            }
+
+            return geoMoments;
+        }
+
+        //----------//
+        // getParts //
+        //----------//
+        /**
+         * Report the parts of this subset.
+         *
+         * @return the parts, in order of insertion
+         */
+        public Set<Glyph> getParts ()
+        {
+            final Set<Glyph> set = new LinkedHashSet<>();
+
+            for (int member : members) {
+                set.add(parts[member]);
+            }
+
+            return set;
+        }
+
+        //-----------//
+        // getWeight //
+        //-----------//
+        /**
+         * Report the weight of the compound.
+         *
+         * @return compound weight
+         */
+        public int getWeight ()
+        {
+            return weight;
+        }
+
+        //-------------//
+        // getCompound //
+        //-------------//
+        /**
+         * Report the compound glyph, built if needed with the moments already computed.
+         *
+         * @return the compound glyph
+         */
+        private Glyph getCompound ()
+        {
+            if (members.length == 1) {
+                return parts[members[0]];
+            }
+
+            final Glyph compound = GlyphFactory.buildGlyph(getParts());
+
+            // Parts are disjoint, hence moments remain valid for the compound
+            if (compound.getWeight() == weight) {
+                compound.artMoments = artMoments;
+                compound.geoMoments = geoMoments;
+            }
+
+            return compound;
+        }
     }
 }
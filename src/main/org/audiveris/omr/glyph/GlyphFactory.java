@@ -23,12 +23,14 @@ package org.audiveris.omr.glyph;
 
 import ij.process.ByteProcessor;
 
-import org.audiveris.omr.run.MarkedRun;
+import org.audiveris.omr.constant.Constant;
+import org.audiveris.omr.constant.ConstantSet;
 import static org.audiveris.omr.run.Orientation.VERTICAL;
-import org.audiveris.omr.run.Run;
 import org.audiveris.omr.run.RunTable;
 import org.audiveris.omr.run.RunTableFactory;
+import org.audiveris.omr.step.ProcessingCancellationException;
 import org.audiveris.omr.util.ByteUtil;
+import org.audiveris.omr.util.OmrExecutors;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -37,11 +39,10 @@ import java.awt.Point;
 import java.awt.Rectangle;
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.HashMap;
-import java.util.Iterator;
 import java.util.List;
-import java.util.Map;
-import java.util.Map.Entry;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 
 /**
  * Class {@code GlyphFactory} builds a collection of glyphs out of a provided {@link
@@ -52,12 +53,21 @@ import java.util.Map.Entry;
  * <p>
  * Comments refer to 'sequences', which are synonymous of columns for vertical runs, and of rows
  * for horizontal runs.
+ * <p>
+ * All runs are numbered in table order (sequence after sequence) and connected runs are
+ * gathered by a union-find structure, using only arrays of primitive ints.
+ * The root of each component is always its smallest run number, so that glyphs are created in
+ * the order of their first run.
+ * Sequences can be processed by parallel strips, whose components are then merged across the
+ * borders between strips.
  *
  * @author Hervé Bitteur
  */
 public class GlyphFactory
 {
 
+    private static final Constants constants = new Constants();
+
     private static final Logger logger = LoggerFactory.getLogger(GlyphFactory.class);
 
     /** Source runs. */
@@ -69,20 +79,20 @@ public class GlyphFactory
     /** Target group for all created glyphs. */
     private final GlyphGroup group;
 
-    /** Global list of all glyphs created. */
-    private final List<Glyph> created = new ArrayList<>();
+    /** Number of first run, per sequence (plus total count of runs at the end). */
+    private final int[] seqFirsts;
 
-    /** Global id to assign glyph marks. */
-    private int globalMark;
+    /** Start of each run. */
+    private int[] starts;
 
-    /** Specific run table implementation, meant for marking runs. */
-    private final List<List<MarkedRun>> markedTable;
+    /** Length of each run. */
+    private int[] lengths;
 
-    /** Merges (child => parent). (numerical invariant: child > parent) */
-    private final Map<Integer, Integer> merges = new HashMap<>();
+    /** Sequence index of each run. */
+    private int[] seqs;
 
-    /** Most efficient way to use merging information. */
-    private int[] lut;
+    /** Union-find parent of each run. */
+    private int[] parents;
 
     private GlyphFactory (RunTable runTable,
                           Point offset,
@@ -92,78 +102,93 @@ public class GlyphFactory
         this.offset = (offset != null) ? offset : new Point(0, 0);
         this.group = group;
 
-        // Allocate & initialize markedTable
-        markedTable = new ArrayList<>(runTable.getSize());
-
-        for (int iseq = 0, size = runTable.getSize(); iseq < size; iseq++) {
-            markedTable.add(new ArrayList<MarkedRun>());
-        }
+        seqFirsts = new int[runTable.getSize() + 1];
     }
 
     /**
-     * Build all the ancestor glyphs from the markedTable.
+     * Build all the glyphs, one per component, in the order of their first run.
+     *
+     * @return the created glyphs
      */
-    private void buildAllGlyphs ()
+    private List<Glyph> buildAllGlyphs ()
     {
-        logger.debug("glyphs: {}", globalMark - merges.size());
+        final int count = starts.length;
 
-        // Allocate & initialize glyph bufs
-        final List<List<Sequence>> bufs = new ArrayList<>(lut.length);
+        // Assign component ids, in the order of component roots
+        final int[] comps = new int[count]; // Component id of each run
+        int compCount = 0;
 
-        for (int i = 0, len = lut.length; i < len; i++) {
-            if ((i > 0) && (lut[i] == i)) {
-                bufs.add(new ArrayList<Sequence>());
-            } else {
-                bufs.add(null);
-            }
+        for (int i = 0; i < count; i++) {
+            final int root = find(i);
+            comps[i] = (root == i) ? compCount++ : comps[root];
         }
 
-        // Dispatch each run to its proper glyph buffer
-        for (int iSeq = 0, size = runTable.getSize(); iSeq < size; iSeq++) {
-            final List<MarkedRun> seq = markedTable.get(iSeq);
+        logger.debug("glyphs: {}", compCount);
 
-            for (MarkedRun run : seq) {
-                final int ancestor = lut[run.getMark()];
-                final List<Sequence> buf = bufs.get(ancestor);
+        // Sort runs by component, keeping table order within each component
+        final int[] compFirsts = new int[compCount + 1];
 
-                if (buf.isEmpty() || (buf.get(buf.size() - 1).iSeq != iSeq)) {
-                    buf.add(new Sequence(iSeq));
-                }
+        for (int i = 0; i < count; i++) {
+            compFirsts[comps[i] + 1]++;
+        }
 
-                final Sequence bufSeq = buf.get(buf.size() - 1);
-                bufSeq.runs.add(run);
-            }
+        for (int c = 0; c < compCount; c++) {
+            compFirsts[c + 1] += compFirsts[c];
         }
 
-        // Each allocated buf corresponds to one separated glyph
-        for (int i = 1, len = lut.length; i < len; i++) {
-            final List<Sequence> buf = bufs.get(i);
+        final int[] cursors = compFirsts.clone();
+        final int[] sortedStarts = new int[count];
+        final int[] sortedLengths = new int[count];
+        final int[] sortedSeqs = new int[count];
 
-            if (buf != null) {
-                buildGlyph(i, buf);
-            }
+        for (int i = 0; i < count; i++) {
+            final int k = cursors[comps[i]]++;
+            sortedStarts[k] = starts[i];
+            sortedLengths[k] = lengths[i];
+            sortedSeqs[k] = seqs[i];
         }
+
+        final List<Glyph> created = new ArrayList<>(compCount);
+
+        for (int c = 0; c < compCount; c++) {
+            created.add(
+                    buildGlyph(
+                            sortedStarts,
+                            sortedLengths,
+                            sortedSeqs,
+                            compFirsts[c],
+                            compFirsts[c + 1]));
+        }
+
+        return created;
     }
 
     /**
-     * Build the glyph for provided ancestor mark.
+     * Build the glyph for the provided range of sorted runs.
      *
-     * @param mark the mark value for this ancestor glyph
-     * @param buf  its populated sequences of runs
+     * @param starts  sorted run starts
+     * @param lengths sorted run lengths
+     * @param seqs    sorted run sequences
+     * @param from    first glyph run
+     * @param to      past last glyph run
+     * @return the glyph built
      */
-    private void buildGlyph (int mark,
-                             List<Sequence> buf)
+    private Glyph buildGlyph (int[] starts,
+                              int[] lengths,
+                              int[] seqs,
+                              int from,
+                              int to)
     {
-        // Determine glyph bounds within buf
-        final int iSeqMin = buf.get(0).iSeq;
-        final int iSeqMax = buf.get(buf.size() - 1).iSeq;
+        // Determine glyph bounds
+        final int iSeqMin = seqs[from];
+        final int iSeqMax = seqs[to - 1];
 
         int startMin = Integer.MAX_VALUE;
         int stopMax = 0;
 
-        for (Sequence seq : buf) {
-            startMin = Math.min(startMin, seq.runs.get(0).getStart());
-            stopMax = Math.max(stopMax, seq.runs.get(seq.runs.size() - 1).getStop());
+        for (int k = from; k < to; k++) {
+            startMin = Math.min(startMin, starts[k]);
+            stopMax = Math.max(stopMax, (starts[k] + lengths[k]) - 1);
         }
 
         final int dx = (runTable.getOrientation() == VERTICAL) ? iSeqMin : startMin;
@@ -177,151 +202,202 @@ public class GlyphFactory
         RunTable table = new RunTable(runTable.getOrientation(), width, height);
 
         // Populate table with RLE sequences
-        for (Sequence seq : buf) {
-            for (MarkedRun run : seq.runs) {
-                run.setStart(run.getStart() - startMin);
+        for (int k = from; k < to;) {
+            final int iSeq = seqs[k];
+            int kStop = k + 1;
+
+            while ((kStop < to) && (seqs[kStop] == iSeq)) {
+                kStop++;
             }
 
-            table.setSequence(seq.iSeq - iSeqMin, seq.runs);
+            table.setSequence(iSeq - iSeqMin, starts, lengths, k, kStop, startMin);
+            k = kStop;
         }
 
         // Store created glyph
         final Glyph glyph = new Glyph(offset.x + dx, offset.y + dy, table);
         glyph.addGroup(group);
-        created.add(glyph);
+
+        return glyph;
     }
 
     /**
-     * Build a LUT to provide, for any run mark, the mark of its containing ancestor.
+     * Copy all table runs into arrays.
      */
-    private void createLut ()
+    private void collectRuns ()
     {
-        lut = new int[1 + globalMark]; // Cell #0 is not used
+        final int size = runTable.getSize();
 
-        for (int i = 0; i <= globalMark; i++) {
-            lut[i] = i;
+        for (int iSeq = 0; iSeq < size; iSeq++) {
+            seqFirsts[iSeq + 1] = seqFirsts[iSeq] + runTable.getRunCount(iSeq);
         }
 
-        // Make any redirected child point directly to its ultimate ancestor
-        for (Entry<Integer, Integer> entry : merges.entrySet()) {
-            int child = entry.getKey();
-            Integer parent = entry.getValue();
-            Integer ancestor;
+        final int count = seqFirsts[size];
+        starts = new int[count];
+        lengths = new int[count];
+        seqs = new int[count];
+        parents = new int[count];
 
-            do { // Walk down the merges path
-                ancestor = parent;
-                parent = merges.get(parent);
-            } while (parent != null);
+        for (int iSeq = 0; iSeq < size; iSeq++) {
+            runTable.getRuns(iSeq, starts, lengths, seqFirsts[iSeq]);
 
-            lut[child] = ancestor;
+            for (int i = seqFirsts[iSeq]; i < seqFirsts[iSeq + 1]; i++) {
+                seqs[i] = iSeq;
+                parents[i] = i;
+            }
         }
     }
 
     /**
-     * Remember that runs marked with 'max' or 'min' values belong to the same glyph.
-     * This equivalence is recorded only in the max => min direction.
+     * Connect the overlapping runs of two consecutive sequences.
      *
-     * @param max the larger mark value
-     * @param min the smaller mark value
+     * @param iSeq index of the second sequence
      */
-    private void merge (int max,
-                        int min)
+    private void connect (int iSeq)
     {
-        Integer old = merges.get(max);
-
-        if (old == null) {
-            merges.put(max, min); // Target is max=>min
-        } else if (min > old) { // Target is max=>min---old
-            merge(min, old);
-            merges.put(max, min);
-        } else if (old != min) {
-            merge(old, min); // Target is max=>old---min
+        int p = seqFirsts[iSeq - 1];
+        final int pBreak = seqFirsts[iSeq];
+        int n = seqFirsts[iSeq];
+        final int nBreak = seqFirsts[iSeq + 1];
+
+        while ((p < pBreak) && (n < nBreak)) {
+            final int pStop = (starts[p] + lengths[p]) - 1;
+            final int nStop = (starts[n] + lengths[n]) - 1;
+
+            if ((starts[p] <= nStop) && (pStop >= starts[n])) {
+                union(p, n);
+            }
+
+            if (pStop < nStop) {
+                p++;
+            } else {
+                n++;
+            }
         }
     }
 
     /**
-     * Retrieve all glyphs from the provided table of runs.
+     * Report the root of the provided run, with path halving.
      *
-     * @param runTable the table of runs
-     * @return the list of created glyphs
+     * @param run the run number
+     * @return the number of root run
      */
-    private List<Glyph> process ()
+    private int find (int run)
     {
-        //        StopWatch watch = new StopWatch("GlyphFactory");
-        //
-        //        try {
-        //            watch.start("scan");
-        scanTable();
-        //
-        //            watch.start("lut");
-        createLut();
-        //
-        //            watch.start("glyphs");
-        buildAllGlyphs();
+        int r = run;
 
-        return created;
+        while (parents[r] != r) {
+            parents[r] = parents[parents[r]];
+            r = parents[r];
+        }
 
-        //        } finally {
-        //            watch.print();
-        //        }
+        return r;
     }
 
     /**
-     * Populate the 'markedTable', a temporary representation of runs with their
-     * connectivity recorded in 'merges'.
-     * <p>
-     * Browse the sequences of the input run table, detect run overlap from one sequence to the
-     * next, and flag each run with proper glyph mark.
+     * Label all runs, using the provided count of strips.
+     *
+     * @param stripCount number of strips
      */
-    private void scanTable ()
+    private void labelRuns (int stripCount)
     {
-        // Scan each pair of consecutive sequences
-        for (int iSeq = 0, size = runTable.getSize(); iSeq < size; iSeq++) {
-            final List<MarkedRun> prevSeq = (iSeq > 0) ? markedTable.get(iSeq - 1) : null;
-            final List<MarkedRun> nextSeq = markedTable.get(iSeq);
-            final int maxPIdx = (iSeq > 0) ? (prevSeq.size() - 1) : (-1);
-            int pIdxActive = 0; // Active run index in prev sequence
-
-            for (Iterator<Run> it = runTable.iterator(iSeq); it.hasNext();) {
-                // Allocate the MarkedRun that corresponds to current Run
-                final Run run = it.next();
-                final int nextStart = run.getStart();
-                final int nextStop = run.getStop();
-                final MarkedRun nextRun = new MarkedRun(nextStart, run.getLength(), 0);
-                nextSeq.add(nextRun);
-
-                // Browse marked runs from previous sequence
-                for (int pIdx = pIdxActive; pIdx <= maxPIdx; pIdx++) {
-                    final MarkedRun prevRun = prevSeq.get(pIdx);
-
-                    if (prevRun.getStart() > nextStop) {
-                        break;
-                    }
-
-                    if (prevRun.getStop() >= nextStart) {
-                        final int prevMark = prevRun.getMark();
-                        final int nextMark = nextRun.getMark();
-
-                        if (nextMark == 0) {
-                            nextRun.setMark(prevMark);
-                        } else {
-                            final int min = Math.min(prevMark, nextMark);
-                            final int max = Math.max(prevMark, nextMark);
-
-                            if (min != max) {
-                                merge(max, min); // Record equivalence between these 2 marks
-                            }
-                        }
-
-                        pIdxActive = pIdx;
-                    }
-                }
+        final int size = runTable.getSize();
+
+        if (stripCount <= 1) {
+            labelStrip(0, size);
 
-                // No overlap found, hence use a new mark
-                if (nextRun.getMark() == 0) {
-                    nextRun.setMark(++globalMark);
+            return;
+        }
+
+        // Label each strip on its own, since its unions never go beyond strip runs
+        final int stripSize = (size + stripCount - 1) / stripCount;
+        final List<Callable<Void>> tasks = new ArrayList<>();
+
+        for (int iSeq = 0; iSeq < size; iSeq += stripSize) {
+            final int i1 = iSeq;
+            final int i2 = Math.min(size, iSeq + stripSize);
+            tasks.add(new Callable<Void>()
+            {
+                @Override
+                public Void call ()
+                        throws Exception
+                {
+                    labelStrip(i1, i2);
+
+                    return null;
                 }
+            });
+        }
+
+        try {
+            for (Future<Void> future : OmrExecutors.getHighExecutor().invokeAll(tasks)) {
+                future.get();
             }
+        } catch (InterruptedException ex) {
+            logger.warn("GlyphFactory got interrupted");
+            throw new ProcessingCancellationException(ex);
+        } catch (ExecutionException ex) {
+            logger.warn("Exception raised in GlyphFactory", ex.getCause());
+            throw new RuntimeException(ex.getCause());
+        }
+
+        // Merge components across strip borders
+        for (int iSeq = stripSize; iSeq < size; iSeq += stripSize) {
+            connect(iSeq);
+        }
+    }
+
+    /**
+     * Connect runs within the sequences of a strip.
+     *
+     * @param iSeqMin first sequence of strip
+     * @param iSeqMax past last sequence of strip
+     */
+    private void labelStrip (int iSeqMin,
+                             int iSeqMax)
+    {
+        for (int iSeq = Math.max(1, iSeqMin + 1); iSeq < iSeqMax; iSeq++) {
+            connect(iSeq);
+        }
+    }
+
+    /**
+     * Retrieve all glyphs from the provided table of runs.
+     *
+     * @param stripCount number of strips for labeling, or 0 for default
+     * @return the list of created glyphs
+     */
+    private List<Glyph> process (int stripCount)
+    {
+        if (stripCount == 0) {
+            stripCount = OmrExecutors.defaultParallelism.getValue() ? Math.min(
+                    OmrExecutors.getNumberOfCpus(),
+                    runTable.getSize() / constants.minStripSize.getValue()) : 1;
+        }
+
+        collectRuns();
+        labelRuns(stripCount);
+
+        return buildAllGlyphs();
+    }
+
+    /**
+     * Record that the two provided runs belong to the same component.
+     * The smaller root becomes the root of the merged component.
+     *
+     * @param r1 a run number
+     * @param r2 another run number
+     */
+    private void union (int r1,
+                        int r2)
+    {
+        final int root1 = find(r1);
+        final int root2 = find(r2);
+
+        if (root1 < root2) {
+            parents[root2] = root1;
+        } else if (root2 < root1) {
+            parents[root1] = root2;
         }
     }
 
@@ -362,7 +438,7 @@ public class GlyphFactory
     public static List<Glyph> buildGlyphs (RunTable runTable,
                                            Point offset)
     {
-        return new GlyphFactory(runTable, offset, null).process();
+        return new GlyphFactory(runTable, offset, null).process(0);
     }
 
     //-------------//
@@ -380,42 +456,40 @@ public class GlyphFactory
                                            Point offset,
                                            GlyphGroup group)
     {
-        return new GlyphFactory(runTable, offset, group).process();
+        return new GlyphFactory(runTable, offset, group).process(0);
     }
 
-    //----------//
-    // Sequence //
-    //----------//
+    //-------------//
+    // buildGlyphs //
+    //-------------//
     /**
-     * A sequence of marked runs, that all belong to the same glyph, together with the
-     * sequence index in runTable.
+     * Create a collection of glyphs out of the provided RunTable, using the provided
+     * count of strips for runs labeling.
+     *
+     * @param runTable   the source table of runs
+     * @param offset     offset of runTable WRT absolute origin
+     * @param group      targeted group, if any
+     * @param stripCount number of strips
+     * @return the list of glyphs created
      */
-    private static class Sequence
+    static List<Glyph> buildGlyphs (RunTable runTable,
+                                    Point offset,
+                                    GlyphGroup group,
+                                    int stripCount)
     {
+        return new GlyphFactory(runTable, offset, group).process(stripCount);
+    }
 
-        final int iSeq; // Index in runTable
-
-        final List<MarkedRun> runs = new ArrayList<>(); // Sequence of glyph marked runs
+    //-----------//
+    // Constants //
+    //-----------//
+    private static class Constants
+            extends ConstantSet
+    {
 
-        Sequence (int iSeq)
-        {
-            this.iSeq = iSeq;
-        }
+        private final Constant.Integer minStripSize = new Constant.Integer(
+                "Sequences",
+                256,
+                "Minimum number of sequences in a strip labeled in parallel");
     }
 }
-//
-//        private void dumpTable (String title)
-//        {
-//            System.out.println(title);
-//
-//            for (int iSeq = 0, size = markedTable.size(); iSeq < size; iSeq++) {
-//                System.out.println("iSeq = " + iSeq);
-//
-//                List<MarkedRun> seq = markedTable.get(iSeq);
-//
-//                for (MarkedRun run : seq) {
-//                    System.out.println("   run = " + run);
-//                }
-//            }
-//        }
-//
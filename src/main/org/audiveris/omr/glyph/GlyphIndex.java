@@ -32,7 +32,6 @@ import org.audiveris.omr.ui.selection.MouseMovement;
 import org.audiveris.omr.ui.selection.SelectionHint;
 import org.audiveris.omr.ui.selection.SelectionService;
 import org.audiveris.omr.util.BasicIndex;
-import org.audiveris.omr.util.Entities;
 import org.audiveris.omr.util.EntityIndex;
 import org.audiveris.omr.util.IntUtil;
 
@@ -98,13 +97,22 @@ public class GlyphIndex
     {
     }
 
+    //-------------//
+    // addListener //
+    //-------------//
+    @Override
+    public void addListener (Listener listener)
+    {
+        weakIndex.addListener(listener);
+    }
+
     //----------------------//
     // getContainedEntities //
     //----------------------//
     @Override
     public List<Glyph> getContainedEntities (Rectangle rectangle)
     {
-        return Entities.containedEntities(iterator(), rectangle);
+        return glyphsOf(weakIndex.getContainedEntities(rectangle));
     }
 
     //-----------------------//
@@ -113,7 +121,7 @@ public class GlyphIndex
     @Override
     public List<Glyph> getContainingEntities (Point point)
     {
-        return Entities.containingEntities(iterator(), point);
+        return glyphsOf(weakIndex.getContainingEntities(point));
     }
 
     //-------------//
@@ -217,6 +225,16 @@ public class GlyphIndex
         return "glyphIndex";
     }
 
+    //--------------------//
+    // getNearestEntities //
+    //--------------------//
+    @Override
+    public List<Glyph> getNearestEntities (Point point,
+                                           int count)
+    {
+        return glyphsOf(weakIndex.getNearestEntities(point, count));
+    }
+
     //------------------//
     // getSelectedGlyph //
     //------------------//
@@ -395,6 +413,15 @@ public class GlyphIndex
         weakIndex.remove(weak);
     }
 
+    //----------------//
+    // removeListener //
+    //----------------//
+    @Override
+    public void removeListener (Listener listener)
+    {
+        weakIndex.removeListener(listener);
+    }
+
     //-------//
     // reset //
     //-------//
@@ -405,6 +432,30 @@ public class GlyphIndex
         originals.clear();
     }
 
+    //----------//
+    // glyphsOf //
+    //----------//
+    /**
+     * Report the glyphs still referenced by the provided weak glyphs.
+     *
+     * @param weaks the weak glyphs
+     * @return the concrete glyphs, perhaps empty
+     */
+    private static List<Glyph> glyphsOf (List<WeakGlyph> weaks)
+    {
+        final List<Glyph> glyphs = new ArrayList<>(weaks.size());
+
+        for (WeakGlyph weak : weaks) {
+            final Glyph glyph = weak.get();
+
+            if (glyph != null) {
+                glyphs.add(glyph);
+            }
+        }
+
+        return glyphs;
+    }
+
     //-----------------//
     // privateRegister //
     //-----------------//
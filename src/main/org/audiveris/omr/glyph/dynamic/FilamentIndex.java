@@ -160,6 +160,20 @@ public class FilamentIndex
         }
     }
 
+    //--------------------//
+    // isSpatiallyIndexed //
+    //--------------------//
+    /**
+     * Filaments keep growing after their registration.
+     *
+     * @return false
+     */
+    @Override
+    protected boolean isSpatiallyIndexed ()
+    {
+        return false;
+    }
+
     //-----------//
     // Constants //
     //-----------//
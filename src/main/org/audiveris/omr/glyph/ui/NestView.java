@@ -33,6 +33,8 @@ import org.audiveris.omr.ui.ViewParameters;
 import org.audiveris.omr.ui.ViewParameters.SelectionMode;
 import org.audiveris.omr.ui.selection.EntityService;
 import org.audiveris.omr.ui.util.UIUtil;
+import org.audiveris.omr.ui.view.TileCache;
+import org.audiveris.omr.util.EntityIndex;
 import org.audiveris.omr.util.Navigable;
 
 import org.slf4j.Logger;
@@ -40,7 +42,9 @@ import org.slf4j.LoggerFactory;
 
 import java.awt.Color;
 import java.awt.Graphics2D;
+import java.awt.Rectangle;
 import java.awt.Stroke;
+import java.lang.ref.WeakReference;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -68,6 +72,19 @@ public class NestView
     @Navigable(false)
     private final Sheet sheet;
 
+    /** Whether cached sections are drawn with their borders. */
+    private volatile boolean sectionBorders;
+
+    /** Cached rendering of lags sections. */
+    private final TileCache sectionTiles = new TileCache(new TileCache.Painter()
+    {
+        @Override
+        public void paint (Graphics2D g)
+        {
+            paintSections(g);
+        }
+    });
+
     /**
      * Create a nest view.
      *
@@ -86,6 +103,11 @@ public class NestView
 
         glyphIndex = (GlyphIndex) glyphService.getIndex();
 
+        // Discard just the cached tiles impacted by any lag modification
+        for (Lag lag : this.lags) {
+            lag.addListener(new LagListener(lag, sectionTiles));
+        }
+
         setName("NestView");
     }
 
@@ -99,18 +121,7 @@ public class NestView
         final boolean drawBorders = ViewParameters.getInstance()
                 .getSelectionMode() == SelectionMode.MODE_SECTION;
 
-        // Stroke for borders
-        final Stroke oldStroke = UIUtil.setAbsoluteStroke(g, 1f);
-
-        for (Lag lag : lags) {
-            // Render all sections, using the colors they have been assigned
-            for (Section section : lag.getEntities()) {
-                section.render(g, drawBorders, null);
-            }
-        }
-
-        // Restore stroke
-        g.setStroke(oldStroke);
+        renderSections(g, drawBorders);
     }
 
     //-------------//
@@ -204,6 +215,45 @@ public class NestView
         }
     }
 
+    //----------------//
+    // renderSections //
+    //----------------//
+    /**
+     * Render all lags sections, through cached tiles.
+     * <p>
+     * All tiles are discarded when the borders mode changes, while a lag modification
+     * discards just the tiles of the modified area.
+     *
+     * @param g           graphic context
+     * @param drawBorders true for drawing section borders
+     */
+    protected void renderSections (Graphics2D g,
+                                   boolean drawBorders)
+    {
+        sectionBorders = drawBorders;
+        sectionTiles.validate(drawBorders);
+        sectionTiles.render(g);
+    }
+
+    //---------------//
+    // paintSections //
+    //---------------//
+    private void paintSections (Graphics2D g)
+    {
+        // Stroke for borders
+        final Stroke oldStroke = UIUtil.setAbsoluteStroke(g, 1f);
+
+        for (Lag lag : lags) {
+            // Render all sections, using the colors they have been assigned
+            for (Section section : lag.getEntities()) {
+                section.render(g, sectionBorders, null);
+            }
+        }
+
+        // Restore stroke
+        g.setStroke(oldStroke);
+    }
+
     //    //---------------------//
     //    // renderGlyphSentence //
     //    //---------------------//
@@ -335,4 +385,42 @@ public class NestView
                 true,
                 "Should we show sentence baseline (vs inter-word gaps)?");
     }
+
+    //-------------//
+    // LagListener //
+    //-------------//
+    /**
+     * Listener on a lag, which discards the cached tiles impacted by lag modifications.
+     * <p>
+     * The tile cache is weakly referenced, so that a lag does not retain a discarded view.
+     */
+    private static class LagListener
+            implements EntityIndex.Listener
+    {
+
+        private final Lag lag;
+
+        private final WeakReference<TileCache> cacheRef;
+
+        LagListener (Lag lag,
+                     TileCache cache)
+        {
+            this.lag = lag;
+            cacheRef = new WeakReference<>(cache);
+        }
+
+        @Override
+        public void contentChanged (Rectangle area)
+        {
+            final TileCache cache = cacheRef.get();
+
+            if (cache == null) {
+                lag.removeListener(this);
+            } else if (area != null) {
+                cache.invalidate(area);
+            } else {
+                cache.invalidateAll();
+            }
+        }
+    }
 }
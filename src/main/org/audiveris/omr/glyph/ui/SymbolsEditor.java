@@ -581,18 +581,9 @@ public class SymbolsEditor
                 // Sections
                 final boolean drawBorders = viewParams
                         .getSelectionMode() == SelectionMode.MODE_SECTION;
-                final Stroke oldStroke = (drawBorders) ? UIUtil.setAbsoluteStroke(g, 1f) : null;
 
-                for (Lag lag : lags) {
-                    // Render all sections, using H/V assigned colors
-                    for (Section section : lag.getEntities()) {
-                        section.render(g, drawBorders, null);
-                    }
-                }
-
-                if (oldStroke != null) {
-                    g.setStroke(oldStroke);
-                }
+                // Render all sections, using H/V assigned colors
+                renderSections(g, drawBorders);
 
                 // Inters (with graded colors)
                 new SheetGradedPainter(sheet, g).process();
@@ -26,11 +26,21 @@ import ij.process.ByteProcessor;
 import org.audiveris.omr.constant.Constant;
 import org.audiveris.omr.constant.ConstantSet;
 import org.audiveris.omr.math.Population;
+import org.audiveris.omr.run.Orientation;
+import org.audiveris.omr.run.Run;
+import org.audiveris.omr.run.RunTable;
+import org.audiveris.omr.step.ProcessingCancellationException;
+import org.audiveris.omr.util.OmrExecutors;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 
 /**
  * Class {@code AdaptiveFilter} is an abstract implementation of {@code PixelFilter}
@@ -75,6 +85,10 @@ import java.util.Arrays;
  * <br>
  * This property is used to incrementally populate the table.</li>
  * </ul>
+ * <p>
+ * Method {@link #filteredTable()} provides the foreground runs directly, without any intermediate
+ * binary image. The image is split into vertical strips, processed in parallel when allowed, each
+ * strip using its own sliding integrals.
  *
  * @author ryo/twitter &#64;xiaot_Tag
  * @author Hervé Bitteur
@@ -141,6 +155,26 @@ public abstract class AdaptiveFilter
         return ip;
     }
 
+    //---------------//
+    // filteredTable //
+    //---------------//
+    /**
+     * Run the filter on source image and report the foreground pixels as a vertical
+     * run table.
+     * <p>
+     * The result is identical to the table built from {@link #filteredImage()}.
+     *
+     * @return the vertical table of foreground runs
+     */
+    public RunTable filteredTable ()
+    {
+        final int stripCount = OmrExecutors.defaultParallelism.getValue() ? Math.min(
+                OmrExecutors.getNumberOfCpus(),
+                source.getWidth() / constants.minStripWidth.getValue()) : 1;
+
+        return filteredTable(Math.max(1, stripCount));
+    }
+
     //------------//
     // getContext //
     //------------//
@@ -197,6 +231,144 @@ public abstract class AdaptiveFilter
         return isFore;
     }
 
+    //---------------//
+    // filteredTable //
+    //---------------//
+    /**
+     * Build the vertical table of foreground runs, using the provided count of strips.
+     *
+     * @param stripCount number of vertical strips
+     * @return the vertical table of foreground runs
+     */
+    RunTable filteredTable (int stripCount)
+    {
+        final int width = source.getWidth();
+        final RunTable table = new RunTable(Orientation.VERTICAL, width, source.getHeight());
+
+        if (stripCount <= 1) {
+            filterStrip(0, width, table);
+
+            return table;
+        }
+
+        final int stripWidth = (width + stripCount - 1) / stripCount;
+        final List<Callable<Void>> tasks = new ArrayList<>();
+
+        for (int xMin = 0; xMin < width; xMin += stripWidth) {
+            final int x1 = xMin;
+            final int x2 = Math.min(width, xMin + stripWidth);
+            tasks.add(new Callable<Void>()
+            {
+                @Override
+                public Void call ()
+                        throws Exception
+                {
+                    filterStrip(x1, x2, table);
+
+                    return null;
+                }
+            });
+        }
+
+        try {
+            for (Future<Void> future : OmrExecutors.getHighExecutor().invokeAll(tasks)) {
+                future.get();
+            }
+        } catch (InterruptedException ex) {
+            logger.warn("filteredTable got interrupted");
+            throw new ProcessingCancellationException(ex);
+        } catch (ExecutionException ex) {
+            logger.warn("Exception raised in filteredTable", ex.getCause());
+            throw new RuntimeException(ex.getCause());
+        }
+
+        return table;
+    }
+
+    //-------------//
+    // filterStrip //
+    //-------------//
+    /**
+     * Filter the provided vertical strip of source image, and write the foreground runs
+     * of each strip column into the table.
+     * <p>
+     * Integrals are computed on a sliding tile, starting just before the window of strip first
+     * column. Since window integrals are differences of tile integrals, they are the same as if
+     * the tile had started at image left side.
+     *
+     * @param xMin  first abscissa of strip
+     * @param xMax  abscissa past the strip
+     * @param table the table to populate
+     */
+    private void filterStrip (int xMin,
+                              int xMax,
+                              RunTable table)
+    {
+        final int width = source.getWidth();
+        final int height = source.getHeight();
+        final byte[] pixels = (byte[]) source.getPixels();
+        final int tileWidth = 2 + (2 * HALF_WINDOW_SIZE);
+        final long[][] sums = new long[tileWidth][height];
+        final long[][] sqrSums = new long[tileWidth][height];
+        final List<Run> runs = new ArrayList<>();
+
+        // Last column populated in tile
+        int xRight = Math.max(0, xMin - HALF_WINDOW_SIZE - 1) - 1;
+
+        for (int x = xMin; x < xMax; x++) {
+            final int x1 = Math.max(-1, x - HALF_WINDOW_SIZE - 1);
+            final int x2 = Math.min(width - 1, x + HALF_WINDOW_SIZE);
+
+            while (xRight < x2) {
+                xRight++;
+
+                final int prev = (xRight + tileWidth - 1) % tileWidth;
+                populateColumns(
+                        pixels,
+                        width,
+                        xRight,
+                        sums[prev],
+                        sqrSums[prev],
+                        sums[xRight % tileWidth],
+                        sqrSums[xRight % tileWidth]);
+            }
+
+            final long[] left = (x1 >= 0) ? sums[x1 % tileWidth] : null;
+            final long[] right = sums[x2 % tileWidth];
+            final long[] sqrLeft = (x1 >= 0) ? sqrSums[x1 % tileWidth] : null;
+            final long[] sqrRight = sqrSums[x2 % tileWidth];
+            int start = -1; // Start of current foreground run, if any
+
+            for (int y = 0; y < height; y++) {
+                final int y1 = Math.max(-1, y - HALF_WINDOW_SIZE - 1);
+                final int y2 = Math.min(height - 1, y + HALF_WINDOW_SIZE);
+                final int area = (y2 - y1) * (x2 - x1);
+                final double mean = integral(left, right, y1, y2) / area;
+                final double sqrMean = integral(sqrLeft, sqrRight, y1, y2) / area;
+                final double stdDev = Math.sqrt(Math.abs(sqrMean - (mean * mean)));
+                final boolean isFore = (pixels[(y * width) + x] & 0xFF) <= getThreshold(
+                        mean,
+                        stdDev);
+
+                if (isFore) {
+                    if (start == -1) {
+                        start = y;
+                    }
+                } else if (start != -1) {
+                    runs.add(new Run(start, y - start));
+                    start = -1;
+                }
+            }
+
+            if (start != -1) {
+                runs.add(new Run(start, height - start));
+            }
+
+            table.setSequence(x, runs);
+            runs.clear();
+        }
+    }
+
     //--------------//
     // getThreshold //
     //--------------//
@@ -207,6 +379,74 @@ public abstract class AdaptiveFilter
         return (MEAN_COEFF * mean) + (STD_DEV_COEFF * stdDev);
     }
 
+    //----------//
+    // integral //
+    //----------//
+    /**
+     * Report the integral of a window, knowing the tile columns on its left and right sides.
+     *
+     * @param left  integrals of column on left of window, or null if none
+     * @param right integrals of window right column
+     * @param y1    ordinate above window, or -1
+     * @param y2    window bottom ordinate
+     * @return the window integral
+     */
+    private static double integral (long[] left,
+                                    long[] right,
+                                    int y1,
+                                    int y2)
+    {
+        final long a = ((left != null) && (y1 >= 0)) ? left[y1] : 0;
+        final long b = (y1 >= 0) ? right[y1] : 0;
+        final long c = (left != null) ? left[y2] : 0;
+        final long d = right[y2];
+
+        return (a + d) - b - c;
+    }
+
+    //-----------------//
+    // populateColumns //
+    //-----------------//
+    /**
+     * Populate the integrals of plain and squared values for the provided column,
+     * building on the integrals of previous column.
+     *
+     * @param pixels     source pixels
+     * @param width      source width
+     * @param x          the column abscissa
+     * @param prevSums   plain integrals of previous column
+     * @param prevSqrs   squared integrals of previous column
+     * @param sums       plain integrals to populate
+     * @param sqrs       squared integrals to populate
+     */
+    private static void populateColumns (byte[] pixels,
+                                         int width,
+                                         int x,
+                                         long[] prevSums,
+                                         long[] prevSqrs,
+                                         long[] sums,
+                                         long[] sqrs)
+    {
+        long top = 0;
+        long topLeft = 0;
+        long sqrTop = 0;
+        long sqrTopLeft = 0;
+
+        for (int y = 0, height = sums.length; y < height; y++) {
+            final long pix = pixels[(y * width) + x] & 0xFF;
+            final long left = prevSums[y];
+            final long sqrLeft = prevSqrs[y];
+
+            top = (pix + left + top) - topLeft;
+            sums[y] = top;
+            topLeft = left;
+
+            sqrTop = ((pix * pix) + sqrLeft + sqrTop) - sqrTopLeft;
+            sqrs[y] = sqrTop;
+            sqrTopLeft = sqrLeft;
+        }
+    }
+
     //------//
     // Tile //
     //------//
@@ -390,5 +630,10 @@ public abstract class AdaptiveFilter
                 "Pixels",
                 18,
                 "Half size of window around a given pixel");
+
+        private final Constant.Integer minStripWidth = new Constant.Integer(
+                "Pixels",
+                200,
+                "Minimum width of a vertical strip processed in parallel");
     }
 }
@@ -0,0 +1,680 @@
+//------------------------------------------------------------------------------------------------//
+//                                                                                                //
+//                                    B a n d P i p e l i n e                                     //
+//                                                                                                //
+//------------------------------------------------------------------------------------------------//
+// <editor-fold defaultstate="collapsed" desc="hdr">
+//
+//  Copyright © Audiveris 2018. All rights reserved.
+//
+//  This program is free software: you can redistribute it and/or modify it under the terms of the
+//  GNU Affero General Public License as published by the Free Software Foundation, either version
+//  3 of the License, or (at your option) any later version.
+//
+//  This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+//  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+//  See the GNU Affero General Public License for more details.
+//
+//  You should have received a copy of the GNU Affero General Public License along with this
+//  program.  If not, see <http://www.gnu.org/licenses/>.
+//------------------------------------------------------------------------------------------------//
+// </editor-fold>
+
+package org.audiveris.omr.image;
+
+import ij.process.ByteProcessor;
+
+import org.audiveris.omr.constant.Constant;
+import org.audiveris.omr.constant.ConstantSet;
+import org.audiveris.omr.run.Orientation;
+import org.audiveris.omr.run.Run;
+import org.audiveris.omr.run.RunTable;
+import org.audiveris.omr.step.ProcessingCancellationException;
+import org.audiveris.omr.util.OmrExecutors;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+/**
+ * Class {@code BandPipeline} chains gray-level processing stages over horizontal bands of
+ * a source image, without allocating any full-size intermediate image.
+ * <p>
+ * The image is split into bands of rows. For a given band, each {@link Stage} computes just the
+ * rows needed by the following stages, that is the band rows extended by the sum of the halos of
+ * the following stages.
+ * The final rows of each band are handed to every {@link Sink}, for example a {@link TableSink}
+ * that directly builds the run table of a thresholded result.
+ * <p>
+ * Bands are independent and can be processed in parallel, so the peak memory depends on the
+ * count of bands in progress rather than on the count of stages.
+ *
+ * @author Hervé Bitteur
+ */
+public class BandPipeline
+{
+
+    private static final Constants constants = new Constants();
+
+    private static final Logger logger = LoggerFactory.getLogger(BandPipeline.class);
+
+    /** The source image. */
+    private final ByteProcessor source;
+
+    /** Sequence of stages. */
+    private final List<Stage> stages = new ArrayList<>();
+
+    /** Consumers of final bands. */
+    private final List<Sink> sinks = new ArrayList<>();
+
+    /**
+     * Creates a new {@code BandPipeline} object.
+     *
+     * @param source the source image, which is not modified
+     */
+    public BandPipeline (ByteProcessor source)
+    {
+        this.source = source;
+    }
+
+    //-----//
+    // add //
+    //-----//
+    /**
+     * Append a stage to the pipeline.
+     *
+     * @param stage the stage to append
+     * @return this pipeline, to allow chaining
+     */
+    public BandPipeline add (Stage stage)
+    {
+        stages.add(stage);
+
+        return this;
+    }
+
+    //---------//
+    // addSink //
+    //---------//
+    /**
+     * Add a consumer of final bands.
+     *
+     * @param sink the sink to add
+     * @return this pipeline, to allow chaining
+     */
+    public BandPipeline addSink (Sink sink)
+    {
+        sinks.add(sink);
+
+        return this;
+    }
+
+    //-----//
+    // run //
+    //-----//
+    /**
+     * Process the whole source image.
+     */
+    public void run ()
+    {
+        run(constants.bandHeight.getValue(), OmrExecutors.defaultParallelism.getValue());
+    }
+
+    //-----//
+    // run //
+    //-----//
+    /**
+     * Process the whole source image, using the provided band height.
+     *
+     * @param bandHeight count of final rows per band
+     * @param parallel   true to process bands in parallel
+     */
+    void run (int bandHeight,
+              boolean parallel)
+    {
+        final int height = source.getHeight();
+
+        if (!parallel) {
+            for (int y = 0; y < height; y += bandHeight) {
+                processBand(y, Math.min(height, y + bandHeight));
+            }
+
+            return;
+        }
+
+        final List<Callable<Void>> tasks = new ArrayList<>();
+
+        for (int y = 0; y < height; y += bandHeight) {
+            final int y1 = y;
+            final int y2 = Math.min(height, y + bandHeight);
+            tasks.add(new Callable<Void>()
+            {
+                @Override
+                public Void call ()
+                        throws Exception
+                {
+                    processBand(y1, y2);
+
+                    return null;
+                }
+            });
+        }
+
+        try {
+            for (Future<Void> future : OmrExecutors.getHighExecutor().invokeAll(tasks)) {
+                future.get();
+            }
+        } catch (InterruptedException ex) {
+            logger.warn("Band pipeline got interrupted");
+            throw new ProcessingCancellationException(ex);
+        } catch (ExecutionException ex) {
+            logger.warn("Exception raised in band pipeline", ex.getCause());
+            throw new RuntimeException(ex.getCause());
+        }
+    }
+
+    //-------------//
+    // processBand //
+    //-------------//
+    /**
+     * Process all stages for the provided range of final rows.
+     *
+     * @param yMin first final row
+     * @param yMax row past last final row
+     */
+    private void processBand (int yMin,
+                              int yMax)
+    {
+        final int width = source.getWidth();
+        final int height = source.getHeight();
+        final int count = stages.size();
+
+        // Compute range of rows to be produced by each stage, backwards
+        final int[] mins = new int[count + 1];
+        final int[] maxs = new int[count + 1];
+        mins[count] = yMin;
+        maxs[count] = yMax;
+
+        for (int i = count - 1; i >= 0; i--) {
+            final int halo = stages.get(i).getHalo();
+            mins[i] = Math.max(0, mins[i + 1] - halo);
+            maxs[i] = Math.min(height, maxs[i + 1] + halo);
+        }
+
+        Band band = new Band((byte[]) source.getPixels(), width, height, 0, height);
+
+        for (int i = 0; i < count; i++) {
+            final Band target = new Band(width, height, mins[i + 1], maxs[i + 1]);
+            stages.get(i).process(band, target);
+            band = target;
+        }
+
+        if (count == 0) {
+            final Band target = new Band(width, height, yMin, yMax);
+            System.arraycopy(
+                    band.pixels,
+                    band.index(0, yMin),
+                    target.pixels,
+                    0,
+                    target.pixels.length);
+            band = target;
+        }
+
+        for (Sink sink : sinks) {
+            sink.consume(band);
+        }
+    }
+
+    //------//
+    // Band //
+    //------//
+    /**
+     * A horizontal band of image rows.
+     */
+    public static class Band
+    {
+
+        /** Image width, which is also the band width. */
+        public final int width;
+
+        /** Image height. */
+        public final int height;
+
+        /** First row. */
+        public final int yMin;
+
+        /** Row past last row. */
+        public final int yMax;
+
+        /** Band pixels, row after row. */
+        public final byte[] pixels;
+
+        /**
+         * Creates a new {@code Band} object on existing pixels.
+         *
+         * @param pixels pixels of rows yMin..yMax-1
+         * @param width  image width
+         * @param height image height
+         * @param yMin   first row
+         * @param yMax   row past last row
+         */
+        public Band (byte[] pixels,
+                     int width,
+                     int height,
+                     int yMin,
+                     int yMax)
+        {
+            this.pixels = pixels;
+            this.width = width;
+            this.height = height;
+            this.yMin = yMin;
+            this.yMax = yMax;
+        }
+
+        /**
+         * Creates a new {@code Band} object with its own pixels.
+         *
+         * @param width  image width
+         * @param height image height
+         * @param yMin   first row
+         * @param yMax   row past last row
+         */
+        public Band (int width,
+                     int height,
+                     int yMin,
+                     int yMax)
+        {
+            this(new byte[(yMax - yMin) * width], width, height, yMin, yMax);
+        }
+
+        /**
+         * Report the pixel value at provided image location.
+         *
+         * @param x abscissa in image
+         * @param y ordinate in image, within band rows
+         * @return the pixel value
+         */
+        public final int get (int x,
+                              int y)
+        {
+            return pixels[index(x, y)] & 0xFF;
+        }
+
+        /**
+         * Report the index in pixels array of the provided image location.
+         *
+         * @param x abscissa in image
+         * @param y ordinate in image, within band rows
+         * @return the pixel index
+         */
+        public final int index (int x,
+                                int y)
+        {
+            return ((y - yMin) * width) + x;
+        }
+
+        /**
+         * Set the pixel value at provided image location.
+         *
+         * @param x     abscissa in image
+         * @param y     ordinate in image, within band rows
+         * @param value the pixel value
+         */
+        public final void set (int x,
+                               int y,
+                               int value)
+        {
+            pixels[index(x, y)] = (byte) value;
+        }
+
+        @Override
+        public String toString ()
+        {
+            return "Band{" + yMin + ".." + yMax + "}";
+        }
+    }
+
+    //------------//
+    // BufferSink //
+    //------------//
+    /**
+     * A sink that gathers final bands into a whole image, typically for visual checks.
+     */
+    public static class BufferSink
+            implements Sink
+    {
+
+        private final ByteProcessor buffer;
+
+        /**
+         * Creates a new {@code BufferSink} object.
+         *
+         * @param width  image width
+         * @param height image height
+         */
+        public BufferSink (int width,
+                           int height)
+        {
+            buffer = new ByteProcessor(width, height);
+        }
+
+        @Override
+        public void consume (Band band)
+        {
+            System.arraycopy(
+                    band.pixels,
+                    0,
+                    buffer.getPixels(),
+                    band.yMin * band.width,
+                    band.pixels.length);
+        }
+
+        /**
+         * Report the gathered image.
+         *
+         * @return the whole image
+         */
+        public ByteProcessor getBuffer ()
+        {
+            return buffer;
+        }
+    }
+
+    //-------------//
+    // LengthStage //
+    //-------------//
+    /**
+     * A stage that keeps only the horizontal foreground runs of sufficient length.
+     * <p>
+     * Foreground pixels are the 0 pixels. The stage output is binary, with 0 for the pixels of
+     * kept runs and 255 for all other pixels.
+     */
+    public static class LengthStage
+            implements Stage
+    {
+
+        private final int minLength;
+
+        /**
+         * Creates a new {@code LengthStage} object.
+         *
+         * @param minLength minimum length of kept runs
+         */
+        public LengthStage (int minLength)
+        {
+            this.minLength = minLength;
+        }
+
+        @Override
+        public int getHalo ()
+        {
+            return 0;
+        }
+
+        @Override
+        public void process (Band source,
+                             Band target)
+        {
+            final int width = source.width;
+
+            for (int y = target.yMin; y < target.yMax; y++) {
+                final int in = source.index(0, y);
+                final int out = target.index(0, y);
+                Arrays.fill(target.pixels, out, out + width, (byte) 255);
+
+                for (int x = 0; x < width;) {
+                    if (source.pixels[in + x] != 0) {
+                        x++;
+                    } else {
+                        final int start = x;
+
+                        while ((x < width) && (source.pixels[in + x] == 0)) {
+                            x++;
+                        }
+
+                        if ((x - start) >= minLength) {
+                            Arrays.fill(target.pixels, out + start, out + x, (byte) 0);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    //------//
+    // Sink //
+    //------//
+    /**
+     * A consumer of final bands.
+     * Distinct bands may be consumed concurrently.
+     */
+    public static interface Sink
+    {
+
+        /**
+         * Consume the provided final band.
+         *
+         * @param band the final band
+         */
+        void consume (Band band);
+    }
+
+    //-------//
+    // Stage //
+    //-------//
+    /**
+     * A processing stage, from a source band to a target band.
+     */
+    public static interface Stage
+    {
+
+        /**
+         * Report the count of source rows needed above and below a target row.
+         *
+         * @return the stage halo
+         */
+        int getHalo ();
+
+        /**
+         * Compute all target rows.
+         * Source band contains at least the target rows extended by the halo, within image.
+         *
+         * @param source the source band
+         * @param target the target band to populate
+         */
+        void process (Band source,
+                      Band target);
+    }
+
+    //-----------//
+    // TableSink //
+    //-----------//
+    /**
+     * A sink that builds the run table of thresholded final bands.
+     * <p>
+     * Pixels with a value lower than or equal to the threshold are foreground, as with
+     * {@link ByteProcessor#threshold(int)} followed by a {@link
+     * org.audiveris.omr.run.RunTableFactory}.
+     */
+    public static class TableSink
+            implements Sink
+    {
+
+        private final Orientation orientation;
+
+        private final int threshold;
+
+        private final int width;
+
+        private final int height;
+
+        /** Horizontal table, populated band after band. */
+        private final RunTable table;
+
+        /** Vertical runs per column, for each band. */
+        private final Map<Integer, List<List<Run>>> bandRuns = new TreeMap<>();
+
+        /**
+         * Creates a new {@code TableSink} object.
+         *
+         * @param orientation orientation of the table to build
+         * @param threshold   maximum value of a foreground pixel
+         * @param width       image width
+         * @param height      image height
+         */
+        public TableSink (Orientation orientation,
+                          int threshold,
+                          int width,
+                          int height)
+        {
+            this.orientation = orientation;
+            this.threshold = threshold;
+            this.width = width;
+            this.height = height;
+            table = orientation.isVertical() ? null
+                    : new RunTable(Orientation.HORIZONTAL, width, height);
+        }
+
+        @Override
+        public void consume (Band band)
+        {
+            if (orientation.isVertical()) {
+                consumeColumns(band);
+            } else {
+                consumeRows(band);
+            }
+        }
+
+        /**
+         * Report the resulting table, once all bands have been consumed.
+         *
+         * @return the run table
+         */
+        public RunTable getTable ()
+        {
+            if (!orientation.isVertical()) {
+                return table;
+            }
+
+            // Connect the vertical runs across bands
+            final RunTable vTable = new RunTable(Orientation.VERTICAL, width, height);
+            final List<List<Run>> columns = new ArrayList<>();
+
+            for (int x = 0; x < width; x++) {
+                columns.add(new ArrayList<Run>());
+            }
+
+            synchronized (bandRuns) {
+                for (List<List<Run>> band : bandRuns.values()) {
+                    for (int x = 0; x < width; x++) {
+                        final List<Run> column = columns.get(x);
+
+                        for (Run run : band.get(x)) {
+                            final int last = column.size() - 1;
+                            final Run prev = (last >= 0) ? column.get(last) : null;
+
+                            if ((prev != null) && ((prev.getStop() + 1) == run.getStart())) {
+                                final int length = prev.getLength() + run.getLength();
+                                column.set(last, new Run(prev.getStart(), length));
+                            } else {
+                                column.add(run);
+                            }
+                        }
+                    }
+                }
+            }
+
+            for (int x = 0; x < width; x++) {
+                vTable.setSequence(x, columns.get(x));
+            }
+
+            return vTable;
+        }
+
+        private void consumeColumns (Band band)
+        {
+            final List<List<Run>> columns = new ArrayList<>(width);
+            final int[] starts = new int[width]; // Start of current run in column, if any
+
+            for (int x = 0; x < width; x++) {
+                columns.add(new ArrayList<Run>());
+                starts[x] = -1;
+            }
+
+            for (int y = band.yMin; y < band.yMax; y++) {
+                final int offset = band.index(0, y);
+
+                for (int x = 0; x < width; x++) {
+                    if ((band.pixels[offset + x] & 0xFF) <= threshold) {
+                        if (starts[x] == -1) {
+                            starts[x] = y;
+                        }
+                    } else if (starts[x] != -1) {
+                        columns.get(x).add(new Run(starts[x], y - starts[x]));
+                        starts[x] = -1;
+                    }
+                }
+            }
+
+            for (int x = 0; x < width; x++) {
+                if (starts[x] != -1) {
+                    columns.get(x).add(new Run(starts[x], band.yMax - starts[x]));
+                }
+            }
+
+            synchronized (bandRuns) {
+                bandRuns.put(band.yMin, columns);
+            }
+        }
+
+        private void consumeRows (Band band)
+        {
+            final List<Run> runs = new ArrayList<>();
+
+            for (int y = band.yMin; y < band.yMax; y++) {
+                final int offset = band.index(0, y);
+                runs.clear();
+
+                int start = -1;
+
+                for (int x = 0; x < width; x++) {
+                    if ((band.pixels[offset + x] & 0xFF) <= threshold) {
+                        if (start == -1) {
+                            start = x;
+                        }
+                    } else if (start != -1) {
+                        runs.add(new Run(start, x - start));
+                        start = -1;
+                    }
+                }
+
+                if (start != -1) {
+                    runs.add(new Run(start, width - start));
+                }
+
+                table.setSequence(y, runs);
+            }
+        }
+    }
+
+    //-----------//
+    // Constants //
+    //-----------//
+    private static class Constants
+            extends ConstantSet
+    {
+
+        private final Constant.Integer bandHeight = new Constant.Integer(
+                "Pixels",
+                128,
+                "Count of final rows in each band of a pipeline");
+    }
+}
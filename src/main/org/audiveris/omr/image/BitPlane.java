@@ -0,0 +1,312 @@
+//------------------------------------------------------------------------------------------------//
+//                                                                                                //
+//                                        B i t P l a n e                                         //
+//                                                                                                //
+//------------------------------------------------------------------------------------------------//
+// <editor-fold defaultstate="collapsed" desc="hdr">
+//
+//  Copyright © Audiveris 2018. All rights reserved.
+//
+//  This program is free software: you can redistribute it and/or modify it under the terms of the
+//  GNU Affero General Public License as published by the Free Software Foundation, either version
+//  3 of the License, or (at your option) any later version.
+//
+//  This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+//  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+//  See the GNU Affero General Public License for more details.
+//
+//  You should have received a copy of the GNU Affero General Public License along with this
+//  program.  If not, see <http://www.gnu.org/licenses/>.
+//------------------------------------------------------------------------------------------------//
+// </editor-fold>
+package org.audiveris.omr.image;
+
+import ij.process.ByteProcessor;
+
+import java.util.Arrays;
+
+/**
+ * Class {@code BitPlane} is a rectangular binary image, packed 64 pixels per word.
+ * <p>
+ * Each row uses an integral number of 64-bit words, pixel at abscissa x being the bit (x % 64)
+ * of word (x / 64) in its row. Row padding bits are always clear.
+ * <p>
+ * Empty words can thus be skipped at once, which makes scans of sparse images (such as a
+ * skeleton) very cheap.
+ *
+ * @author Hervé Bitteur
+ */
+public class BitPlane
+{
+
+    /** Plane width. */
+    private final int width;
+
+    /** Plane height. */
+    private final int height;
+
+    /** Number of words per row. */
+    private final int wordsPerRow;
+
+    /** Bits, row after row. */
+    private final long[] words;
+
+    /**
+     * Creates a new empty {@code BitPlane} object.
+     *
+     * @param width  plane width
+     * @param height plane height
+     */
+    public BitPlane (int width,
+                     int height)
+    {
+        this.width = width;
+        this.height = height;
+        wordsPerRow = (width + 63) >>> 6;
+        words = new long[wordsPerRow * height];
+    }
+
+    //-------//
+    // clear //
+    //-------//
+    /**
+     * Clear the bit at (x, y).
+     *
+     * @param x abscissa
+     * @param y ordinate
+     */
+    public void clear (int x,
+                       int y)
+    {
+        words[(y * wordsPerRow) + (x >>> 6)] &= ~(1L << (x & 63));
+    }
+
+    //------------//
+    // clearRange //
+    //------------//
+    /**
+     * Clear the bits of a row, within an abscissa range.
+     * The range is clipped to plane bounds, a row out of plane is ignored.
+     *
+     * @param y     row ordinate
+     * @param xFrom first abscissa
+     * @param xTo   last abscissa (inclusive)
+     */
+    public void clearRange (int y,
+                            int xFrom,
+                            int xTo)
+    {
+        if ((y < 0) || (y >= height)) {
+            return;
+        }
+
+        final int x1 = Math.max(0, xFrom);
+        final int x2 = Math.min(width - 1, xTo);
+
+        if (x1 > x2) {
+            return;
+        }
+
+        final int base = y * wordsPerRow;
+        final int w1 = x1 >>> 6;
+        final int w2 = x2 >>> 6;
+        final long first = -1L << (x1 & 63);
+        final long last = -1L >>> (63 - (x2 & 63));
+
+        if (w1 == w2) {
+            words[base + w1] &= ~(first & last);
+        } else {
+            words[base + w1] &= ~first;
+            Arrays.fill(words, base + w1 + 1, base + w2, 0L);
+            words[base + w2] &= ~last;
+        }
+    }
+
+    //---------//
+    // fromFore //
+    //---------//
+    /**
+     * Create a plane with the foreground (zero) pixels of a buffer.
+     *
+     * @param buffer the binary buffer
+     * @return the plane of foreground pixels
+     */
+    public static BitPlane fromFore (ByteProcessor buffer)
+    {
+        final int width = buffer.getWidth();
+        final int height = buffer.getHeight();
+        final byte[] pixels = (byte[]) buffer.getPixels();
+        final BitPlane plane = new BitPlane(width, height);
+
+        for (int y = 0; y < height; y++) {
+            final int base = y * plane.wordsPerRow;
+            final int offset = y * width;
+
+            for (int x = 0; x < width; x++) {
+                if (pixels[offset + x] == 0) {
+                    plane.words[base + (x >>> 6)] |= (1L << (x & 63));
+                }
+            }
+        }
+
+        return plane;
+    }
+
+    //-----//
+    // get //
+    //-----//
+    /**
+     * Report whether bit at (x, y) is set.
+     *
+     * @param x abscissa
+     * @param y ordinate
+     * @return true if set
+     */
+    public boolean get (int x,
+                        int y)
+    {
+        return (words[(y * wordsPerRow) + (x >>> 6)] & (1L << (x & 63))) != 0;
+    }
+
+    //-----------//
+    // getHeight //
+    //-----------//
+    /**
+     * @return the plane height
+     */
+    public int getHeight ()
+    {
+        return height;
+    }
+
+    //----------//
+    // getWidth //
+    //----------//
+    /**
+     * @return the plane width
+     */
+    public int getWidth ()
+    {
+        return width;
+    }
+
+    //------------//
+    // nextSetBit //
+    //------------//
+    /**
+     * Report the abscissa of the first set bit in a row, starting at provided abscissa.
+     *
+     * @param y row ordinate
+     * @param x first abscissa to check
+     * @return the abscissa found, or -1 if none
+     */
+    public int nextSetBit (int y,
+                           int x)
+    {
+        if (x >= width) {
+            return -1;
+        }
+
+        final int base = y * wordsPerRow;
+        int w = x >>> 6;
+        long word = words[base + w] & (-1L << (x & 63));
+
+        while (word == 0) {
+            if (++w == wordsPerRow) {
+                return -1;
+            }
+
+            word = words[base + w];
+        }
+
+        return (w << 6) + Long.numberOfTrailingZeros(word);
+    }
+
+    //-----//
+    // set //
+    //-----//
+    /**
+     * Set the bit at (x, y).
+     *
+     * @param x abscissa
+     * @param y ordinate
+     */
+    public void set (int x,
+                     int y)
+    {
+        words[(y * wordsPerRow) + (x >>> 6)] |= (1L << (x & 63));
+    }
+
+    //-----------------//
+    // toByteProcessor //
+    //-----------------//
+    /**
+     * Build a binary buffer, with set bits as foreground (0) pixels and all other
+     * pixels as background (255) pixels.
+     *
+     * @return the binary buffer
+     */
+    public ByteProcessor toByteProcessor ()
+    {
+        final ByteProcessor buffer = new ByteProcessor(width, height);
+        final byte[] pixels = (byte[]) buffer.getPixels();
+        Arrays.fill(pixels, (byte) 255);
+
+        for (int y = 0; y < height; y++) {
+            final int offset = y * width;
+
+            for (int x = nextSetBit(y, 0); x != -1; x = nextSetBit(y, x + 1)) {
+                pixels[offset + x] = 0;
+            }
+        }
+
+        return buffer;
+    }
+
+    //-----------//
+    // transpose //
+    //-----------//
+    /**
+     * Build the transposed plane, where rows are the columns of this plane.
+     * <p>
+     * This allows to scan the set bits column by column.
+     *
+     * @return the transposed plane
+     */
+    public BitPlane transpose ()
+    {
+        final BitPlane transposed = new BitPlane(height, width);
+
+        for (int y = 0; y < height; y++) {
+            for (int x = nextSetBit(y, 0); x != -1; x = nextSetBit(y, x + 1)) {
+                transposed.set(y, x);
+            }
+        }
+
+        return transposed;
+    }
+
+    //----------//
+    // getWords //
+    //----------//
+    /**
+     * Report the underlying words, row after row.
+     *
+     * @return the words array
+     */
+    long[] getWords ()
+    {
+        return words;
+    }
+
+    //----------------//
+    // getWordsPerRow //
+    //----------------//
+    /**
+     * @return the number of words per row
+     */
+    int getWordsPerRow ()
+    {
+        return wordsPerRow;
+    }
+}
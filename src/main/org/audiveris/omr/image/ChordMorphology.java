@@ -0,0 +1,748 @@
+//------------------------------------------------------------------------------------------------//
+//                                                                                                //
+//                                 C h o r d M o r p h o l o g y                                  //
+//                                                                                                //
+//------------------------------------------------------------------------------------------------//
+// <editor-fold defaultstate="collapsed" desc="hdr">
+//
+//  Copyright © Audiveris 2018. All rights reserved.
+//
+//  This program is free software: you can redistribute it and/or modify it under the terms of the
+//  GNU Affero General Public License as published by the Free Software Foundation, either version
+//  3 of the License, or (at your option) any later version.
+//
+//  This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+//  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+//  See the GNU Affero General Public License for more details.
+//
+//  You should have received a copy of the GNU Affero General Public License along with this
+//  program.  If not, see <http://www.gnu.org/licenses/>.
+//------------------------------------------------------------------------------------------------//
+// </editor-fold>
+
+package org.audiveris.omr.image;
+
+import ij.process.ByteProcessor;
+
+import org.audiveris.omr.constant.Constant;
+import org.audiveris.omr.constant.ConstantSet;
+import org.audiveris.omr.run.Orientation;
+import org.audiveris.omr.run.Run;
+import org.audiveris.omr.run.RunTable;
+import org.audiveris.omr.step.ProcessingCancellationException;
+import org.audiveris.omr.util.OmrExecutors;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+/**
+ * Class {@code ChordMorphology} is a fast morphology engine for flat structuring elements
+ * made of one horizontal chord per row, such as the circular elements used to close beam spots.
+ * <p>
+ * The structuring element is decomposed into its horizontal chords (line elements).
+ * For each image row and each distinct chord, the running maximum is computed by the van Herk /
+ * Gil-Werman algorithm, with a cost independent of the chord length.
+ * The result at a given pixel is then the maximum, over all chords, of the running maximum read
+ * in the row shifted by the chord ordinate.
+ * Erosion is processed as the dilation of inverted values.
+ * Image rows are processed by bands, which can run in parallel.
+ * Dilation and erosion are also available as {@link BandPipeline} stages.
+ * <p>
+ * Results are identical to those of {@link MorphoProcessor} using the same structuring element:
+ * pixels outside the image are ignored, that is they are considered as 0 for dilation and as 255
+ * for erosion.
+ * <p>
+ * A run-length variant works directly on binary {@link RunTable} instances, where runs represent
+ * foreground (black) pixels.
+ * Since foreground pixels are the dark ones, a gray closing corresponds to a foreground opening.
+ *
+ * @author Hervé Bitteur
+ */
+public class ChordMorphology
+{
+
+    private static final Constants constants = new Constants();
+
+    private static final Logger logger = LoggerFactory.getLogger(ChordMorphology.class);
+
+    /** Ordinate offset of each chord. */
+    private final int[] dys;
+
+    /** Kind of each chord. */
+    private final int[] kinds;
+
+    /** Abscissa offset of first chord pixel, per chord kind. */
+    private final int[] kindLows;
+
+    /** Length of chord, per chord kind. */
+    private final int[] kindLengths;
+
+    /** Minimum chord ordinate offset. */
+    private final int dyMin;
+
+    /** Maximum chord ordinate offset. */
+    private final int dyMax;
+
+    /**
+     * Creates a new {@code ChordMorphology} object.
+     *
+     * @param se the flat structuring element, whose non-empty rows must be contiguous
+     * @throws IllegalArgumentException if a structuring element row is not contiguous
+     */
+    public ChordMorphology (StructureElement se)
+    {
+        // Gather min and max abscissa offsets, per ordinate offset
+        final int[][] vect = se.getVect();
+
+        if (vect.length == 0) {
+            throw new IllegalArgumentException("Empty structuring element");
+        }
+
+        int yMin = Integer.MAX_VALUE;
+        int yMax = Integer.MIN_VALUE;
+
+        for (int[] v : vect) {
+            yMin = Math.min(yMin, v[0]);
+            yMax = Math.max(yMax, v[0]);
+        }
+
+        final int rowCount = yMax - yMin + 1;
+        final int[] lows = new int[rowCount];
+        final int[] highs = new int[rowCount];
+        final int[] counts = new int[rowCount];
+        Arrays.fill(lows, Integer.MAX_VALUE);
+        Arrays.fill(highs, Integer.MIN_VALUE);
+
+        for (int[] v : vect) {
+            final int i = v[0] - yMin;
+            lows[i] = Math.min(lows[i], v[1]);
+            highs[i] = Math.max(highs[i], v[1]);
+            counts[i]++;
+        }
+
+        // Build chords and chord kinds
+        final List<Integer> dyList = new ArrayList<>();
+        final List<Integer> kindList = new ArrayList<>();
+        final List<Integer> lowList = new ArrayList<>();
+        final List<Integer> highList = new ArrayList<>();
+
+        for (int i = 0; i < rowCount; i++) {
+            if (counts[i] == 0) {
+                continue;
+            }
+
+            if (counts[i] != (highs[i] - lows[i] + 1)) {
+                throw new IllegalArgumentException(
+                        "Structuring element row " + (i + yMin) + " is not contiguous");
+            }
+
+            int kind = 0;
+
+            while ((kind < lowList.size())
+                   && ((lowList.get(kind) != lows[i]) || (highList.get(kind) != highs[i]))) {
+                kind++;
+            }
+
+            if (kind == lowList.size()) {
+                lowList.add(lows[i]);
+                highList.add(highs[i]);
+            }
+
+            dyList.add(i + yMin);
+            kindList.add(kind);
+        }
+
+        dys = new int[dyList.size()];
+        kinds = new int[dyList.size()];
+
+        for (int c = 0; c < dys.length; c++) {
+            dys[c] = dyList.get(c);
+            kinds[c] = kindList.get(c);
+        }
+
+        kindLows = new int[lowList.size()];
+        kindLengths = new int[lowList.size()];
+
+        for (int k = 0; k < kindLows.length; k++) {
+            kindLows[k] = lowList.get(k);
+            kindLengths[k] = highList.get(k) - lowList.get(k) + 1;
+        }
+
+        dyMin = yMin;
+        dyMax = yMax;
+    }
+
+    //-------//
+    // close //
+    //-------//
+    /**
+     * Perform gray level dilation followed by gray level erosion.
+     *
+     * @param ip the image to process, modified in place
+     */
+    public void close (ByteProcessor ip)
+    {
+        final byte[] pixels = (byte[]) ip.getPixels();
+        final byte[] temp = new byte[pixels.length];
+        apply(pixels, temp, ip.getWidth(), ip.getHeight(), true, getBandCount(ip.getHeight()));
+        apply(temp, pixels, ip.getWidth(), ip.getHeight(), false, getBandCount(ip.getHeight()));
+    }
+
+    //-------//
+    // close //
+    //-------//
+    /**
+     * Perform binary dilation followed by binary erosion of foreground runs.
+     *
+     * @param table the horizontal table to process
+     * @return the resulting table
+     */
+    public RunTable close (RunTable table)
+    {
+        return erode(dilate(table));
+    }
+
+    //--------//
+    // dilate //
+    //--------//
+    /**
+     * Perform gray level dilation.
+     *
+     * @param ip the image to process, modified in place
+     */
+    public void dilate (ByteProcessor ip)
+    {
+        final byte[] pixels = (byte[]) ip.getPixels();
+        final byte[] source = pixels.clone();
+        apply(source, pixels, ip.getWidth(), ip.getHeight(), true, getBandCount(ip.getHeight()));
+    }
+
+    //--------//
+    // dilate //
+    //--------//
+    /**
+     * Perform binary dilation of foreground runs.
+     * Pixels outside the table are considered as background.
+     *
+     * @param table the horizontal table to process
+     * @return the resulting table
+     */
+    public RunTable dilate (RunTable table)
+    {
+        checkOrientation(table);
+
+        final int width = table.getWidth();
+        final int height = table.getHeight();
+        final RunTable result = new RunTable(Orientation.HORIZONTAL, width, height);
+        final List<int[]> intervals = new ArrayList<>();
+
+        for (int y = 0; y < height; y++) {
+            intervals.clear();
+
+            for (int c = 0; c < dys.length; c++) {
+                final int yy = y + dys[c];
+
+                if ((yy < 0) || (yy >= height)) {
+                    continue;
+                }
+
+                final int low = kindLows[kinds[c]];
+                final int high = (low + kindLengths[kinds[c]]) - 1;
+
+                for (Iterator<Run> it = table.iterator(yy); it.hasNext();) {
+                    final Run run = it.next();
+                    final int start = Math.max(0, run.getStart() - high);
+                    final int stop = Math.min(width - 1, run.getStop() - low);
+
+                    if (start <= stop) {
+                        intervals.add(new int[]{start, stop});
+                    }
+                }
+            }
+
+            final List<Run> runs = new ArrayList<>();
+
+            for (int[] interval : normalize(intervals)) {
+                runs.add(new Run(interval[0], interval[1] - interval[0] + 1));
+            }
+
+            result.setSequence(y, runs);
+        }
+
+        return result;
+    }
+
+    //-------//
+    // erode //
+    //-------//
+    /**
+     * Perform gray level erosion.
+     *
+     * @param ip the image to process, modified in place
+     */
+    public void erode (ByteProcessor ip)
+    {
+        final byte[] pixels = (byte[]) ip.getPixels();
+        final byte[] source = pixels.clone();
+        apply(source, pixels, ip.getWidth(), ip.getHeight(), false, getBandCount(ip.getHeight()));
+    }
+
+    //-------//
+    // erode //
+    //-------//
+    /**
+     * Perform binary erosion of foreground runs.
+     * Pixels outside the table are considered as foreground.
+     *
+     * @param table the horizontal table to process
+     * @return the resulting table
+     */
+    public RunTable erode (RunTable table)
+    {
+        checkOrientation(table);
+
+        final int width = table.getWidth();
+        final int height = table.getHeight();
+        final RunTable result = new RunTable(Orientation.HORIZONTAL, width, height);
+
+        for (int y = 0; y < height; y++) {
+            // Allowed abscissa intervals, initially the whole row
+            List<int[]> allowed = new ArrayList<>();
+            allowed.add(new int[]{0, width - 1});
+
+            for (int c = 0; (c < dys.length) && !allowed.isEmpty(); c++) {
+                final int yy = y + dys[c];
+
+                if ((yy < 0) || (yy >= height)) {
+                    continue;
+                }
+
+                // Abscissae for which the whole chord lies in foreground (or outside table)
+                final int low = kindLows[kinds[c]];
+                final int high = (low + kindLengths[kinds[c]]) - 1;
+                final List<int[]> fits = new ArrayList<>();
+
+                for (Iterator<Run> it = table.iterator(yy); it.hasNext();) {
+                    final Run run = it.next();
+                    final int start = (run.getStart() == 0) ? 0 : (run.getStart() - low);
+                    final int stop = (run.getStop() == (width - 1)) ? (width - 1)
+                            : (run.getStop() - high);
+
+                    if (start <= stop) {
+                        fits.add(new int[]{start, stop});
+                    }
+                }
+
+                // Chord entirely outside table
+                if (high < 0) {
+                    fits.add(new int[]{0, -high - 1});
+                }
+
+                if (low > 0) {
+                    fits.add(new int[]{width - low, width - 1});
+                }
+
+                allowed = intersection(allowed, normalize(fits));
+            }
+
+            final List<Run> runs = new ArrayList<>();
+
+            for (int[] interval : allowed) {
+                final int start = Math.max(0, interval[0]);
+                final int stop = Math.min(width - 1, interval[1]);
+
+                if (start <= stop) {
+                    runs.add(new Run(start, stop - start + 1));
+                }
+            }
+
+            result.setSequence(y, runs);
+        }
+
+        return result;
+    }
+
+    //----------//
+    // getStage //
+    //----------//
+    /**
+     * Report a {@link BandPipeline} stage that performs gray level dilation or erosion.
+     *
+     * @param dilation true for dilation, false for erosion
+     * @return the pipeline stage
+     */
+    public BandPipeline.Stage getStage (final boolean dilation)
+    {
+        final int halo = Math.max(-dyMin, dyMax);
+
+        return new BandPipeline.Stage()
+        {
+            @Override
+            public int getHalo ()
+            {
+                return halo;
+            }
+
+            @Override
+            public void process (BandPipeline.Band source,
+                                 BandPipeline.Band target)
+            {
+                processBand(source, target, target.yMin, target.yMax, dilation ? 0 : 0xFF);
+            }
+        };
+    }
+
+    //------//
+    // open //
+    //------//
+    /**
+     * Perform gray level erosion followed by gray level dilation.
+     *
+     * @param ip the image to process, modified in place
+     */
+    public void open (ByteProcessor ip)
+    {
+        final byte[] pixels = (byte[]) ip.getPixels();
+        final byte[] temp = new byte[pixels.length];
+        apply(pixels, temp, ip.getWidth(), ip.getHeight(), false, getBandCount(ip.getHeight()));
+        apply(temp, pixels, ip.getWidth(), ip.getHeight(), true, getBandCount(ip.getHeight()));
+    }
+
+    //------//
+    // open //
+    //------//
+    /**
+     * Perform binary erosion followed by binary dilation of foreground runs.
+     *
+     * @param table the horizontal table to process
+     * @return the resulting table
+     */
+    public RunTable open (RunTable table)
+    {
+        return dilate(erode(table));
+    }
+
+    //-------//
+    // apply //
+    //-------//
+    /**
+     * Apply dilation or erosion from source pixels to target pixels.
+     *
+     * @param source    source pixels
+     * @param target    target pixels
+     * @param width     image width
+     * @param height    image height
+     * @param dilation  true for dilation, false for erosion
+     * @param bandCount number of row bands
+     */
+    void apply (final byte[] source,
+                final byte[] target,
+                final int width,
+                final int height,
+                final boolean dilation,
+                int bandCount)
+    {
+        final int inversion = dilation ? 0 : 0xFF;
+        final BandPipeline.Band src = new BandPipeline.Band(source, width, height, 0, height);
+        final BandPipeline.Band dst = new BandPipeline.Band(target, width, height, 0, height);
+
+        if (bandCount <= 1) {
+            processBand(src, dst, 0, height, inversion);
+
+            return;
+        }
+
+        final int bandHeight = (height + bandCount - 1) / bandCount;
+        final List<Callable<Void>> tasks = new ArrayList<>();
+
+        for (int y = 0; y < height; y += bandHeight) {
+            final int y1 = y;
+            final int y2 = Math.min(height, y + bandHeight);
+            tasks.add(new Callable<Void>()
+            {
+                @Override
+                public Void call ()
+                        throws Exception
+                {
+                    processBand(src, dst, y1, y2, inversion);
+
+                    return null;
+                }
+            });
+        }
+
+        try {
+            for (Future<Void> future : OmrExecutors.getHighExecutor().invokeAll(tasks)) {
+                future.get();
+            }
+        } catch (InterruptedException ex) {
+            logger.warn("Morphology got interrupted");
+            throw new ProcessingCancellationException(ex);
+        } catch (ExecutionException ex) {
+            logger.warn("Exception raised in morphology", ex.getCause());
+            throw new RuntimeException(ex.getCause());
+        }
+    }
+
+    //------------------//
+    // checkOrientation //
+    //------------------//
+    private void checkOrientation (RunTable table)
+    {
+        if (table.getOrientation() != Orientation.HORIZONTAL) {
+            throw new IllegalArgumentException("Chord morphology needs a horizontal table");
+        }
+    }
+
+    //--------------//
+    // getBandCount //
+    //--------------//
+    private int getBandCount (int height)
+    {
+        if (!OmrExecutors.defaultParallelism.getValue()) {
+            return 1;
+        }
+
+        final int count = Math.min(
+                OmrExecutors.getNumberOfCpus(),
+                height / constants.minBandHeight.getValue());
+
+        return Math.max(1, count);
+    }
+
+    //-------------//
+    // processBand //
+    //-------------//
+    /**
+     * Process the target rows of a band.
+     * <p>
+     * Running maxima of each source row are computed once per chord kind, and kept in a circular
+     * buffer as long as they may be used by a target row.
+     *
+     * @param source    source band
+     * @param target    target band
+     * @param yMin      first target row
+     * @param yMax      row past last target row
+     * @param inversion 0 for dilation, 0xFF for erosion
+     */
+    private void processBand (BandPipeline.Band source,
+                              BandPipeline.Band target,
+                              int yMin,
+                              int yMax,
+                              int inversion)
+    {
+        final int width = source.width;
+        final int height = source.height;
+        final int span = dyMax - dyMin + 1;
+        final int[][][] maxima = new int[span][kindLows.length][width];
+        int maxLength = 0;
+
+        for (int length : kindLengths) {
+            maxLength = Math.max(maxLength, length);
+        }
+
+        final int[] ext = new int[(width + maxLength) - 1];
+        final int[] prefix = new int[ext.length];
+        final int[] suffix = new int[ext.length];
+        final int[] acc = new int[width];
+        int nextRow = Math.max(0, yMin + dyMin); // Next source row to process
+
+        for (int y = yMin; y < yMax; y++) {
+            final int lastRow = Math.min(height - 1, y + dyMax);
+
+            for (; nextRow <= lastRow; nextRow++) {
+                final int[][] rowMaxima = maxima[nextRow % span];
+
+                for (int k = 0; k < kindLows.length; k++) {
+                    runningMax(
+                            source.pixels,
+                            source.index(0, nextRow),
+                            width,
+                            kindLows[k],
+                            kindLengths[k],
+                            inversion,
+                            ext,
+                            prefix,
+                            suffix,
+                            rowMaxima[k]);
+                }
+            }
+
+            Arrays.fill(acc, 0);
+
+            for (int c = 0; c < dys.length; c++) {
+                final int yy = y + dys[c];
+
+                if ((yy >= 0) && (yy < height)) {
+                    final int[] line = maxima[yy % span][kinds[c]];
+
+                    for (int x = 0; x < width; x++) {
+                        if (line[x] > acc[x]) {
+                            acc[x] = line[x];
+                        }
+                    }
+                }
+            }
+
+            final int offset = target.index(0, y);
+
+            for (int x = 0; x < width; x++) {
+                target.pixels[offset + x] = (byte) (acc[x] ^ inversion);
+            }
+        }
+    }
+
+    //--------------//
+    // intersection //
+    //--------------//
+    /**
+     * Intersect two lists of sorted disjoint intervals.
+     */
+    private static List<int[]> intersection (List<int[]> one,
+                                             List<int[]> two)
+    {
+        final List<int[]> result = new ArrayList<>();
+        int i = 0;
+        int j = 0;
+
+        while ((i < one.size()) && (j < two.size())) {
+            final int[] a = one.get(i);
+            final int[] b = two.get(j);
+            final int start = Math.max(a[0], b[0]);
+            final int stop = Math.min(a[1], b[1]);
+
+            if (start <= stop) {
+                result.add(new int[]{start, stop});
+            }
+
+            if (a[1] < b[1]) {
+                i++;
+            } else {
+                j++;
+            }
+        }
+
+        return result;
+    }
+
+    //-----------//
+    // normalize //
+    //-----------//
+    /**
+     * Merge the provided intervals into a sorted list of disjoint intervals.
+     */
+    private static List<int[]> normalize (List<int[]> intervals)
+    {
+        final List<int[]> result = new ArrayList<>();
+
+        if (intervals.isEmpty()) {
+            return result;
+        }
+
+        final int[][] sorted = intervals.toArray(new int[intervals.size()][]);
+        Arrays.sort(sorted, new Comparator<int[]>()
+                    {
+                        @Override
+                        public int compare (int[] i1,
+                                            int[] i2)
+                        {
+                            return Integer.compare(i1[0], i2[0]);
+                        }
+                    });
+
+        int[] current = new int[]{sorted[0][0], sorted[0][1]};
+        result.add(current);
+
+        for (int[] interval : sorted) {
+            if (interval[0] > (current[1] + 1)) {
+                current = new int[]{interval[0], interval[1]};
+                result.add(current);
+            } else {
+                current[1] = Math.max(current[1], interval[1]);
+            }
+        }
+
+        return result;
+    }
+
+    //------------//
+    // runningMax //
+    //------------//
+    /**
+     * Compute, for each abscissa x of a row, the maximum value over [x + low, x + low + length[
+     * using van Herk / Gil-Werman algorithm.
+     * Values outside the row are considered as 0.
+     *
+     * @param source    source pixels
+     * @param offset    index of row first pixel in source
+     * @param width     row width
+     * @param low       abscissa offset of chord first pixel
+     * @param length    chord length
+     * @param inversion value to XOR with source values
+     * @param ext       (work) row values extended by chord
+     * @param prefix    (work) maximum since beginning of block
+     * @param suffix    (work) maximum until end of block
+     * @param result    (output) running maximum
+     */
+    private static void runningMax (byte[] source,
+                                    int offset,
+                                    int width,
+                                    int low,
+                                    int length,
+                                    int inversion,
+                                    int[] ext,
+                                    int[] prefix,
+                                    int[] suffix,
+                                    int[] result)
+    {
+        final int n = (width + length) - 1;
+
+        for (int i = 0; i < n; i++) {
+            final int x = low + i;
+            ext[i] = ((x >= 0) && (x < width)) ? ((source[offset + x] & 0xFF) ^ inversion) : 0;
+        }
+
+        for (int start = 0; start < n; start += length) {
+            final int stop = Math.min(n, start + length) - 1;
+            prefix[start] = ext[start];
+
+            for (int i = start + 1; i <= stop; i++) {
+                prefix[i] = Math.max(prefix[i - 1], ext[i]);
+            }
+
+            suffix[stop] = ext[stop];
+
+            for (int i = stop - 1; i >= start; i--) {
+                suffix[i] = Math.max(suffix[i + 1], ext[i]);
+            }
+        }
+
+        final int last = length - 1;
+
+        for (int x = 0; x < width; x++) {
+            result[x] = Math.max(suffix[x], prefix[x + last]);
+        }
+    }
+
+    //-----------//
+    // Constants //
+    //-----------//
+    private static class Constants
+            extends ConstantSet
+    {
+
+        private final Constant.Integer minBandHeight = new Constant.Integer(
+                "Pixels",
+                200,
+                "Minimum height of a band of rows processed in parallel");
+    }
+}
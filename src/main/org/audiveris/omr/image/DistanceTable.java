@@ -232,6 +232,70 @@ public interface DistanceTable
         }
     }
 
+    //--------//
+    // Packed //
+    //--------//
+    /**
+     * A distance table which only records whether a location is a target, is unknown, or
+     * is at some non-zero distance from targets.
+     * <p>
+     * This is enough for template matching, at a cost of 2 bits per pixel.
+     * Any positive distance is read back as 1.
+     */
+    public static class Packed
+            extends Abstract
+    {
+
+        private final Table.Packed table;
+
+        public Packed (int width,
+                       int height,
+                       int normalizer)
+        {
+            super(normalizer);
+            table = new Table.Packed(width, height);
+        }
+
+        protected Packed (Table.Packed table,
+                          int normalizer)
+        {
+            super(normalizer);
+            this.table = table;
+        }
+
+        @Override
+        public DistanceTable.Packed getCopy (Rectangle roi)
+        {
+            return new Packed(table.getCopy(roi), normalizer);
+        }
+
+        //---------//
+        // getBits //
+        //---------//
+        /**
+         * Report the underlying bit planes, where zero bits are the targets and negative
+         * bits the unknown locations.
+         *
+         * @return the packed table, or null for a view
+         */
+        public Table.Packed getBits ()
+        {
+            return table.isView() ? null : table;
+        }
+
+        @Override
+        public DistanceTable.Packed getView (Rectangle roi)
+        {
+            return new Packed(table.getView(roi), normalizer);
+        }
+
+        @Override
+        protected final Table getTable ()
+        {
+            return table;
+        }
+    }
+
     //-------//
     // Short //
     //-------//
@@ -24,6 +24,7 @@ package org.audiveris.omr.image;
 import ij.process.ByteProcessor;
 
 import java.awt.image.Kernel;
+import java.util.Arrays;
 
 /**
  * Class {@code GaussianGrayFilter} allows to run a Gaussian filter on an input image,
@@ -31,11 +32,14 @@ import java.awt.image.Kernel;
  * <p>
  * This implementation is derived from Jerry Huxtable more general filter but limited to
  * BufferedImage class.
+ * <p>
+ * The filter can also be used as a {@link BandPipeline} stage.
  *
  * @author Hervé Bitteur
  */
 public class GaussianGrayFilter
         extends AbstractGrayFilter
+        implements BandPipeline.Stage
 {
 
     /** Radius of the kernel. */
@@ -100,6 +104,12 @@ public class GaussianGrayFilter
     //-----------//
     // getRadius //
     //-----------//
+    @Override
+    public int getHalo ()
+    {
+        return kernel.getWidth() / 2;
+    }
+
     /**
      * Get the radius of the kernel.
      *
@@ -113,6 +123,73 @@ public class GaussianGrayFilter
     //----------------------//
     // convolveAndTranspose //
     //----------------------//
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Rows are convolved horizontally, then columns are convolved vertically, with the same
+     * arithmetic as the whole image filter.
+     */
+    @Override
+    public void process (BandPipeline.Band source,
+                         BandPipeline.Band target)
+    {
+        final float[] matrix = kernel.getKernelData(null);
+        final int cols2 = kernel.getWidth() / 2;
+        final int width = source.width;
+        final int height = source.height;
+
+        // Horizontal convolution of needed rows
+        final int yMin = Math.max(0, target.yMin - cols2);
+        final int yMax = Math.min(height, target.yMax + cols2);
+        final byte[] rows = new byte[(yMax - yMin) * width];
+
+        for (int y = yMin; y < yMax; y++) {
+            final int ioffset = source.index(0, y);
+            final int ooffset = (y - yMin) * width;
+
+            for (int x = 0; x < width; x++) {
+                float p = 0;
+
+                for (int col = -cols2; col <= cols2; col++) {
+                    float f = matrix[cols2 + col];
+
+                    if (f != 0) {
+                        final int ix = Math.min(width - 1, Math.max(0, x + col));
+                        p += (f * (source.pixels[ioffset + ix] & 0xff));
+                    }
+                }
+
+                rows[ooffset + x] = (byte) clamp((int) (p + 0.5));
+            }
+        }
+
+        // Vertical convolution
+        final float[] sums = new float[width];
+
+        for (int y = target.yMin; y < target.yMax; y++) {
+            Arrays.fill(sums, 0);
+
+            for (int col = -cols2; col <= cols2; col++) {
+                float f = matrix[cols2 + col];
+
+                if (f != 0) {
+                    final int iy = Math.min(height - 1, Math.max(0, y + col));
+                    final int ioffset = (iy - yMin) * width;
+
+                    for (int x = 0; x < width; x++) {
+                        sums[x] += (f * (rows[ioffset + x] & 0xff));
+                    }
+                }
+            }
+
+            final int ooffset = target.index(0, y);
+
+            for (int x = 0; x < width; x++) {
+                target.pixels[ooffset + x] = (byte) clamp((int) (sums[x] + 0.5));
+            }
+        }
+    }
+
     private void convolveAndTranspose (byte[] inPixels,
                                        byte[] outPixels,
                                        int width,
@@ -23,18 +23,47 @@ package org.audiveris.omr.image;
 
 import ij.process.ByteProcessor;
 
+import org.audiveris.omr.constant.Constant;
+import org.audiveris.omr.constant.ConstantSet;
+import org.audiveris.omr.step.ProcessingCancellationException;
+import org.audiveris.omr.util.OmrExecutors;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 
 /**
  * Class {@code MedianGrayFilter} allows to run a median filter on an input image,
  * assumed to contain only gray values [0..255].
+ * <p>
+ * Near image boundaries, the radius is reduced so that the window does not use pixels outside
+ * the image. These few boundary pixels are processed one by one.
+ * <p>
+ * All other pixels use the full radius and are processed row by row, with a sliding window
+ * histogram (see Huang et al.): moving the window one pixel to the right removes the values of
+ * its left column and adds the values of the new right column.
+ * The median value is tracked incrementally, together with the count of window values below it.
+ * Rows can be processed in parallel, by bands.
+ * <p>
+ * The filter can also be used as a {@link BandPipeline} stage.
  *
  * @author Hervé Bitteur
  */
 public class MedianGrayFilter
         extends AbstractGrayFilter
+        implements BandPipeline.Stage
 {
 
+    private static final Constants constants = new Constants();
+
+    private static final Logger logger = LoggerFactory.getLogger(MedianGrayFilter.class);
+
     /** Desired radius for the filter. */
     private final int radius;
 
@@ -54,56 +83,242 @@ public class MedianGrayFilter
     @Override
     public void filter (final ByteProcessor input,
                         final ByteProcessor output)
+    {
+        final int bandCount = OmrExecutors.defaultParallelism.getValue() ? Math.min(
+                OmrExecutors.getNumberOfCpus(),
+                input.getHeight() / constants.minBandHeight.getValue()) : 1;
+
+        filter(input, output, Math.max(1, bandCount));
+    }
+
+    //---------//
+    // getHalo //
+    //---------//
+    @Override
+    public int getHalo ()
+    {
+        return radius;
+    }
+
+    //---------//
+    // process //
+    //---------//
+    @Override
+    public void process (BandPipeline.Band source,
+                         BandPipeline.Band target)
+    {
+        processRows(source, target, target.yMin, target.yMax);
+    }
+
+    //--------//
+    // filter //
+    //--------//
+    /**
+     * Apply this filter, using the provided count of row bands.
+     *
+     * @param input     the input image
+     * @param output    the output image
+     * @param bandCount number of row bands
+     */
+    void filter (ByteProcessor input,
+                 ByteProcessor output,
+                 int bandCount)
     {
         final int width = input.getWidth();
         final int height = input.getHeight();
+        final BandPipeline.Band source = new BandPipeline.Band(
+                (byte[]) input.getPixels(),
+                width,
+                height,
+                0,
+                height);
+        final BandPipeline.Band target = new BandPipeline.Band(
+                (byte[]) output.getPixels(),
+                width,
+                height,
+                0,
+                height);
+
+        if (bandCount <= 1) {
+            processRows(source, target, 0, height);
+
+            return;
+        }
+
+        final int bandHeight = (height + bandCount - 1) / bandCount;
+        final List<Callable<Void>> tasks = new ArrayList<>();
+
+        for (int y = 0; y < height; y += bandHeight) {
+            final int y1 = y;
+            final int y2 = Math.min(height, y + bandHeight);
+            tasks.add(new Callable<Void>()
+            {
+                @Override
+                public Void call ()
+                        throws Exception
+                {
+                    processRows(source, target, y1, y2);
+
+                    return null;
+                }
+            });
+        }
+
+        try {
+            for (Future<Void> future : OmrExecutors.getHighExecutor().invokeAll(tasks)) {
+                future.get();
+            }
+        } catch (InterruptedException ex) {
+            logger.warn("Median filter got interrupted");
+            throw new ProcessingCancellationException(ex);
+        } catch (ExecutionException ex) {
+            logger.warn("Exception raised in median filter", ex.getCause());
+            throw new RuntimeException(ex.getCause());
+        }
+    }
+
+    //-------------------//
+    // getBoundaryMedian //
+    //-------------------//
+    /**
+     * Compute the median value of a pixel close to image boundaries, using a reduced
+     * radius.
+     *
+     * @param source source pixels
+     * @param x      pixel abscissa
+     * @param y      pixel ordinate
+     * @return the median value
+     */
+    private int getBoundaryMedian (BandPipeline.Band source,
+                                   int x,
+                                   int y)
+    {
+        // To address specific behavior at image boundaries,
+        // reduce radius to not use pixels outside the image.
+        final int rad = Math.min(
+                Math.min(radius, Math.min(x, y)),
+                Math.min(source.width - 1 - x, source.height - 1 - y));
+        final int side = (2 * rad) + 1;
+        final int[] values = new int[side * side];
+        int n = 0;
+
+        for (int j = y - rad; j <= (y + rad); j++) {
+            for (int i = x - rad; i <= (x + rad); i++) {
+                values[n++] = source.get(i, j);
+            }
+        }
+
+        Arrays.sort(values);
+
+        return values[values.length / 2];
+    }
+
+    //-------------//
+    // processRows //
+    //-------------//
+    /**
+     * Process the provided range of rows.
+     * <p>
+     * Pixels with full radius are processed by a sliding histogram, boundary pixels one by one.
+     *
+     * @param source source pixels
+     * @param target target pixels
+     * @param yMin   first row
+     * @param yMax   row past last row
+     */
+    private void processRows (BandPipeline.Band source,
+                              BandPipeline.Band target,
+                              int yMin,
+                              int yMax)
+    {
+        final int width = source.width;
+        final int height = source.height;
+        final byte[] in = source.pixels;
+        final int side = (2 * radius) + 1;
+        final int half = ((side * side) - 1) / 2; // Count of values below median
         final int[] histogram = new int[256];
-        Arrays.fill(histogram, 0);
 
-        for (int y = 0; y < height; y++) {
-            for (int x = 0; x < width; x++) {
-                // To address specific behavior at image boundaries,
-                // reduce radius to not use pixels outside the image.
-                int rad = radius;
+        for (int y = yMin; y < yMax; y++) {
+            if ((y < radius) || (y >= (height - radius)) || (width <= (2 * radius))) {
+                for (int x = 0; x < width; x++) {
+                    target.set(x, y, getBoundaryMedian(source, x, y));
+                }
+
+                continue;
+            }
+
+            for (int x = 0; x < radius; x++) {
+                target.set(x, y, getBoundaryMedian(source, x, y));
+                target.set(width - 1 - x, y, getBoundaryMedian(source, width - 1 - x, y));
+            }
 
-                if ((x - rad) < 0) {
-                    rad = x;
+            // Pixels with full radius
+            final int top = source.index(0, y - radius);
+            final int bottom = source.index(0, y + radius);
+            final int out = target.index(0, y);
+            Arrays.fill(histogram, 0);
+
+            // Initial window
+            for (int x = 0; x < side; x++) {
+                for (int p = top + x; p <= (bottom + x); p += width) {
+                    histogram[in[p] & 0xFF]++;
                 }
+            }
 
-                if ((y - rad) < 0) {
-                    rad = y;
+            int median = 0;
+            int below = 0; // Count of window values below median
+
+            for (int x = radius;; x++) {
+                // Adjust median, so that: below <= half < below + histogram[median]
+                while (below > half) {
+                    median--;
+                    below -= histogram[median];
                 }
 
-                if ((x + rad) >= width) {
-                    rad = width - 1 - x;
+                while ((below + histogram[median]) <= half) {
+                    below += histogram[median];
+                    median++;
                 }
 
-                if ((y + rad) >= height) {
-                    rad = height - 1 - y;
+                target.pixels[out + x] = (byte) median;
+
+                if ((x + radius + 1) >= width) {
+                    break;
                 }
 
-                Arrays.fill(histogram, 0); // Brute force!
+                // Slide window one pixel to the right
+                final int left = x - radius;
+                final int right = x + radius + 1;
+
+                for (int p = top; p <= bottom; p += width) {
+                    final int oldVal = in[p + left] & 0xFF;
+                    histogram[oldVal]--;
 
-                for (int i = x - rad; i <= (x + rad); i++) {
-                    for (int j = y - rad; j <= (y + rad); j++) {
-                        int val = input.get(i, j);
-                        histogram[val]++;
+                    if (oldVal < median) {
+                        below--;
                     }
-                }
 
-                // Pick up the median value
-                final int side = (2 * rad) + 1;
-                final int medianCount = ((side * side) + 1) / 2;
-                int median = 255;
-                int sum = 0;
+                    final int newVal = in[p + right] & 0xFF;
+                    histogram[newVal]++;
 
-                while (sum < medianCount) {
-                    sum += histogram[median];
-                    median--;
+                    if (newVal < median) {
+                        below++;
+                    }
                 }
-
-                output.set(x, y, median + 1);
             }
         }
     }
+
+    //-----------//
+    // Constants //
+    //-----------//
+    private static class Constants
+            extends ConstantSet
+    {
+
+        private final Constant.Integer minBandHeight = new Constant.Integer(
+                "Pixels",
+                100,
+                "Minimum height of a band of rows processed in parallel");
+    }
 }
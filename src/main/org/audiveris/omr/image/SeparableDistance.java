@@ -0,0 +1,433 @@
+//------------------------------------------------------------------------------------------------//
+//                                                                                                //
+//                               S e p a r a b l e D i s t a n c e                                //
+//                                                                                                //
+//------------------------------------------------------------------------------------------------//
+// <editor-fold defaultstate="collapsed" desc="hdr">
+//
+//  Copyright © Audiveris 2018. All rights reserved.
+//
+//  This program is free software: you can redistribute it and/or modify it under the terms of the
+//  GNU Affero General Public License as published by the Free Software Foundation, either version
+//  3 of the License, or (at your option) any later version.
+//
+//  This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+//  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+//  See the GNU Affero General Public License for more details.
+//
+//  You should have received a copy of the GNU Affero General Public License along with this
+//  program.  If not, see <http://www.gnu.org/licenses/>.
+//------------------------------------------------------------------------------------------------//
+// </editor-fold>
+package org.audiveris.omr.image;
+
+import ij.process.ByteProcessor;
+
+import org.audiveris.omr.constant.Constant;
+import org.audiveris.omr.constant.ConstantSet;
+import org.audiveris.omr.step.ProcessingCancellationException;
+import org.audiveris.omr.util.OmrExecutors;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+/**
+ * Class {@code SeparableDistance} computes an exact Euclidean distance transform, in two
+ * separable passes (see Meijster et al., or Felzenszwalb &amp; Huttenlocher).
+ * <ol>
+ * <li>The column pass computes, for each pixel, the vertical distance to the nearest reference
+ * pixel in the same column.
+ * Columns are independent, they are processed in parallel by vertical bands, row after row so
+ * that memory is accessed sequentially.
+ * <li>The row pass computes, for each row, the lower envelope of the parabolas defined by the
+ * column distances and reads the squared distance of each pixel from this envelope.
+ * Rows are independent, they are processed in parallel by horizontal bands.
+ * </ol>
+ * Distances are expressed in the same unit as the default chamfer mask (a normalizer of 3 per
+ * pixel), so that the resulting table can be used in lieu of a {@link ChamferDistance.Short}
+ * table.
+ * Pixels with no reference pixel at all are set to {@link ChamferDistance#VALUE_UNKNOWN}.
+ * <p>
+ * No buffer is kept between computations: the column distances are written in the output
+ * table itself, and each row band allocates just a few rows of scratch data.
+ *
+ * @author Hervé Bitteur
+ */
+public class SeparableDistance
+        implements ChamferDistance
+{
+
+    private static final Constants constants = new Constants();
+
+    private static final Logger logger = LoggerFactory.getLogger(SeparableDistance.class);
+
+    /** Normalizer, consistent with default chamfer mask. */
+    public static final int NORMALIZER = chamfer3[0][2];
+
+    /** Column distance of a pixel with no reference pixel in its column. */
+    private static final int NO_REFERENCE = java.lang.Short.MAX_VALUE;
+
+    /**
+     * Creates a new {@code SeparableDistance} object.
+     */
+    public SeparableDistance ()
+    {
+    }
+
+    //---------//
+    // compute //
+    //---------//
+    @Override
+    public DistanceTable compute (boolean[][] input)
+    {
+        final int width = input.length;
+        final int height = input[0].length;
+        final DistanceTable.Short output = createTable(width, height);
+
+        for (int y = 0, i = 0; y < height; y++) {
+            for (int x = 0; x < width; x++, i++) {
+                output.setValue(i, input[x][y] ? 0 : NO_REFERENCE);
+            }
+        }
+
+        return process(output, width, height);
+    }
+
+    //---------------//
+    // computeToBack //
+    //---------------//
+    @Override
+    public DistanceTable computeToBack (ByteProcessor input)
+    {
+        return compute(input, false);
+    }
+
+    //---------------//
+    // computeToFore //
+    //---------------//
+    @Override
+    public DistanceTable computeToFore (ByteProcessor input)
+    {
+        return compute(input, true);
+    }
+
+    //---------//
+    // compute //
+    //---------//
+    private DistanceTable compute (ByteProcessor input,
+                                   boolean toFore)
+    {
+        final int width = input.getWidth();
+        final int height = input.getHeight();
+        final int size = width * height;
+        final DistanceTable.Short output = createTable(width, height);
+
+        for (int i = 0; i < size; i++) {
+            output.setValue(i, ((input.get(i) == 0) == toFore) ? 0 : NO_REFERENCE);
+        }
+
+        return process(output, width, height);
+    }
+
+    //-------------//
+    // createTable //
+    //-------------//
+    /**
+     * Allocate the output table, which first receives the column distances.
+     * These distances must remain below {@link #NO_REFERENCE}, hence the limit on height.
+     */
+    private static DistanceTable.Short createTable (int width,
+                                                    int height)
+    {
+        if (height >= NO_REFERENCE) {
+            throw new IllegalArgumentException("Image height " + height + " is too large");
+        }
+
+        return new DistanceTable.Short(width, height, NORMALIZER);
+    }
+
+    //--------------//
+    // getBandCount //
+    //--------------//
+    /**
+     * Report the number of bands to use for the provided length.
+     *
+     * @param length total length to split into bands
+     * @return the count of bands, 1 if no parallelism is desired
+     */
+    private static int getBandCount (int length)
+    {
+        if (!OmrExecutors.defaultParallelism.getValue()) {
+            return 1;
+        }
+
+        return Math.max(
+                1,
+                Math.min(
+                        OmrExecutors.getNumberOfCpus(),
+                        length / constants.minBandSize.getValue()));
+    }
+
+    //---------//
+    // process //
+    //---------//
+    /**
+     * Run the column pass then the row pass.
+     *
+     * @param table  initialized table, 0 for reference pixels, NO_REFERENCE for others
+     * @param width  table width
+     * @param height table height
+     * @return the distance table
+     */
+    private DistanceTable process (final DistanceTable.Short table,
+                                   final int width,
+                                   final int height)
+    {
+        // Column pass, by vertical bands
+        final int colCount = getBandCount(width);
+        final int bandWidth = (width + colCount - 1) / colCount;
+        final List<Callable<Void>> colTasks = new ArrayList<>();
+
+        for (int x = 0; x < width; x += bandWidth) {
+            final int x1 = x;
+            final int x2 = Math.min(width, x + bandWidth);
+            colTasks.add(new Callable<Void>()
+            {
+                @Override
+                public Void call ()
+                        throws Exception
+                {
+                    processColumns(table, width, height, x1, x2);
+
+                    return null;
+                }
+            });
+        }
+
+        run(colTasks);
+
+        // Row pass, by horizontal bands
+        final int rowCount = getBandCount(height);
+        final int bandHeight = (height + rowCount - 1) / rowCount;
+        final List<Callable<Void>> rowTasks = new ArrayList<>();
+
+        for (int y = 0; y < height; y += bandHeight) {
+            final int y1 = y;
+            final int y2 = Math.min(height, y + bandHeight);
+            rowTasks.add(new Callable<Void>()
+            {
+                @Override
+                public Void call ()
+                        throws Exception
+                {
+                    processRows(table, width, height, y1, y2);
+
+                    return null;
+                }
+            });
+        }
+
+        run(rowTasks);
+
+        return table;
+    }
+
+    //----------------//
+    // processColumns //
+    //----------------//
+    /**
+     * Compute the vertical distances for columns [x1..x2[.
+     * A first downward sweep propagates the distance to the nearest reference pixel above,
+     * a second upward sweep takes the nearest reference pixel below into account.
+     */
+    private static void processColumns (DistanceTable table,
+                                        int width,
+                                        int height,
+                                        int x1,
+                                        int x2)
+    {
+        for (int y = 1; y < height; y++) {
+            final int base = y * width;
+
+            for (int i = base + x1, iBreak = base + x2; i < iBreak; i++) {
+                if (table.getValue(i) != 0) {
+                    table.setValue(i, Math.min(NO_REFERENCE, table.getValue(i - width) + 1));
+                }
+            }
+        }
+
+        for (int y = height - 2; y >= 0; y--) {
+            final int base = y * width;
+
+            for (int i = base + x1, iBreak = base + x2; i < iBreak; i++) {
+                final int below = table.getValue(i + width) + 1;
+
+                if (below < table.getValue(i)) {
+                    table.setValue(i, below);
+                }
+            }
+        }
+    }
+
+    //-------------//
+    // processRows //
+    //-------------//
+    /**
+     * Compute the final distances for rows [y1..y2[.
+     * For a given row, each column u defines the parabola (x - u)^2 + g(u)^2, where g(u) is the
+     * column distance. The lower envelope of these parabolas is built from left to right, with
+     * s[] the columns of the envelope parabolas and t[] the abscissae where each of them starts.
+     * <p>
+     * Column distances of the row are first copied to g[], since the row is then overwritten
+     * with the final distances.
+     */
+    private static void processRows (DistanceTable table,
+                                     int width,
+                                     int height,
+                                     int y1,
+                                     int y2)
+    {
+        final int infinite = width + height;
+        final long unknown = (long) infinite * infinite;
+        final int[] g = new int[width];
+        final int[] s = new int[width];
+        final int[] t = new int[width];
+
+        for (int y = y1; y < y2; y++) {
+            final int base = y * width;
+
+            for (int u = 0; u < width; u++) {
+                final int val = table.getValue(base + u);
+                g[u] = (val == NO_REFERENCE) ? infinite : val;
+            }
+
+            int q = 0;
+            s[0] = 0;
+            t[0] = 0;
+
+            for (int u = 1; u < width; u++) {
+                final long gu = g[u];
+
+                while ((q >= 0) && (sqDist(g, t[q], s[q]) > (sq(t[q] - u) + (gu * gu)))) {
+                    q--;
+                }
+
+                if (q < 0) {
+                    q = 0;
+                    s[0] = u;
+                } else {
+                    final int w = 1 + separation(g, s[q], u);
+
+                    if (w < width) {
+                        q++;
+                        s[q] = u;
+                        t[q] = w;
+                    }
+                }
+            }
+
+            for (int u = width - 1; u >= 0; u--) {
+                final long d2 = sqDist(g, u, s[q]);
+
+                if (d2 >= unknown) {
+                    table.setValue(base + u, VALUE_UNKNOWN);
+                } else {
+                    table.setValue(
+                            base + u,
+                            (int) Math.min(
+                                    java.lang.Short.MAX_VALUE,
+                                    Math.round(NORMALIZER * Math.sqrt(d2))));
+                }
+
+                if (u == t[q]) {
+                    q--;
+                }
+            }
+        }
+    }
+
+    //-----//
+    // run //
+    //-----//
+    private static void run (List<Callable<Void>> tasks)
+    {
+        try {
+            if (tasks.size() == 1) {
+                tasks.get(0).call();
+
+                return;
+            }
+
+            for (Future<Void> future : OmrExecutors.getHighExecutor().invokeAll(tasks)) {
+                future.get();
+            }
+        } catch (InterruptedException ex) {
+            logger.warn("Distance transform got interrupted");
+            throw new ProcessingCancellationException(ex);
+        } catch (ExecutionException ex) {
+            logger.warn("Exception raised in distance transform", ex.getCause());
+            throw new RuntimeException(ex.getCause());
+        } catch (Exception ex) {
+            throw new RuntimeException(ex);
+        }
+    }
+
+    //------------//
+    // separation //
+    //------------//
+    /**
+     * Report the last abscissa where parabola of column i is not above parabola of column u,
+     * with i &lt; u.
+     */
+    private static int separation (int[] g,
+                                   int i,
+                                   int u)
+    {
+        final long gi = g[i];
+        final long gu = g[u];
+        final long num = (((long) u * u) - ((long) i * i) + (gu * gu)) - (gi * gi);
+        final long den = 2L * (u - i);
+
+        // Floor division, numerator may be negative
+        return (int) ((num >= 0) ? (num / den) : -((-num + den - 1) / den));
+    }
+
+    //----//
+    // sq //
+    //----//
+    private static long sq (long v)
+    {
+        return v * v;
+    }
+
+    //--------//
+    // sqDist //
+    //--------//
+    private static long sqDist (int[] g,
+                                int x,
+                                int i)
+    {
+        final long gi = g[i];
+
+        return sq(x - i) + (gi * gi);
+    }
+
+    //-----------//
+    // Constants //
+    //-----------//
+    private static class Constants
+            extends ConstantSet
+    {
+
+        private final Constant.Integer minBandSize = new Constant.Integer(
+                "Pixels",
+                100,
+                "Minimum width or height of a band processed in parallel");
+    }
+}
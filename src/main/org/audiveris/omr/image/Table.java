@@ -312,6 +312,246 @@ public interface Table
         }
     }
 
+    //--------//
+    // Packed //
+    //--------//
+    /**
+     * A table which records only the sign of values, in two bit planes.
+     * <p>
+     * A zero value is recorded in the zero plane, a negative value in the negative plane and a
+     * positive value in neither plane. Hence, reading a location returns 0, -1 or 1.
+     * <p>
+     * Each table row uses an integral number of 64-bit words, pixel at abscissa x being the
+     * bit (x % 64) of word (x / 64) in its row.
+     * Row padding bits are set in the negative plane.
+     */
+    public static class Packed
+            extends Abstract
+    {
+
+        /** Number of words per row. */
+        private final int wordsPerRow;
+
+        /** Bits of zero values. */
+        private final long[] zeros;
+
+        /** Bits of negative values. */
+        private final long[] negatives;
+
+        /**
+         * Create a Packed table, with all values positive.
+         *
+         * @param width  table width
+         * @param height table height
+         */
+        public Packed (int width,
+                       int height)
+        {
+            super(width, height, null);
+            wordsPerRow = (width + 63) >>> 6;
+            zeros = new long[wordsPerRow * height];
+            negatives = new long[wordsPerRow * height];
+            setPadding();
+        }
+
+        protected Packed (Packed table,
+                          Rectangle roi)
+        {
+            super(table.width, table.height, roi);
+            wordsPerRow = table.wordsPerRow;
+            zeros = table.zeros;
+            negatives = table.negatives;
+        }
+
+        @Override
+        public void fill (int val)
+        {
+            if (roi == null) {
+                Arrays.fill(zeros, (val == 0) ? -1L : 0L);
+                Arrays.fill(negatives, (val < 0) ? -1L : 0L);
+                setPadding();
+            } else {
+                super.fill(val);
+            }
+        }
+
+        @Override
+        public Packed getCopy (Rectangle roi)
+        {
+            final Packed copy;
+
+            if (roi == null) {
+                copy = new Packed(width, height);
+                System.arraycopy(zeros, 0, copy.zeros, 0, zeros.length);
+                System.arraycopy(negatives, 0, copy.negatives, 0, negatives.length);
+            } else {
+                checkRoi(roi);
+
+                copy = new Packed(roi.width, roi.height);
+
+                for (int y = 0; y < roi.height; y++) {
+                    for (int x = 0; x < roi.width; x++) {
+                        copy.setValue(x, y, getRawValue(x + roi.x, y + roi.y));
+                    }
+                }
+            }
+
+            return copy;
+        }
+
+        /**
+         * Report the 64 known bits of a row, starting at provided abscissa.
+         * A bit is set if the location is within the table and its value is not negative.
+         *
+         * @param x abscissa of first bit, perhaps out of table
+         * @param y ordinate of row, within the table
+         * @return the known bits, bit i being for abscissa (x + i)
+         */
+        public long getKnownBits (int x,
+                                  int y)
+        {
+            return ~getBits(negatives, -1L, x, y);
+        }
+
+        @Override
+        public int getValue (int x,
+                             int y)
+        {
+            if (roi != null) {
+                x += roi.x;
+                y += roi.y;
+            }
+
+            return getRawValue(x, y);
+        }
+
+        @Override
+        public int getValue (int index)
+        {
+            return getRawValue(index % width, index / width);
+        }
+
+        @Override
+        public Packed getView (Rectangle roi)
+        {
+            checkRoi(roi);
+
+            return new Packed(this, roi);
+        }
+
+        /**
+         * Report the 64 zero bits of a row, starting at provided abscissa.
+         * A bit is set if the location is within the table and its value is zero.
+         *
+         * @param x abscissa of first bit, perhaps out of table
+         * @param y ordinate of row, within the table
+         * @return the zero bits, bit i being for abscissa (x + i)
+         */
+        public long getZeroBits (int x,
+                                 int y)
+        {
+            return getBits(zeros, 0L, x, y);
+        }
+
+        /**
+         * Tell whether this table is a view on another table.
+         *
+         * @return true if so
+         */
+        public boolean isView ()
+        {
+            return roi != null;
+        }
+
+        @Override
+        public void setValue (int index,
+                              int val)
+        {
+            setRawValue(index % width, index / width, val);
+        }
+
+        @Override
+        public void setValue (int x,
+                              int y,
+                              int val)
+        {
+            if (roi != null) {
+                x += roi.x;
+                y += roi.y;
+            }
+
+            setRawValue(x, y, val);
+        }
+
+        private long getBits (long[] plane,
+                              long outside,
+                              int x,
+                              int y)
+        {
+            final int base = y * wordsPerRow;
+            final int w = x >> 6; // Floor division, even for a negative abscissa
+            final int shift = x & 63;
+            final long low = ((w >= 0) && (w < wordsPerRow)) ? plane[base + w] : outside;
+
+            if (shift == 0) {
+                return low;
+            }
+
+            final long high = ((w >= -1) && ((w + 1) < wordsPerRow)) ? plane[base + w + 1]
+                    : outside;
+
+            return (low >>> shift) | (high << (64 - shift));
+        }
+
+        private int getRawValue (int x,
+                                 int y)
+        {
+            final int i = (y * wordsPerRow) + (x >>> 6);
+            final long bit = 1L << (x & 63);
+
+            if ((zeros[i] & bit) != 0) {
+                return 0;
+            }
+
+            return ((negatives[i] & bit) != 0) ? -1 : 1;
+        }
+
+        private void setRawValue (int x,
+                                  int y,
+                                  int val)
+        {
+            final int i = (y * wordsPerRow) + (x >>> 6);
+            final long bit = 1L << (x & 63);
+
+            if (val == 0) {
+                zeros[i] |= bit;
+                negatives[i] &= ~bit;
+            } else if (val < 0) {
+                zeros[i] &= ~bit;
+                negatives[i] |= bit;
+            } else {
+                zeros[i] &= ~bit;
+                negatives[i] &= ~bit;
+            }
+        }
+
+        /**
+         * Flag the padding bits at end of each row as negative.
+         */
+        private void setPadding ()
+        {
+            if ((width & 63) != 0) {
+                final long padding = -1L << (width & 63);
+
+                for (int y = 0; y < height; y++) {
+                    final int last = ((y + 1) * wordsPerRow) - 1;
+                    zeros[last] &= ~padding;
+                    negatives[last] |= padding;
+                }
+            }
+        }
+    }
+
     //-------//
     // Short //
     //-------//
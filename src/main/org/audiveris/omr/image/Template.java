@@ -96,6 +96,9 @@ public class Template
     /** Collection of key points defined for this template. */
     private final List<PixelDistance> keyPoints;
 
+    /** Compiled key points, for fast evaluation. */
+    private final TemplateKernel kernel;
+
     /** Template width. (perhaps larger than the symbol width) */
     private final int width;
 
@@ -138,6 +141,8 @@ public class Template
         this.width = width;
         this.height = height;
         this.symbolBounds = symbolBounds;
+
+        kernel = new TemplateKernel(keyPoints, width, height);
     }
 
     //-----------//
@@ -313,46 +318,13 @@ public class Template
     {
         final Point ul = upperLeft(x, y, anchor);
 
-        // Loop through template key positions and read related distance.
-        // Compute the mean value on all distances read
-        final int imgWidth = distances.getWidth();
-        final int imgHeight = distances.getHeight();
-        final double foreWeight = constants.foreWeight.getValue();
-        final double backWeight = constants.backWeight.getValue();
-        final double holeWeight = constants.holeWeight.getValue();
-        double weights = 0; // Sum of weights
-        double total = 0; // Sum of weighted distances
-
-        for (PixelDistance pix : keyPoints) {
-            int nx = ul.x + pix.x;
-            int ny = ul.y + pix.y;
-
-            // Ignore tested point if located out of image
-            if ((nx >= 0) && (nx < imgWidth) && (ny >= 0) && (ny < imgHeight)) {
-                int actualDist = distances.getValue(nx, ny);
-
-                // Ignore neutralized locations in distance table
-                if (actualDist != ChamferDistance.VALUE_UNKNOWN) {
-                    // pix.d < 0 for expected hole, expected negative distance to nearest foreground
-                    // pix.d == 0 for expected foreground, 0 distance
-                    // pix.d > 0 for expected background, expected distance to nearest foreground
-                    double weight = (pix.d == 0) ? foreWeight
-                            : ((pix.d > 0) ? backWeight : holeWeight);
-                    double expected = (pix.d == 0) ? 0 : 1;
-                    double actual = (actualDist == 0) ? 0 : 1;
-                    double dist = Math.abs(actual - expected);
-
-                    total += (weight * dist);
-                    weights += weight;
-                }
-            }
-        }
-
-        if (weights == 0) {
-            return Double.MAX_VALUE; // Safer
-        }
-
-        return total / weights;
+        return kernel.evaluate(
+                ul.x,
+                ul.y,
+                distances,
+                constants.foreWeight.getValue(),
+                constants.backWeight.getValue(),
+                constants.holeWeight.getValue());
     }
 
     //--------------//
@@ -374,40 +346,7 @@ public class Template
     {
         final Point ul = upperLeft(x, y, anchor);
 
-        // Loop through template key positions and read related distance.
-        // Compute the mean value on all distances read
-        final int imgWidth = distances.getWidth();
-        final int imgHeight = distances.getHeight();
-        int expectedHoles = 0; // Expected number of white pixels in hole
-        int actualHoles = 0; // Actual number of white pixels in hole
-
-        for (PixelDistance pix : keyPoints) {
-            int nx = ul.x + pix.x;
-            int ny = ul.y + pix.y;
-
-            // Ignore tested point if located out of image
-            if ((nx >= 0) && (nx < imgWidth) && (ny >= 0) && (ny < imgHeight)) {
-                int actualDist = distances.getValue(nx, ny);
-
-                // Ignore neutralized locations in distance table
-                if (actualDist != ChamferDistance.VALUE_UNKNOWN) {
-                    // pix.d < 0 for expected hole, expected negative distance to nearest foreground
-                    if (pix.d < 0) {
-                        expectedHoles++;
-
-                        if (actualDist != 0) {
-                            actualHoles++;
-                        }
-                    }
-                }
-            }
-        }
-
-        if (expectedHoles == 0) {
-            return 0;
-        } else {
-            return (double) actualHoles / expectedHoles;
-        }
+        return kernel.evaluateHole(ul.x, ul.y, distances);
     }
 
     //-----------//
@@ -697,6 +636,33 @@ public class Template
         return new Point(x, y);
     }
 
+    //---------------//
+    // evaluateBatch //
+    //---------------//
+    /**
+     * Evaluate a merged kernel at location (x,y) in provided distances table, using the
+     * current template weights.
+     *
+     * @param multi     the merged kernel of several templates
+     * @param x         anchor abscissa
+     * @param y         anchor ordinate
+     * @param distances the distance table to search
+     * @return the weighted average distance for each template
+     */
+    public static double[] evaluateBatch (TemplateKernel.Multi multi,
+                                          int x,
+                                          int y,
+                                          DistanceTable distances)
+    {
+        return multi.evaluate(
+                x,
+                y,
+                distances,
+                constants.foreWeight.getValue(),
+                constants.backWeight.getValue(),
+                constants.holeWeight.getValue());
+    }
+
     //----------//
     // impactOf //
     //----------//
@@ -23,13 +23,20 @@ package org.audiveris.omr.image;
 
 import org.audiveris.omr.glyph.Shape;
 import org.audiveris.omr.glyph.ShapeSet;
+import org.audiveris.omr.image.Anchored.Anchor;
+import org.audiveris.omr.image.TemplateKernel.Multi;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.ArrayList;
 import java.util.EnumMap;
+import java.util.EnumSet;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 /**
  * Class {@code TemplateFactory} builds needed instances of {@link Template} class
@@ -110,6 +117,10 @@ public class TemplateFactory
         /** Map of all descriptors for this catalog. */
         final Map<Shape, ShapeDescriptor> descriptors = new EnumMap<>(Shape.class);
 
+        /** Merged kernels, per anchor and per set of shapes. */
+        private final ConcurrentMap<Anchor, ConcurrentMap<EnumSet<Shape>, Multi>> multis
+                = new ConcurrentHashMap<>();
+
         /**
          * Create a {@code Catalog} object.
          *
@@ -121,6 +132,29 @@ public class TemplateFactory
             buildAllTemplates();
         }
 
+        //----------//
+        // evaluate //
+        //----------//
+        /**
+         * Evaluate, in a single pass, the templates of all provided shapes at the same
+         * location.
+         *
+         * @param shapes    the shapes to evaluate
+         * @param x         location abscissa
+         * @param y         location ordinate
+         * @param anchor    location WRT templates
+         * @param distances table of distances
+         * @return the distance found for each shape, in shapes iteration order
+         */
+        public double[] evaluate (EnumSet<Shape> shapes,
+                                  int x,
+                                  int y,
+                                  Anchor anchor,
+                                  DistanceTable distances)
+        {
+            return Template.evaluateBatch(getMulti(shapes, anchor), x, y, distances);
+        }
+
         //---------------//
         // getDescriptor //
         //---------------//
@@ -160,5 +194,43 @@ public class TemplateFactory
                 descriptors.put(shape, new ShapeDescriptor(shape, pointSize));
             }
         }
+
+        //----------//
+        // getMulti //
+        //----------//
+        /**
+         * Report the merged kernel for the provided shapes and anchor, compiled on first
+         * need.
+         */
+        private Multi getMulti (EnumSet<Shape> shapes,
+                                              Anchor anchor)
+        {
+            ConcurrentMap<EnumSet<Shape>, Multi> map = multis.get(anchor);
+
+            if (map == null) {
+                final ConcurrentMap<EnumSet<Shape>, Multi> newMap
+                        = new ConcurrentHashMap<>();
+                map = multis.putIfAbsent(anchor, newMap);
+
+                if (map == null) {
+                    map = newMap;
+                }
+            }
+
+            Multi multi = map.get(shapes);
+
+            if (multi == null) {
+                final List<Template> templates = new ArrayList<>();
+
+                for (Shape shape : shapes) {
+                    templates.add(getTemplate(shape));
+                }
+
+                multi = new Multi(templates, anchor);
+                map.putIfAbsent(EnumSet.copyOf(shapes), multi);
+            }
+
+            return multi;
+        }
     }
 }
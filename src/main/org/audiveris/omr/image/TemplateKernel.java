@@ -0,0 +1,664 @@
+//------------------------------------------------------------------------------------------------//
+//                                                                                                //
+//                                  T e m p l a t e K e r n e l                                   //
+//                                                                                                //
+//------------------------------------------------------------------------------------------------//
+// <editor-fold defaultstate="collapsed" desc="hdr">
+//
+//  Copyright © Audiveris 2018. All rights reserved.
+//
+//  This program is free software: you can redistribute it and/or modify it under the terms of the
+//  GNU Affero General Public License as published by the Free Software Foundation, either version
+//  3 of the License, or (at your option) any later version.
+//
+//  This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+//  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+//  See the GNU Affero General Public License for more details.
+//
+//  You should have received a copy of the GNU Affero General Public License along with this
+//  program.  If not, see <http://www.gnu.org/licenses/>.
+//------------------------------------------------------------------------------------------------//
+// </editor-fold>
+package org.audiveris.omr.image;
+
+import static org.audiveris.omr.image.ChamferDistance.VALUE_UNKNOWN;
+
+import java.awt.Point;
+import java.awt.Rectangle;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Class {@code TemplateKernel} is the compiled form of a template key points, meant for
+ * fast matching evaluation on a distance table.
+ * <p>
+ * Key points are stored in flat coordinate arrays, grouped by kind: foreground points first,
+ * then background points, then hole points.
+ * Since a key point contributes to matching distance only by whether its actual distance is zero
+ * or not, evaluation boils down to counting foreground points read per kind, the kind weights
+ * being applied once at the end.
+ * <p>
+ * When the template box lies entirely within the distance table, the per-point bound checks are
+ * skipped.
+ * <p>
+ * Key points are also packed into bit masks, one row of 64-bit words per template row and kind.
+ * On a {@link DistanceTable.Packed} table, the counts of a whole word of key points are then
+ * obtained by a couple of bit counts.
+ *
+ * @author Hervé Bitteur
+ */
+public class TemplateKernel
+{
+
+    /** Kind index for foreground points. */
+    static final int FORE = 0;
+
+    /** Kind index for background points. */
+    static final int BACK = 1;
+
+    /** Kind index for hole points. */
+    static final int HOLE = 2;
+
+    /** Key points abscissae, relative to template upper left corner. */
+    private final int[] xs;
+
+    /** Key points ordinates, relative to template upper left corner. */
+    private final int[] ys;
+
+    /** Index of first background point, all previous points being foreground points. */
+    private final int backStart;
+
+    /** Index of first hole point, all following points being hole points. */
+    private final int holeStart;
+
+    /** Width of template box. */
+    private final int width;
+
+    /** Height of template box. */
+    private final int height;
+
+    /** Number of mask rows, per kind. */
+    private final int maskRows;
+
+    /** Number of mask words, per row. */
+    private final int maskWords;
+
+    /** Key points bit masks, per kind, row and word. */
+    private final long[] masks;
+
+    /**
+     * Compile a {@code TemplateKernel} from template key points.
+     *
+     * @param keyPoints template key points (d == 0 for foreground, d > 0 for background,
+     *                  d < 0 for hole)
+     * @param width     template width
+     * @param height    template height
+     */
+    public TemplateKernel (List<PixelDistance> keyPoints,
+                           int width,
+                           int height)
+    {
+        this.width = width;
+        this.height = height;
+
+        final int[] kindCounts = new int[3];
+
+        for (PixelDistance pix : keyPoints) {
+            kindCounts[kindOf(pix)]++;
+        }
+
+        backStart = kindCounts[FORE];
+        holeStart = backStart + kindCounts[BACK];
+
+        final int[] next = new int[]{0, backStart, holeStart};
+        xs = new int[keyPoints.size()];
+        ys = new int[keyPoints.size()];
+
+        for (PixelDistance pix : keyPoints) {
+            final int i = next[kindOf(pix)]++;
+            xs[i] = pix.x;
+            ys[i] = pix.y;
+        }
+
+        // Bit masks
+        int maxX = width - 1;
+        int maxY = height - 1;
+
+        for (PixelDistance pix : keyPoints) {
+            maxX = Math.max(maxX, pix.x);
+            maxY = Math.max(maxY, pix.y);
+        }
+
+        maskRows = maxY + 1;
+        maskWords = (maxX + 64) >>> 6;
+        masks = new long[3 * maskRows * maskWords];
+
+        for (PixelDistance pix : keyPoints) {
+            setBit(masks, maskRows, maskWords, kindOf(pix), pix.x, pix.y);
+        }
+    }
+
+    //----------//
+    // evaluate //
+    //----------//
+    /**
+     * Evaluate the template with its upper left corner at (ulx, uly) in provided table.
+     *
+     * @param ulx        abscissa of template upper left corner
+     * @param uly        ordinate of template upper left corner
+     * @param distances  the distance table to read
+     * @param foreWeight weight of foreground points
+     * @param backWeight weight of exterior background points
+     * @param holeWeight weight of interior background points
+     * @return the weighted average distance, or Double.MAX_VALUE if no point could be read
+     */
+    public double evaluate (int ulx,
+                            int uly,
+                            DistanceTable distances,
+                            double foreWeight,
+                            double backWeight,
+                            double holeWeight)
+    {
+        // Per kind: count of points read, count of foreground points read
+        final int[] counts = new int[6];
+        final Table.Packed bits = getBits(distances);
+
+        if (bits != null) {
+            countBits(masks, maskRows, maskWords, ulx, uly, bits, FORE, HOLE + 1, counts);
+
+            return distanceOf(counts, 0, foreWeight, backWeight, holeWeight);
+        }
+
+        final boolean clipped = !isInterior(ulx, uly, distances);
+        scan(ulx, uly, distances, 0, backStart, clipped, counts, 2 * FORE);
+        scan(ulx, uly, distances, backStart, holeStart, clipped, counts, 2 * BACK);
+        scan(ulx, uly, distances, holeStart, xs.length, clipped, counts, 2 * HOLE);
+
+        return distanceOf(counts, 0, foreWeight, backWeight, holeWeight);
+    }
+
+    //--------------//
+    // evaluateHole //
+    //--------------//
+    /**
+     * Evaluate the hole points with template upper left corner at (ulx, uly).
+     *
+     * @param ulx       abscissa of template upper left corner
+     * @param uly       ordinate of template upper left corner
+     * @param distances the distance table to read
+     * @return the ratio of actual white pixels over expected ones
+     */
+    public double evaluateHole (int ulx,
+                                int uly,
+                                DistanceTable distances)
+    {
+        final int[] counts = new int[6];
+        final Table.Packed bits = getBits(distances);
+
+        if (bits != null) {
+            countBits(masks, maskRows, maskWords, ulx, uly, bits, HOLE, HOLE + 1, counts);
+        } else {
+            final boolean clipped = !isInterior(ulx, uly, distances);
+            scan(ulx, uly, distances, holeStart, xs.length, clipped, counts, 2 * HOLE);
+        }
+
+        final int expectedHoles = counts[2 * HOLE]; // Expected number of white pixels in hole
+        final int actualHoles = expectedHoles - counts[(2 * HOLE) + 1]; // Actual white pixels
+
+        if (expectedHoles == 0) {
+            return 0;
+        } else {
+            return (double) actualHoles / expectedHoles;
+        }
+    }
+
+    //----------//
+    // toString //
+    //----------//
+    @Override
+    public String toString ()
+    {
+        return new StringBuilder(getClass().getSimpleName()).append("{w:").append(width).append(
+                ",h:").append(height).append(" fore:").append(backStart).append(" back:").append(
+                holeStart - backStart).append(" hole:").append(xs.length - holeStart).append("}")
+                .toString();
+    }
+
+    //-----------//
+    // countBits //
+    //-----------//
+    /**
+     * Count points read and foreground points read, for a range of mask groups, on a
+     * packed table.
+     * <p>
+     * Masks are organized per group, then per row, then per word, a group being a kind for a
+     * single template, or a (template, kind) pair for a merged kernel.
+     * Counts for group g are stored at index 2*g.
+     *
+     * @param masks     the bit masks
+     * @param rows      number of rows per group
+     * @param words     number of words per row
+     * @param x0        table abscissa of masks origin
+     * @param y0        table ordinate of masks origin
+     * @param bits      the packed table
+     * @param groupFrom first group
+     * @param groupTo   group breaking the range
+     * @param counts    (output) array of counts
+     */
+    static void countBits (long[] masks,
+                           int rows,
+                           int words,
+                           int x0,
+                           int y0,
+                           Table.Packed bits,
+                           int groupFrom,
+                           int groupTo,
+                           int[] counts)
+    {
+        final int imgHeight = bits.getHeight();
+
+        for (int r = 0; r < rows; r++) {
+            final int y = y0 + r;
+
+            // Rows out of table are ignored
+            if ((y < 0) || (y >= imgHeight)) {
+                continue;
+            }
+
+            for (int j = 0; j < words; j++) {
+                final int x = x0 + (j << 6);
+                final long known = bits.getKnownBits(x, y);
+                final long fores = bits.getZeroBits(x, y);
+
+                for (int g = groupFrom; g < groupTo; g++) {
+                    final long mask = masks[(((g * rows) + r) * words) + j];
+
+                    if (mask != 0) {
+                        counts[2 * g] += Long.bitCount(mask & known);
+                        counts[(2 * g) + 1] += Long.bitCount(mask & fores);
+                    }
+                }
+            }
+        }
+    }
+
+    //------------//
+    // distanceOf //
+    //------------//
+    /**
+     * Compute the weighted average distance out of per-kind counts.
+     * <p>
+     * For each kind, counts array contains the number of points read, then the number of
+     * foreground points among them.
+     * A foreground point mismatches with a background or hole point, and a non-foreground point
+     * mismatches with a foreground point.
+     *
+     * @param counts array of counts
+     * @param base   index of first count to use in array
+     * @return the weighted average distance, or Double.MAX_VALUE if no point was read
+     */
+    static double distanceOf (int[] counts,
+                              int base,
+                              double foreWeight,
+                              double backWeight,
+                              double holeWeight)
+    {
+        final double weights = (foreWeight * counts[base]) + (backWeight * counts[base + 2])
+                               + (holeWeight * counts[base + 4]);
+
+        if (weights == 0) {
+            return Double.MAX_VALUE; // Safer
+        }
+
+        final double total = (foreWeight * (counts[base] - counts[base + 1]))
+                             + (backWeight * counts[base + 3]) + (holeWeight * counts[base + 5]);
+
+        return total / weights;
+    }
+
+    //--------//
+    // kindOf //
+    //--------//
+    /**
+     * Report the kind of a key point.
+     * (pix.d == 0 for expected foreground, pix.d > 0 for expected background,
+     * pix.d < 0 for expected hole)
+     */
+    static int kindOf (PixelDistance pix)
+    {
+        return (pix.d == 0) ? FORE : ((pix.d > 0) ? BACK : HOLE);
+    }
+
+    //--------//
+    // setBit //
+    //--------//
+    /**
+     * Set the bit of a key point in masks.
+     *
+     * @param masks the bit masks
+     * @param rows  number of rows per group
+     * @param words number of words per row
+     * @param group the key point group
+     * @param x     key point abscissa, relative to masks origin
+     * @param y     key point ordinate, relative to masks origin
+     */
+    static void setBit (long[] masks,
+                        int rows,
+                        int words,
+                        int group,
+                        int x,
+                        int y)
+    {
+        masks[(((group * rows) + y) * words) + (x >>> 6)] |= (1L << (x & 63));
+    }
+
+    //---------//
+    // getBits //
+    //---------//
+    /**
+     * Report the bit planes of a packed distance table.
+     *
+     * @param distances the distance table
+     * @return the packed table, or null if distances are not available as bit planes
+     */
+    private static Table.Packed getBits (DistanceTable distances)
+    {
+        if (distances instanceof DistanceTable.Packed) {
+            return ((DistanceTable.Packed) distances).getBits();
+        }
+
+        return null;
+    }
+
+    //------------//
+    // isInterior //
+    //------------//
+    private boolean isInterior (int ulx,
+                                int uly,
+                                DistanceTable distances)
+    {
+        return (ulx >= 0) && (uly >= 0) && ((ulx + width) <= distances.getWidth())
+               && ((uly + height) <= distances.getHeight());
+    }
+
+    //------//
+    // scan //
+    //------//
+    /**
+     * Read a range of key points, and count points read and foreground points read.
+     *
+     * @param ulx       abscissa of template upper left corner
+     * @param uly       ordinate of template upper left corner
+     * @param distances the distance table to read
+     * @param from      first key point index
+     * @param to        key point index breaking the range
+     * @param clipped   true if points may lie outside of distance table
+     * @param counts    (output) array of counts
+     * @param base      index in counts of points read, followed by foreground points read
+     */
+    private void scan (int ulx,
+                       int uly,
+                       DistanceTable distances,
+                       int from,
+                       int to,
+                       boolean clipped,
+                       int[] counts,
+                       int base)
+    {
+        final int imgWidth = distances.getWidth();
+        final int imgHeight = distances.getHeight();
+        int read = 0;
+        int fores = 0;
+
+        for (int i = from; i < to; i++) {
+            final int nx = ulx + xs[i];
+            final int ny = uly + ys[i];
+
+            // Ignore tested point if located out of image
+            if (clipped && ((nx < 0) || (nx >= imgWidth) || (ny < 0) || (ny >= imgHeight))) {
+                continue;
+            }
+
+            final int actualDist = distances.getValue(nx, ny);
+
+            // Ignore neutralized locations in distance table
+            if (actualDist != VALUE_UNKNOWN) {
+                read++;
+
+                if (actualDist == 0) {
+                    fores++;
+                }
+            }
+        }
+
+        counts[base] += read;
+        counts[base + 1] += fores;
+    }
+
+    //-------//
+    // Multi //
+    //-------//
+    /**
+     * A merged kernel, which evaluates several templates around a common anchor location
+     * in a single pass over the distance table.
+     * <p>
+     * Templates for similar shapes share most of their key locations, hence each distinct
+     * location is read only once and its result dispatched to every template concerned.
+     */
+    public static class Multi
+    {
+
+        /** Distinct locations abscissae, relative to anchor location. */
+        private final int[] dxs;
+
+        /** Distinct locations ordinates, relative to anchor location. */
+        private final int[] dys;
+
+        /** For each location, index of its first entry. (with one more cell at end) */
+        private final int[] starts;
+
+        /** For each entry, index in counts array. (template index * 6 + point kind * 2) */
+        private final int[] entries;
+
+        /** Number of templates. */
+        private final int count;
+
+        /** Bounds of all locations, relative to anchor location. */
+        private final Rectangle bounds;
+
+        /** Number of mask words per row, within bounds. */
+        private final int maskWords;
+
+        /** Key points bit masks, per template and kind, then per row and word. */
+        private final long[] masks;
+
+        /**
+         * Create a {@code Multi} kernel.
+         *
+         * @param templates the templates to merge
+         * @param anchor    the common anchor
+         */
+        public Multi (List<Template> templates,
+                      Anchored.Anchor anchor)
+        {
+            count = templates.size();
+
+            // Gather entries per distinct location
+            final Map<Point, List<Integer>> map = new LinkedHashMap<>();
+            int entryCount = 0;
+
+            for (int t = 0; t < count; t++) {
+                final Template template = templates.get(t);
+                final Point offset = template.getOffset(anchor);
+
+                for (PixelDistance pix : template.getKeyPoints()) {
+                    final Point loc = new Point(pix.x - offset.x, pix.y - offset.y);
+                    List<Integer> list = map.get(loc);
+
+                    if (list == null) {
+                        map.put(loc, list = new ArrayList<>());
+                    }
+
+                    list.add((6 * t) + (2 * kindOf(pix)));
+                    entryCount++;
+                }
+            }
+
+            dxs = new int[map.size()];
+            dys = new int[map.size()];
+            starts = new int[map.size() + 1];
+            entries = new int[entryCount];
+
+            Rectangle box = null;
+            int i = 0;
+            int e = 0;
+
+            for (Map.Entry<Point, List<Integer>> entry : map.entrySet()) {
+                final Point loc = entry.getKey();
+                dxs[i] = loc.x;
+                dys[i] = loc.y;
+                starts[i] = e;
+
+                for (int val : entry.getValue()) {
+                    entries[e++] = val;
+                }
+
+                if (box == null) {
+                    box = new Rectangle(loc.x, loc.y, 1, 1);
+                } else {
+                    box.add(new Rectangle(loc.x, loc.y, 1, 1));
+                }
+
+                i++;
+            }
+
+            starts[i] = e;
+            bounds = (box != null) ? box : new Rectangle();
+
+            // Bit masks, relative to bounds origin
+            maskWords = (bounds.width + 63) >>> 6;
+            masks = new long[3 * count * bounds.height * maskWords];
+
+            for (int t = 0; t < count; t++) {
+                final Template template = templates.get(t);
+                final Point offset = template.getOffset(anchor);
+
+                for (PixelDistance pix : template.getKeyPoints()) {
+                    setBit(
+                            masks,
+                            bounds.height,
+                            maskWords,
+                            (3 * t) + kindOf(pix),
+                            pix.x - offset.x - bounds.x,
+                            pix.y - offset.y - bounds.y);
+                }
+            }
+        }
+
+        //----------//
+        // evaluate //
+        //----------//
+        /**
+         * Evaluate all templates with their anchor at location (x,y).
+         *
+         * @param x          anchor abscissa
+         * @param y          anchor ordinate
+         * @param distances  the distance table to read
+         * @param foreWeight weight of foreground points
+         * @param backWeight weight of exterior background points
+         * @param holeWeight weight of interior background points
+         * @return the weighted average distance for each template, in templates order
+         */
+        public double[] evaluate (int x,
+                                  int y,
+                                  DistanceTable distances,
+                                  double foreWeight,
+                                  double backWeight,
+                                  double holeWeight)
+        {
+            // Per template and kind: count of points read, count of foreground points read
+            final int[] counts = new int[6 * count];
+            final Table.Packed bits = getBits(distances);
+
+            if (bits != null) {
+                countBits(
+                        masks,
+                        bounds.height,
+                        maskWords,
+                        x + bounds.x,
+                        y + bounds.y,
+                        bits,
+                        0,
+                        3 * count,
+                        counts);
+            } else {
+                scan(x, y, distances, counts);
+            }
+
+            final double[] results = new double[count];
+
+            for (int t = 0; t < count; t++) {
+                results[t] = distanceOf(counts, 6 * t, foreWeight, backWeight, holeWeight);
+            }
+
+            return results;
+        }
+
+        //----------//
+        // toString //
+        //----------//
+        @Override
+        public String toString ()
+        {
+            return new StringBuilder(getClass().getSimpleName()).append("{templates:").append(
+                    count).append(" locations:").append(dxs.length).append(" entries:").append(
+                    entries.length).append("}").toString();
+        }
+
+        //------//
+        // scan //
+        //------//
+        /**
+         * Read all distinct locations, and dispatch counts to the templates concerned.
+         *
+         * @param x         anchor abscissa
+         * @param y         anchor ordinate
+         * @param distances the distance table to read
+         * @param counts    (output) array of counts
+         */
+        private void scan (int x,
+                           int y,
+                           DistanceTable distances,
+                           int[] counts)
+        {
+            final int imgWidth = distances.getWidth();
+            final int imgHeight = distances.getHeight();
+            final boolean interior = ((x + bounds.x) >= 0) && ((y + bounds.y) >= 0)
+                                     && ((x + bounds.x + bounds.width) <= imgWidth)
+                                     && ((y + bounds.y + bounds.height) <= imgHeight);
+
+            for (int i = 0, iBreak = dxs.length; i < iBreak; i++) {
+                final int nx = x + dxs[i];
+                final int ny = y + dys[i];
+
+                if (!interior && ((nx < 0) || (nx >= imgWidth) || (ny < 0) || (ny >= imgHeight))) {
+                    continue;
+                }
+
+                final int actualDist = distances.getValue(nx, ny);
+
+                if (actualDist != VALUE_UNKNOWN) {
+                    final int fore = (actualDist == 0) ? 1 : 0;
+
+                    for (int e = starts[i], eBreak = starts[i + 1]; e < eBreak; e++) {
+                        final int index = entries[e];
+                        counts[index]++;
+                        counts[index + 1] += fore;
+                    }
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,383 @@
+//------------------------------------------------------------------------------------------------//
+//                                                                                                //
+//                                        T h i n n i n g                                         //
+//                                                                                                //
+//------------------------------------------------------------------------------------------------//
+// <editor-fold defaultstate="collapsed" desc="hdr">
+//
+//  Copyright © Audiveris 2018. All rights reserved.
+//
+//  This program is free software: you can redistribute it and/or modify it under the terms of the
+//  GNU Affero General Public License as published by the Free Software Foundation, either version
+//  3 of the License, or (at your option) any later version.
+//
+//  This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+//  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+//  See the GNU Affero General Public License for more details.
+//
+//  You should have received a copy of the GNU Affero General Public License along with this
+//  program.  If not, see <http://www.gnu.org/licenses/>.
+//------------------------------------------------------------------------------------------------//
+// </editor-fold>
+package org.audiveris.omr.image;
+
+import org.audiveris.omr.constant.Constant;
+import org.audiveris.omr.constant.ConstantSet;
+import org.audiveris.omr.step.ProcessingCancellationException;
+import org.audiveris.omr.util.OmrExecutors;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+/**
+ * Class {@code Thinning} skeletonizes a {@link BitPlane} in place.
+ * <p>
+ * The algorithm is the table-driven thinning of ImageJ (a Zhang-Suen like scheme), and gives
+ * the same result as {@code ByteProcessor.skeletonize()}:
+ * <ul>
+ * <li>Border pixels are cleared.</li>
+ * <li>Passes are run by pairs, even passes and odd passes removing pixels of different codes,
+ * until a pair of passes removes no pixel. The same is then done with a second table, meant to
+ * remove "stuck" pixels.</li>
+ * <li>Within a pass, every pixel is decided upon the 8 neighbors it had at the beginning of the
+ * pass.</li>
+ * </ul>
+ * Since a pass reads only the plane as it was before the pass, its rows can be processed in
+ * parallel by bands, the only synchronization being the end of each pass.
+ * Empty words (64 pixels) are skipped at once, and so are pixels with all their neighbors set,
+ * which no table removes.
+ *
+ * @author Hervé Bitteur
+ */
+public abstract class Thinning
+{
+
+    private static final Constants constants = new Constants();
+
+    private static final Logger logger = LoggerFactory.getLogger(Thinning.class);
+
+    /** Codes for the first phase, indexed by neighborhood. */
+    private static final int[] table = new int[]{
+        0, 0, 0, 0, 0, 0, 1, 3, 0, 0, 3, 1, 1, 0, 1, 3,
+        0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 2, 0, 3, 0, 3, 3,
+        0, 0, 0, 0, 0, 0, 0, 0, 3, 0, 0, 0, 0, 0, 0, 0,
+        0, 0, 0, 0, 0, 0, 0, 0, 2, 0, 0, 0, 3, 0, 2, 2,
+        0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0,
+        0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0,
+        2, 0, 0, 0, 0, 0, 0, 0, 2, 0, 0, 0, 2, 0, 0, 0,
+        3, 0, 0, 0, 0, 0, 0, 0, 3, 0, 0, 0, 3, 0, 2, 0,
+        0, 0, 3, 1, 0, 0, 1, 3, 0, 0, 0, 0, 0, 0, 0, 1,
+        0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 1,
+        3, 1, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0,
+        2, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0,
+        2, 3, 1, 3, 0, 0, 1, 3, 0, 0, 0, 0, 0, 0, 0, 1,
+        0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0,
+        2, 3, 0, 1, 0, 0, 0, 1, 0, 0, 0, 0, 0, 0, 0, 0,
+        3, 3, 0, 1, 0, 0, 0, 0, 2, 2, 0, 0, 2, 0, 0, 0};
+
+    /** Codes for the second phase, indexed by neighborhood. */
+    private static final int[] table2 = new int[]{
+        0, 0, 0, 1, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0,
+        0, 0, 0, 0, 0, 0, 0, 0, 2, 0, 2, 2, 0, 0, 0, 0,
+        0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 2, 0,
+        2, 0, 0, 0, 0, 0, 0, 0, 0, 0, 2, 0, 0, 0, 0, 0,
+        0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0,
+        0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0,
+        0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0,
+        0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0,
+        0, 1, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0,
+        0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 2, 0, 0, 0, 0, 0,
+        0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0,
+        0, 0, 0, 0, 0, 0, 0, 0, 2, 0, 0, 0, 0, 0, 0, 0,
+        0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0,
+        0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0,
+        0, 0, 1, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0,
+        0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0};
+
+    private Thinning ()
+    {
+    }
+
+    //-------------//
+    // skeletonize //
+    //-------------//
+    /**
+     * Skeletonize the provided plane, using parallel bands of rows if so desired.
+     *
+     * @param plane the plane to thin
+     */
+    public static void skeletonize (BitPlane plane)
+    {
+        final int bandCount = OmrExecutors.defaultParallelism.getValue() ? Math.min(
+                OmrExecutors.getNumberOfCpus(),
+                plane.getHeight() / constants.minBandHeight.getValue()) : 1;
+
+        skeletonize(plane, Math.max(1, bandCount));
+    }
+
+    //-------------//
+    // skeletonize //
+    //-------------//
+    /**
+     * Skeletonize the provided plane, using the provided count of row bands.
+     *
+     * @param plane     the plane to thin
+     * @param bandCount number of row bands
+     */
+    static void skeletonize (BitPlane plane,
+                             int bandCount)
+    {
+        final int width = plane.getWidth();
+        final int height = plane.getHeight();
+
+        // Clear border pixels
+        for (int y = 0; y < height; y++) {
+            if ((y == 0) || (y == (height - 1))) {
+                plane.clearRange(y, 0, width - 1);
+            } else {
+                plane.clear(0, y);
+                plane.clear(width - 1, y);
+            }
+        }
+
+        if ((width < 3) || (height < 3)) {
+            return;
+        }
+
+        final long[] words = plane.getWords();
+        final long[] source = new long[words.length];
+        int pass = 0;
+        int removed;
+
+        for (int[] codes : new int[][]{table, table2}) {
+            do {
+                removed = thin(plane, source, pass++, codes, bandCount);
+                removed += thin(plane, source, pass++, codes, bandCount);
+            } while (removed > 0);
+        }
+    }
+
+    //---------//
+    // process //
+    //---------//
+    /**
+     * Process rows [y1..y2[ for one pass.
+     *
+     * @param source    plane words at beginning of pass
+     * @param target    plane words to update
+     * @param perRow    number of words per row
+     * @param width     plane width
+     * @param y1        first row
+     * @param y2        row breaking the range
+     * @param codes     table of codes
+     * @param removable first code which allows removal for this pass (1 or 2)
+     * @return the number of pixels removed
+     */
+    private static int process (long[] source,
+                                long[] target,
+                                int perRow,
+                                int width,
+                                int y1,
+                                int y2,
+                                int[] codes,
+                                int removable)
+    {
+        int removed = 0;
+
+        for (int y = y1; y < y2; y++) {
+            final int base = y * perRow;
+
+            for (int w = 0; w < perRow; w++) {
+                final long center = source[base + w];
+
+                if (center == 0) {
+                    continue;
+                }
+
+                // Skip pixels with all 8 neighbors set, they are never removed
+                final long full = center & source[base - perRow + w] & source[base + perRow + w]
+                                  & neighbors(source, base - perRow, w, perRow)
+                                  & neighbors(source, base, w, perRow)
+                                  & neighbors(source, base + perRow, w, perRow);
+                long word = center & ~full;
+                long removal = 0;
+
+                while (word != 0) {
+                    final int bit = Long.numberOfTrailingZeros(word);
+                    word &= (word - 1);
+
+                    final int x = (w << 6) + bit;
+
+                    // Border pixels are always clear, hence x > 0 and x < width - 1
+                    final int up = base - perRow;
+                    final int down = base + perRow;
+                    int index = 0;
+
+                    if (isSet(source, up, x - 1)) {
+                        index |= 1;
+                    }
+
+                    if (isSet(source, up, x)) {
+                        index |= 2;
+                    }
+
+                    if (isSet(source, up, x + 1)) {
+                        index |= 4;
+                    }
+
+                    if (isSet(source, base, x + 1)) {
+                        index |= 8;
+                    }
+
+                    if (isSet(source, down, x + 1)) {
+                        index |= 16;
+                    }
+
+                    if (isSet(source, down, x)) {
+                        index |= 32;
+                    }
+
+                    if (isSet(source, down, x - 1)) {
+                        index |= 64;
+                    }
+
+                    if (isSet(source, base, x - 1)) {
+                        index |= 128;
+                    }
+
+                    final int code = codes[index];
+
+                    if ((code == removable) || (code == 3)) {
+                        removal |= (1L << bit);
+                        removed++;
+                    }
+                }
+
+                if (removal != 0) {
+                    target[base + w] &= ~removal;
+                }
+            }
+        }
+
+        return removed;
+    }
+
+    //-------//
+    // isSet //
+    //-------//
+    private static boolean isSet (long[] words,
+                                  int base,
+                                  int x)
+    {
+        return (words[base + (x >>> 6)] & (1L << (x & 63))) != 0;
+    }
+
+    //-----------//
+    // neighbors //
+    //-----------//
+    /**
+     * Report, for each bit of a word, whether both its left and right neighbors are set.
+     *
+     * @param words  plane words
+     * @param base   index of first word in row
+     * @param w      index of word within row
+     * @param perRow number of words per row
+     * @return the bits with both horizontal neighbors set
+     */
+    private static long neighbors (long[] words,
+                                   int base,
+                                   int w,
+                                   int perRow)
+    {
+        final long word = words[base + w];
+        final long prev = (w > 0) ? words[base + w - 1] : 0;
+        final long next = (w < (perRow - 1)) ? words[base + w + 1] : 0;
+        final long left = (word << 1) | (prev >>> 63);
+        final long right = (word >>> 1) | (next << 63);
+
+        return left & right;
+    }
+
+    //------//
+    // thin //
+    //------//
+    /**
+     * Run one pass on the whole plane.
+     *
+     * @param plane     the plane to thin
+     * @param source    buffer for plane words at beginning of pass
+     * @param pass      pass number
+     * @param codes     table of codes
+     * @param bandCount number of row bands
+     * @return the number of pixels removed
+     */
+    private static int thin (BitPlane plane,
+                             final long[] source,
+                             int pass,
+                             final int[] codes,
+                             int bandCount)
+    {
+        final long[] target = plane.getWords();
+        final int perRow = plane.getWordsPerRow();
+        final int width = plane.getWidth();
+        final int height = plane.getHeight();
+        final int removable = ((pass & 1) == 1) ? 2 : 1;
+        System.arraycopy(target, 0, source, 0, target.length);
+
+        if (bandCount <= 1) {
+            return process(source, target, perRow, width, 1, height - 1, codes, removable);
+        }
+
+        final int bandHeight = ((height - 2) + bandCount - 1) / bandCount;
+        final List<Callable<Integer>> tasks = new ArrayList<>();
+
+        for (int y = 1; y < (height - 1); y += bandHeight) {
+            final int y1 = y;
+            final int y2 = Math.min(height - 1, y + bandHeight);
+            tasks.add(new Callable<Integer>()
+            {
+                @Override
+                public Integer call ()
+                        throws Exception
+                {
+                    return process(source, target, perRow, width, y1, y2, codes, removable);
+                }
+            });
+        }
+
+        try {
+            int removed = 0;
+
+            for (Future<Integer> future : OmrExecutors.getHighExecutor().invokeAll(tasks)) {
+                removed += future.get();
+            }
+
+            return removed;
+        } catch (InterruptedException ex) {
+            logger.warn("Thinning got interrupted");
+            throw new ProcessingCancellationException(ex);
+        } catch (ExecutionException ex) {
+            logger.warn("Exception raised in thinning", ex.getCause());
+            throw new RuntimeException(ex.getCause());
+        }
+    }
+
+    //-----------//
+    // Constants //
+    //-----------//
+    private static class Constants
+            extends ConstantSet
+    {
+
+        private final Constant.Integer minBandHeight = new Constant.Integer(
+                "Pixels",
+                100,
+                "Minimum height of a band of rows processed in parallel");
+    }
+}
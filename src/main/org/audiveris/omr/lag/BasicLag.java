@@ -84,6 +84,9 @@ public class BasicLag
             // Add runs into the existing table
             this.runTable.include(runTable);
         }
+
+        // Sections built from these runs are now complete
+        fireContentChanged(null);
     }
 
     //---------//
@@ -200,6 +203,21 @@ public class BasicLag
         }
     }
 
+    //--------//
+    // areaOf //
+    //--------//
+    /**
+     * A section is registered before it gets its runs, its area is then not yet known.
+     *
+     * @param section the inserted or removed section
+     * @return the section bounds, or null for a section with no run yet
+     */
+    @Override
+    protected Rectangle areaOf (Section section)
+    {
+        return (section.getRunCount() > 0) ? section.getBounds() : null;
+    }
+
     //-----------//
     // internals //
     //-----------//
@@ -216,4 +234,18 @@ public class BasicLag
 
         return sb.toString();
     }
+
+    //--------------------//
+    // isSpatiallyIndexed //
+    //--------------------//
+    /**
+     * Sections may still be extended by new runs after their registration.
+     *
+     * @return false
+     */
+    @Override
+    protected boolean isSpatiallyIndexed ()
+    {
+        return false;
+    }
 }
@@ -56,6 +56,11 @@ import javax.xml.stream.XMLStreamException;
  * <p>
  * The class also allows in-memory {@link #backup} and {@link #restore} operation, mainly used to
  * save the most efficient weight values during the network training.
+ * <p>
+ * Training works on double weights. For inference, the {@link #evaluate} method works on a
+ * compiled copy of weights, stored as flat float arrays, one row per input cell (the first row
+ * being the biases). This layout allows to process a whole batch of input patterns with inner
+ * loops running on contiguous arrays.
  *
  * @author Hervé Bitteur
  */
@@ -70,6 +75,9 @@ public class NeuralNetwork
     /** Un/marshalling context for use with JAXB. */
     private static volatile JAXBContext jaxbContext;
 
+    /** Number of patterns processed together in a batch evaluation. */
+    private static final int BLOCK_SIZE = 32;
+
     /** Size of input layer. */
     @XmlAttribute(name = "input-size")
     private final int inputSize;
@@ -112,6 +120,9 @@ public class NeuralNetwork
     /** To trigger training stop. */
     private transient volatile boolean stopping = false;
 
+    /** Weights compiled for evaluation, lazily built. */
+    private transient volatile Compiled compiled;
+
     /**
      * Create a neural network, with specified number of cells in each
      * layer, and default values.
@@ -249,6 +260,67 @@ public class NeuralNetwork
         logger.info(sb.toString());
     }
 
+    //----------//
+    // evaluate //
+    //----------//
+    /**
+     * Run the neural network on a batch of input patterns.
+     * <p>
+     * Patterns are processed by blocks, so that each row of weights is applied to all patterns of
+     * a block while still in cache.
+     *
+     * @param inputs  the input values, one row of inputSize values per pattern
+     * @param count   the number of patterns
+     * @param outputs preallocated array for the output values, one row of outputSize values per
+     *                pattern, or null if not already allocated
+     * @return the computed output values
+     */
+    public float[] evaluate (float[] inputs,
+                             int count,
+                             float[] outputs)
+    {
+        if (inputs.length != (count * inputSize)) {
+            throw new IllegalArgumentException(
+                    "Inputs length " + inputs.length + " not consistent with " + count
+                    + " patterns of " + inputSize + " inputs");
+        }
+
+        if (outputs == null) {
+            outputs = new float[count * outputSize];
+        } else if (outputs.length != (count * outputSize)) {
+            throw new IllegalArgumentException(
+                    "Outputs length " + outputs.length + " not consistent with " + count
+                    + " patterns of " + outputSize + " outputs");
+        }
+
+        final Compiled comp = getCompiled();
+        final float[] hiddens = new float[Math.min(count, BLOCK_SIZE) * hiddenSize];
+
+        for (int start = 0; start < count; start += BLOCK_SIZE) {
+            final int stop = Math.min(count, start + BLOCK_SIZE);
+            forwardBlock(
+                    inputs,
+                    start,
+                    stop,
+                    inputSize,
+                    comp.hiddenWeights,
+                    hiddens,
+                    0,
+                    hiddenSize);
+            forwardBlock(
+                    hiddens,
+                    0,
+                    stop - start,
+                    hiddenSize,
+                    comp.outputWeights,
+                    outputs,
+                    start,
+                    outputSize);
+        }
+
+        return outputs;
+    }
+
     //---------------//
     // getHiddenSize //
     //---------------//
@@ -362,6 +434,7 @@ public class NeuralNetwork
         logger.debug("Network memory restore");
         this.hiddenWeights = cloneMatrix(backup.hiddenWeights);
         this.outputWeights = cloneMatrix(backup.outputWeights);
+        compiled = null;
     }
 
     //-----//
@@ -484,6 +557,7 @@ public class NeuralNetwork
                        int iterPeriod)
     {
         stopping = false;
+        compiled = null;
 
         Objects.requireNonNull(inputs, "inputs array is null");
         Objects.requireNonNull(desiredOutputs, "desiredOutputs array is null");
@@ -601,6 +675,7 @@ public class NeuralNetwork
         logger.info(String.format("Duration %,d seconds, %d iterations on %d patterns", dur / 1_000,
                                   epochs, patterns));
         stopping = false;
+        compiled = null; // Weights have changed
     }
 
     //------------//
@@ -670,6 +745,20 @@ public class NeuralNetwork
         }
     }
 
+    //-------------//
+    // getCompiled //
+    //-------------//
+    private Compiled getCompiled ()
+    {
+        Compiled comp = compiled;
+
+        if (comp == null) {
+            compiled = comp = new Compiled(hiddenWeights, outputWeights);
+        }
+
+        return comp;
+    }
+
     private double relu (double val)
     {
         return Math.max(0, val);
@@ -720,6 +809,33 @@ public class NeuralNetwork
         return nn;
     }
 
+    //------//
+    // axpy //
+    //------//
+    /**
+     * Add a scaled vector to another one: y += a.x
+     * <p>
+     * This simple loop, kept in a separate method, is a good candidate for JIT vectorization.
+     *
+     * @param a    the scaling factor
+     * @param x    array of vector x
+     * @param xOff offset of vector x
+     * @param y    array of vector y, to be modified
+     * @param yOff offset of vector y
+     * @param n    vectors length
+     */
+    private static void axpy (float a,
+                              float[] x,
+                              int xOff,
+                              float[] y,
+                              int yOff,
+                              int n)
+    {
+        for (int i = 0; i < n; i++) {
+            y[yOff + i] += (a * x[xOff + i]);
+        }
+    }
+
     //-------------//
     // cloneMatrix //
     //-------------//
@@ -773,6 +889,56 @@ public class NeuralNetwork
         return matrix;
     }
 
+    //--------------//
+    // forwardBlock //
+    //--------------//
+    /**
+     * Compute the output cells of a block of patterns.
+     *
+     * @param ins      input cells, one row of inSize values per pattern
+     * @param start    index of first pattern in ins
+     * @param stop     index past last pattern in ins
+     * @param inSize   number of input cells per pattern
+     * @param weights  compiled weights, one row of outSize values per input cell, plus biases
+     * @param outs     output cells, one row of outSize values per pattern
+     * @param outStart index in outs of the row for first pattern
+     * @param outSize  number of output cells per pattern
+     */
+    private static void forwardBlock (float[] ins,
+                                      int start,
+                                      int stop,
+                                      int inSize,
+                                      float[] weights,
+                                      float[] outs,
+                                      int outStart,
+                                      int outSize)
+    {
+        final int outBase = (outStart - start) * outSize;
+
+        // Biases
+        for (int p = start; p < stop; p++) {
+            System.arraycopy(weights, 0, outs, outBase + (p * outSize), outSize);
+        }
+
+        for (int i = 0; i < inSize; i++) {
+            final int w = (i + 1) * outSize;
+
+            for (int p = start; p < stop; p++) {
+                final float in = ins[(p * inSize) + i];
+
+                if (in != 0) {
+                    axpy(in, weights, w, outs, outBase + (p * outSize), outSize);
+                }
+            }
+        }
+
+        final int kEnd = outBase + (stop * outSize);
+
+        for (int k = outBase + (start * outSize); k < kEnd; k++) {
+            outs[k] = (float) (1.0d / (1.0d + Math.exp(-outs[k])));
+        }
+    }
+
     //----------------//
     // getJaxbContext //
     //----------------//
@@ -813,6 +979,47 @@ public class NeuralNetwork
         }
     }
 
+    //----------//
+    // Compiled //
+    //----------//
+    /**
+     * Weights compiled for evaluation.
+     * <p>
+     * Each weight matrix is transposed into a flat float array, with one row of output cells per
+     * input cell, the first row being the biases.
+     */
+    private static class Compiled
+    {
+
+        final float[] hiddenWeights;
+
+        final float[] outputWeights;
+
+        Compiled (double[][] hiddenWeights,
+                  double[][] outputWeights)
+        {
+            this.hiddenWeights = transpose(hiddenWeights);
+            this.outputWeights = transpose(outputWeights);
+        }
+
+        private static float[] transpose (double[][] matrix)
+        {
+            final int rowNb = matrix.length;
+            final int colNb = matrix[0].length;
+            final float[] flat = new float[rowNb * colNb];
+
+            for (int row = 0; row < rowNb; row++) {
+                final double[] vector = matrix[row];
+
+                for (int col = 0; col < colNb; col++) {
+                    flat[(col * rowNb) + row] = (float) vector[col];
+                }
+            }
+
+            return flat;
+        }
+    }
+
     //-------------//
     // StringArray //
     //-------------//
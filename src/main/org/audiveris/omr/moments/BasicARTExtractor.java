@@ -44,11 +44,23 @@ public class BasicARTExtractor
     // Zernike basis function radius
     private static final int LUT_RADIUS = 50;
 
-    /** Real values of ARTMoments basis function */
-    private static final LUT[][] realLuts = new LUT[ANGULAR][RADIAL];
+    /** Number of LUT cells per side. */
+    private static final int LUT_SIZE = 1 + (2 * LUT_RADIUS);
 
-    /** Imaginary values of ARTMoments basis function */
-    private static final LUT[][] imagLuts = new LUT[ANGULAR][RADIAL];
+    /** Number of basis functions. */
+    private static final int COUNT = ANGULAR * RADIAL;
+
+    /**
+     * Real values of ARTMoments basis function.
+     * Values are interleaved per LUT cell: [x][y][p][r]
+     */
+    private static final double[] realLut = new double[LUT_SIZE * LUT_SIZE * COUNT];
+
+    /** Imaginary values of ARTMoments basis function, same layout as realLut. */
+    private static final double[] imagLut = new double[LUT_SIZE * LUT_SIZE * COUNT];
+
+    /** Tells which LUT cells lie within unit circle (outside cells are all zero). */
+    private static final boolean[] inside = new boolean[LUT_SIZE * LUT_SIZE];
 
     static {
         initLUT();
@@ -70,32 +82,73 @@ public class BasicARTExtractor
     //----------------//
     // extractMoments //
     //----------------//
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Rather than interpolating every basis function at every point, the bilinear weights of all
+     * points are first accumulated on the LUT grid, and then each basis function is applied once
+     * per touched LUT cell.
+     */
     @Override
     protected void extractMoments ()
     {
-        final LUT anyLut = realLuts[0][0]; // Just for LUT dimensions
-        final int lutRadius = anyLut.getRadius();
+        final int max = LUT_SIZE - 1;
         final double centerX = center.getX();
         final double centerY = center.getY();
 
-        // Coefficients, real part & imaginary part
-        final double[][] coeffReal = new double[ANGULAR][RADIAL];
-        final double[][] coeffImag = new double[ANGULAR][RADIAL];
+        // Interpolation weights accumulated per LUT cell
+        final double[] weights = new double[LUT_SIZE * LUT_SIZE];
 
         for (int i = 0; i < mass; i++) {
             // Map image coordinates to LUT coordinates
-            double x = xx[i] - centerX;
-            double y = yy[i] - centerY;
-            double lx = ((x * lutRadius) / radius) + lutRadius;
-            double ly = ((y * lutRadius) / radius) + lutRadius;
-
-            // Summation of basis function
-            if (anyLut.contains(lx, ly)) {
-                for (int p = 0; p < ANGULAR; p++) {
-                    for (int r = 0; r < RADIAL; r++) {
-                        coeffReal[p][r] += realLuts[p][r].interpolate(lx, ly);
-                        coeffImag[p][r] -= imagLuts[p][r].interpolate(lx, ly);
-                    }
+            double lx = (((xx[i] - centerX) * LUT_RADIUS) / radius) + LUT_RADIUS;
+            double ly = (((yy[i] - centerY) * LUT_RADIUS) / radius) + LUT_RADIUS;
+
+            if ((lx < 0) || (lx >= LUT_SIZE) || (ly < 0) || (ly >= LUT_SIZE)) {
+                continue;
+            }
+
+            // Integer coordinates, by truncating precise coordinates
+            final int x = (int) lx;
+            final int y = (int) ly;
+
+            // Increment from truncated values
+            final double ix = lx - x;
+            final double iy = ly - y;
+            final int cell = (x * LUT_SIZE) + y;
+
+            // Beware of point on LUT border
+            if (x == max) {
+                if (y == max) {
+                    weights[cell] += 1;
+                } else {
+                    weights[cell] += (1 - iy);
+                    weights[cell + 1] += iy;
+                }
+            } else if (y == max) {
+                weights[cell] += (1 - ix);
+                weights[cell + LUT_SIZE] += ix;
+            } else {
+                weights[cell] += ((1 - ix) * (1 - iy));
+                weights[cell + LUT_SIZE] += (ix * (1 - iy));
+                weights[cell + 1] += ((1 - ix) * iy);
+                weights[cell + LUT_SIZE + 1] += (ix * iy);
+            }
+        }
+
+        // Summation of basis function, real part & imaginary part
+        final double[] coeffReal = new double[COUNT];
+        final double[] coeffImag = new double[COUNT];
+
+        for (int cell = weights.length - 1; cell >= 0; cell--) {
+            final double w = weights[cell];
+
+            if ((w != 0) && inside[cell]) {
+                final int base = cell * COUNT;
+
+                for (int k = 0; k < COUNT; k++) {
+                    coeffReal[k] += (w * realLut[base + k]);
+                    coeffImag[k] -= (w * imagLut[base + k]);
                 }
             }
         }
@@ -103,8 +156,9 @@ public class BasicARTExtractor
         // Save to descriptor
         for (int p = 0; p < ANGULAR; p++) {
             for (int r = 0; r < RADIAL; r++) {
-                double real = coeffReal[p][r] / mass;
-                double imag = coeffImag[p][r] / mass;
+                final int k = (p * RADIAL) + r;
+                double real = coeffReal[k] / mass;
+                double imag = coeffImag[k] / mass;
                 descriptor.setMoment(p, r, Math.hypot(imag, real));
 
                 //                descriptor.setArgument(p, r, Math.atan2(imag, real));
@@ -125,42 +179,26 @@ public class BasicARTExtractor
         StopWatch watch = new StopWatch("LUT");
         watch.start("initLUT");
 
-        // Allocate LUT's
-        for (int p = 0; p < ANGULAR; p++) {
-            for (int r = 0; r < RADIAL; r++) {
-                realLuts[p][r] = new BasicLUT(LUT_RADIUS);
-                imagLuts[p][r] = new BasicLUT(LUT_RADIUS);
-            }
-        }
-
-        final LUT anyLut = realLuts[0][0]; // Just for template
-        final int lutSize = anyLut.getSize();
-        final int lutRadius = anyLut.getRadius();
+        for (int x = 0; x < LUT_SIZE; x++) {
+            double tx = (x - LUT_RADIUS) / (double) LUT_RADIUS; // [-1..+1]
 
-        for (int x = 0; x < lutSize; x++) {
-            double tx = (x - lutRadius) / (double) lutRadius; // [-1..+1]
-
-            for (int y = 0; y < lutSize; y++) {
-                double ty = (y - lutRadius) / (double) lutRadius; // [-1..+1]
+            for (int y = 0; y < LUT_SIZE; y++) {
+                double ty = (y - LUT_RADIUS) / (double) LUT_RADIUS; // [-1..+1]
                 double rad = Math.hypot(tx, ty); // [0..sqrt(2)]
 
                 if (rad < 1) {
                     // We are within unit circle
+                    // (on or outside unit circle, values are left to 0)
+                    final int cell = (x * LUT_SIZE) + y;
+                    final int base = cell * COUNT;
                     double angle = Math.atan2(ty, tx);
+                    inside[cell] = true;
 
                     for (int p = 0; p < ANGULAR; p++) {
                         for (int r = 0; r < RADIAL; r++) {
                             double temp = Math.cos(rad * Math.PI * r);
-                            realLuts[p][r].assign(x, y, temp * Math.cos(angle * p));
-                            imagLuts[p][r].assign(x, y, temp * Math.sin(angle * p));
-                        }
-                    }
-                } else {
-                    // We are on or outside unit circle, so let's set value to 0
-                    for (int p = 0; p < ANGULAR; p++) {
-                        for (int r = 0; r < RADIAL; r++) {
-                            realLuts[p][r].assign(x, y, 0);
-                            imagLuts[p][r].assign(x, y, 0);
+                            realLut[base + (p * RADIAL) + r] = temp * Math.cos(angle * p);
+                            imagLut[base + (p * RADIAL) + r] = temp * Math.sin(angle * p);
                         }
                     }
                 }
@@ -122,8 +122,7 @@ public class GeometricMoments
         int yMin = Integer.MAX_VALUE;
         int yMax = Integer.MIN_VALUE;
 
-        // Normalized GeometricMoments
-        double n00 = dim / (double) (unit * unit);
+        // Central moments
         double n01 = 0d;
         double n02 = 0d;
         double n03 = 0d;
@@ -134,11 +133,6 @@ public class GeometricMoments
         double n21 = 0d;
         double n30 = 0d;
 
-        // Total weight
-        double w = dim; // For p+q == 0
-        double w2 = w * w; // For p+q == 2
-        double w3 = Math.sqrt(w * w * w * w * w); // For p+q == 3
-
         // Mean x & y, width & height
         for (int i = dim - 1; i >= 0; i--) {
             int x = xx[i];
@@ -180,66 +174,20 @@ public class GeometricMoments
             n03 += (y * y * y);
         }
 
-        // Normalize
-        //
-        // p + q = 2
-        n11 /= w2;
-        n20 /= w2;
-        n02 /= w2;
-        //
-        // p + q = 3
-        n12 /= w3;
-        n21 /= w3;
-        n30 /= w3;
-        n03 /= w3;
-
-        // Unit-based weight, width and height
-        k[0] = n00; // Unit-based Weight
-        k[1] = (double) (xMax - xMin + 1) / unit; // Unit-based Width
-        k[2] = (double) (yMax - yMin + 1) / unit; // Unit-based Height
-
-        // Non-orthogonal central moments
-        // (invariant to translation & scaling)
-        k[3] = n20; // X absolute eccentricity
-        k[4] = n11; // XY covariance
-        k[5] = n02; // Y absolute eccentricity
-        k[6] = n30; // X signed eccentricity
-        k[7] = n21; // V vs. ^
-        k[8] = n12; // > vs. <
-        k[9] = n03; // Y signed eccentricity
-
-        // Mass center
-        k[10] = n10; // xBar
-        k[11] = n01; // yBar
-
-        if (useHuCoefficients) {
-            // Orthogonals moments (Hu set)
-            // (Invariant to translation / scaling / rotation)
-            int i = 12;
-            k[i++] = n20 + n02;
-            //
-            k[i++] = ((n20 - n02) * (n20 - n02)) + (4 * n11 * n11);
-            //
-            k[i++] = ((n30 - (3 * n12)) * (n30 - (3 * n12)))
-                             + ((n03 - (3 * n21)) * (n03 - (3 * n21)));
-            //
-            k[i++] = ((n30 + n12) * (n30 + n12)) + ((n03 + n21) * (n03 + n21));
-            //
-            k[i++] = ((n30 - (3 * n12)) * (n30 + n12) * (((n30 + n12) * (n30 + n12))
-                                                                 - (3 * (n21 + n03) * (n21 + n03))))
-                             + ((n03 - (3 * n21)) * (n03 + n21)
-                                        * (((n03 + n21) * (n03 + n21))
-                                                   - (3 * (n12 + n30) * (n12 + n30))));
-            //
-            k[i++] = ((n20 - n02) * (((n30 + n12) * (n30 + n12)) - ((n03 + n21) * (n03 + n21))))
-                             + (4 * n11 * (n30 + n12) * (n03 + n21));
-            //
-            k[i++] = (((3 * n21) - n03) * (n30 + n12) * (((n30 + n12) * (n30 + n12))
-                                                                 - (3 * (n21 + n03) * (n21 + n03))))
-                             - (((3 * n12) - n30)
-                                        * (n03 + n21) * (((n03 + n21) * (n03 + n21))
-                                                                 - (3 * (n12 + n30) * (n12 + n30))));
-        }
+        define(
+                dim,
+                xMax - xMin + 1,
+                yMax - yMin + 1,
+                unit,
+                n10,
+                n01,
+                n20,
+                n11,
+                n02,
+                n30,
+                n21,
+                n12,
+                n03);
     }
 
     //------------------//
@@ -374,6 +322,107 @@ public class GeometricMoments
         return sb.toString();
     }
 
+    //--------//
+    // define //
+    //--------//
+    /**
+     * Define all moment values out of the central sums.
+     *
+     * @param dim    the number of points
+     * @param width  the number of pixels in abscissa
+     * @param height the number of pixels in ordinate
+     * @param unit   the length (number of pixels) of normalizing unit
+     * @param n10    abscissa of mass center
+     * @param n01    ordinate of mass center
+     * @param n20    central sum of x*x
+     * @param n11    central sum of x*y
+     * @param n02    central sum of y*y
+     * @param n30    central sum of x*x*x
+     * @param n21    central sum of x*x*y
+     * @param n12    central sum of x*y*y
+     * @param n03    central sum of y*y*y
+     */
+    private void define (int dim,
+                         int width,
+                         int height,
+                         int unit,
+                         double n10,
+                         double n01,
+                         double n20,
+                         double n11,
+                         double n02,
+                         double n30,
+                         double n21,
+                         double n12,
+                         double n03)
+    {
+        // Total weight
+        double w = dim; // For p+q == 0
+        double w2 = w * w; // For p+q == 2
+        double w3 = Math.sqrt(w * w * w * w * w); // For p+q == 3
+
+        // Normalize
+        //
+        // p + q = 2
+        n11 /= w2;
+        n20 /= w2;
+        n02 /= w2;
+        //
+        // p + q = 3
+        n12 /= w3;
+        n21 /= w3;
+        n30 /= w3;
+        n03 /= w3;
+
+        // Unit-based weight, width and height
+        k[0] = dim / (double) (unit * unit); // Unit-based Weight
+        k[1] = (double) width / unit; // Unit-based Width
+        k[2] = (double) height / unit; // Unit-based Height
+
+        // Non-orthogonal central moments
+        // (invariant to translation & scaling)
+        k[3] = n20; // X absolute eccentricity
+        k[4] = n11; // XY covariance
+        k[5] = n02; // Y absolute eccentricity
+        k[6] = n30; // X signed eccentricity
+        k[7] = n21; // V vs. ^
+        k[8] = n12; // > vs. <
+        k[9] = n03; // Y signed eccentricity
+
+        // Mass center
+        k[10] = n10; // xBar
+        k[11] = n01; // yBar
+
+        if (useHuCoefficients) {
+            // Orthogonals moments (Hu set)
+            // (Invariant to translation / scaling / rotation)
+            int i = 12;
+            k[i++] = n20 + n02;
+            //
+            k[i++] = ((n20 - n02) * (n20 - n02)) + (4 * n11 * n11);
+            //
+            k[i++] = ((n30 - (3 * n12)) * (n30 - (3 * n12)))
+                             + ((n03 - (3 * n21)) * (n03 - (3 * n21)));
+            //
+            k[i++] = ((n30 + n12) * (n30 + n12)) + ((n03 + n21) * (n03 + n21));
+            //
+            k[i++] = ((n30 - (3 * n12)) * (n30 + n12) * (((n30 + n12) * (n30 + n12))
+                                                                 - (3 * (n21 + n03) * (n21 + n03))))
+                             + ((n03 - (3 * n21)) * (n03 + n21)
+                                        * (((n03 + n21) * (n03 + n21))
+                                                   - (3 * (n12 + n30) * (n12 + n30))));
+            //
+            k[i++] = ((n20 - n02) * (((n30 + n12) * (n30 + n12)) - ((n03 + n21) * (n03 + n21))))
+                             + (4 * n11 * (n30 + n12) * (n03 + n21));
+            //
+            k[i++] = (((3 * n21) - n03) * (n30 + n12) * (((n30 + n12) * (n30 + n12))
+                                                                 - (3 * (n21 + n03) * (n21 + n03))))
+                             - (((3 * n12) - n30)
+                                        * (n03 + n21) * (((n03 + n21) * (n03 + n21))
+                                                                 - (3 * (n12 + n30) * (n12 + n30))));
+        }
+    }
+
     //----------//
     // getLabel //
     //----------//
@@ -387,4 +436,202 @@ public class GeometricMoments
     {
         return labels[index];
     }
+
+    //-------------//
+    // Accumulator //
+    //-------------//
+    /**
+     * Class {@code Accumulator} gathers raw sums of point coordinates.
+     * <p>
+     * Since raw sums are additive, the moments of a compound of disjoint point sets can be
+     * derived from the accumulators of its members, without going through points again.
+     * Coordinates are recorded relative to an origin common to all the accumulators to be combined,
+     * to keep sums small enough.
+     */
+    public static class Accumulator
+    {
+
+        /** Abscissa of origin. */
+        private final int xOrg;
+
+        /** Ordinate of origin. */
+        private final int yOrg;
+
+        /** Number of points. */
+        private int count;
+
+        // Raw sums of relative coordinates
+        private long sx;
+
+        private long sy;
+
+        private long sxx;
+
+        private long sxy;
+
+        private long syy;
+
+        private long sxxx;
+
+        private long sxxy;
+
+        private long sxyy;
+
+        private long syyy;
+
+        // Relative extrema
+        private int xMin = Integer.MAX_VALUE;
+
+        private int xMax = Integer.MIN_VALUE;
+
+        private int yMin = Integer.MAX_VALUE;
+
+        private int yMax = Integer.MIN_VALUE;
+
+        /**
+         * Creates a new empty {@code Accumulator} object.
+         *
+         * @param xOrg abscissa of origin
+         * @param yOrg ordinate of origin
+         */
+        public Accumulator (int xOrg,
+                            int yOrg)
+        {
+            this.xOrg = xOrg;
+            this.yOrg = yOrg;
+        }
+
+        /**
+         * Creates a new {@code Accumulator} object, as a copy of the provided one.
+         *
+         * @param that the accumulator to copy
+         */
+        public Accumulator (Accumulator that)
+        {
+            this(that.xOrg, that.yOrg);
+            include(that);
+        }
+
+        //------------//
+        // getMoments //
+        //------------//
+        /**
+         * Compute the moments of all points included so far.
+         *
+         * @param unit the length (number of pixels) of normalizing unit
+         * @return the geometric moments
+         */
+        public GeometricMoments getMoments (int unit)
+        {
+            // Safety check
+            if (unit == 0) {
+                throw new IllegalArgumentException("Zero-valued unit");
+            }
+
+            // Mean x & y, relative to origin
+            final double n = count;
+            final double mx = sx / n;
+            final double my = sy / n;
+
+            // Central sums, derived from raw sums
+            final double n20 = sxx - (n * mx * mx);
+            final double n11 = sxy - (n * mx * my);
+            final double n02 = syy - (n * my * my);
+            final double n30 = (sxxx - (3 * mx * sxx)) + (2 * n * mx * mx * mx);
+            final double n21 = ((sxxy - (2 * mx * sxy)) - (my * sxx)) + (2 * n * mx * mx * my);
+            final double n12 = ((sxyy - (2 * my * sxy)) - (mx * syy)) + (2 * n * mx * my * my);
+            final double n03 = (syyy - (3 * my * syy)) + (2 * n * my * my * my);
+
+            final GeometricMoments moments = new GeometricMoments();
+            moments.define(
+                    count,
+                    xMax - xMin + 1,
+                    yMax - yMin + 1,
+                    unit,
+                    xOrg + mx,
+                    yOrg + my,
+                    n20,
+                    n11,
+                    n02,
+                    n30,
+                    n21,
+                    n12,
+                    n03);
+
+            return moments;
+        }
+
+        //-----------//
+        // getWeight //
+        //-----------//
+        /**
+         * Report the number of points included so far.
+         *
+         * @return the points count
+         */
+        public int getWeight ()
+        {
+            return count;
+        }
+
+        //---------//
+        // include //
+        //---------//
+        /**
+         * Include the provided point.
+         *
+         * @param x absolute abscissa
+         * @param y absolute ordinate
+         */
+        public void include (int x,
+                             int y)
+        {
+            final long dx = x - xOrg;
+            final long dy = y - yOrg;
+            count++;
+            sx += dx;
+            sy += dy;
+            sxx += (dx * dx);
+            sxy += (dx * dy);
+            syy += (dy * dy);
+            sxxx += (dx * dx * dx);
+            sxxy += (dx * dx * dy);
+            sxyy += (dx * dy * dy);
+            syyy += (dy * dy * dy);
+            xMin = Math.min(xMin, (int) dx);
+            xMax = Math.max(xMax, (int) dx);
+            yMin = Math.min(yMin, (int) dy);
+            yMax = Math.max(yMax, (int) dy);
+        }
+
+        //---------//
+        // include //
+        //---------//
+        /**
+         * Include all the points of another accumulator, assumed to be disjoint.
+         *
+         * @param that the other accumulator, with the same origin
+         */
+        public final void include (Accumulator that)
+        {
+            if ((that.xOrg != xOrg) || (that.yOrg != yOrg)) {
+                throw new IllegalArgumentException("Accumulators with different origins");
+            }
+
+            count += that.count;
+            sx += that.sx;
+            sy += that.sy;
+            sxx += that.sxx;
+            sxy += that.sxy;
+            syy += that.syy;
+            sxxx += that.sxxx;
+            sxxy += that.sxxy;
+            sxyy += that.sxyy;
+            syyy += that.syyy;
+            xMin = Math.min(xMin, that.xMin);
+            xMax = Math.max(xMax, that.xMax);
+            yMin = Math.min(yMin, that.yMin);
+            yMax = Math.max(yMax, that.yMax);
+        }
+    }
 }
@@ -23,6 +23,7 @@ package org.audiveris.omr.run;
 
 import ij.process.ByteProcessor;
 
+import org.audiveris.omr.image.BitPlane;
 import org.audiveris.omr.image.PixelSource;
 import static org.audiveris.omr.image.PixelSource.BACKGROUND;
 import org.audiveris.omr.image.Table;
@@ -303,6 +304,51 @@ public class RunTable
         return true;
     }
 
+    //-------//
+    // clear //
+    //-------//
+    /**
+     * Clear in the provided plane all the pixels of this run table.
+     *
+     * @param plane  the plane to clear (pixels out of plane are ignored)
+     * @param offset table offset within plane
+     */
+    public void clear (BitPlane plane,
+                       Point offset)
+    {
+        Objects.requireNonNull(offset, "Cannot clear a RunTable at a null offset");
+
+        if (orientation == HORIZONTAL) {
+            for (int iSeq = 0; iSeq < height; iSeq++) {
+                for (Itr it = new Itr(iSeq); it.hasNext();) {
+                    final Run run = it.next();
+                    plane.clearRange(
+                            offset.y + iSeq,
+                            offset.x + run.getStart(),
+                            offset.x + run.getStop());
+                }
+            }
+        } else {
+            for (int iSeq = 0; iSeq < width; iSeq++) {
+                final int x = offset.x + iSeq;
+
+                if ((x < 0) || (x >= plane.getWidth())) {
+                    continue;
+                }
+
+                for (Itr it = new Itr(iSeq); it.hasNext();) {
+                    final Run run = it.next();
+                    final int yStart = Math.max(0, offset.y + run.getStart());
+                    final int yStop = Math.min(plane.getHeight() - 1, offset.y + run.getStop());
+
+                    for (int y = yStart; y <= yStop; y++) {
+                        plane.clear(x, y);
+                    }
+                }
+            }
+        }
+    }
+
     //-------------------//
     // computeArtMoments //
     //-------------------//
@@ -888,6 +934,77 @@ public class RunTable
         return null;
     }
 
+    //-------------//
+    // getRunCount //
+    //-------------//
+    /**
+     * Report the number of foreground runs in the sequence at provided index.
+     *
+     * @param index the sequence index
+     * @return count of foreground runs in sequence
+     */
+    public int getRunCount (int index)
+    {
+        final RunSequence seq = sequences[index];
+
+        return (seq != null) ? seq.size() : 0;
+    }
+
+    //---------//
+    // getRuns //
+    //---------//
+    /**
+     * Copy the foreground runs of a sequence into the provided arrays, without allocating any
+     * Run instance.
+     *
+     * @param index   the sequence index
+     * @param starts  (output) array populated with run starts
+     * @param lengths (output) array populated with run lengths
+     * @param pos     position in output arrays for the first run
+     * @return the count of runs copied
+     */
+    public int getRuns (int index,
+                        int[] starts,
+                        int[] lengths,
+                        int pos)
+    {
+        final RunSequence seq = sequences[index];
+
+        if ((seq == null) || (seq.rle == null)) {
+            return 0;
+        }
+
+        final int[] rle = seq.rle;
+        int cursor = 0;
+        int loc = 0;
+        int count = 0;
+
+        // Check the case of an initial background run
+        if ((rle.length > 0) && (rle[0] == 0)) {
+            if (rle.length > 1) {
+                loc = rle[1];
+            }
+
+            cursor = 2;
+        }
+
+        while (cursor < rle.length) {
+            final int foreLg = rle[cursor++] & 0xFFFF;
+            starts[pos + count] = loc;
+            lengths[pos + count] = foreLg;
+            count++;
+            loc += foreLg;
+
+            if (cursor < rle.length) {
+                loc += (rle[cursor] & 0xFFFF);
+            }
+
+            cursor++;
+        }
+
+        return count;
+    }
+
     //---------------//
     // getRunService //
     //---------------//
@@ -971,6 +1088,9 @@ public class RunTable
     //---------//
     /**
      * Marshal this RunTable to the provided path.
+     * <p>
+     * If path name ends with {@link RunTableCodec#EXTENSION}, the compact binary format is used,
+     * otherwise the XML format is used.
      *
      * @param path target path
      * @throws IOException        on IO error
@@ -982,7 +1102,11 @@ public class RunTable
                    JAXBException,
                    XMLStreamException
     {
-        Jaxb.marshal(this, path, getJaxbContext());
+        if (RunTableCodec.isBinary(path)) {
+            RunTableCodec.write(this, path);
+        } else {
+            Jaxb.marshal(this, path, getJaxbContext());
+        }
     }
 
     //-----------//
@@ -990,6 +1114,9 @@ public class RunTable
     //-----------//
     /**
      * Unmarshal a RunTable from a file.
+     * <p>
+     * Binary format is used if path name ends with {@link RunTableCodec#EXTENSION}, otherwise
+     * the file is assumed to be in XML format (which is the case for old books).
      *
      * @param path path to file
      * @return unmarshalled run table
@@ -998,6 +1125,16 @@ public class RunTable
     {
         logger.debug("RunTable unmarshalling {}", path);
 
+        if (RunTableCodec.isBinary(path)) {
+            try {
+                return RunTableCodec.read(path);
+            } catch (IOException ex) {
+                logger.warn("RunTable. Error reading " + path + " " + ex, ex);
+
+                return null;
+            }
+        }
+
         try (InputStream is = Files.newInputStream(path, StandardOpenOption.READ)) {
             Unmarshaller um = getJaxbContext().createUnmarshaller();
             RunTable runTable = (RunTable) um.unmarshal(is);
@@ -1415,6 +1552,59 @@ public class RunTable
         sequences[index] = encode(list);
     }
 
+    //-------------//
+    // setSequence //
+    //-------------//
+    /**
+     * Set a whole run sequence, from runs provided in arrays.
+     *
+     * @param index   position in sequences list
+     * @param starts  array of run starts
+     * @param lengths array of run lengths
+     * @param from    position of first run in arrays
+     * @param to      position past last run in arrays
+     * @param shift   value to subtract from run starts
+     */
+    public void setSequence (int index,
+                             int[] starts,
+                             int[] lengths,
+                             int from,
+                             int to,
+                             int shift)
+    {
+        if (from >= to) {
+            sequences[index] = null;
+
+            return;
+        }
+
+        final int first = starts[from] - shift;
+        final int size = ((2 * (to - from)) - 1) + ((first != 0) ? 2 : 0);
+        final int[] rle = new int[size];
+        int cursor = 0;
+        int length = 0;
+
+        if (first != 0) {
+            // Insert an empty foreground length
+            rle[cursor++] = 0;
+        }
+
+        for (int i = from; i < to; i++) {
+            final int start = starts[i] - shift;
+
+            if ((i > from) || (first != 0)) {
+                // Inject background
+                rle[cursor++] = start - length;
+            }
+
+            // Inject foreground
+            rle[cursor++] = lengths[i];
+            length = start + lengths[i];
+        }
+
+        sequences[index] = new RunSequence(rle);
+    }
+
     //----------//
     // toString //
     //----------//
@@ -1728,6 +1918,16 @@ public class RunTable
         {
         }
 
+        /**
+         * Report the RLE array of this sequence.
+         *
+         * @return the (modifiable) RLE array, perhaps null
+         */
+        int[] getRle ()
+        {
+            return rle;
+        }
+
         @Override
         public boolean equals (Object obj)
         {
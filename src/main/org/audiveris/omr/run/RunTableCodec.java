@@ -0,0 +1,280 @@
+//------------------------------------------------------------------------------------------------//
+//                                                                                                //
+//                                   R u n T a b l e C o d e c                                    //
+//                                                                                                //
+//------------------------------------------------------------------------------------------------//
+// <editor-fold defaultstate="collapsed" desc="hdr">
+//
+//  Copyright © Audiveris 2018. All rights reserved.
+//
+//  This program is free software: you can redistribute it and/or modify it under the terms of the
+//  GNU Affero General Public License as published by the Free Software Foundation, either version
+//  3 of the License, or (at your option) any later version.
+//
+//  This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+//  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+//  See the GNU Affero General Public License for more details.
+//
+//  You should have received a copy of the GNU Affero General Public License along with this
+//  program.  If not, see <http://www.gnu.org/licenses/>.
+//------------------------------------------------------------------------------------------------//
+// </editor-fold>
+package org.audiveris.omr.run;
+
+import org.audiveris.omr.run.RunTable.RunSequence;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Class {@code RunTableCodec} handles the compact binary persistence of a {@link RunTable}.
+ * <p>
+ * This is an alternative to the JAXB XML marshalling of run tables, much faster to load and much
+ * smaller on disk for large images.
+ * Each RLE value is written as a variable-length integer (7 bits per byte), so that the typical
+ * run lengths (less than 128 pixels) use a single byte.
+ * <p>
+ * File layout (big-endian):
+ * <pre>
+ * int     MAGIC
+ * byte    VERSION
+ * byte    orientation (ordinal)
+ * int     width
+ * int     height
+ * int     count of sequences (N)
+ * byte[]  data: for each sequence, count of RLE values then each RLE value, all as varints
+ * </pre>
+ * A file is read at once into a heap buffer, rather than mapped, so that no lock remains on the
+ * underlying book file once reading is over.
+ * All sequences are then decoded in a single pass, since every table user needs the whole table.
+ * Version 1 files, which began the data part with an index of sequence offsets, are still read.
+ *
+ * @author Hervé Bitteur
+ */
+public class RunTableCodec
+{
+
+    private static final Logger logger = LoggerFactory.getLogger(RunTableCodec.class);
+
+    /** File extension for binary run tables: {@value}. */
+    public static final String EXTENSION = ".bin";
+
+    /** Magic number at beginning of file ("RUNT"). */
+    private static final int MAGIC = 0x52554E54;
+
+    /** Current version of binary format. */
+    private static final byte VERSION = 2;
+
+    /** Former version, with an index of sequence offsets. */
+    private static final byte INDEXED_VERSION = 1;
+
+    /**
+     * Not meant to be instantiated.
+     */
+    private RunTableCodec ()
+    {
+    }
+
+    //----------//
+    // isBinary //
+    //----------//
+    /**
+     * Tell whether the provided path denotes a binary run table file.
+     *
+     * @param path the file path
+     * @return true if binary
+     */
+    public static boolean isBinary (Path path)
+    {
+        return path.getFileName().toString().endsWith(EXTENSION);
+    }
+
+    //------//
+    // read //
+    //------//
+    /**
+     * Read a run table from the provided binary file.
+     *
+     * @param path path to binary file
+     * @return the run table read
+     * @throws IOException on IO error or invalid content
+     */
+    public static RunTable read (Path path)
+            throws IOException
+    {
+        return decode(ByteBuffer.wrap(Files.readAllBytes(path)));
+    }
+
+    //-------//
+    // write //
+    //-------//
+    /**
+     * Write the provided run table to a binary file.
+     *
+     * @param table the table to write
+     * @param path  path to target file
+     * @throws IOException on IO error
+     */
+    public static void write (RunTable table,
+                              Path path)
+            throws IOException
+    {
+        try (OutputStream os = new BufferedOutputStream(Files.newOutputStream(path))) {
+            encode(table, os);
+        }
+    }
+
+    //--------//
+    // decode //
+    //--------//
+    /**
+     * Decode a run table from the provided buffer.
+     *
+     * @param buffer buffer positioned at beginning of encoded table
+     * @return the decoded table
+     * @throws IOException if content is not a valid binary run table
+     */
+    static RunTable decode (ByteBuffer buffer)
+            throws IOException
+    {
+        if (buffer.getInt() != MAGIC) {
+            throw new IOException("Not a binary run table");
+        }
+
+        final byte version = buffer.get();
+
+        if ((version != VERSION) && (version != INDEXED_VERSION)) {
+            throw new IOException("Unsupported binary run table version " + version);
+        }
+
+        final Orientation orientation = Orientation.values()[buffer.get()];
+        final int width = buffer.getInt();
+        final int height = buffer.getInt();
+        final int count = buffer.getInt();
+        final RunTable table = new RunTable(orientation, width, height);
+
+        if (count != table.getSize()) {
+            throw new IOException("Inconsistent sequence count " + count);
+        }
+
+        if (version == INDEXED_VERSION) {
+            buffer.position(buffer.position() + (4 * (count + 1))); // Skip offsets index
+        }
+
+        for (int i = 0; i < count; i++) {
+            table.setSequence(i, decodeSequence(buffer));
+        }
+
+        logger.debug("Decoded {}", table);
+
+        return table;
+    }
+
+    //--------//
+    // encode //
+    //--------//
+    /**
+     * Encode the provided run table to an output stream.
+     *
+     * @param table the table to encode
+     * @param os    the output stream
+     * @throws IOException on IO error
+     */
+    static void encode (RunTable table,
+                        OutputStream os)
+            throws IOException
+    {
+        final int count = table.getSize();
+        final DataOutputStream dos = new DataOutputStream(os);
+        dos.writeInt(MAGIC);
+        dos.writeByte(VERSION);
+        dos.writeByte(table.getOrientation().ordinal());
+        dos.writeInt(table.getWidth());
+        dos.writeInt(table.getHeight());
+        dos.writeInt(count);
+
+        for (int i = 0; i < count; i++) {
+            final RunSequence seq = table.getSequence(i);
+            final int[] rle = (seq != null) ? seq.getRle() : null;
+
+            if (rle == null) {
+                writeVarint(dos, 0);
+            } else {
+                writeVarint(dos, rle.length);
+
+                for (int val : rle) {
+                    writeVarint(dos, val);
+                }
+            }
+        }
+
+        dos.flush();
+    }
+
+    //----------------//
+    // decodeSequence //
+    //----------------//
+    /**
+     * Decode the sequence found at current buffer position.
+     *
+     * @param buffer the buffer to read from
+     * @return the decoded sequence, null for an empty sequence
+     */
+    private static RunSequence decodeSequence (ByteBuffer buffer)
+    {
+        final int length = readVarint(buffer);
+
+        if (length == 0) {
+            return null;
+        }
+
+        final int[] rle = new int[length];
+
+        for (int i = 0; i < length; i++) {
+            rle[i] = readVarint(buffer);
+        }
+
+        return new RunSequence(rle);
+    }
+
+    //------------//
+    // readVarint //
+    //------------//
+    private static int readVarint (ByteBuffer buffer)
+    {
+        int value = 0;
+        int shift = 0;
+        int b;
+
+        do {
+            b = buffer.get();
+            value |= ((b & 0x7F) << shift);
+            shift += 7;
+        } while ((b & 0x80) != 0);
+
+        return value;
+    }
+
+    //-------------//
+    // writeVarint //
+    //-------------//
+    private static void writeVarint (DataOutputStream out,
+                                     int value)
+            throws IOException
+    {
+        while ((value & ~0x7F) != 0) {
+            out.write((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+
+        out.write(value);
+    }
+}
@@ -27,6 +27,7 @@ import org.audiveris.omr.ui.selection.RunEvent;
 import org.audiveris.omr.ui.selection.SelectionHint;
 import org.audiveris.omr.ui.selection.SelectionService;
 import org.audiveris.omr.ui.view.RubberPanel;
+import org.audiveris.omr.ui.view.TileCache;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -50,6 +51,9 @@ public class RunTableView
     /** The underlying table of runs. */
     private final RunTable table;
 
+    /** Cached rendering of table runs. */
+    private final TileCache tiles;
+
     /**
      * Creates a new {@code RunTableView} object.
      *
@@ -58,12 +62,21 @@ public class RunTableView
      * @param locationService the service where locations are retrieved from
      */
     public RunTableView (String name,
-                         RunTable table,
+                         final RunTable table,
                          SelectionService locationService)
     {
         this.table = table;
         setName(name);
 
+        tiles = new TileCache(new TileCache.Painter()
+        {
+            @Override
+            public void paint (Graphics2D g)
+            {
+                table.render(g, new Point(0, 0));
+            }
+        });
+
         // Location service
         setLocationService(locationService);
 
@@ -71,14 +84,34 @@ public class RunTableView
         setBackground(Color.white);
     }
 
+    //------------//
+    // invalidate //
+    //------------//
+    /**
+     * Discard the cached rendering of the provided area, to be called whenever the
+     * underlying table has been modified there.
+     *
+     * @param area the modified area, or null if the whole table may have changed
+     */
+    public void invalidate (Rectangle area)
+    {
+        if (area != null) {
+            tiles.invalidate(area);
+        } else {
+            tiles.invalidateAll();
+        }
+
+        repaint();
+    }
+
     //--------//
     // render //
     //--------//
     @Override
     public void render (Graphics2D g)
     {
-        // Render all table runs
-        table.render(g, new Point(0, 0));
+        // Render all table runs, through cached tiles
+        tiles.render(g);
     }
 
     //---------------------//
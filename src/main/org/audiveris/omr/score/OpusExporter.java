@@ -23,7 +23,6 @@ package org.audiveris.omr.score;
 
 import org.audiveris.omr.OMR;
 import org.audiveris.omr.sheet.Book;
-import org.audiveris.proxymusic.ScorePartwise;
 import org.audiveris.proxymusic.mxl.Mxl;
 import org.audiveris.proxymusic.mxl.RootFile;
 import org.audiveris.proxymusic.opus.ObjectFactory;
@@ -131,9 +130,8 @@ public class OpusExporter
             opus.getOpusOrOpusLinkOrScore().add(oScore);
 
             // Marshal the score partwise
-            ScorePartwise scorePartwise = PartwiseBuilder.build(score);
             mof.addEntry(new RootFile(entryName, RootFile.MUSICXML_MEDIA_TYPE));
-            Marshalling.marshal(scorePartwise, zos, signed, 2);
+            ScoreExporter.marshal(score, zos, signed);
         }
 
         // Store opus as root
@@ -192,6 +192,7 @@ import java.lang.reflect.Method;
 import java.math.BigDecimal;
 import java.math.BigInteger;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.LinkedHashMap;
@@ -275,14 +276,22 @@ public class PartwiseBuilder
     /** Factory for ProxyMusic entities. */
     private final ObjectFactory factory = new ObjectFactory();
 
+    /** Listener to be handed the measures of each page, if any. */
+    private final PageListener listener;
+
+    /** Per part, the measure which carries the clefs of the measures handed over. */
+    private final Map<ScorePartwise.Part, ScorePartwise.Part.Measure> carries = new HashMap<>();
+
     /**
      * Create a new PartwiseBuilder object, on a related score instance.
      *
-     * @param score the underlying score
+     * @param score    the underlying score
+     * @param listener the listener on page measures, or null
      * @throws InterruptedException if the thread has been interrupted
      * @throws ExecutionException   if a checked exception was thrown
      */
-    private PartwiseBuilder (Score score)
+    private PartwiseBuilder (Score score,
+                             PageListener listener)
             throws InterruptedException,
                    ExecutionException
     {
@@ -290,6 +299,7 @@ public class PartwiseBuilder
         loading.get();
 
         this.score = score;
+        this.listener = listener;
     }
 
     //---------//
@@ -462,6 +472,66 @@ public class PartwiseBuilder
         return pmPart;
     }
 
+    //-----------//
+    // flushPage //
+    //-----------//
+    /**
+     * Hand the measures just built for current page over to the page listener.
+     * <p>
+     * Each part keeps only a carry measure, whose attributes gather the latest clef for each staff,
+     * since this is the only information looked up in previous pages.
+     *
+     * @param pmParts the parts being populated
+     */
+    private void flushPage (Collection<ScorePartwise.Part> pmParts)
+    {
+        final Map<ScorePartwise.Part, List<ScorePartwise.Part.Measure>> pageMeasures
+                = new LinkedHashMap<>();
+
+        for (ScorePartwise.Part pmPart : pmParts) {
+            final List<ScorePartwise.Part.Measure> measures = pmPart.getMeasure();
+            final List<ScorePartwise.Part.Measure> built = new ArrayList<>(measures);
+            built.remove(carries.get(pmPart));
+            pageMeasures.put(pmPart, built);
+
+            // Latest clef per staff, browsing measures and their items backwards
+            final Map<BigInteger, Clef> clefs = new LinkedHashMap<>();
+
+            for (ListIterator<ScorePartwise.Part.Measure> mit = measures.listIterator(
+                    measures.size()); mit.hasPrevious();) {
+                final List<Object> items = mit.previous().getNoteOrBackupOrForward();
+
+                for (ListIterator<Object> it = items.listIterator(items.size());
+                        it.hasPrevious();) {
+                    final Object obj = it.previous();
+
+                    if (obj instanceof Attributes) {
+                        for (Clef clef : ((Attributes) obj).getClef()) {
+                            if (!clefs.containsKey(clef.getNumber())) {
+                                clefs.put(clef.getNumber(), clef);
+                            }
+                        }
+                    }
+                }
+            }
+
+            measures.clear();
+            carries.remove(pmPart);
+
+            if (!clefs.isEmpty()) {
+                final Attributes attributes = factory.createAttributes();
+                attributes.getClef().addAll(clefs.values());
+
+                final ScorePartwise.Part.Measure carry = factory.createScorePartwisePartMeasure();
+                carry.getNoteOrBackupOrForward().add(attributes);
+                measures.add(carry);
+                carries.put(pmPart, carry);
+            }
+        }
+
+        listener.pageBuilt(pageMeasures);
+    }
+
     //------------------//
     // getArticulations //
     //------------------//
@@ -2122,7 +2192,18 @@ public class PartwiseBuilder
         // Then, stub by stub, populate all ScorePartwise.Part instances in parallel
         for (SheetStub stub : score.getStubs()) {
             processStub(stub, partMap);
+
+            if (listener != null) {
+                flushPage(partMap.values());
+            }
         }
+
+        // Remove carry measures, if any
+        for (Entry<ScorePartwise.Part, ScorePartwise.Part.Measure> entry : carries.entrySet()) {
+            entry.getKey().getMeasure().remove(entry.getValue());
+        }
+
+        carries.clear();
     }
 
     //--------------//
@@ -2810,10 +2891,33 @@ public class PartwiseBuilder
     public static ScorePartwise build (Score score)
             throws InterruptedException,
                    ExecutionException
+    {
+        return build(score, null);
+    }
+
+    //-------//
+    // build //
+    //-------//
+    /**
+     * Visit the whole score tree and build the corresponding ScorePartwise, handing
+     * the measures of each page over to the provided listener as soon as the page is built.
+     * <p>
+     * With a listener, the returned ScorePartwise contains no measure at all.
+     *
+     * @param score    the score to export (cannot be null)
+     * @param listener the listener on page measures, or null
+     * @return the populated ScorePartwise
+     * @throws InterruptedException if the thread has been interrupted
+     * @throws ExecutionException   if a checked exception was thrown
+     */
+    public static ScorePartwise build (Score score,
+                                       PageListener listener)
+            throws InterruptedException,
+                   ExecutionException
     {
         Objects.requireNonNull(score, "Trying to export a null score");
 
-        final PartwiseBuilder builder = new PartwiseBuilder(score);
+        final PartwiseBuilder builder = new PartwiseBuilder(score, listener);
 
         builder.processScore();
 
@@ -2858,6 +2962,24 @@ public class PartwiseBuilder
                 .equals(left.getClefOctaveChange(), right.getClefOctaveChange());
     }
 
+    //--------------//
+    // PageListener //
+    //--------------//
+    /**
+     * Interface {@code PageListener} is handed the measures of each page, as soon as
+     * they are built.
+     */
+    public static interface PageListener
+    {
+
+        /**
+         * Notify the measures built for a page.
+         *
+         * @param measures for each part, in part order, the page measures (perhaps none)
+         */
+        void pageBuilt (Map<ScorePartwise.Part, List<ScorePartwise.Part.Measure>> measures);
+    }
+
     //---------------//
     // ClefIterators //
     //---------------//
@@ -0,0 +1,372 @@
+//------------------------------------------------------------------------------------------------//
+//                                                                                                //
+//                                P a r t w i s e S t r e a m e r                                 //
+//                                                                                                //
+//------------------------------------------------------------------------------------------------//
+// <editor-fold defaultstate="collapsed" desc="hdr">
+//
+//  Copyright © Audiveris 2018. All rights reserved.
+//
+//  This program is free software: you can redistribute it and/or modify it under the terms of the
+//  GNU Affero General Public License as published by the Free Software Foundation, either version
+//  3 of the License, or (at your option) any later version.
+//
+//  This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+//  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+//  See the GNU Affero General Public License for more details.
+//
+//  You should have received a copy of the GNU Affero General Public License along with this
+//  program.  If not, see <http://www.gnu.org/licenses/>.
+//------------------------------------------------------------------------------------------------//
+// </editor-fold>
+package org.audiveris.omr.score;
+
+import org.audiveris.omr.util.OmrExecutors;
+import org.audiveris.proxymusic.PartList;
+import org.audiveris.proxymusic.ScorePart;
+import org.audiveris.proxymusic.ScorePartwise;
+import org.audiveris.proxymusic.util.Marshalling;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedWriter;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+
+/**
+ * Class {@code PartwiseStreamer} writes the MusicXML document of a score page after page,
+ * rather than marshalling a fully built {@link ScorePartwise} at once.
+ * <p>
+ * {@link PartwiseBuilder} hands the measures of each page over as soon as the page is built.
+ * Each page fragment is marshalled (in parallel with the other fragments and with the building of
+ * next pages) within a small partwise document, by the regular ProxyMusic {@link Marshalling}.
+ * The part content is extracted from this document and appended to a temporary file per part.
+ * <p>
+ * Since credits and identification are complete only when all pages have been built, the document
+ * header is marshalled last, from the measure-less ScorePartwise, and the content of each part
+ * gets inserted in place of its empty element.
+ * <p>
+ * Memory is thus bounded by the few pages in flight, while the output is identical to the one of a
+ * global marshalling.
+ *
+ * @author Hervé Bitteur
+ */
+class PartwiseStreamer
+        implements PartwiseBuilder.PageListener
+{
+
+    private static final Logger logger = LoggerFactory.getLogger(PartwiseStreamer.class);
+
+    /** Indentation used for marshalling. */
+    private static final int INDENT = 2;
+
+    /** Beginning of a part element (not to be confused with part-list or score-part). */
+    private static final String PART_START = "<part ";
+
+    /** End of a part element. */
+    private static final String PART_END = "</part>";
+
+    /** Should page fragments be marshalled in parallel? */
+    private final boolean parallel = OmrExecutors.defaultParallelism.getValue();
+
+    /** Maximum number of page fragments being marshalled. */
+    private final int maxPagesInFlight = OmrExecutors.getNumberOfCpus();
+
+    /** Pages being marshalled, in page order, each with one fragment per part. */
+    private final Deque<Map<ScorePartwise.Part, Future<String>>> pages = new ArrayDeque<>();
+
+    /** Temporary file per part. */
+    private final Map<ScorePartwise.Part, Path> files = new LinkedHashMap<>();
+
+    /** Writer on temporary file per part. */
+    private final Map<ScorePartwise.Part, Writer> writers = new LinkedHashMap<>();
+
+    /** First failure encountered, if any. */
+    private Exception failure;
+
+    /**
+     * Not meant to be instantiated from outside.
+     */
+    private PartwiseStreamer ()
+    {
+    }
+
+    //-----------//
+    // pageBuilt //
+    //-----------//
+    @Override
+    public void pageBuilt (Map<ScorePartwise.Part, List<ScorePartwise.Part.Measure>> measures)
+    {
+        if (failure != null) {
+            return; // No use to go on
+        }
+
+        try {
+            final Map<ScorePartwise.Part, Future<String>> page = new LinkedHashMap<>();
+
+            for (Entry<ScorePartwise.Part, List<ScorePartwise.Part.Measure>> entry
+                    : measures.entrySet()) {
+                if (!entry.getValue().isEmpty()) {
+                    final ScorePartwise.Part part = entry.getKey();
+                    final List<ScorePartwise.Part.Measure> fragment = entry.getValue();
+                    final Callable<String> task = new Callable<String>()
+                    {
+                        @Override
+                        public String call ()
+                                throws Exception
+                        {
+                            return marshalFragment(part, fragment);
+                        }
+                    };
+
+                    if (parallel) {
+                        page.put(part, OmrExecutors.getHighExecutor().submit(task));
+                    } else {
+                        final FutureTask<String> future = new FutureTask<>(task);
+                        future.run();
+                        page.put(part, future);
+                    }
+                }
+            }
+
+            pages.add(page);
+            flush(maxPagesInFlight);
+        } catch (Exception ex) {
+            logger.warn("Error streaming page fragments " + ex, ex);
+            failure = ex;
+        }
+    }
+
+    //-------//
+    // write //
+    //-------//
+    /**
+     * Write the MusicXML partwise document of the provided score.
+     *
+     * @param score  the score to export
+     * @param os     the output stream to write to, left open
+     * @param signed should we inject ProxyMusic signature?
+     * @throws Exception if something goes wrong
+     */
+    static void write (Score score,
+                       OutputStream os,
+                       boolean signed)
+            throws Exception
+    {
+        final PartwiseStreamer streamer = new PartwiseStreamer();
+
+        try {
+            final ScorePartwise scorePartwise = PartwiseBuilder.build(score, streamer);
+
+            if (streamer.failure == null) {
+                streamer.flush(0);
+            }
+
+            if (streamer.failure != null) {
+                throw streamer.failure;
+            }
+
+            streamer.writeDocument(scorePartwise, os, signed);
+        } finally {
+            streamer.cleanUp();
+        }
+    }
+
+    //---------//
+    // cleanUp //
+    //---------//
+    /**
+     * Cancel pending fragments and delete temporary files.
+     */
+    private void cleanUp ()
+    {
+        for (Map<ScorePartwise.Part, Future<String>> page : pages) {
+            for (Future<String> future : page.values()) {
+                future.cancel(true);
+            }
+        }
+
+        pages.clear();
+        closeWriters();
+
+        for (Path path : files.values()) {
+            try {
+                Files.deleteIfExists(path);
+            } catch (IOException ex) {
+                logger.warn("Could not delete {} {}", path, ex.toString());
+            }
+        }
+
+        files.clear();
+    }
+
+    //--------------//
+    // closeWriters //
+    //--------------//
+    private void closeWriters ()
+    {
+        for (Writer writer : writers.values()) {
+            try {
+                writer.close();
+            } catch (IOException ex) {
+                logger.warn("Error closing part file {}", ex.toString());
+            }
+        }
+
+        writers.clear();
+    }
+
+    //-------//
+    // flush //
+    //-------//
+    /**
+     * Append the oldest fragments to their part file, until no more than the provided
+     * count of pages are left in flight.
+     *
+     * @param maxCount the maximum count of pages to leave in flight
+     * @throws Exception if a fragment could not be marshalled or written
+     */
+    private void flush (int maxCount)
+            throws Exception
+    {
+        try {
+            while (pages.size() > maxCount) {
+                for (Entry<ScorePartwise.Part, Future<String>> entry : pages.peek().entrySet()) {
+                    final ScorePartwise.Part part = entry.getKey();
+                    Writer writer = writers.get(part);
+
+                    if (writer == null) {
+                        final Path path = Files.createTempFile("partwise-", ".xml");
+                        files.put(part, path);
+                        writer = new BufferedWriter(
+                                new OutputStreamWriter(
+                                        Files.newOutputStream(path),
+                                        StandardCharsets.UTF_8));
+                        writers.put(part, writer);
+                    }
+
+                    writer.write(entry.getValue().get());
+                }
+
+                pages.poll();
+            }
+        } catch (ExecutionException ex) {
+            if (ex.getCause() instanceof Exception) {
+                throw (Exception) ex.getCause();
+            }
+
+            throw ex;
+        }
+    }
+
+    //-----------------//
+    // marshalFragment //
+    //-----------------//
+    /**
+     * Marshal the provided measures, within a partwise document limited to their part.
+     *
+     * @param part     the containing part
+     * @param measures the page measures
+     * @return the XML content of the measures, as found within the part element
+     * @throws Exception if something goes wrong
+     */
+    private static String marshalFragment (ScorePartwise.Part part,
+                                           List<ScorePartwise.Part.Measure> measures)
+            throws Exception
+    {
+        final ScorePartwise doc = new ScorePartwise();
+        final PartList partList = new PartList();
+        partList.getPartGroupOrScorePart().add(part.getId());
+        doc.setPartList(partList);
+
+        final ScorePartwise.Part docPart = new ScorePartwise.Part();
+        docPart.setId(part.getId());
+        docPart.getMeasure().addAll(measures);
+        doc.getPart().add(docPart);
+
+        final ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        Marshalling.marshal(doc, bos, false, INDENT);
+
+        final String xml = bos.toString("UTF-8");
+        final int start = xml.indexOf('>', xml.indexOf(PART_START)) + 1;
+        final int stop = xml.lastIndexOf('\n', xml.lastIndexOf(PART_END));
+
+        return xml.substring(start, stop);
+    }
+
+    //---------------//
+    // writeDocument //
+    //---------------//
+    /**
+     * Marshal the measure-less partwise, and insert each part content from its file.
+     *
+     * @param scorePartwise the measure-less partwise
+     * @param os            the output stream
+     * @param signed        should we inject ProxyMusic signature?
+     * @throws Exception if something goes wrong
+     */
+    private void writeDocument (ScorePartwise scorePartwise,
+                                OutputStream os,
+                                boolean signed)
+            throws Exception
+    {
+        closeWriters();
+
+        final ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        Marshalling.marshal(scorePartwise, bos, signed, INDENT);
+
+        final String xml = bos.toString("UTF-8");
+        final Writer writer = new OutputStreamWriter(os, StandardCharsets.UTF_8);
+        int pos = 0;
+
+        for (ScorePartwise.Part part : scorePartwise.getPart()) {
+            final Path path = files.get(part);
+
+            if (path == null) {
+                continue; // No measure at all, keep the empty element
+            }
+
+            // Locate the empty part element, either as <part id="..."/> or <part id="..."></part>
+            final String open = PART_START + "id=\"" + ((ScorePart) part.getId()).getId() + "\"";
+            final int index = xml.indexOf(open, pos);
+            final int end = (index == -1) ? -1 : (index + open.length());
+            final String empty;
+
+            if ((end != -1) && xml.startsWith("/>", end)) {
+                empty = open + "/>";
+            } else if ((end != -1) && xml.startsWith(">" + PART_END, end)) {
+                empty = open + ">" + PART_END;
+            } else {
+                throw new IllegalStateException("No empty element found for " + open);
+            }
+
+            final String indent = xml.substring(xml.lastIndexOf('\n', index) + 1, index);
+            writer.write(xml, pos, index - pos);
+            writer.write(open + ">");
+            writer.flush();
+            Files.copy(path, os);
+            writer.write("\n" + indent + PART_END);
+            pos = index + empty.length();
+        }
+
+        writer.write(xml, pos, xml.length() - pos);
+        writer.flush();
+    }
+}
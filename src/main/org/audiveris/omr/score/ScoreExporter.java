@@ -22,6 +22,8 @@
 package org.audiveris.omr.score;
 
 import org.audiveris.omr.OMR;
+import org.audiveris.omr.constant.Constant;
+import org.audiveris.omr.constant.ConstantSet;
 import org.audiveris.proxymusic.ScorePartwise;
 import org.audiveris.proxymusic.mxl.Mxl;
 import org.audiveris.proxymusic.mxl.RootFile;
@@ -46,6 +48,8 @@ import java.util.Objects;
 public class ScoreExporter
 {
 
+    private static final Constants constants = new Constants();
+
     private static final Logger logger = LoggerFactory.getLogger(ScoreExporter.class);
 
     /** The related score. */
@@ -109,10 +113,6 @@ public class ScoreExporter
     {
         Objects.requireNonNull(os, "Trying to export a score to a null output stream");
 
-        // Build the ScorePartwise proxy
-        ScorePartwise scorePartwise = PartwiseBuilder.build(score);
-
-        // Marshal the proxy
         if (compressed) {
             Mxl.Output mof = new Mxl.Output(os);
             OutputStream zos = mof.getOutputStream();
@@ -123,10 +123,10 @@ public class ScoreExporter
 
             mof.addEntry(
                     new RootFile(scoreName + OMR.SCORE_EXTENSION, RootFile.MUSICXML_MEDIA_TYPE));
-            Marshalling.marshal(scorePartwise, zos, signed, 2);
+            marshal(score, zos, signed);
             mof.close();
         } else {
-            Marshalling.marshal(scorePartwise, os, signed, 2);
+            marshal(score, os, signed);
             os.close();
         }
     }
@@ -156,4 +156,76 @@ public class ScoreExporter
         // Marshal the proxy
         Marshalling.marshal(scorePartwise, node, signed);
     }
+
+    //---------//
+    // marshal //
+    //---------//
+    /**
+     * Build and marshal the MusicXML partwise document of the provided score.
+     * <p>
+     * A large score is streamed page after page, so that its whole ScorePartwise never gets held in
+     * memory, otherwise the ScorePartwise is fully built then marshalled at once.
+     * Both ways produce the same output.
+     *
+     * @param score  the score to marshal
+     * @param os     the output stream to write to
+     * @param signed should we inject ProxyMusic signature?
+     * @throws Exception if something goes wrong
+     */
+    static void marshal (Score score,
+                         OutputStream os,
+                         boolean signed)
+            throws Exception
+    {
+        marshal(
+                score,
+                os,
+                signed,
+                constants.useStreaming.isSet() ? constants.minStreamingPages.getValue()
+                        : Integer.MAX_VALUE);
+    }
+
+    //---------//
+    // marshal //
+    //---------//
+    /**
+     * Build and marshal the MusicXML partwise document of the provided score, streaming
+     * it page after page if the score is large enough.
+     *
+     * @param score             the score to marshal
+     * @param os                the output stream to write to
+     * @param signed            should we inject ProxyMusic signature?
+     * @param minStreamingPages minimum number of score pages to stream the score
+     * @throws Exception if something goes wrong
+     */
+    static void marshal (Score score,
+                         OutputStream os,
+                         boolean signed,
+                         int minStreamingPages)
+            throws Exception
+    {
+        if (score.getPageCount() >= minStreamingPages) {
+            logger.debug("Streaming {} page after page", score);
+            PartwiseStreamer.write(score, os, signed);
+        } else {
+            Marshalling.marshal(PartwiseBuilder.build(score), os, signed, 2);
+        }
+    }
+
+    //-----------//
+    // Constants //
+    //-----------//
+    private static class Constants
+            extends ConstantSet
+    {
+
+        private final Constant.Boolean useStreaming = new Constant.Boolean(
+                true,
+                "Should large scores be exported page after page?");
+
+        private final Constant.Integer minStreamingPages = new Constant.Integer(
+                "pages",
+                10,
+                "Minimum number of pages in a score to export it page after page");
+    }
 }
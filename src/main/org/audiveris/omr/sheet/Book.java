@@ -55,6 +55,7 @@ import org.audiveris.omr.util.Memory;
 import org.audiveris.omr.util.OmrExecutors;
 import org.audiveris.omr.util.StopWatch;
 import org.audiveris.omr.util.ZipFileSystem;
+import org.audiveris.omr.util.param.BooleanParam;
 import org.audiveris.omr.util.param.Param;
 import org.audiveris.omr.util.param.StringParam;
 
@@ -72,8 +73,11 @@ import java.nio.file.FileSystems;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Deque;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Objects;
 import java.util.Set;
@@ -274,6 +278,11 @@ public class Book
     @XmlJavaTypeAdapter(StringParam.Adapter.class)
     private StringParam ocrLanguages;
 
+    /** Handling of binary format for sheet structures of this book. */
+    @XmlElement(name = "binary-sheets")
+    @XmlJavaTypeAdapter(BooleanParam.Adapter.class)
+    private BooleanParam binarySheets;
+
     /** Handling of processing switches for this book. */
     @XmlElement(name = "processing")
     @XmlJavaTypeAdapter(ProcessingSwitches.Adapter.class)
@@ -317,6 +326,9 @@ public class Book
     /** Book-level sample repository. */
     private SampleRepository repository;
 
+    /** Stubs whose sheet is still in memory after batch processing, least recent first. */
+    private final Deque<SheetStub> residentStubs = new ArrayDeque<>();
+
     /**
      * Create a Book with a path to an input images file.
      *
@@ -672,6 +684,25 @@ public class Book
         return binarizationFilter;
     }
 
+    //-----------------//
+    // getBinarySheets //
+    //-----------------//
+    /**
+     * Report whether sheet structures are stored in binary format rather than in XML,
+     * as defined at book level.
+     *
+     * @return the binary sheets parameter
+     */
+    public Param<Boolean> getBinarySheets ()
+    {
+        if (binarySheets == null) {
+            binarySheets = new BooleanParam();
+            binarySheets.setParent(Sheet.defaultBinaryStructure);
+        }
+
+        return binarySheets;
+    }
+
     //-------------//
     // getBookPath //
     //-------------//
@@ -1336,7 +1367,7 @@ public class Book
 
                 if (isMultiSheet() && constants.processAllStubsInParallel.isSet()
                             && (OmrExecutors.defaultParallelism.getValue() == true)) {
-                    // Process all stubs in parallel
+                    // Process all stubs in parallel, as far as admission allows
                     List<Callable<Boolean>> tasks = new ArrayList<>();
 
                     for (final SheetStub stub : concernedStubs) {
@@ -1357,6 +1388,10 @@ public class Book
 
                                     return ok;
                                 } finally {
+                                    if (OMR.gui == null) {
+                                        releaseResidentSheets(stub);
+                                    }
+
                                     LogUtil.stopStub();
                                 }
                             }
@@ -1364,8 +1399,7 @@ public class Book
                     }
 
                     try {
-                        List<Future<Boolean>> futures = OmrExecutors.getCachedLowExecutor()
-                                .invokeAll(tasks);
+                        List<Future<Boolean>> futures = OmrExecutors.invokeSheets(tasks);
 
                         for (Future<Boolean> future : futures) {
                             try {
@@ -1403,6 +1437,10 @@ public class Book
                             logger.warn("Error processing stub");
                             someFailure = true;
                         } finally {
+                            if (OMR.gui == null) {
+                                releaseResidentSheets(stub);
+                            }
+
                             LogUtil.stopStub();
                         }
                     }
@@ -1885,6 +1923,10 @@ public class Book
             ocrLanguages = null;
         }
 
+        if ((binarySheets != null) && !binarySheets.isSpecific()) {
+            binarySheets = null;
+        }
+
         if ((switches != null) && switches.isEmpty()) {
             switches = null;
         }
@@ -2016,6 +2058,21 @@ public class Book
         return least;
     }
 
+    //-----------------------//
+    // getMaxResidentSheets //
+    //-----------------------//
+    /**
+     * Report the maximum number of sheets kept in memory in batch mode.
+     *
+     * @return the maximum count of resident sheets
+     */
+    private int getMaxResidentSheets ()
+    {
+        final int max = constants.maxResidentSheets.getValue();
+
+        return (max > 0) ? max : OmrExecutors.getMaxSheetsInFlight();
+    }
+
     //----------//
     // getScore //
     //----------//
@@ -2059,6 +2116,10 @@ public class Book
             ocrLanguages.setParent(Language.ocrDefaultLanguages);
         }
 
+        if (binarySheets != null) {
+            binarySheets.setParent(Sheet.defaultBinaryStructure);
+        }
+
         if (switches != null) {
             switches.setParent(ProcessingSwitches.getDefaultSwitches());
         }
@@ -2164,6 +2225,80 @@ public class Book
         logger.debug("Inserted scores:{}", scores.subList(insertIndex, index));
     }
 
+    //-----------------------//
+    // releaseResidentSheets //
+    //-----------------------//
+    /**
+     * Bound the count of sheets kept in memory, once the provided stub has been processed.
+     * <p>
+     * This is meant to be called only at pipeline boundaries, in batch mode, when a sheet task
+     * has just completed. The least recently processed sheets are swapped out first, beginning
+     * with the sheets loaded on the fly by book-level processing, unless they are being processed.
+     *
+     * @param stub the stub just processed
+     */
+    private void releaseResidentSheets (SheetStub stub)
+    {
+        final int max = getMaxResidentSheets();
+        final List<SheetStub> candidates = new ArrayList<>();
+
+        synchronized (residentStubs) {
+            residentStubs.remove(stub);
+
+            if (stub.hasSheet()) {
+                residentStubs.addLast(stub);
+            }
+
+            // Forget stubs whose sheet has been swapped meanwhile
+            for (Iterator<SheetStub> it = residentStubs.iterator(); it.hasNext();) {
+                if (!it.next().hasSheet()) {
+                    it.remove();
+                }
+            }
+
+            // Sheets loaded outside of processing come first
+            final List<SheetStub> resident = new ArrayList<>();
+
+            for (SheetStub s : stubs) {
+                if (s.hasSheet() && !residentStubs.contains(s)) {
+                    resident.add(s);
+                }
+            }
+
+            resident.addAll(residentStubs);
+
+            int excess = resident.size() - max;
+
+            for (SheetStub s : resident) {
+                if (excess-- <= 0) {
+                    break;
+                }
+
+                if (s != stub) {
+                    candidates.add(s);
+                }
+            }
+        }
+
+        for (SheetStub s : candidates) {
+            final ReentrantLock stubLock = (ReentrantLock) s.getLock();
+
+            // Never swap a sheet being processed, by this thread or by another one
+            if (!stubLock.isHeldByCurrentThread() && stubLock.tryLock()) {
+                try {
+                    logger.debug("{} swapped out after {}", s, stub);
+                    s.swapSheet();
+                } finally {
+                    stubLock.unlock();
+                }
+
+                synchronized (residentStubs) {
+                    residentStubs.remove(s);
+                }
+            }
+        }
+    }
+
     //----------//
     // scoresOf //
     //----------//
@@ -2426,6 +2561,11 @@ public class Book
                 false,
                 "Should we process all stubs of a book in parallel? (beware of many stubs)");
 
+        private final Constant.Integer maxResidentSheets = new Constant.Integer(
+                "sheets",
+                0,
+                "Maximum number of sheets kept in memory in batch (0 for max sheets in flight)");
+
         private final Constant.Boolean checkBookVersion = new Constant.Boolean(
                 true,
                 "Should we check version of loaded book files?");
@@ -36,8 +36,10 @@ import org.audiveris.omr.image.PixelFilter;
 import org.audiveris.omr.image.PixelSource;
 import static org.audiveris.omr.run.Orientation.VERTICAL;
 import org.audiveris.omr.run.RunTable;
+import org.audiveris.omr.run.RunTableCodec;
 import org.audiveris.omr.run.RunTableFactory;
 import org.audiveris.omr.sheet.grid.LineInfo;
+import org.audiveris.omr.step.Step;
 import org.audiveris.omr.ui.selection.LocationEvent;
 import org.audiveris.omr.ui.selection.MouseMovement;
 import org.audiveris.omr.ui.selection.PixelEvent;
@@ -285,6 +287,30 @@ public class Picture
         sources.remove(key);
     }
 
+    //-------------------------//
+    // disposeTransientSources //
+    //-------------------------//
+    /**
+     * Dispose of the transient sources no longer needed once the provided step is done.
+     * <p>
+     * INITIAL source is needed until BINARY step.
+     * GAUSSIAN and MEDIAN sources, which derive from NO_STAFF source, are not used beyond GRID
+     * step.
+     * Other sources are kept, since they can be needed until the last step.
+     *
+     * @param step the step just completed
+     */
+    public void disposeTransientSources (Step step)
+    {
+        for (SourceKey key : SourceKey.values()) {
+            final Step lastStep = getLastStep(key);
+
+            if ((lastStep != null) && (step.compareTo(lastStep) >= 0)) {
+                disposeSource(key);
+            }
+        }
+    }
+
     //---------------//
     // dumpRectangle //
     //---------------//
@@ -369,12 +395,7 @@ public class Picture
         try {
             watch.start("Filter " + src.getWidth() + "x" + src.getHeight());
 
-            final int radius = constants.gaussianRadius.getValue();
-            logger.debug("Image blurred with gaussian kernel radius: {}", radius);
-
-            GaussianGrayFilter gaussianFilter = new GaussianGrayFilter(radius);
-
-            return gaussianFilter.filter(src);
+            return getGaussianFilter().filter(src);
         } finally {
             if (constants.printWatch.isSet()) {
                 watch.print();
@@ -382,6 +403,22 @@ public class Picture
         }
     }
 
+    //-------------------//
+    // getGaussianFilter //
+    //-------------------//
+    /**
+     * Report the Gaussian filter used on NO_STAFF based sources.
+     *
+     * @return the Gaussian filter
+     */
+    public GaussianGrayFilter getGaussianFilter ()
+    {
+        final int radius = constants.gaussianRadius.getValue();
+        logger.debug("Image blurred with gaussian kernel radius: {}", radius);
+
+        return new GaussianGrayFilter(radius);
+    }
+
     //-----------//
     // getHeight //
     //-----------//
@@ -492,6 +529,22 @@ public class Picture
         return pixelService;
     }
 
+    //-----------------//
+    // getMedianFilter //
+    //-----------------//
+    /**
+     * Report the median filter used on NO_STAFF based sources.
+     *
+     * @return the median filter
+     */
+    public MedianGrayFilter getMedianFilter ()
+    {
+        final int radius = constants.medianRadius.getValue();
+        logger.debug("Image filtered with median kernel radius: {}", radius);
+
+        return new MedianGrayFilter(radius);
+    }
+
     //-----------//
     // getSource //
     //-----------//
@@ -645,12 +698,7 @@ public class Picture
         try {
             watch.start("Filter " + src.getWidth() + "x" + src.getHeight());
 
-            final int radius = constants.medianRadius.getValue();
-            logger.debug("Image filtered with median kernel radius: {}", radius);
-
-            MedianGrayFilter medianFilter = new MedianGrayFilter(radius);
-
-            return medianFilter.filter(src);
+            return getMedianFilter().filter(src);
         } finally {
             if (constants.printWatch.isSet()) {
                 watch.print();
@@ -761,16 +809,30 @@ public class Picture
         for (Entry<TableKey, RunTableHolder> entry : tables.entrySet()) {
             final TableKey key = entry.getKey();
             final RunTableHolder holder = entry.getValue();
-            final Path tablepath = sheetFolder.resolve(key + ".xml");
+            final Path tablepath = sheetFolder.resolve(holder.getFileName());
 
             if (!holder.hasData()) {
                 if (oldSheetFolder != null) {
                     try {
-                        // Copy from old book file to new
-                        Path oldTablePath = oldSheetFolder.resolve(key + ".xml");
-                        Files.copy(oldTablePath, tablepath);
-                        logger.info("Copied {}", tablepath);
-                    } catch (IOException ex) {
+                        Path oldTablePath = oldSheetFolder.resolve(holder.getFileName());
+                        String legacyName = holder.getLegacyFileName();
+
+                        if (!Files.exists(oldTablePath) && (legacyName != null)) {
+                            // Old book saved before binary format: convert its XML table
+                            RunTable table = RunTable.unmarshal(oldSheetFolder.resolve(legacyName));
+
+                            if (table != null) {
+                                table.marshal(tablepath);
+                                logger.info("Converted {}", tablepath);
+                            }
+                        } else {
+                            // Copy from old book file to new
+                            Files.copy(oldTablePath, tablepath);
+                            logger.info("Copied {}", tablepath);
+                        }
+                    } catch (IOException |
+                             JAXBException |
+                             XMLStreamException ex) {
                         logger.warn("Error in picture.store " + ex, ex);
                     }
                 }
@@ -782,6 +844,11 @@ public class Picture
                     table.marshal(tablepath);
                     holder.setModified(false);
                     logger.info("Stored {}", tablepath);
+
+                    if (RunTableCodec.isBinary(tablepath)) {
+                        // Delete the legacy XML table, if any, which is no longer referenced
+                        Files.deleteIfExists(sheetFolder.resolve(key + ".xml"));
+                    }
                 } catch (IOException |
                          JAXBException |
                          XMLStreamException ex) {
@@ -924,6 +991,30 @@ public class Picture
         return img;
     }
 
+    //-------------//
+    // getLastStep //
+    //-------------//
+    /**
+     * Report the last step which may need the provided source.
+     *
+     * @param key the source key
+     * @return the last consuming step, or null if source may be needed until the end
+     */
+    private static Step getLastStep (SourceKey key)
+    {
+        switch (key) {
+        case INITIAL:
+            return Step.BINARY;
+
+        case GAUSSIAN:
+        case MEDIAN:
+            return Step.GRID;
+
+        default:
+            return null;
+        }
+    }
+
     //--------------//
     // getStrongRef //
     //--------------//
@@ -22,12 +22,14 @@
 package org.audiveris.omr.sheet;
 
 import org.audiveris.omr.run.RunTable;
+import org.audiveris.omr.run.RunTableCodec;
 import org.audiveris.omr.sheet.Picture.TableKey;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import javax.xml.bind.annotation.XmlAccessType;
 import javax.xml.bind.annotation.XmlAccessorType;
@@ -57,12 +59,15 @@ public class RunTableHolder
 
     /**
      * Creates a new {@code RunTableHolder} object.
+     * <p>
+     * A new table is always stored in binary format, older books may still refer to tables
+     * stored in XML format.
      *
      * @param key table key
      */
     public RunTableHolder (TableKey key)
     {
-        pathString = key + ".xml";
+        pathString = key + RunTableCodec.EXTENSION;
     }
 
     /** No-arg constructor needed for JAXB. */
@@ -90,6 +95,12 @@ public class RunTableHolder
                     // Open book file system
                     Path dataFolder = stub.getBook().openSheetFolder(stub.getNumber());
                     Path dataFile = dataFolder.resolve(pathString);
+
+                    if (!Files.exists(dataFile) && (getLegacyFileName() != null)) {
+                        // Book saved before binary format, use the legacy XML table
+                        dataFile = dataFolder.resolve(getLegacyFileName());
+                    }
+
                     logger.debug("path to file: {}", dataFile);
                     data = RunTable.unmarshal(dataFile);
                     dataFile.getFileSystem().close(); // Close book file system
@@ -106,6 +117,38 @@ public class RunTableHolder
         return data;
     }
 
+    //-------------//
+    // getFileName //
+    //-------------//
+    /**
+     * Report the name of data file, relative to sheet folder.
+     *
+     * @return the data file name
+     */
+    public String getFileName ()
+    {
+        return pathString;
+    }
+
+    //-------------------//
+    // getLegacyFileName //
+    //-------------------//
+    /**
+     * Report the name of the XML data file that a book saved before binary format uses
+     * in lieu of the binary data file.
+     *
+     * @return the legacy data file name, or null if data file is not a binary one
+     */
+    public String getLegacyFileName ()
+    {
+        if ((pathString == null) || !pathString.endsWith(RunTableCodec.EXTENSION)) {
+            return null;
+        }
+
+        return pathString.substring(0, pathString.length() - RunTableCodec.EXTENSION.length())
+               + ".xml";
+    }
+
     //---------//
     // hasData //
     //---------//
@@ -64,16 +64,20 @@ import org.audiveris.omr.ui.selection.PixelEvent;
 import org.audiveris.omr.ui.selection.SelectionService;
 import org.audiveris.omr.ui.util.ItemRenderer;
 import org.audiveris.omr.ui.util.WeakItemRenderer;
+import org.audiveris.omr.util.BinaryXml;
 import org.audiveris.omr.util.Dumping;
 import org.audiveris.omr.util.FileUtil;
 import org.audiveris.omr.util.Jaxb;
 import org.audiveris.omr.util.Navigable;
+import org.audiveris.omr.util.param.ConstantBasedParam;
+import org.audiveris.omr.util.param.Param;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.awt.Graphics2D;
 import java.awt.image.BufferedImage;
+import java.io.BufferedInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
@@ -192,6 +196,10 @@ import org.audiveris.omr.util.IndentingXMLStreamWriter;
  * The picture below represents the data model used for marshalling/unmarshalling a sheet to/from
  * a sheet#n.xml file within a book .omr file
  * <p>
+ * If so selected for the containing book, the same data model is rather marshalled to a more
+ * compact sheet#n.bin file, using the {@link BinaryXml} encoding.
+ * Either file is unmarshalled the same way, with the same hooks and "afterReload()" methods.
+ * <p>
  * Most entities are represented here. Some Inter instances are listed only via their containing
  * entity, such as tuplets in MeasureStack, slurs and lyrics in Part, ledgers and bars in Staff,
  * graceChords and restChords in Measure, wholeChord in Voice.
@@ -216,6 +224,13 @@ public class Sheet
     /** The radix used for folder of this sheet internals. */
     public static final String INTERNALS_RADIX = "sheet#";
 
+    /** File extension for binary sheet structure: {@value}. */
+    public static final String BINARY_EXTENSION = ".bin";
+
+    /** Default choice for binary sheet structure. */
+    public static final Param<Boolean> defaultBinaryStructure
+            = new ConstantBasedParam<Boolean, Constant.Boolean>(constants.useBinaryStructure);
+
     /** Events that can be published on sheet location service. */
     private static final Class<?>[] allowedEvents = new Class<?>[]{
         LocationEvent.class,
@@ -1222,16 +1237,20 @@ public class Sheet
             }
         }
 
-        // Sheet structure (sheet#n.xml)
+        // Sheet structure (sheet#n.xml or sheet#n.bin)
         try {
-            Path structurePath = sheetFolder.resolve(getSheetFileName(stub.getNumber()));
-            Files.deleteIfExists(structurePath);
+            final boolean binary = stub.getBook().getBinarySheets().getValue();
+            final int number = stub.getNumber();
+            Path structurePath = sheetFolder.resolve(getSheetFileName(number, binary));
+            Files.deleteIfExists(sheetFolder.resolve(getSheetFileName(number, false)));
+            Files.deleteIfExists(sheetFolder.resolve(getSheetFileName(number, true)));
             Files.createDirectories(sheetFolder);
 
             try (OutputStream os = Files.newOutputStream(structurePath, CREATE);) {
                 Marshaller m = getJaxbContext().createMarshaller();
-                XMLStreamWriter writer = new IndentingXMLStreamWriter(
-                        XMLOutputFactory.newInstance().createXMLStreamWriter(os, "UTF-8"));
+                XMLStreamWriter writer = binary ? new BinaryXml.StreamWriter(os)
+                        : new IndentingXMLStreamWriter(
+                                XMLOutputFactory.newInstance().createXMLStreamWriter(os, "UTF-8"));
 
                 if (constants.useMarshalLogger.isSet()) {
                     m.setListener(new Jaxb.MarshalLogger());
@@ -1499,7 +1518,23 @@ public class Sheet
      */
     public static String getSheetFileName (int number)
     {
-        return Sheet.INTERNALS_RADIX + number + ".xml";
+        return getSheetFileName(number, false);
+    }
+
+    //------------------//
+    // getSheetFileName //
+    //------------------//
+    /**
+     * Report the file name of a sheet in the .omr zip file system, according to format.
+     *
+     * @param number sheet number (counted from 1) within the containing book
+     * @param binary true for binary format, false for XML format
+     * @return the sheet file name
+     */
+    public static String getSheetFileName (int number,
+                                           boolean binary)
+    {
+        return Sheet.INTERNALS_RADIX + number + (binary ? BINARY_EXTENSION : ".xml");
     }
 
     //-----------//
@@ -1507,14 +1542,17 @@ public class Sheet
     //-----------//
     /**
      * Unmarshal the provided XML stream to allocate the corresponding sheet.
+     * <p>
+     * The stream content may be in plain XML format or in binary XML format.
      *
-     * @param in the input stream that contains the sheet in XML format.
+     * @param in the input stream that contains the sheet in XML or binary XML format.
      *           The stream is not closed by this method
      * @return the allocated sheet.
      * @exception JAXBException raised when unmarshalling goes wrong
+     * @exception IOException   raised when stream cannot be read
      */
     public static Sheet unmarshal (InputStream in)
-            throws JAXBException
+            throws JAXBException, IOException
     {
         Unmarshaller um = getJaxbContext().createUnmarshaller();
 
@@ -1522,7 +1560,19 @@ public class Sheet
             um.setListener(new Jaxb.UnmarshalLogger());
         }
 
-        Sheet sheet = (Sheet) um.unmarshal(in);
+        final InputStream bis = new BufferedInputStream(in);
+        final Sheet sheet;
+
+        if (BinaryXml.isBinary(bis)) {
+            try {
+                sheet = (Sheet) um.unmarshal(new BinaryXml.StreamReader(bis));
+            } catch (XMLStreamException ex) {
+                throw new JAXBException(ex);
+            }
+        } else {
+            sheet = (Sheet) um.unmarshal(bis);
+        }
+
         logger.debug("Sheet unmarshalled");
 
         return sheet;
@@ -1556,6 +1606,10 @@ public class Sheet
         private final Constant.Boolean useUnmarshalLogger = new Constant.Boolean(
                 false,
                 "Should we log every sheet unmarshalling?");
+
+        private final Constant.Boolean useBinaryStructure = new Constant.Boolean(
+                false,
+                "Should we store sheet structure in binary format by default?");
     }
 
     //-----------//
@@ -38,6 +38,7 @@ import org.audiveris.omr.sheet.ui.StubsController;
 import org.audiveris.omr.step.ProcessingCancellationException;
 import org.audiveris.omr.step.Step;
 import org.audiveris.omr.step.StepException;
+import org.audiveris.omr.step.StepTelemetry;
 import org.audiveris.omr.step.ui.StepMonitoring;
 import org.audiveris.omr.ui.Colors;
 import org.audiveris.omr.util.Jaxb;
@@ -612,8 +613,14 @@ public class SheetStub
                             // Open the book file system
                             try {
                                 book.getLock().lock();
-                                sheetFile = book.openSheetFolder(number).resolve(
-                                        Sheet.getSheetFileName(number));
+                                final Path sheetFolder = book.openSheetFolder(number);
+                                sheetFile = sheetFolder.resolve(
+                                        Sheet.getSheetFileName(number, true));
+
+                                if (!Files.exists(sheetFile)) {
+                                    sheetFile = sheetFolder.resolve(
+                                            Sheet.getSheetFileName(number));
+                                }
 
                                 try (InputStream is = Files.newInputStream(
                                         sheetFile,
@@ -1098,8 +1105,21 @@ public class SheetStub
                         StepMonitoring.notifyStep(SheetStub.this, step); // Start monitoring
                         setModified(true); // At beginning of processing
                         sheet.reset(step); // Reset sheet relevant data
-                        step.doit(sheet); // Standard processing on an existing sheet
+
+                        final StepTelemetry.Record record = StepTelemetry.start(sheet, step, null);
+
+                        try {
+                            step.doit(sheet); // Standard processing on an existing sheet
+                        } finally {
+                            StepTelemetry.stop(record);
+                        }
+
                         done(step); // Full completion
+
+                        if ((OMR.gui == null) && sheet.hasPicture()) {
+                            // In batch, release the sources no longer needed
+                            sheet.getPicture().disposeTransientSources(step);
+                        }
                     } finally {
                         LogUtil.stopStub();
                     }
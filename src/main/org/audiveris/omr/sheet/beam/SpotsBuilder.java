@@ -30,8 +30,9 @@ import org.audiveris.omr.glyph.Glyph;
 import org.audiveris.omr.glyph.GlyphFactory;
 import org.audiveris.omr.glyph.GlyphGroup;
 import org.audiveris.omr.glyph.GlyphIndex;
+import org.audiveris.omr.image.BandPipeline;
+import org.audiveris.omr.image.ChordMorphology;
 import org.audiveris.omr.image.ImageUtil;
-import org.audiveris.omr.image.MorphoProcessor;
 import org.audiveris.omr.image.StructureElement;
 import org.audiveris.omr.lag.Lag;
 import org.audiveris.omr.run.Orientation;
@@ -55,8 +56,10 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.awt.Point;
+import java.awt.Rectangle;
 import java.awt.image.BufferedImage;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 /**
@@ -97,6 +100,16 @@ public class SpotsBuilder
     /**
      * Retrieve all spots from a sheet.
      * All spots are dispatched among their containing system(s).
+     * <p>
+     * The NO_STAFF source is processed by a band pipeline which directly provides the spot runs,
+     * without any intermediate whole-sheet buffer:
+     * <ol>
+     * <li>Stem runs are removed, because they could lead to artificially larger beam candidates,
+     * <li>Median and Gaussian filters are applied,
+     * <li>Staff header areas are erased,
+     * <li>Beam-oriented closing is applied,
+     * <li>Result is thresholded, for beams and for heads.
+     * </ol>
      *
      * @param spotLag lag to index all spot glyph sections
      */
@@ -105,21 +118,63 @@ public class SpotsBuilder
         final StopWatch watch = new StopWatch("buildSheetSpots");
 
         try {
-            watch.start("getBuffer");
-
-            // We need a copy of image that we can overwrite.
-            ByteProcessor buffer = getBuffer();
-
-            // Retrieve major spots
-            watch.start("buildSpots");
-
             Integer beam = sheet.getScale().getBeamThickness();
 
             if (beam == null) {
                 throw new RuntimeException("No scale information on beam thickness");
             }
 
-            List<Glyph> spots = buildSpots(buffer, null, beam, null);
+            // Pipeline
+            watch.start("pipeline");
+
+            final Picture picture = sheet.getPicture();
+            final ByteProcessor source = picture.getSource(Picture.SourceKey.NO_STAFF);
+            final int width = source.getWidth();
+            final int height = source.getHeight();
+            final ChordMorphology morpho = getMorphology(beam);
+            final BandPipeline.TableSink spotSink = new BandPipeline.TableSink(
+                    SPOT_ORIENTATION,
+                    constants.beamBinarizationThreshold.getValue(),
+                    width,
+                    height);
+            final BandPipeline.TableSink headSink = new BandPipeline.TableSink(
+                    SPOT_ORIENTATION,
+                    constants.headBinarizationThreshold.getValue(),
+                    width,
+                    height);
+            final BandPipeline pipeline = new BandPipeline(source);
+            pipeline.add(new BandPipeline.LengthStage(sheet.getScale().getMaxStem()));
+            pipeline.add(picture.getMedianFilter());
+            pipeline.add(picture.getGaussianFilter());
+            pipeline.add(new HeaderEraser(getHeaderAreas()));
+            pipeline.add(morpho.getStage(true)); // Dilation
+            pipeline.add(morpho.getStage(false)); // Erosion
+            pipeline.addSink(spotSink);
+            pipeline.addSink(headSink);
+
+            // Gray-level buffer, only for visual check
+            BandPipeline.BufferSink graySink = null;
+
+            if (constants.keepBeamSpots.isSet()
+                || ((OMR.gui != null) && constants.displayGraySpots.isSet())) {
+                graySink = new BandPipeline.BufferSink(width, height);
+                pipeline.addSink(graySink);
+            }
+
+            pipeline.run();
+
+            if (graySink != null) {
+                watch.start("visualCheck");
+                checkGraySpots(graySink.getBuffer());
+            }
+
+            watch.start("saveHeadRuns");
+            saveHeadRuns(headSink.getTable());
+
+            // Retrieve major spots
+            watch.start("buildGlyphs");
+
+            List<Glyph> spots = buildGlyphs(spotSink.getTable(), null);
 
             // Dispatch spots per system(s)
             watch.start("dispatchSheetSpots");
@@ -165,44 +220,19 @@ public class SpotsBuilder
             eraseHeaderAreas(buffer);
         }
 
-        final double diameter = beam * constants.beamCircleDiameterRatio.getValue();
-        final float radius = (float) (diameter - 1) / 2;
-        logger.debug(
-                "Spots retrieval beam: {}, diameter: {} ...",
-                String.format("%.1f", beam),
-                String.format("%.1f", diameter));
-
-        final int[] seOffset = {0, 0};
-        StructureElement se = new StructureElement(0, 1, radius, seOffset);
         watch.start("close");
-        new MorphoProcessor(se).close(buffer);
+        getMorphology(beam).close(buffer);
 
         // For visual check
         watch.start("visualCheck");
 
         if (cueId == null) {
-            BufferedImage img = null;
-
-            // Store buffer on disk?
-            if (constants.keepBeamSpots.isSet()) {
-                img = buffer.getBufferedImage();
-                ImageUtil.saveOnDisk(img, sheet.getId() + ".spots");
-            }
-
-            // Display the gray-level view of all spots
-            if ((OMR.gui != null) && constants.displayGraySpots.isSet()) {
-                if (img == null) {
-                    img = buffer.getBufferedImage();
-                }
-
-                sheet.getStub().getAssembly().addViewTab(
-                        SheetTab.GRAY_SPOT_TAB,
-                        new ScrollImageView(sheet, new ImageView(img)),
-                        new BoardsPane(new PixelBoard(sheet)));
-            }
+            checkGraySpots(buffer);
 
             // Save a specific binarized version for HEADS step
-            saveHeadRuns((ByteProcessor) buffer.duplicate());
+            final ByteProcessor headBuffer = (ByteProcessor) buffer.duplicate();
+            headBuffer.threshold(constants.headBinarizationThreshold.getValue());
+            saveHeadRuns(new RunTableFactory(SPOT_ORIENTATION).createTable(headBuffer));
         } else if (constants.keepCueSpots.isSet()) {
             BufferedImage img = buffer.getBufferedImage();
             ImageUtil.saveOnDisk(img, sheet.getId() + "." + cueId + ".spots");
@@ -221,17 +251,65 @@ public class SpotsBuilder
         // Glyphs
         watch.start("buildGlyphs");
 
+        List<Glyph> glyphs = buildGlyphs(spotTable, offset);
+
+        if (constants.printWatch.isSet()) {
+            watch.print();
+        }
+
+        return glyphs;
+    }
+
+    //-------------//
+    // buildGlyphs //
+    //-------------//
+    /**
+     * Build the spot glyphs out of the provided spot runs, and use them for head sizing.
+     *
+     * @param spotTable the binarized spot runs
+     * @param offset    table offset WRT sheet coordinates, or null
+     * @return the spot glyphs
+     */
+    private List<Glyph> buildGlyphs (RunTable spotTable,
+                                     Point offset)
+    {
         List<Glyph> glyphs = GlyphFactory.buildGlyphs(spotTable, offset);
 
         // Head sizing
-        watch.start("computeHeadSizing");
         new BlackHeadSizer(sheet).process(glyphs);
 
-        if (constants.printWatch.isSet()) {
-            watch.print();
+        return glyphs;
+    }
+
+    //----------------//
+    // checkGraySpots //
+    //----------------//
+    /**
+     * For visual check, store and/or display the gray-level buffer of sheet spots.
+     *
+     * @param buffer the closed sheet buffer
+     */
+    private void checkGraySpots (ByteProcessor buffer)
+    {
+        BufferedImage img = null;
+
+        // Store buffer on disk?
+        if (constants.keepBeamSpots.isSet()) {
+            img = buffer.getBufferedImage();
+            ImageUtil.saveOnDisk(img, sheet.getId() + ".spots");
         }
 
-        return glyphs;
+        // Display the gray-level view of all spots
+        if ((OMR.gui != null) && constants.displayGraySpots.isSet()) {
+            if (img == null) {
+                img = buffer.getBufferedImage();
+            }
+
+            sheet.getStub().getAssembly().addViewTab(
+                    SheetTab.GRAY_SPOT_TAB,
+                    new ScrollImageView(sheet, new ImageView(img)),
+                    new BoardsPane(new PixelBoard(sheet)));
+        }
     }
 
     //--------------------//
@@ -280,10 +358,30 @@ public class SpotsBuilder
     //------------------//
     private void eraseHeaderAreas (ByteProcessor buffer)
     {
-        final int dmzDyMargin = sheet.getScale().toPixels(constants.staffVerticalMargin);
-
         buffer.setValue(255);
 
+        for (Rectangle area : getHeaderAreas()) {
+            buffer.setRoi(area);
+            buffer.fill();
+            buffer.resetRoi();
+        }
+
+        buffer.setValue(0);
+    }
+
+    //----------------//
+    // getHeaderAreas //
+    //----------------//
+    /**
+     * Report the staff header areas, which are not relevant for beams.
+     *
+     * @return the header area of each system
+     */
+    private List<Rectangle> getHeaderAreas ()
+    {
+        final int dmzDyMargin = sheet.getScale().toPixels(constants.staffVerticalMargin);
+        final List<Rectangle> areas = new ArrayList<>();
+
         for (SystemInfo system : sheet.getSystems()) {
             Staff firstStaff = system.getFirstStaff();
             Staff lastStaff = system.getLastStaff();
@@ -292,79 +390,45 @@ public class SpotsBuilder
             int top = firstStaff.getFirstLine().yAt(stop) - dmzDyMargin;
             int bot = lastStaff.getLastLine().yAt(stop) + dmzDyMargin;
 
-            buffer.setRoi(start, top, stop - start + 1, bot - top + 1);
-            buffer.fill();
-            buffer.resetRoi();
+            areas.add(new Rectangle(start, top, stop - start + 1, bot - top + 1));
         }
 
-        buffer.setValue(0);
+        return areas;
     }
 
-    //-----------//
-    // getBuffer //
-    //-----------//
+    //---------------//
+    // getMorphology //
+    //---------------//
     /**
-     * Prepare the buffer to be used for beams retrieval.
-     * <p>
-     * Staff lines and vertical lines (especially stems) are removed because they could lead to
-     * artificially larger beam candidates.
+     * Report the morphology engine, based on a circle sized according to beam height.
      *
-     * @return the buffer to be used
+     * @param beam typical beam height
+     * @return the morphology engine
      */
-    private ByteProcessor getBuffer ()
+    private ChordMorphology getMorphology (double beam)
     {
-        StopWatch watch = new StopWatch("SpotsBuilder.getBuffer");
-
-        try {
-            final Picture picture = sheet.getPicture();
-            final int stemWidth = sheet.getScale().getMaxStem();
-
-            watch.start("getSource NO_STAFF");
-
-            ByteProcessor buffer = picture.getSource(Picture.SourceKey.NO_STAFF);
-
-            // Remove stem runs (could be much more efficient if performed on buffer directly)
-            watch.start("createtable");
-
-            RunTableFactory factory = new RunTableFactory(
-                    Orientation.HORIZONTAL,
-                    new RunTableFactory.LengthFilter(stemWidth));
-            RunTable table = factory.createTable(buffer);
-            watch.start("table to buffer");
-            buffer = table.getBuffer();
-
-            // Apply median filter
-            watch.start("median");
-            buffer = picture.medianFiltered(buffer);
+        final double diameter = beam * constants.beamCircleDiameterRatio.getValue();
+        final float radius = (float) (diameter - 1) / 2;
+        logger.debug(
+                "Spots retrieval beam: {}, diameter: {} ...",
+                String.format("%.1f", beam),
+                String.format("%.1f", diameter));
 
-            // Apply gaussian filter
-            watch.start("gaussian");
+        final int[] seOffset = {0, 0};
 
-            return picture.gaussianFiltered(buffer);
-        } finally {
-            if (constants.printWatch.isSet()) {
-                watch.print();
-            }
-        }
+        return new ChordMorphology(new StructureElement(0, 1, radius, seOffset));
     }
 
     //--------------//
     // saveHeadRuns //
     //--------------//
     /**
-     * To ease (future) HEADS step, save the runs of the properly binarized buffer.
+     * To ease (future) HEADS step, save the runs binarized with threshold for heads.
      *
-     * @param buffer the buffer copy to binarize
+     * @param runs the head runs
      */
-    private void saveHeadRuns (ByteProcessor buffer)
+    private void saveHeadRuns (RunTable runs)
     {
-        // Binarize the spots with threshold for heads
-        buffer.threshold(constants.headBinarizationThreshold.getValue());
-
-        // Runs
-        RunTableFactory runFactory = new RunTableFactory(SPOT_ORIENTATION);
-        RunTable runs = runFactory.createTable(buffer);
-
         // For visual check
         if (constants.keepHeadSpots.isSet()) {
             BufferedImage img = runs.getBufferedImage();
@@ -424,4 +488,59 @@ public class SpotsBuilder
                 2.0,
                 "Margin erased above & below staff header area");
     }
+
+    //--------------//
+    // HeaderEraser //
+    //--------------//
+    /**
+     * Pipeline stage that erases staff header areas.
+     */
+    private static class HeaderEraser
+            implements BandPipeline.Stage
+    {
+
+        private final List<Rectangle> areas;
+
+        HeaderEraser (List<Rectangle> areas)
+        {
+            this.areas = areas;
+        }
+
+        @Override
+        public int getHalo ()
+        {
+            return 0;
+        }
+
+        @Override
+        public void process (BandPipeline.Band source,
+                             BandPipeline.Band target)
+        {
+            System.arraycopy(
+                    source.pixels,
+                    source.index(0, target.yMin),
+                    target.pixels,
+                    0,
+                    target.pixels.length);
+
+            final Rectangle band = new Rectangle(
+                    0,
+                    target.yMin,
+                    target.width,
+                    target.yMax - target.yMin);
+
+            for (Rectangle area : areas) {
+                final Rectangle inter = area.intersection(band);
+
+                if (inter.isEmpty()) {
+                    continue;
+                }
+
+                for (int y = inter.y; y < (inter.y + inter.height); y++) {
+                    final int offset = target.index(inter.x, y);
+                    Arrays.fill(target.pixels, offset, offset + inter.width, (byte) 255);
+                }
+            }
+        }
+    }
 }
@@ -23,6 +23,7 @@ package org.audiveris.omr.sheet.curve;
 
 import org.audiveris.omr.constant.Constant;
 import org.audiveris.omr.constant.ConstantSet;
+import org.audiveris.omr.image.BitPlane;
 import org.audiveris.omr.math.BasicLine;
 import org.audiveris.omr.math.PointUtil;
 import org.audiveris.omr.run.Run;
@@ -133,11 +134,18 @@ public class ArcRetriever
      * Scan the whole image.
      * Note the skeleton image has background pixels on the image border, hence there is no
      * foreground point to look for there.
+     * <p>
+     * Only the skeleton pixels are visited, column by column.
      */
     public void scanImage ()
     {
+        final BitPlane columns = skeleton.getColumns();
+
         for (int x = 1, w = sheet.getWidth() - 1; x < w; x++) {
-            for (int y = 1, h = sheet.getHeight() - 1; y < h; y++) {
+            final int h = sheet.getHeight() - 1;
+
+            for (int y = columns.nextSetBit(x, 1); (y != -1) && (y < h);
+                    y = columns.nextSetBit(x, y + 1)) {
                 int pix = skeleton.getPixel(x, y);
 
                 if (pix == ARC) {
@@ -22,6 +22,8 @@
 package org.audiveris.omr.sheet.curve;
 
 import ij.process.ByteProcessor;
+
+import org.audiveris.omr.image.BitPlane;
 import static org.audiveris.omr.image.PixelSource.BACKGROUND;
 import static org.audiveris.omr.image.PixelSource.FOREGROUND;
 import static org.audiveris.omr.sheet.curve.Skeleton.*;
@@ -47,6 +49,9 @@ public class JunctionRetriever
     /** Skeleton buffer. */
     private final ByteProcessor buf;
 
+    /** Skeleton pixels, column by column. */
+    private final BitPlane columns;
+
     /** Vicinity of current pixel. */
     private final Vicinity vicinity = new Vicinity();
 
@@ -58,6 +63,7 @@ public class JunctionRetriever
     public JunctionRetriever (Skeleton skeleton)
     {
         buf = skeleton.buf;
+        columns = skeleton.getColumns();
     }
 
     //-----------//
@@ -65,11 +71,12 @@ public class JunctionRetriever
     //-----------//
     /**
      * Scan the whole image.
+     * Only the skeleton pixels are visited, column by column.
      */
     public void scanImage ()
     {
         for (int x = 1, w = buf.getWidth(); x < w; x++) {
-            for (int y = 1, h = buf.getHeight(); y < h; y++) {
+            for (int y = columns.nextSetBit(x, 1); y != -1; y = columns.nextSetBit(x, y + 1)) {
                 int pix = buf.get(x, y);
 
                 if ((pix == FOREGROUND) // Basic pixel, not yet processed
@@ -27,7 +27,9 @@ import org.audiveris.omr.constant.Constant;
 import org.audiveris.omr.constant.ConstantSet;
 import org.audiveris.omr.glyph.Glyph;
 import org.audiveris.omr.glyph.Shape;
+import org.audiveris.omr.image.BitPlane;
 import org.audiveris.omr.image.ImageUtil;
+import org.audiveris.omr.image.Thinning;
 import org.audiveris.omr.sheet.PageCleaner;
 import org.audiveris.omr.sheet.Picture;
 import org.audiveris.omr.sheet.Scale;
@@ -49,11 +51,14 @@ import java.awt.Color;
 import java.awt.Graphics2D;
 import java.awt.Point;
 import java.awt.Rectangle;
-import java.awt.geom.Area;
 import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferByte;
+import java.awt.image.MultiPixelPackedSampleModel;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
@@ -177,6 +182,9 @@ public class Skeleton
     /** Map of erased (seed) glyphs. */
     private Map<SystemInfo, List<Glyph>> erasedSeeds;
 
+    /** Skeleton pixels, column by column. */
+    private BitPlane columns;
+
     /**
      * Creates a new Skeleton object.
      *
@@ -202,24 +210,27 @@ public class Skeleton
      * <li>Bar lines, connections and stems can be crossed by a curve.
      * Perhaps another specific background value could be used?</li>
      * </ul>
-     *
-     * @return the skeleton image (in parallel of setting the skeleton buffer)
+     * <p>
+     * Thinning and erasing are performed on a packed copy of the binary image, the resulting
+     * skeleton is then made available both as buffer and as columns of skeleton pixels.
      */
-    public BufferedImage buildSkeleton ()
+    public void buildSkeleton ()
     {
         // First, get a skeleton of binary image
         Picture picture = sheet.getPicture();
 
         ///ByteProcessor buffer = picture.getSource(Picture.SourceKey.NO_STAFF);
-        ByteProcessor buffer = picture.getSource(Picture.SourceKey.BINARY);
-        buffer = (ByteProcessor) buffer.duplicate();
-        buffer.skeletonize();
-
-        BufferedImage img = buffer.getBufferedImage();
+        BitPlane plane = BitPlane.fromFore(picture.getSource(Picture.SourceKey.BINARY));
+        Thinning.skeletonize(plane);
 
         // Erase good shapes of each system, both non-crossables and crossables
-        Graphics2D g = img.createGraphics();
-        CurvesCleaner cleaner = new CurvesCleaner(buffer, g, sheet);
+        // Glyphs are cleared from their runs, other items are painted in a mask
+        BufferedImage mask = new BufferedImage(
+                plane.getWidth(),
+                plane.getHeight(),
+                BufferedImage.TYPE_BYTE_BINARY);
+        Graphics2D g = mask.createGraphics();
+        CurvesCleaner cleaner = new CurvesCleaner(plane, g, sheet);
 
         // Non-crossable inters
         nonCrossables = cleaner.eraseShapes(
@@ -250,19 +261,17 @@ public class Skeleton
         //
         // Erase regions too far froms staves
         cleaner.eraseDistantRegions();
+        g.dispose();
+        cleaner.eraseMask(mask);
 
         // Build buffer
-        buffer = new ByteProcessor(img);
-        buffer.threshold(127);
+        buf = plane.toByteProcessor();
+        columns = plane.transpose();
 
         // Keep a copy on disk?
         if (constants.keepSkeleton.isSet()) {
-            ImageUtil.saveOnDisk(img, sheet.getId() + ".skl");
+            ImageUtil.saveOnDisk(buf.getBufferedImage(), sheet.getId() + ".skl");
         }
-
-        buf = buffer;
-
-        return img;
     }
 
     //------------//
@@ -371,6 +380,20 @@ public class Skeleton
         }
     }
 
+    //------------//
+    // getColumns //
+    //------------//
+    /**
+     * Report the skeleton pixels, organized by columns.
+     * Row x of returned plane contains the skeleton pixels of image column x.
+     *
+     * @return the transposed skeleton plane
+     */
+    BitPlane getColumns ()
+    {
+        return columns;
+    }
+
     //-----------------//
     // getErasedInters //
     //-----------------//
@@ -515,35 +538,50 @@ public class Skeleton
             extends PageCleaner
     {
 
+        /** To sort rectangles by abscissa. */
+        private static final Comparator<Rectangle> byAbscissa = new Comparator<Rectangle>()
+        {
+            @Override
+            public int compare (Rectangle r1,
+                                Rectangle r2)
+            {
+                return Integer.compare(r1.x, r2.x);
+            }
+        };
+
+        /** Skeleton plane. */
+        private final BitPlane plane;
+
         /**
          * Creates a new CurvesEraser object.
          *
-         * @param buffer page buffer
-         * @param g      graphics context on buffer
-         * @param sheet  related sheet
+         * @param plane skeleton plane, where glyphs and distant regions are cleared
+         * @param g     graphics context on erasing mask, for all other items
+         * @param sheet related sheet
          */
-        CurvesCleaner (ByteProcessor buffer,
+        CurvesCleaner (BitPlane plane,
                        Graphics2D g,
                        Sheet sheet)
         {
-            super(buffer, g, sheet);
+            super(null, g, sheet);
+            this.plane = plane;
         }
 
         //---------------------//
         // eraseDistantRegions //
         //---------------------//
         /**
-         * In the provided image, erase the areas that lie too far from staves.
+         * In the skeleton plane, erase the regions that lie too far from staves.
          * <p>
-         * We define an area as large as image, then remove enlarged staves areas, and finally print
-         * the remaining area with white color.
+         * We define a rectangle around each staff, enlarged both horizontally and vertically, and
+         * then clear in each row all the pixels located outside the staves rectangles.
          */
         public void eraseDistantRegions ()
         {
             final Scale scale = sheet.getScale();
             final int maxDx = scale.toPixels(constants.maxDxFromStaff);
             final int maxDy = scale.toPixels(constants.maxDyFromStaff);
-            final Area sheetArea = new Area(new Rectangle(buffer.getWidth(), buffer.getHeight()));
+            final List<Rectangle> staffRects = new ArrayList<>();
 
             for (Staff staff : sheet.getStaffManager().getStaves()) {
                 Rectangle staffRect = null;
@@ -564,12 +602,49 @@ public class Skeleton
                 }
 
                 staffRect.grow(maxDx, maxDy);
+                staffRects.add(staffRect);
+            }
+
+            Collections.sort(staffRects, byAbscissa);
 
-                Area staffArea = new Area(staffRect);
-                sheetArea.subtract(staffArea);
+            for (int y = 0, w = plane.getWidth(), h = plane.getHeight(); y < h; y++) {
+                int xNext = 0; // First abscissa not yet kept
+
+                for (Rectangle rect : staffRects) {
+                    if ((y >= rect.y) && (y < (rect.y + rect.height))) {
+                        plane.clearRange(y, xNext, rect.x - 1);
+                        xNext = Math.max(xNext, rect.x + rect.width);
+                    }
+                }
+
+                plane.clearRange(y, xNext, w - 1);
             }
+        }
+
+        //-----------//
+        // eraseMask //
+        //-----------//
+        /**
+         * Clear in skeleton plane all the pixels painted in the provided mask.
+         *
+         * @param mask the binary mask, where painted pixels are set
+         */
+        public void eraseMask (BufferedImage mask)
+        {
+            final MultiPixelPackedSampleModel model = (MultiPixelPackedSampleModel) mask
+                    .getSampleModel();
+            final int stride = model.getScanlineStride();
+            final byte[] bytes = ((DataBufferByte) mask.getRaster().getDataBuffer()).getData();
 
-            g.fill(sheetArea);
+            for (int y = 0, h = plane.getHeight(); y < h; y++) {
+                final int offset = y * stride;
+
+                for (int x = plane.nextSetBit(y, 0); x != -1; x = plane.nextSetBit(y, x + 1)) {
+                    if ((bytes[offset + (x >>> 3)] & (0x80 >>> (x & 7))) != 0) {
+                        plane.clear(x, y);
+                    }
+                }
+            }
         }
 
         //-------------//
@@ -612,5 +687,19 @@ public class Skeleton
 
             return erasedMap;
         }
+
+        //--------------//
+        // processGlyph //
+        //--------------//
+        /**
+         * Clear glyph runs directly from skeleton plane.
+         *
+         * @param glyph the inter underlying glyph
+         */
+        @Override
+        protected void processGlyph (Glyph glyph)
+        {
+            glyph.getRunTable().clear(plane, glyph.getTopLeft());
+        }
     }
 }
@@ -26,6 +26,7 @@ import ij.process.ByteProcessor;
 
 import org.audiveris.omr.classifier.Classifier;
 import org.audiveris.omr.classifier.Evaluation;
+import org.audiveris.omr.classifier.EvaluationCollector;
 import org.audiveris.omr.classifier.ShapeClassifier;
 import org.audiveris.omr.constant.Constant;
 import org.audiveris.omr.constant.ConstantSet;
@@ -239,16 +240,27 @@ public class ClefBuilder
         // Best inter per clef kind
         Map<ClefKind, ClefInter> bestMap = new EnumMap<>(ClefKind.class);
 
+        // All candidate glyphs are evaluated as one batch
+        EvaluationCollector collector = new EvaluationCollector(
+                classifier,
+                null,
+                staff.getSpecificInterline(),
+                params.maxEvalRank,
+                Grades.clefMinGrade / Grades.intrinsicRatio,
+                null);
+
         for (Set<Glyph> set : sets) {
             // Use only the subgraph for this set
             SimpleGraph<Glyph, GlyphLink> subGraph = GlyphCluster.getSubGraph(set, graph, false);
-            ClefAdapter adapter = new ClefAdapter(subGraph, bestMap);
+            ClefAdapter adapter = new ClefAdapter(subGraph, bestMap, collector);
             new GlyphCluster(adapter, null).decompose();
 
             int trials = adapter.trials;
             logger.debug("Staff#{} clef parts:{} trials:{}", staff.getId(), set.size(), trials);
         }
 
+        collector.flush();
+
         // Discard poor candidates as much as possible
         if (bestMap.size() > 1) {
             purgeClefs(bestMap);
@@ -511,11 +523,16 @@ public class ClefBuilder
         /** Best inter per clef kind. */
         private final Map<ClefKind, ClefInter> bestMap;
 
+        /** Collector of glyphs to evaluate. */
+        private final EvaluationCollector collector;
+
         ClefAdapter (SimpleGraph<Glyph, GlyphLink> graph,
-                     Map<ClefKind, ClefInter> bestMap)
+                     Map<ClefKind, ClefInter> bestMap,
+                     EvaluationCollector collector)
         {
             super(graph);
             this.bestMap = bestMap;
+            this.collector = collector;
         }
 
         @Override
@@ -532,26 +549,29 @@ public class ClefBuilder
 
             logger.debug("ClefAdapter evaluateGlyph on {}", glyph);
 
-            Evaluation[] evals = classifier.evaluate(
+            collector.add(
                     glyph,
-                    staff.getSpecificInterline(),
-                    params.maxEvalRank,
-                    Grades.clefMinGrade / Grades.intrinsicRatio,
-                    null);
-
-            for (Evaluation eval : evals) {
-                final Shape shape = eval.shape;
-
-                if (HEADER_CLEF_SHAPES.contains(shape)) {
-                    final double grade = Grades.intrinsicRatio * eval.grade;
-                    ClefKind kind = ClefInter.kindOf(glyph.getCenter(), shape, staff);
-                    ClefInter bestInter = bestMap.get(kind);
-
-                    if ((bestInter == null) || (bestInter.getGrade() < grade)) {
-                        bestMap.put(kind, ClefInter.create(glyph, shape, grade, staff));
+                    new EvaluationCollector.Callback()
+            {
+                @Override
+                public void process (Glyph glyph,
+                                     Evaluation[] evals)
+                {
+                    for (Evaluation eval : evals) {
+                        final Shape shape = eval.shape;
+
+                        if (HEADER_CLEF_SHAPES.contains(shape)) {
+                            final double grade = Grades.intrinsicRatio * eval.grade;
+                            ClefKind kind = ClefInter.kindOf(glyph.getCenter(), shape, staff);
+                            ClefInter bestInter = bestMap.get(kind);
+
+                            if ((bestInter == null) || (bestInter.getGrade() < grade)) {
+                                bestMap.put(kind, ClefInter.create(glyph, shape, grade, staff));
+                            }
+                        }
                     }
                 }
-            }
+            });
         }
 
         @Override
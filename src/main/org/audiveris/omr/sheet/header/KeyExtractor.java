@@ -25,6 +25,7 @@ import ij.process.ByteProcessor;
 
 import org.audiveris.omr.classifier.Classifier;
 import org.audiveris.omr.classifier.Evaluation;
+import org.audiveris.omr.classifier.EvaluationCollector;
 import org.audiveris.omr.classifier.ShapeClassifier;
 import org.audiveris.omr.constant.Constant;
 import org.audiveris.omr.constant.ConstantSet;
@@ -148,8 +149,10 @@ public class KeyExtractor
         purgeParts(parts, (sliceRect.x + sliceRect.width) - 1);
         system.registerGlyphs(parts, null);
 
-        SingleAdapter adapter = new SingleAdapter(slice, peaks, parts, targetShapes, minGrade);
+        EvaluationCollector collector = createCollector(minGrade);
+        SingleAdapter adapter = new SingleAdapter(slice, peaks, parts, targetShapes, collector);
         new GlyphCluster(adapter, null).decompose();
+        collector.flush();
 
         if (slice.getEval() != null) {
             double grade = Grades.intrinsicRatio * slice.getEval().grade;
@@ -351,19 +354,24 @@ public class KeyExtractor
         List<Set<Glyph>> sets = new ConnectivityInspector<>(graph).connectedSets();
         logger.debug("Staff#{} sets:{}", id, sets.size());
 
-        List<Candidate> allCandidates = new ArrayList<>();
+        // All candidate glyphs are evaluated as one batch
+        EvaluationCollector collector = createCollector(Grades.keyAlterMinGrade1);
+        List<MultipleAdapter> adapters = new ArrayList<>();
 
         for (Set<Glyph> set : sets) {
             // Use only the subgraph for this set
             SimpleGraph<Glyph, GlyphLink> subGraph = GlyphCluster.getSubGraph(set, graph, false);
-            MultipleAdapter adapter = new MultipleAdapter(
-                    roi,
-                    peaks,
-                    subGraph,
-                    shapes,
-                    Grades.keyAlterMinGrade1);
+            MultipleAdapter adapter = new MultipleAdapter(roi, peaks, subGraph, shapes, collector);
             new GlyphCluster(adapter, null).decompose();
             logger.debug("Staff#{} set:{} trials:{}", id, set.size(), adapter.trials);
+            adapters.add(adapter);
+        }
+
+        collector.flush();
+
+        List<Candidate> allCandidates = new ArrayList<>();
+
+        for (MultipleAdapter adapter : adapters) {
             allCandidates.addAll(adapter.candidates);
         }
 
@@ -438,6 +446,26 @@ public class KeyExtractor
         return ink >= params.minGlyphWeight;
     }
 
+    //-----------------//
+    // createCollector //
+    //-----------------//
+    /**
+     * Create a collector to evaluate candidate glyphs as one batch.
+     *
+     * @param minGrade minimum acceptable grade
+     * @return the evaluation collector
+     */
+    private EvaluationCollector createCollector (double minGrade)
+    {
+        return new EvaluationCollector(
+                classifier,
+                null,
+                sheet.getInterline(),
+                params.maxEvalRank,
+                minGrade / Grades.intrinsicRatio,
+                null);
+    }
+
     //--------//
     // getInk //
     //--------//
@@ -544,8 +572,8 @@ public class KeyExtractor
         /** Relevant peaks. */
         protected final List<KeyPeak> peaks;
 
-        /** Minimum acceptable intrinsic grade. */
-        protected final double minGrade;
+        /** Collector of glyphs to evaluate. */
+        protected final EvaluationCollector collector;
 
         /** Relevant shapes. */
         protected final EnumSet<Shape> targetShapes = EnumSet.noneOf(Shape.class);
@@ -553,12 +581,12 @@ public class KeyExtractor
         AbstractKeyAdapter (SimpleGraph<Glyph, GlyphLink> graph,
                             List<KeyPeak> peaks,
                             Set<Shape> targetShapes,
-                            double minGrade)
+                            EvaluationCollector collector)
         {
             super(graph);
             this.peaks = peaks;
             this.targetShapes.addAll(targetShapes);
-            this.minGrade = minGrade;
+            this.collector = collector;
         }
 
         @Override
@@ -610,7 +638,7 @@ public class KeyExtractor
 
         protected void evaluateSliceGlyph (KeySlice slice,
                                            Glyph glyph,
-                                           Set<Glyph> parts)
+                                           final Set<Glyph> parts)
         {
             if (isTooSmall(glyph.getBounds())) {
                 return;
@@ -633,21 +661,28 @@ public class KeyExtractor
 
             glyphCandidates.add(glyph);
 
-            Evaluation[] evals = classifier.evaluate(
+            collector.add(
                     glyph,
-                    sheet.getInterline(),
-                    params.maxEvalRank,
-                    minGrade / Grades.intrinsicRatio,
-                    null);
-
-            for (Evaluation eval : evals) {
-                final Shape shape = eval.shape;
-
-                if (targetShapes.contains(shape)) {
-                    logger.debug("glyph#{} width:{} {}", glyph.getId(), glyph.getWidth(), eval);
-                    keepCandidate(glyph, parts, eval);
+                    new EvaluationCollector.Callback()
+            {
+                @Override
+                public void process (Glyph glyph,
+                                     Evaluation[] evals)
+                {
+                    for (Evaluation eval : evals) {
+                        final Shape shape = eval.shape;
+
+                        if (targetShapes.contains(shape)) {
+                            logger.debug(
+                                    "glyph#{} width:{} {}",
+                                    glyph.getId(),
+                                    glyph.getWidth(),
+                                    eval);
+                            keepCandidate(glyph, parts, eval);
+                        }
+                    }
                 }
-            }
+            });
         }
 
         protected abstract void keepCandidate (Glyph glyph,
@@ -673,9 +708,9 @@ public class KeyExtractor
                          List<KeyPeak> peaks,
                          SimpleGraph<Glyph, GlyphLink> graph,
                          Set<Shape> targetShapes,
-                         double minGrade)
+                         EvaluationCollector collector)
         {
-            super(graph, peaks, targetShapes, minGrade);
+            super(graph, peaks, targetShapes, collector);
             this.roi = roi;
         }
 
@@ -714,9 +749,9 @@ public class KeyExtractor
                        List<KeyPeak> peaks,
                        List<Glyph> parts,
                        Set<Shape> targetShapes,
-                       double minGrade)
+                       EvaluationCollector collector)
         {
-            super(Glyphs.buildLinks(parts, params.maxPartGap), peaks, targetShapes, minGrade);
+            super(Glyphs.buildLinks(parts, params.maxPartGap), peaks, targetShapes, collector);
             this.slice = slice;
         }
 
@@ -25,6 +25,7 @@ import ij.process.Blitter;
 import ij.process.ByteProcessor;
 
 import org.audiveris.omr.classifier.Evaluation;
+import org.audiveris.omr.classifier.EvaluationCollector;
 import org.audiveris.omr.classifier.ShapeClassifier;
 import org.audiveris.omr.constant.Constant;
 import org.audiveris.omr.constant.ConstantSet;
@@ -406,31 +407,38 @@ public abstract class TimeBuilder
 
             glyphCandidates.add(glyph);
 
-            Evaluation[] evals = ShapeClassifier.getInstance().evaluate(
+            collector.add(
                     glyph,
-                    staff.getSpecificInterline(),
-                    params.maxEvalRank,
-                    Grades.timeMinGrade / Grades.intrinsicRatio,
-                    null);
-
-            for (Evaluation eval : evals) {
-                final Shape shape = eval.shape;
+                    new EvaluationCollector.Callback()
+            {
+                @Override
+                public void process (Glyph glyph,
+                                     Evaluation[] evals)
+                {
+                    for (Evaluation eval : evals) {
+                        final Shape shape = eval.shape;
 
-                if (halfShapes.contains(shape)) {
-                    final double grade = Grades.intrinsicRatio * eval.grade;
-                    logger.debug("   {} eval {} for glyph#{}", half, eval, glyph.getId());
+                        if (halfShapes.contains(shape)) {
+                            final double grade = Grades.intrinsicRatio * eval.grade;
+                            logger.debug("   {} eval {} for glyph#{}", half, eval, glyph.getId());
 
-                    Inter bestInter = bestMap.get(shape);
+                            Inter bestInter = bestMap.get(shape);
 
-                    if ((bestInter == null) || (bestInter.getGrade() < grade)) {
-                        TimeNumberInter inter = TimeNumberInter.create(glyph, shape, grade, staff);
+                            if ((bestInter == null) || (bestInter.getGrade() < grade)) {
+                                TimeNumberInter inter = TimeNumberInter.create(
+                                        glyph,
+                                        shape,
+                                        grade,
+                                        staff);
 
-                        if (inter != null) {
-                            bestMap.put(shape, inter);
+                                if (inter != null) {
+                                    bestMap.put(shape, inter);
+                                }
+                            }
                         }
                     }
                 }
-            }
+            });
         }
 
         @Override
@@ -450,6 +458,15 @@ public abstract class TimeBuilder
         /** Best inter per time shape. */
         public Map<Shape, Inter> bestMap = new EnumMap<>(Shape.class);
 
+        /** Collector of glyphs to evaluate, to be flushed before bestMap is used. */
+        public final EvaluationCollector collector = new EvaluationCollector(
+                ShapeClassifier.getInstance(),
+                null,
+                staff.getSpecificInterline(),
+                params.maxEvalRank,
+                Grades.timeMinGrade / Grades.intrinsicRatio,
+                null);
+
         TimeAdapter (List<Glyph> parts)
         {
             super(parts, params.maxPartGap);
@@ -510,29 +527,32 @@ public abstract class TimeBuilder
 
             glyphCandidates.add(glyph);
 
-            Evaluation[] evals = ShapeClassifier.getInstance().evaluate(
+            collector.add(
                     glyph,
-                    staff.getSpecificInterline(),
-                    params.maxEvalRank,
-                    Grades.timeMinGrade / Grades.intrinsicRatio,
-                    null);
-
-            for (Evaluation eval : evals) {
-                final Shape shape = eval.shape;
+                    new EvaluationCollector.Callback()
+            {
+                @Override
+                public void process (Glyph glyph,
+                                     Evaluation[] evals)
+                {
+                    for (Evaluation eval : evals) {
+                        final Shape shape = eval.shape;
 
-                if (wholeShapes.contains(shape)) {
-                    final double grade = Grades.intrinsicRatio * eval.grade;
-                    logger.debug("   WHOLE eval {} for glyph#{}", eval, glyph.getId());
+                        if (wholeShapes.contains(shape)) {
+                            final double grade = Grades.intrinsicRatio * eval.grade;
+                            logger.debug("   WHOLE eval {} for glyph#{}", eval, glyph.getId());
 
-                    Inter bestInter = bestMap.get(shape);
+                            Inter bestInter = bestMap.get(shape);
 
-                    if ((bestInter == null) || (bestInter.getGrade() < grade)) {
-                        TimeWholeInter inter = new TimeWholeInter(glyph, shape, grade);
-                        inter.setStaff(staff);
-                        bestMap.put(shape, inter);
+                            if ((bestInter == null) || (bestInter.getGrade() < grade)) {
+                                TimeWholeInter inter = new TimeWholeInter(glyph, shape, grade);
+                                inter.setStaff(staff);
+                                bestMap.put(shape, inter);
+                            }
+                        }
                     }
                 }
-            }
+            });
         }
 
         @Override
@@ -1205,6 +1225,7 @@ public abstract class TimeBuilder
             adapters.put(half, adapter);
 
             new GlyphCluster(adapter, null).decompose();
+            adapter.collector.flush();
             logger.debug(
                     "Staff#{} {} {} trials:{}",
                     staff.getId(),
@@ -1252,6 +1273,7 @@ public abstract class TimeBuilder
             TimeAdapter wholeAdapter = new WholeAdapter(parts);
             adapters.put(WHOLE, wholeAdapter);
             new GlyphCluster(wholeAdapter, null).decompose();
+            wholeAdapter.collector.flush();
             logger.debug(
                     "Staff#{} WHOLE {} trials:{}",
                     staff.getId(),
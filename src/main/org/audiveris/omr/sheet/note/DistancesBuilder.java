@@ -30,6 +30,7 @@ import org.audiveris.omr.glyph.Glyph;
 import org.audiveris.omr.glyph.GlyphGroup;
 import org.audiveris.omr.image.ChamferDistance;
 import org.audiveris.omr.image.DistanceTable;
+import org.audiveris.omr.image.SeparableDistance;
 import org.audiveris.omr.run.Orientation;
 import org.audiveris.omr.sheet.Picture;
 import org.audiveris.omr.sheet.Sheet;
@@ -90,21 +91,30 @@ public class DistancesBuilder
     //----------------//
     /**
      * Build the table of distances.
+     * <p>
+     * Unless templates are to be displayed, a packed table is used, since template matching
+     * needs to know only whether a location is foreground, background or neutralized.
      *
      * @return the table of distance values
      */
     public DistanceTable buildDistances ()
     {
-        // Compute the distance-to-foreground transform image
         Picture picture = sheet.getPicture();
         ByteProcessor buffer = picture.getSource(Picture.SourceKey.BINARY);
-        table = new ChamferDistance.Short().computeToFore(buffer);
+        final boolean displayed = (OMR.gui != null) && constants.displayTemplates.isSet();
+
+        if (constants.usePackedTable.isSet() && !displayed) {
+            table = buildPacked(buffer);
+        } else {
+            // Compute the distance-to-foreground transform image
+            table = new SeparableDistance().computeToFore(buffer);
+        }
 
         // "Erase" staff lines, ledgers, stems
         paintLines();
 
         // Display distances image in a template view?
-        if ((OMR.gui != null) && constants.displayTemplates.isSet()) {
+        if (displayed) {
             SelectionService templateService = new SelectionService(
                     "templateService",
                     new Class[]{AnchoredTemplateEvent.class});
@@ -122,6 +132,35 @@ public class DistancesBuilder
         return table;
     }
 
+    //-------------//
+    // buildPacked //
+    //-------------//
+    /**
+     * Build a packed table, with foreground pixels as targets.
+     *
+     * @param buffer the binary image
+     * @return the packed table
+     */
+    private DistanceTable buildPacked (ByteProcessor buffer)
+    {
+        final int width = buffer.getWidth();
+        final int height = buffer.getHeight();
+        final DistanceTable packed = new DistanceTable.Packed(
+                width,
+                height,
+                SeparableDistance.NORMALIZER);
+
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                if (buffer.get(x, y) == 0) {
+                    packed.setValue(x, y, ChamferDistance.VALUE_TARGET);
+                }
+            }
+        }
+
+        return packed;
+    }
+
     //------------//
     // paintGlyph //
     //------------//
@@ -195,5 +234,9 @@ public class DistancesBuilder
         private final Constant.Boolean displayTemplates = new Constant.Boolean(
                 false,
                 "Should we display the templates tab?");
+
+        private final Constant.Boolean usePackedTable = new Constant.Boolean(
+                true,
+                "Should we use a packed table (rather than a full distance table) for matching?");
     }
 }
@@ -81,9 +81,11 @@ import java.awt.geom.Rectangle2D;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.EnumMap;
 import java.util.EnumSet;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import org.audiveris.omr.sig.inter.AbstractNoteInter;
 
@@ -1058,32 +1060,12 @@ public class NoteHeadsBuilder
                                     int y,
                                     Anchor anchor)
         {
-            final ShapeDescriptor desc = catalog.getDescriptor(shape);
-            final Rectangle symBox = desc.getSymbolBoundsAt(x, y, anchor);
-
-            // Skip if frozen barline/connector is too close
-            if (barInvolved(symBox)) {
-                if (useSeeds) {
-                    seedsPerf.bars++;
-                } else {
-                    rangePerf.bars++;
-                }
-
-                return null;
-            }
-
-            // Skip if location already used by really good object (beam, etc)
-            if (overlap(symBox, competitors)) {
-                if (useSeeds) {
-                    seedsPerf.overlaps++;
-                } else {
-                    rangePerf.overlaps++;
-                }
-
+            if (!isFree(shape, x, y, anchor)) {
                 return null;
             }
 
             // Then try (all variants for) the shape and keep the best dist
+            final ShapeDescriptor desc = catalog.getDescriptor(shape);
             double dist = desc.evaluate(x, y, anchor, distances);
 
             if (useSeeds) {
@@ -1121,6 +1103,51 @@ public class NoteHeadsBuilder
             }
         }
 
+        //--------//
+        // isFree //
+        //--------//
+        /**
+         * Check whether the symbol location is free of barlines and good competitors.
+         *
+         * @param shape  the symbol shape
+         * @param x      pivot abscissa
+         * @param y      pivot ordinate
+         * @param anchor precise anchor
+         * @return true if location can be evaluated
+         */
+        private boolean isFree (Shape shape,
+                                int x,
+                                int y,
+                                Anchor anchor)
+        {
+            final ShapeDescriptor desc = catalog.getDescriptor(shape);
+            final Rectangle symBox = desc.getSymbolBoundsAt(x, y, anchor);
+
+            // Skip if frozen barline/connector is too close
+            if (barInvolved(symBox)) {
+                if (useSeeds) {
+                    seedsPerf.bars++;
+                } else {
+                    rangePerf.bars++;
+                }
+
+                return false;
+            }
+
+            // Skip if location already used by really good object (beam, etc)
+            if (overlap(symBox, competitors)) {
+                if (useSeeds) {
+                    seedsPerf.overlaps++;
+                } else {
+                    rangePerf.overlaps++;
+                }
+
+                return false;
+            }
+
+            return true;
+        }
+
         //-------------//
         // getBarAreas //
         //-------------//
@@ -1254,28 +1281,52 @@ public class NoteHeadsBuilder
                 // Shapes to try depend on whether location belongs to a black spot
                 EnumSet<Shape> shapeSet = blackRelevants[x0 - scanLeft] ? sheetTemplateNotes
                         : sheetVoidTemplateNotes;
-                ShapeLoop:
-                for (Shape shape : shapeSet) {
-                    PixelDistance bestLoc = null;
 
-                    for (int yOffset : yOffsets) {
-                        final int y = y0 + yOffset;
-                        PixelDistance loc = eval(shape, x0, y, MIDDLE_LEFT);
+                // All shapes are evaluated together at each location, in a single table pass
+                final EnumSet<Shape> actives = EnumSet.copyOf(shapeSet);
+                final Map<Shape, PixelDistance> bestLocs = new EnumMap<>(Shape.class);
+
+                for (int yOffset : yOffsets) {
+                    final int y = y0 + yOffset;
+                    final EnumSet<Shape> frees = EnumSet.noneOf(Shape.class);
+
+                    for (Shape shape : actives) {
+                        if (isFree(shape, x0, y, MIDDLE_LEFT)) {
+                            frees.add(shape);
+                        }
+                    }
+
+                    final double[] dists = frees.isEmpty() ? null
+                            : catalog.evaluate(frees, x0, y, MIDDLE_LEFT, distances);
+                    rangePerf.evals += frees.size();
+
+                    int index = 0;
+
+                    for (Iterator<Shape> it = actives.iterator(); it.hasNext();) {
+                        final Shape shape = it.next();
+                        final PixelDistance loc = frees.contains(shape)
+                                ? new PixelDistance(x0, y, dists[index++]) : null;
 
                         if ((loc != null) && (loc.d <= params.maxDistanceLow)) {
+                            final PixelDistance bestLoc = bestLocs.get(shape);
+
                             if ((bestLoc == null) || (bestLoc.d > loc.d)) {
-                                bestLoc = loc;
+                                bestLocs.put(shape, loc);
                             }
                         } else if (y == y0) {
                             // This is the very first (best guess) location tried.
                             // If eval is really bad, stop immediately
                             if ((loc == null) || (loc.d >= params.reallyBadDistance)) {
                                 rangePerf.abandons++;
-
-                                continue ShapeLoop;
+                                it.remove();
+                                bestLocs.remove(shape);
                             }
                         }
                     }
+                }
+
+                for (Shape shape : actives) {
+                    final PixelDistance bestLoc = bestLocs.get(shape);
 
                     if (bestLoc != null) {
                         // Special case: NOTEHEAD_VOID mistaken for NOTEHEAD_BLACK
@@ -0,0 +1,333 @@
+//------------------------------------------------------------------------------------------------//
+//                                                                                                //
+//                                  C h o r d R e l a t i o n s                                   //
+//                                                                                                //
+//------------------------------------------------------------------------------------------------//
+// <editor-fold defaultstate="collapsed" desc="hdr">
+//
+//  Copyright © Audiveris 2018. All rights reserved.
+//
+//  This program is free software: you can redistribute it and/or modify it under the terms of the
+//  GNU Affero General Public License as published by the Free Software Foundation, either version
+//  3 of the License, or (at your option) any later version.
+//
+//  This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+//  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+//  See the GNU Affero General Public License for more details.
+//
+//  You should have received a copy of the GNU Affero General Public License along with this
+//  program.  If not, see <http://www.gnu.org/licenses/>.
+//------------------------------------------------------------------------------------------------//
+// </editor-fold>
+package org.audiveris.omr.sheet.rhythm;
+
+import org.audiveris.omr.sheet.beam.BeamGroup;
+import org.audiveris.omr.sheet.rhythm.SlotsBuilder.Edge;
+import org.audiveris.omr.sheet.rhythm.SlotsBuilder.Rel;
+import org.audiveris.omr.sig.SIGraph;
+import org.audiveris.omr.sig.inter.AbstractBeamInter;
+import org.audiveris.omr.sig.inter.AbstractChordInter;
+import org.audiveris.omr.sig.inter.AbstractPitchedInter;
+import org.audiveris.omr.sig.inter.Inter;
+import org.audiveris.omr.sig.inter.RestChordInter;
+import org.audiveris.omr.sig.inter.StemInter;
+import org.audiveris.omr.sig.relation.Relation;
+import org.audiveris.omr.sig.relation.StemAlignmentRelation;
+
+import org.jgrapht.graph.SimpleDirectedGraph;
+
+import java.awt.Point;
+import java.awt.Rectangle;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Class {@code ChordRelations} memorizes the inter-chord relationships computed by
+ * {@link SlotsBuilder} for a measure stack, so that the following trials on the same stack
+ * can reuse them.
+ * <p>
+ * A snapshot of the chord features that relationships depend upon is kept with the graph:
+ * <ul>
+ * <li>If no chord has changed since, the whole graph is reused as is, together with the
+ * relation-based order of chords to be assigned a time slot.</li>
+ * <li>Otherwise, a new graph is built but the location-based relation of any pair of unchanged
+ * chords is retrieved rather than recomputed.</li>
+ * </ul>
+ *
+ * @author Hervé Bitteur
+ */
+class ChordRelations
+{
+
+    /** Inter-chord relationships. */
+    final SimpleDirectedGraph<AbstractChordInter, Edge> graph = new SimpleDirectedGraph<>(
+            Edge.class);
+
+    /** Standard chords, then head chords, in stack order. */
+    private final List<AbstractChordInter> chords;
+
+    /** Snapshot of each chord. */
+    private final Map<AbstractChordInter, ChordState> states;
+
+    /** Location-based relation, per ordered pair of chords. */
+    private final Map<AbstractChordInter, Map<AbstractChordInter, Rel>> locations
+            = new HashMap<>();
+
+    /** Chords to be assigned a time slot, sorted by relationship. */
+    private List<AbstractChordInter> pendings;
+
+    /**
+     * Creates a new {@code ChordRelations} object, with an empty graph.
+     *
+     * @param chords the standard chords, then the head chords of stack
+     * @param states the current snapshot of these chords
+     * @param prev   the relations previously computed on the stack, or null
+     */
+    ChordRelations (List<AbstractChordInter> chords,
+                    Map<AbstractChordInter, ChordState> states,
+                    ChordRelations prev)
+    {
+        this.chords = chords;
+        this.states = states;
+
+        if (prev != null) {
+            // Keep the location relations of unchanged chords
+            for (Entry<AbstractChordInter, Map<AbstractChordInter, Rel>> entry
+                    : prev.locations.entrySet()) {
+                if (prev.isUnchanged(entry.getKey(), states)) {
+                    Map<AbstractChordInter, Rel> map = new HashMap<>();
+
+                    for (Entry<AbstractChordInter, Rel> e : entry.getValue().entrySet()) {
+                        if (prev.isUnchanged(e.getKey(), states)) {
+                            map.put(e.getKey(), e.getValue());
+                        }
+                    }
+
+                    locations.put(entry.getKey(), map);
+                }
+            }
+        }
+    }
+
+    //-------------//
+    // getLocation //
+    //-------------//
+    /**
+     * Report the memorized location-based relation from one chord to another.
+     *
+     * @param from source chord
+     * @param to   target chord
+     * @return the relation, or null if not known
+     */
+    Rel getLocation (AbstractChordInter from,
+                     AbstractChordInter to)
+    {
+        final Map<AbstractChordInter, Rel> map = locations.get(from);
+
+        return (map != null) ? map.get(to) : null;
+    }
+
+    //-------------//
+    // getPendings //
+    //-------------//
+    /**
+     * Report a copy of the relation-sorted chords to be assigned a time slot.
+     *
+     * @return the sorted chords, or null if not yet known
+     */
+    List<AbstractChordInter> getPendings ()
+    {
+        return (pendings != null) ? new ArrayList<>(pendings) : null;
+    }
+
+    //-----------//
+    // getStates //
+    //-----------//
+    /**
+     * Take a snapshot of the provided chords.
+     *
+     * @param chords the chords to snap
+     * @param sig    the containing sig
+     * @return the state of each chord
+     */
+    static Map<AbstractChordInter, ChordState> getStates (List<AbstractChordInter> chords,
+                                                          SIGraph sig)
+    {
+        final Map<AbstractChordInter, ChordState> map = new HashMap<>();
+
+        for (AbstractChordInter chord : chords) {
+            if (!map.containsKey(chord)) {
+                map.put(chord, new ChordState(chord, sig));
+            }
+        }
+
+        return map;
+    }
+
+    //---------//
+    // matches //
+    //---------//
+    /**
+     * Check whether these relations still apply to the provided chords.
+     *
+     * @param chords the current chords
+     * @param states the current chord states
+     * @return true if no chord has been added, removed or modified
+     */
+    boolean matches (List<AbstractChordInter> chords,
+                     Map<AbstractChordInter, ChordState> states)
+    {
+        if (!this.chords.equals(chords)) {
+            return false;
+        }
+
+        for (AbstractChordInter chord : chords) {
+            if (!isUnchanged(chord, states)) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    //-------------//
+    // setLocation //
+    //-------------//
+    /**
+     * Memorize the location-based relation from one chord to another.
+     *
+     * @param from source chord
+     * @param to   target chord
+     * @param rel  the relation
+     */
+    void setLocation (AbstractChordInter from,
+                      AbstractChordInter to,
+                      Rel rel)
+    {
+        Map<AbstractChordInter, Rel> map = locations.get(from);
+
+        if (map == null) {
+            map = new HashMap<>();
+            locations.put(from, map);
+        }
+
+        map.put(to, rel);
+    }
+
+    //-------------//
+    // setPendings //
+    //-------------//
+    /**
+     * Memorize the relation-sorted chords to be assigned a time slot.
+     *
+     * @param pendings the sorted chords
+     */
+    void setPendings (List<AbstractChordInter> pendings)
+    {
+        this.pendings = new ArrayList<>(pendings);
+    }
+
+    //-------------//
+    // isUnchanged //
+    //-------------//
+    private boolean isUnchanged (AbstractChordInter chord,
+                                 Map<AbstractChordInter, ChordState> states)
+    {
+        final ChordState oldState = this.states.get(chord);
+        final ChordState newState = states.get(chord);
+
+        return (oldState != null) && (newState != null) && oldState.sameAs(newState);
+    }
+
+    //------------//
+    // ChordState //
+    //------------//
+    /**
+     * Snapshot of the chord features used by inter-chord relationships.
+     */
+    static class ChordState
+    {
+
+        private final Rectangle bounds;
+
+        private final Rectangle boundsWithDots;
+
+        private final Point headLocation;
+
+        private final List<Inter> members;
+
+        private final int[] pitches;
+
+        private final List<Inter> mirrors = new ArrayList<>();
+
+        private final StemInter stem;
+
+        private final int stemDir;
+
+        private final Set<Inter> alignedStems = new LinkedHashSet<>();
+
+        private final List<AbstractBeamInter> beams;
+
+        private final List<BeamGroup> groups = new ArrayList<>();
+
+        ChordState (AbstractChordInter chord,
+                    SIGraph sig)
+        {
+            bounds = chord.getBounds();
+            boundsWithDots = chord.getBoundsWithDots();
+            headLocation = (chord instanceof RestChordInter) ? null : chord.getHeadLocation();
+            members = chord.getMembers();
+            pitches = new int[members.size()];
+
+            for (int i = 0; i < pitches.length; i++) {
+                final Inter member = members.get(i);
+
+                if (member instanceof AbstractPitchedInter) {
+                    pitches[i] = ((AbstractPitchedInter) member).getIntegerPitch();
+                }
+
+                mirrors.add(member.getMirror());
+            }
+
+            mirrors.add(chord.getMirror());
+            stem = chord.getStem();
+            stemDir = chord.getStemDir();
+
+            if (stem != null) {
+                for (Relation rel : sig.getRelations(stem, StemAlignmentRelation.class)) {
+                    alignedStems.add(sig.getOppositeInter(stem, rel));
+                }
+            }
+
+            beams = new ArrayList<>(chord.getBeams());
+
+            for (AbstractBeamInter beam : beams) {
+                groups.add(beam.getGroup());
+            }
+        }
+
+        /**
+         * Check whether this state is identical to the provided one.
+         *
+         * @param that the other state
+         * @return true if identical
+         */
+        boolean sameAs (ChordState that)
+        {
+            return Objects.equals(bounds, that.bounds)
+                   && Objects.equals(boundsWithDots, that.boundsWithDots)
+                   && Objects.equals(headLocation, that.headLocation)
+                   && members.equals(that.members) && Arrays.equals(pitches, that.pitches)
+                   && mirrors.equals(that.mirrors) && (stem == that.stem)
+                   && (stemDir == that.stemDir) && alignedStems.equals(that.alignedStems)
+                   && beams.equals(that.beams) && groups.equals(that.groups);
+        }
+    }
+}
@@ -177,6 +177,9 @@ public class MeasureStack
     /** Unassigned tuplets within stack. */
     private final Set<TupletInter> stackTuplets = new LinkedHashSet<>();
 
+    /** Inter-chord relationships, kept from one rhythm trial to the next. */
+    private ChordRelations chordRelations;
+
     /**
      * Creates a new {@code MeasureStack} object.
      *
@@ -1796,6 +1799,32 @@ public class MeasureStack
         return sb.toString();
     }
 
+    //-------------------//
+    // getChordRelations //
+    //-------------------//
+    /**
+     * Report the inter-chord relationships computed by the latest rhythm trial.
+     *
+     * @return the relationships, or null
+     */
+    ChordRelations getChordRelations ()
+    {
+        return chordRelations;
+    }
+
+    //-------------------//
+    // setChordRelations //
+    //-------------------//
+    /**
+     * Remember the inter-chord relationships, for reuse by the next rhythm trial.
+     *
+     * @param chordRelations the relationships
+     */
+    void setChordRelations (ChordRelations chordRelations)
+    {
+        this.chordRelations = chordRelations;
+    }
+
     /**
      * All special kinds of measures.
      */
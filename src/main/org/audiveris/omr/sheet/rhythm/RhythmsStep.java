@@ -84,6 +84,9 @@ public class RhythmsStep
     /** Classes that impact just a measure stack. */
     private static final Set<Class> forStack;
 
+    /** Classes that impact just the voices links within a system. */
+    private static final Set<Class> forSystem;
+
     /** Classes that impact a whole page. */
     private static final Set<Class> forPage;
 
@@ -115,9 +118,13 @@ public class RhythmsStep
         forStack.add(HeadStemRelation.class);
     }
 
+    static {
+        forSystem = new HashSet<>();
+        forSystem.add(SlurInter.class); // Because of possibility of ties
+    }
+
     static {
         forPage = new HashSet<>();
-        forPage.add(SlurInter.class); // Because of possibility of ties
         forPage.add(TimeNumberInter.class);
         forPage.add(TimePairInter.class);
         forPage.add(TimeWholeInter.class);
@@ -126,6 +133,7 @@ public class RhythmsStep
     static {
         impactingClasses = new HashSet<>();
         impactingClasses.addAll(forStack);
+        impactingClasses.addAll(forSystem);
         impactingClasses.addAll(forPage);
     }
 
@@ -174,6 +182,9 @@ public class RhythmsStep
                 if (isImpactedBy(classe, forPage)) {
                     // Reprocess the whole page
                     impact.onPage = true;
+                } else if (isImpactedBy(classe, forSystem)) {
+                    // Just re-number and re-link voices within the system
+                    impact.onSystems.add(interTask.getSig().getSystem());
                 } else if (isImpactedBy(classe, forStack)) {
                     // Reprocess just the stack
                     Point center = inter.getCenter();
@@ -217,7 +228,19 @@ public class RhythmsStep
             new PageRhythm(page).process();
         } else {
             for (MeasureStack stack : impact.onStacks) {
-                new PageRhythm(page).reprocessStack(stack);
+                if (stack != null) {
+                    new PageRhythm(page).reprocessStack(stack);
+                    impact.onSystems.add(stack.getSystem());
+                }
+            }
+
+            for (SystemInfo impacted : impact.onSystems) {
+                // Rebuild vertical voice numbering, since a tie may have appeared or disappeared
+                for (MeasureStack stack : impacted.getStacks()) {
+                    Voices.refineStack(stack);
+                }
+
+                Voices.refineSystem(impacted);
             }
         }
     }
@@ -241,12 +264,15 @@ public class RhythmsStep
 
         Set<MeasureStack> onStacks = new LinkedHashSet<>();
 
+        Set<SystemInfo> onSystems = new LinkedHashSet<>();
+
         @Override
         public String toString ()
         {
             StringBuilder sb = new StringBuilder("RhythmsImpact{");
             sb.append("page:").append(onPage);
             sb.append(" stacks:").append(onStacks);
+            sb.append(" systems:").append(onSystems);
             sb.append("}");
 
             return sb.toString();
@@ -29,6 +29,7 @@ import org.audiveris.omr.math.Rational;
 import org.audiveris.omr.sheet.Scale;
 import org.audiveris.omr.sheet.Staff;
 import org.audiveris.omr.sheet.beam.BeamGroup;
+import org.audiveris.omr.sheet.rhythm.ChordRelations.ChordState;
 import static org.audiveris.omr.sheet.rhythm.SlotsBuilder.Rel.*;
 import org.audiveris.omr.sig.SIGraph;
 import org.audiveris.omr.sig.inter.AbstractBeamInter;
@@ -103,9 +104,11 @@ public class SlotsBuilder
     /** Scale-dependent parameters. */
     private final Parameters params;
 
-    /** Inter-chord relationships for the current measure stack. */
-    private SimpleDirectedGraph<AbstractChordInter, Edge> graph = new SimpleDirectedGraph<>(
-            Edge.class);
+    /** Inter-chord relationships for the current measure stack, with their memory. */
+    private ChordRelations relations;
+
+    /** Inter-chord relationships graph. */
+    private SimpleDirectedGraph<AbstractChordInter, Edge> graph;
 
     /** Current earliest term for each staff in stack. */
     private final Map<Staff, Rational> stackTerms = new LinkedHashMap<>();
@@ -272,9 +275,32 @@ public class SlotsBuilder
     //--------------------//
     /**
      * Compute the matrix of inter-chords relationships.
+     * <p>
+     * The relationships computed by a previous trial on the same stack are reused as a whole if no
+     * chord has changed since, otherwise the location-based relations between unchanged chords
+     * are reused.
      */
     private void buildRelationships ()
     {
+        final List<AbstractChordInter> chords = new ArrayList<>(stack.getStandardChords());
+        chords.addAll(stack.getHeadChords());
+
+        final Map<AbstractChordInter, ChordState> states = ChordRelations.getStates(
+                chords,
+                stack.getSystem().getSig());
+        final ChordRelations prev = stack.getChordRelations();
+
+        if ((prev != null) && prev.matches(chords, states)) {
+            logger.debug("Reusing chord relationships for {}", stack);
+            relations = prev;
+            graph = prev.graph;
+
+            return;
+        }
+
+        relations = new ChordRelations(chords, states, prev);
+        graph = relations.graph;
+
         // Sort measure standard chords by abscissa
         List<AbstractChordInter> stdChords = new ArrayList<>(stack.getStandardChords());
         Collections.sort(stdChords, Inters.byAbscissa);
@@ -297,6 +323,8 @@ public class SlotsBuilder
         if (logger.isDebugEnabled()) {
             dumpRelationships(stdChords);
         }
+
+        stack.setChordRelations(relations);
     }
 
     //------------//
@@ -683,6 +711,47 @@ public class SlotsBuilder
         return closes;
     }
 
+    //----------------//
+    // getLocationRel //
+    //----------------//
+    /**
+     * Derive the relationship from one chord to another, based on their relative locations.
+     *
+     * @param ch1 source chord
+     * @param ch2 target chord
+     * @return the location-based relationship from ch1 to ch2
+     */
+    private Rel getLocationRel (AbstractChordInter ch1,
+                                AbstractChordInter ch2)
+    {
+        // Check y overlap
+        Rectangle box1 = ch1.getBounds();
+        Rectangle box2 = ch2.getBounds();
+        int yOverlap = GeoUtil.yOverlap(box1, box2);
+
+        if (yOverlap > params.maxVerticalOverlap) {
+            // Boxes overlap vertically
+            if (areAdjacent(ch1, ch2)) {
+                return EQUAL;
+            } else if (ch1.getCenter().x <= ch2.getCenter().x) {
+                return BEFORE;
+            } else {
+                return AFTER;
+            }
+        } else {
+            // Boxes do not overlap vertically
+            int dx = Math.abs(ch1.getCenter().x - ch2.getCenter().x);
+
+            if (dx <= params.maxSlotDx) {
+                return CLOSE;
+            } else if (ch1.getCenter().x <= ch2.getCenter().x) {
+                return BEFORE;
+            } else {
+                return AFTER;
+            }
+        }
+    }
+
     //------------------//
     // getPendingChords //
     //------------------//
@@ -693,7 +762,13 @@ public class SlotsBuilder
      */
     private List<AbstractChordInter> getPendingChords ()
     {
-        List<AbstractChordInter> pendings = new ArrayList<>();
+        List<AbstractChordInter> pendings = relations.getPendings();
+
+        if (pendings != null) {
+            return pendings; // Order memorized by a previous trial
+        }
+
+        pendings = new ArrayList<>();
 
         for (AbstractChordInter chord : stack.getStandardChords()) {
             if (!chord.isWholeRest()) {
@@ -702,6 +777,7 @@ public class SlotsBuilder
         }
 
         Collections.sort(pendings, byRel);
+        relations.setPendings(pendings);
 
         return pendings;
     }
@@ -836,8 +912,6 @@ public class SlotsBuilder
                 continue;
             }
 
-            Rectangle box1 = ch1.getBounds();
-
             for (AbstractChordInter ch2 : stdChords.subList(i + 1, stdChords.size())) {
                 if (ch1.isVip() && ch2.isVip()) {
                     logger.info("VIP inspectLocations {} vs {}", ch1, ch2);
@@ -847,37 +921,18 @@ public class SlotsBuilder
                     continue;
                 }
 
-                // Check y overlap
-                Rectangle box2 = ch2.getBounds();
-                int yOverlap = GeoUtil.yOverlap(box1, box2);
-
-                if (yOverlap > params.maxVerticalOverlap) {
-                    // Boxes overlap vertically
-                    if (areAdjacent(ch1, ch2)) {
-                        setRel(ch1, ch2, EQUAL);
-                        setRel(ch2, ch1, EQUAL);
-                        adjacencies.add(new ChordPair(ch1, ch2));
-                    } else if (ch1.getCenter().x <= ch2.getCenter().x) {
-                        setRel(ch1, ch2, BEFORE);
-                        setRel(ch2, ch1, AFTER);
-                    } else {
-                        setRel(ch2, ch1, BEFORE);
-                        setRel(ch1, ch2, AFTER);
-                    }
-                } else {
-                    // Boxes do not overlap vertically
-                    int dx = Math.abs(ch1.getCenter().x - ch2.getCenter().x);
+                Rel rel = relations.getLocation(ch1, ch2);
 
-                    if (dx <= params.maxSlotDx) {
-                        setRel(ch1, ch2, CLOSE);
-                        setRel(ch2, ch1, CLOSE);
-                    } else if (ch1.getCenter().x <= ch2.getCenter().x) {
-                        setRel(ch1, ch2, BEFORE);
-                        setRel(ch2, ch1, AFTER);
-                    } else {
-                        setRel(ch2, ch1, BEFORE);
-                        setRel(ch1, ch2, AFTER);
-                    }
+                if (rel == null) {
+                    rel = getLocationRel(ch1, ch2);
+                    relations.setLocation(ch1, ch2, rel);
+                }
+
+                setRel(ch1, ch2, rel);
+                setRel(ch2, ch1, rel.reverse());
+
+                if (rel == EQUAL) {
+                    adjacencies.add(new ChordPair(ch1, ch2));
                 }
             }
         }
@@ -1151,6 +1206,25 @@ public class SlotsBuilder
             this.mnemo = mnemo;
         }
 
+        /**
+         * Report the relationship seen from the other chord.
+         *
+         * @return the reverse relationship
+         */
+        public Rel reverse ()
+        {
+            switch (this) {
+            case BEFORE:
+                return AFTER;
+
+            case AFTER:
+                return BEFORE;
+
+            default:
+                return this;
+            }
+        }
+
         @Override
         public String toString ()
         {
@@ -48,6 +48,7 @@ import org.audiveris.omr.sig.inter.FermataDotInter;
 import org.audiveris.omr.sig.inter.HeadInter;
 import org.audiveris.omr.sig.inter.Inter;
 import org.audiveris.omr.sig.inter.Inters;
+import org.audiveris.omr.sig.inter.Inters.ClassPredicate;
 import org.audiveris.omr.sig.inter.RepeatDotInter;
 import org.audiveris.omr.sig.inter.StaffBarlineInter;
 import org.audiveris.omr.sig.relation.AugmentationRelation;
@@ -636,10 +637,10 @@ public class DotFactory
      */
     private void lateFermataChecks ()
     {
-        // Collection of fermata arc candidates in the system
-        List<Inter> arcs = sig.inters(FermataArcInter.class);
+        // Presence of fermata arc candidates in the system
+        final ClassPredicate arcPredicate = new ClassPredicate(FermataArcInter.class);
 
-        if (arcs.isEmpty()) {
+        if (sig.inters(arcPredicate).isEmpty()) {
             return;
         }
 
@@ -653,6 +654,9 @@ public class DotFactory
             Rectangle dotBox = dot.getBounds();
             FermataDotInter dotInter = null;
 
+            // A dot can lie within one arc above it and one arc below it, not more
+            List<Inter> arcs = sig.nearestInters(GeoUtil.centerOf(dotBox), 2, arcPredicate);
+
             for (Inter arc : arcs) {
                 // Box: use lower half for FERMATA_ARC and upper half for FERMATA_ARC_BELOW
                 Rectangle halfBox = arc.getBounds();
@@ -79,7 +79,6 @@ import org.audiveris.omr.sig.inter.WedgeInter;
 import org.audiveris.omr.sig.inter.WordInter;
 import org.audiveris.omr.step.Step;
 import org.audiveris.omr.util.Navigable;
-import org.audiveris.omr.util.Predicate;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -611,15 +610,13 @@ public class InterFactory
             if (res != -1) {
                 final Collection<AbstractTimeInter> times = column.getTimeInters().values();
                 final Rectangle columnBox = Inters.getBounds(times);
-                List<Inter> neighbors = sig.inters(new Predicate<Inter>()
-                {
-                    @Override
-                    public boolean check (Inter inter)
-                    {
-                        return inter.getBounds().intersects(columnBox)
-                                       && !(inter instanceof InterEnsemble);
+                List<Inter> neighbors = sig.intersectedInters(columnBox);
+
+                for (Iterator<Inter> it = neighbors.iterator(); it.hasNext();) {
+                    if (it.next() instanceof InterEnsemble) {
+                        it.remove();
                     }
-                });
+                }
 
                 neighbors.removeAll(times);
 
@@ -23,6 +23,8 @@ package org.audiveris.omr.sheet.symbol;
 
 import org.audiveris.omr.classifier.Classifier;
 import org.audiveris.omr.classifier.Evaluation;
+import org.audiveris.omr.classifier.EvaluationCollector;
+import org.audiveris.omr.classifier.GlyphDescriptor;
 import org.audiveris.omr.classifier.ShapeClassifier;
 import org.audiveris.omr.constant.Constant;
 import org.audiveris.omr.constant.ConstantSet;
@@ -89,6 +91,9 @@ public class SymbolsBuilder
     /** Companion factory for symbols inters. */
     private final InterFactory factory;
 
+    /** Collector of glyphs to be evaluated as one batch. */
+    private final EvaluationCollector collector;
+
     /** Aras where fine glyphs may be needed. */
     private final List<Rectangle> fineBoxes = new ArrayList<>();
 
@@ -110,6 +115,14 @@ public class SymbolsBuilder
         sheet = system.getSheet();
 
         params = new Parameters(sheet.getScale());
+
+        collector = new EvaluationCollector(
+                classifier,
+                system,
+                sheet.getInterline(),
+                2,
+                Grades.symbolMinGrade,
+                EnumSet.of(Classifier.Condition.CHECKED));
     }
 
     //--------------//
@@ -129,9 +142,10 @@ public class SymbolsBuilder
      *       + cluster.decompose()                      // Decompose cluster into all subsets
      *       + FOREACH subset process(subset):
      *          - build compound glyph                  // Build one compound glyph per subset
-     *          - evaluateGlyph(compound)               // Run shape classifier on compound
-     *          - FOREACH acceptable evaluation
-     *             + symbolFactory.create(eval, glyph)  // Create inter(s) related to evaluation
+     *          - evaluateGlyph(compound)               // Enqueue compound for evaluation
+     *    + collector.flush()                           // Run shape classifier on all compounds
+     *       + FOREACH acceptable evaluation
+     *          - symbolFactory.create(eval, glyph)     // Create inter(s) related to evaluation
      * </pre>
      *
      * @param optionalsMap the optional (weak) glyphs per system
@@ -168,7 +182,8 @@ public class SymbolsBuilder
     // evaluateGlyph //
     //---------------//
     /**
-     * Evaluate a provided glyph and create all acceptable inter instances.
+     * Enqueue a provided glyph for evaluation, so that all acceptable inter instances
+     * get created when the evaluation collector is flushed.
      *
      * @param glyph the glyph to evaluate
      */
@@ -192,41 +207,35 @@ public class SymbolsBuilder
         }
 
         // TODO: checks should be run only AFTER both classifiers have been run
-        Evaluation[] evals = classifier.evaluate(
+        collector.add(
                 glyph,
-                system,
-                2,
-                Grades.symbolMinGrade,
-                EnumSet.of(Classifier.Condition.CHECKED));
-
-        //        Evaluation[] evals2 = classifier2.evaluate(
-        //                glyph,
-        //                system,
-        //                2,
-        //                Grades.symbolMinGrade, // Not OK for deep classifier!
-        //                EnumSet.of(Classifier.Condition.CHECKED));
-        //
-        if (evals.length > 0) {
-            //            // Create one interpretation for each acceptable evaluation
-            //            for (Evaluation eval : evals) {
-            //                try {
-            //                    factory.create(eval, glyph, closestStaff);
-            //                } catch (Exception ex) {
-            //                    logger.warn("Error in glyph evaluation " + ex, ex);
-            //                }
-            //            }
-            //
-            Evaluation eval = evals[0];
-
-            ///if (evals2.length > 0 && eval.shape == evals2[0].shape) {
-            try {
-                factory.create(eval, glyph, closestStaff);
-            } catch (Exception ex) {
-                logger.warn("Error in glyph evaluation " + ex, ex);
+                new EvaluationCollector.Callback()
+        {
+            @Override
+            public void process (Glyph glyph,
+                                 Evaluation[] evals)
+            {
+                //        Evaluation[] evals2 = classifier2.evaluate(
+                //                glyph,
+                //                system,
+                //                2,
+                //                Grades.symbolMinGrade, // Not OK for deep classifier!
+                //                EnumSet.of(Classifier.Condition.CHECKED));
+                //
+                if (evals.length > 0) {
+                    Evaluation eval = evals[0];
+
+                    ///if (evals2.length > 0 && eval.shape == evals2[0].shape) {
+                    try {
+                        factory.create(eval, glyph, closestStaff);
+                    } catch (Exception ex) {
+                        logger.warn("Error in glyph evaluation " + ex, ex);
+                    }
+
+                    ///}
+                }
             }
-
-            ///}
-        }
+        });
     }
 
     //------------------//
@@ -349,6 +358,9 @@ public class SymbolsBuilder
                 }
             }
         }
+
+        // Evaluate all enqueued glyphs at once
+        collector.flush();
     }
 
     //-------------------//
@@ -414,6 +426,38 @@ public class SymbolsBuilder
 
             return !classifier.isBigEnough(normed);
         }
+
+        /**
+         * {@inheritDoc}
+         * <p>
+         * The compound is worth building only if its natural evaluation, computed from the
+         * subset moments, provides at least one acceptable grade.
+         */
+        @Override
+        public boolean isWorthBuilding (GlyphCluster.Subset subset)
+        {
+            final int interline = scale.getInterline();
+            final GlyphDescriptor descriptor = classifier.getGlyphDescriptor();
+            final Rectangle box = subset.getBounds();
+            final double[] features = descriptor.getFeatures(
+                    subset.getARTMoments(),
+                    subset.getGeometricMoments(interline),
+                    scale.pixelsToAreaFrac(subset.getWeight()),
+                    box.width,
+                    box.height);
+
+            if (features == null) {
+                return true; // Descriptor needs the glyph itself
+            }
+
+            for (Evaluation eval : classifier.getNaturalEvaluations(features)) {
+                if (eval.grade >= Grades.symbolMinGrade) {
+                    return true;
+                }
+            }
+
+            return false;
+        }
     }
 
     //-----------//
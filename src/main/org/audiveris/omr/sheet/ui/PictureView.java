@@ -33,6 +33,7 @@ import org.audiveris.omr.ui.selection.MouseMovement;
 import org.audiveris.omr.ui.selection.SelectionService;
 import org.audiveris.omr.ui.view.RubberPanel;
 import org.audiveris.omr.ui.view.ScrollView;
+import org.audiveris.omr.ui.view.TileCache;
 import org.audiveris.omr.util.WeakPropertyChangeListener;
 
 import org.slf4j.Logger;
@@ -114,6 +115,23 @@ public class PictureView
             extends RubberPanel
     {
 
+        /** Source of input layer: either initial image or binary table. */
+        private Object inputSource;
+
+        /** Cached rendering of input layer. */
+        private final TileCache inputTiles = new TileCache(new TileCache.Painter()
+        {
+            @Override
+            public void paint (Graphics2D g)
+            {
+                if (inputSource instanceof BufferedImage) {
+                    g.drawRenderedImage((BufferedImage) inputSource, null);
+                } else if (inputSource instanceof RunTable) {
+                    ((RunTable) inputSource).render(g, new Point(0, 0));
+                }
+            }
+        });
+
         //-----------------//
         // contextSelected //
         //-----------------//
@@ -198,11 +216,11 @@ public class PictureView
             if (input) {
                 Picture picture = sheet.getPicture();
                 BufferedImage initial = picture.getInitialImage();
+                inputSource = (initial != null) ? initial : table;
 
-                if (initial != null) {
-                    g.drawRenderedImage(initial, null);
-                } else if (table != null) {
-                    table.render(g, new Point(0, 0));
+                if (inputSource != null) {
+                    inputTiles.validate(inputSource);
+                    inputTiles.render(g);
                 }
             }
 
@@ -23,6 +23,7 @@ package org.audiveris.omr.sig;
 
 import org.audiveris.omr.glyph.Grades;
 import org.audiveris.omr.glyph.Shape;
+import org.audiveris.omr.sheet.Scale;
 import org.audiveris.omr.sheet.Staff;
 import org.audiveris.omr.sheet.SystemInfo;
 import org.audiveris.omr.sig.inter.AbstractInter;
@@ -32,10 +33,13 @@ import org.audiveris.omr.sig.inter.Inters;
 import org.audiveris.omr.sig.inter.Inters.ClassPredicate;
 import org.audiveris.omr.sig.inter.Inters.ClassesPredicate;
 import org.audiveris.omr.sig.inter.StemInter;
+import org.audiveris.omr.sig.relation.ChordStemRelation;
+import org.audiveris.omr.sig.relation.Containment;
 import org.audiveris.omr.sig.relation.Exclusion;
 import org.audiveris.omr.sig.relation.Exclusion.Cause;
 import org.audiveris.omr.sig.relation.Relation;
 import org.audiveris.omr.sig.relation.Support;
+import org.audiveris.omr.util.EntityGrid;
 import org.audiveris.omr.util.Navigable;
 import org.audiveris.omr.util.Predicate;
 
@@ -79,6 +83,12 @@ public class SIGraph
 
     private static final Logger logger = LoggerFactory.getLogger(SIGraph.class);
 
+    /** Size of spatial index cells, specified in interlines. */
+    private static final int GRID_CELL_INTERLINES = 4;
+
+    /** Interline value to use when sheet scale is not yet known. */
+    private static final int DEFAULT_INTERLINE = 20;
+
     /** Dedicated system. */
     @Navigable(false)
     private SystemInfo system;
@@ -86,6 +96,9 @@ public class SIGraph
     /** Content for differed populating after unmarshalling. */
     private SigValue sigValue;
 
+    /** Spatial index on inters, built on first geometric lookup. */
+    private EntityGrid<Inter> grid;
+
     /**
      * Creates a new SIGraph object at system level.
      *
@@ -145,6 +158,10 @@ public class SIGraph
         if (added) {
             inter.setSig(this);
 
+            if (grid != null) {
+                grid.insert(inter);
+            }
+
             // Additional actions
             inter.added();
         }
@@ -177,6 +194,39 @@ public class SIGraph
         }
     }
 
+    //---------------//
+    // boundsChanged //
+    //---------------//
+    /**
+     * Notify that the bounds of the provided inter may have changed, so that the spatial
+     * indices (of this sig and of sheet inter index) can be kept up to date.
+     * <p>
+     * The bounds of an ensemble depend on its members (and on its stem for a head chord),
+     * so the notification is propagated to any ensemble the inter belongs to.
+     *
+     * @param inter the modified inter
+     */
+    public void boundsChanged (Inter inter)
+    {
+        final EntityGrid<Inter> g = grid;
+
+        if (g != null) {
+            g.update(inter);
+        }
+
+        if (system != null) {
+            system.getSheet().getInterIndex().boundsChanged(inter);
+        }
+
+        if (containsVertex(inter)) {
+            for (Relation rel : incomingEdgesOf(inter)) {
+                if ((rel instanceof Containment) || (rel instanceof ChordStemRelation)) {
+                    boundsChanged(getEdgeSource(rel));
+                }
+            }
+        }
+    }
+
     //------------------------//
     // computeContextualGrade //
     //------------------------//
@@ -210,7 +260,7 @@ public class SIGraph
     {
         List<Inter> found = new ArrayList<>();
 
-        for (Inter inter : vertexSet()) {
+        for (Inter inter : getGrid().getCandidates(rect)) {
             final Rectangle box = inter.getBounds();
 
             if (box == null) {
@@ -237,7 +287,7 @@ public class SIGraph
     {
         List<Inter> found = new ArrayList<>();
 
-        for (Inter inter : vertexSet()) {
+        for (Inter inter : getGrid().getCandidates(point)) {
             Rectangle bounds = inter.getBounds();
 
             if ((bounds != null) && bounds.contains(point)) {
@@ -689,6 +739,8 @@ public class SIGraph
         for (Inter inter : inters) {
             super.addVertex(inter);
         }
+
+        grid = null; // Index will be rebuilt on demand
     }
 
     @Override
@@ -968,7 +1020,7 @@ public class SIGraph
     {
         List<Inter> found = new ArrayList<>();
 
-        for (Inter inter : vertexSet()) {
+        for (Inter inter : getGrid().getCandidates(box)) {
             if (inter.isRemoved()) {
                 continue;
             }
@@ -981,6 +1033,34 @@ public class SIGraph
         return found;
     }
 
+    //---------------//
+    // nearestInters //
+    //---------------//
+    /**
+     * Lookup the SIG inters closest to the provided point, using the spatial grid.
+     *
+     * @param point     the point of interest
+     * @param count     the maximum number of inters to report
+     * @param predicate the predicate to apply on candidate inters, or null
+     * @return the nearest interpretations, perhaps empty but not null, by increasing distance
+     */
+    public List<Inter> nearestInters (Point point,
+                                      int count,
+                                      final Predicate<Inter> predicate)
+    {
+        return getGrid().getNearest(
+                point,
+                count,
+                new Predicate<Inter>()
+        {
+            @Override
+            public boolean check (Inter inter)
+            {
+                return !inter.isRemoved() && ((predicate == null) || predicate.check(inter));
+            }
+        });
+    }
+
     //-----------//
     // noSupport //
     //-----------//
@@ -1142,7 +1222,13 @@ public class SIGraph
             logger.info("VIP removeVertex {}", inter);
         }
 
-        return super.removeVertex(inter);
+        final boolean removed = super.removeVertex(inter);
+
+        if (removed && (grid != null)) {
+            grid.remove(inter);
+        }
+
+        return removed;
     }
 
     //--------------//
@@ -1186,6 +1272,32 @@ public class SIGraph
         return sb.toString();
     }
 
+    //---------//
+    // getGrid //
+    //---------//
+    /**
+     * Report the spatial index on sig inters, building it if needed.
+     *
+     * @return the inters grid
+     */
+    private synchronized EntityGrid<Inter> getGrid ()
+    {
+        if (grid == null) {
+            final Scale scale = (system != null) ? system.getSheet().getScale() : null;
+            final Integer interline = (scale != null) ? scale.getInterline() : null;
+            final EntityGrid<Inter> g = new EntityGrid<>(
+                    GRID_CELL_INTERLINES * ((interline != null) ? interline : DEFAULT_INTERLINE));
+
+            for (Inter inter : vertexSet()) {
+                g.insert(inter);
+            }
+
+            grid = g;
+        }
+
+        return grid;
+    }
+
     //---------------//
     // upgradeInters //
     //---------------//
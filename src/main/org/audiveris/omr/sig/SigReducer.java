@@ -21,16 +21,19 @@
 // </editor-fold>
 package org.audiveris.omr.sig;
 
+import org.audiveris.omr.constant.Constant;
 import org.audiveris.omr.constant.ConstantSet;
 import org.audiveris.omr.glyph.Shape;
 import org.audiveris.omr.glyph.ShapeSet;
 import static org.audiveris.omr.glyph.ShapeSet.Accidentals;
 import static org.audiveris.omr.glyph.ShapeSet.CoreBarlines;
 import static org.audiveris.omr.glyph.ShapeSet.Flags;
+import org.audiveris.omr.log.LogUtil;
 import org.audiveris.omr.math.GeoOrder;
 import org.audiveris.omr.math.GeoUtil;
 import org.audiveris.omr.sheet.Part;
 import org.audiveris.omr.sheet.Scale;
+import org.audiveris.omr.sheet.SheetStub;
 import org.audiveris.omr.sheet.Staff;
 import org.audiveris.omr.sheet.SystemInfo;
 import org.audiveris.omr.sheet.header.StaffHeader;
@@ -78,11 +81,14 @@ import org.audiveris.omr.sig.relation.Relation;
 import org.audiveris.omr.sig.relation.StemPortion;
 import static org.audiveris.omr.sig.relation.StemPortion.*;
 import org.audiveris.omr.sig.relation.TimeTopBottomRelation;
+import org.audiveris.omr.step.ProcessingCancellationException;
 import org.audiveris.omr.util.HorizontalSide;
 import static org.audiveris.omr.util.HorizontalSide.LEFT;
 import static org.audiveris.omr.util.HorizontalSide.RIGHT;
 import org.audiveris.omr.util.Navigable;
+import org.audiveris.omr.util.OmrExecutors;
 import org.audiveris.omr.util.Predicate;
+import org.audiveris.omr.util.StopWatch;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -101,6 +107,9 @@ import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
 import java.util.SortedMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 
 /**
  * Class {@code SigReducer} deals with SIG reduction.
@@ -1265,6 +1274,12 @@ public class SigReducer
      * relation between them, insert a mutual exclusion.
      * <p>
      * This method is key!
+     * <p>
+     * Candidate pairs are first looked up on geometry only, see {@link #lookupOverlaps}.
+     * Then, serially and in sweep order, each candidate pair is checked for actual overlap and
+     * the exclusion is inserted.
+     * This second phase must remain serial, since an overlap check may remove an inter from the
+     * SIG (see HeadInter duplicates).
      *
      * @param inters the collection of inters to process
      */
@@ -1274,94 +1289,43 @@ public class SigReducer
         logger.debug("S#{} detectOverlaps", system.getId());
         Collections.sort(inters, Inters.byAbscissa);
 
-        NextLeft:
-        for (int i = 0, iBreak = inters.size() - 1; i < iBreak; i++) {
-            Inter left = inters.get(i);
+        for (Inter[] pair : lookupOverlaps(inters)) {
+            final Inter left = pair[0];
+            final Inter right = pair[1];
 
-            if (left.isRemoved()) {
+            // A previous overlap check may have removed one of these inters
+            if (left.isRemoved() || right.isRemoved()) {
                 continue;
             }
 
-            final Rectangle leftBox = left.getBounds();
-            final Set<Inter> mirrors = new LinkedHashSet<>();
-
-            if (left instanceof HeadInter) {
-                HeadInter headMirror = (HeadInter) left.getMirror();
-
-                if (headMirror != null) {
-                    mirrors.add(headMirror);
-                    HeadChordInter chordMirror = headMirror.getChord();
-
-                    if (chordMirror != null) {
-                        mirrors.add(chordMirror);
-                        mirrors.addAll(chordMirror.getNotes());
-                    }
-                }
-            } else if (left instanceof AbstractChordInter) {
-                HeadChordInter chordMirror = (HeadChordInter) left.getMirror();
-
-                if (chordMirror != null) {
-                    mirrors.add(chordMirror);
-                    mirrors.addAll(chordMirror.getNotes());
-                }
+            // Have a more precise look
+            if (left.isVip() && right.isVip()) {
+                logger.info("VIP check overlap {} vs {}", left, right);
             }
 
-            final double xMax = leftBox.getMaxX();
-
-            for (Inter right : inters.subList(i + 1, inters.size())) {
-                if (right.isRemoved()) {
-                    continue;
-                }
-
-                // Mirror entities do not exclude one another
-                if (mirrors.contains(right)) {
+            try {
+                if (!left.overlaps(right) || !right.overlaps(left)) {
                     continue;
                 }
+            } catch (DeletedInterException diex) {
+                continue;
+            }
 
-                // Overlap is accepted in some cases
-                if (compatible(new Inter[]{left, right})) {
-                    continue;
+            // Specific case: Word vs "string" Symbol
+            if (left instanceof WordInter && right instanceof StringSymbolInter) {
+                if (wordMatchesSymbol((WordInter) left, (StringSymbolInter) right)) {
+                    left.decrease(0.5);
                 }
-
-                Rectangle rightBox = right.getBounds();
-
-                if (leftBox.intersects(rightBox)) {
-                    // Have a more precise look
-                    if (left.isVip() && right.isVip()) {
-                        logger.info("VIP check overlap {} vs {}", left, right);
-                    }
-
-                    try {
-                        if (left.overlaps(right) && right.overlaps(left)) {
-                            // Specific case: Word vs "string" Symbol
-                            if (left instanceof WordInter && right instanceof StringSymbolInter) {
-                                if (wordMatchesSymbol(
-                                        (WordInter) left,
-                                        (StringSymbolInter) right)) {
-                                    left.decrease(0.5);
-                                }
-                            } else if (left instanceof StringSymbolInter
-                                               && right instanceof WordInter) {
-                                if (wordMatchesSymbol(
-                                        (WordInter) right,
-                                        (StringSymbolInter) left)) {
-                                    right.decrease(0.5);
-                                }
-                            }
-
-                            exclude(left, right);
-                        }
-                    } catch (DeletedInterException diex) {
-                        if (diex.inter == left) {
-                            continue NextLeft;
-                        }
-                    }
-                } else if (rightBox.x > xMax) {
-                    break; // Since inters list is sorted by abscissa
+            } else if (left instanceof StringSymbolInter && right instanceof WordInter) {
+                if (wordMatchesSymbol((WordInter) right, (StringSymbolInter) left)) {
+                    right.decrease(0.5);
                 }
             }
+
+            exclude(left, right);
         }
     }
+
     //---------//
     // exclude //
     //---------//
@@ -1403,6 +1367,43 @@ public class SigReducer
         }
     }
 
+    //------------//
+    // getMirrors //
+    //------------//
+    /**
+     * Collect the mirror entities of provided inter, if any.
+     *
+     * @param inter the provided inter
+     * @return the mirror entities, perhaps empty
+     */
+    private Set<Inter> getMirrors (Inter inter)
+    {
+        final Set<Inter> mirrors = new LinkedHashSet<>();
+
+        if (inter instanceof HeadInter) {
+            HeadInter headMirror = (HeadInter) inter.getMirror();
+
+            if (headMirror != null) {
+                mirrors.add(headMirror);
+                HeadChordInter chordMirror = headMirror.getChord();
+
+                if (chordMirror != null) {
+                    mirrors.add(chordMirror);
+                    mirrors.addAll(chordMirror.getNotes());
+                }
+            }
+        } else if (inter instanceof AbstractChordInter) {
+            HeadChordInter chordMirror = (HeadChordInter) inter.getMirror();
+
+            if (chordMirror != null) {
+                mirrors.add(chordMirror);
+                mirrors.addAll(chordMirror.getNotes());
+            }
+        }
+
+        return mirrors;
+    }
+
     //------------------//
     // getHeadersInters //
     //------------------//
@@ -1524,6 +1525,150 @@ public class SigReducer
         return false;
     }
 
+    //----------------//
+    // lookupOverlaps //
+    //----------------//
+    /**
+     * Look up all candidate pairs of inters whose bounds intersect and which are neither
+     * mirrors nor compatible.
+     * <p>
+     * This is a sweep on inters sorted by abscissa: each left inter is checked only against the
+     * following inters whose left side does not go past its right side.
+     * For a large population, the sequence of left inters is split into vertical slabs, swept in
+     * parallel (each slab still reads the following inters of other slabs).
+     * This lookup only reads the SIG, it never modifies it.
+     *
+     * @param inters the inters, sorted by abscissa
+     * @return the candidate pairs, in sweep order
+     */
+    private List<Inter[]> lookupOverlaps (final List<Inter> inters)
+    {
+        final int count = inters.size();
+        final Rectangle[] boxes = new Rectangle[count];
+
+        for (int i = 0; i < count; i++) {
+            boxes[i] = inters.get(i).getBounds();
+        }
+
+        final int slabCount = OmrExecutors.defaultParallelism.getValue() ? Math.min(
+                OmrExecutors.getNumberOfCpus(),
+                count / constants.minSlabInters.getValue()) : 1;
+
+        if (slabCount <= 1) {
+            return lookupSlab(inters, boxes, 0, count);
+        }
+
+        logger.debug("S#{} overlaps on {} inters in {} slabs", system.getId(), count, slabCount);
+
+        final SheetStub stub = system.getSheet().getStub();
+        final List<Callable<List<Inter[]>>> tasks = new ArrayList<>(slabCount);
+
+        for (int s = 0; s < slabCount; s++) {
+            final int from = (s * count) / slabCount;
+            final int to = ((s + 1) * count) / slabCount;
+            tasks.add(
+                    new Callable<List<Inter[]>>()
+            {
+                @Override
+                public List<Inter[]> call ()
+                        throws Exception
+                {
+                    LogUtil.start(stub);
+
+                    try {
+                        return lookupSlab(inters, boxes, from, to);
+                    } finally {
+                        LogUtil.stopStub();
+                    }
+                }
+            });
+        }
+
+        try {
+            final List<Inter[]> pairs = new ArrayList<>();
+
+            for (Future<List<Inter[]>> future : OmrExecutors.getHighExecutor().invokeAll(tasks)) {
+                pairs.addAll(future.get());
+            }
+
+            return pairs;
+        } catch (InterruptedException ex) {
+            logger.warn("lookupOverlaps got interrupted");
+            throw new ProcessingCancellationException(ex);
+        } catch (ExecutionException ex) {
+            logger.warn("Exception raised in lookupOverlaps", ex.getCause());
+            throw new RuntimeException(ex.getCause());
+        }
+    }
+
+    //------------//
+    // lookupSlab //
+    //------------//
+    /**
+     * Look up the candidate pairs for a slab of left inters.
+     *
+     * @param inters the whole sequence of inters, sorted by abscissa
+     * @param boxes  the inters bounds
+     * @param from   index of first left inter in slab
+     * @param to     index breaking the slab
+     * @return the candidate pairs found, in sweep order
+     */
+    private List<Inter[]> lookupSlab (List<Inter> inters,
+                                      Rectangle[] boxes,
+                                      int from,
+                                      int to)
+    {
+        final List<Inter[]> pairs = new ArrayList<>();
+
+        for (int i = from; i < to; i++) {
+            final Inter left = inters.get(i);
+
+            if (left.isRemoved()) {
+                continue;
+            }
+
+            final Rectangle leftBox = boxes[i];
+            final double xMax = leftBox.getMaxX();
+            Set<Inter> mirrors = null;
+
+            for (int j = i + 1, jBreak = inters.size(); j < jBreak; j++) {
+                final Rectangle rightBox = boxes[j];
+
+                if (rightBox.x > xMax) {
+                    break; // Since inters list is sorted by abscissa
+                }
+
+                if (!leftBox.intersects(rightBox)) {
+                    continue;
+                }
+
+                final Inter right = inters.get(j);
+
+                if (right.isRemoved()) {
+                    continue;
+                }
+
+                // Mirror entities do not exclude one another
+                if (mirrors == null) {
+                    mirrors = getMirrors(left);
+                }
+
+                if (mirrors.contains(right)) {
+                    continue;
+                }
+
+                // Overlap is accepted in some cases
+                if (compatible(new Inter[]{left, right})) {
+                    continue;
+                }
+
+                pairs.add(new Inter[]{left, right});
+            }
+        }
+
+        return pairs;
+    }
+
     //----------------//
     // pruneStemHeads //
     //----------------//
@@ -1595,20 +1740,27 @@ public class SigReducer
     private Set<Inter> reduce (Adapter adapter)
     {
         final Set<Inter> allRemoved = new LinkedHashSet<>();
+        final StopWatch watch = new StopWatch(
+                "SigReducer " + adapter.getClass().getSimpleName() + " S#" + system.getId());
 
         logger.debug("S#{} reducing sig ...", system.getId());
 
         // General exclusions based on overlap
+        watch.start("detectOverlaps");
+
         List<Inter> inters = sig.inters(overlapPredicate);
         inters.removeAll(getHeadersInters());
         detectOverlaps(inters, adapter);
 
         // Inters that conflict with frozen inters must be deleted
+        watch.start("checkFrozens");
         adapter.checkFrozens();
 
         // Make sure all inters have their contextual grade up-to-date
+        watch.start("contextualize");
         sig.contextualize();
 
+        watch.start("prolog");
         adapter.prolog();
 
         Set<Inter> reduced = new LinkedHashSet<>(); // Reduced inters
@@ -1617,35 +1769,65 @@ public class SigReducer
         int epoch = 0;
 
         do {
+            final long start = System.currentTimeMillis();
             logger.debug("S#{} epoch: {}", system.getId(), ++epoch);
 
             reduced.clear();
             deleted.clear();
 
             // First, remove all inters with too low contextual grade
+            watch.start("epoch " + epoch + " purge");
             deleted.addAll(contextualizeAndPurge());
             allRemoved.addAll(deleted);
 
+            watch.start("epoch " + epoch + " checkSlurs");
             deleted.addAll(adapter.checkSlurs());
             allRemoved.addAll(deleted);
 
             int modifs; // modifications done in current iteration
+            int allModifs = 0;
+            watch.start("epoch " + epoch + " checkConsistencies");
 
             while ((modifs = adapter.checkConsistencies()) > 0) {
                 logger.trace("S#{} modifs: {}", system.getId(), modifs);
+                allModifs += modifs;
             }
 
             // Remaining exclusions
+            watch.start("epoch " + epoch + " reduceExclusions");
             reduced.addAll(sig.reduceExclusions());
             allRemoved.addAll(reduced);
 
+            int allLateModifs = 0;
+            watch.start("epoch " + epoch + " checkLateConsistencies");
+
             while ((modifs = adapter.checkLateConsistencies()) > 0) {
                 logger.trace("S#{} late modifs: {}", system.getId(), modifs);
+                allLateModifs += modifs;
             }
 
+            watch.stop();
             logger.trace("S#{} reductions: {}", system.getId(), reduced);
+
+            if (constants.printEpochs.isSet()) {
+                logger.info(
+                        "S#{} epoch {} deleted:{} modifs:{} reduced:{} lateModifs:{} inters:{}"
+                        + " in {} ms",
+                        system.getId(),
+                        epoch,
+                        deleted.size(),
+                        allModifs,
+                        reduced.size(),
+                        allLateModifs,
+                        sig.vertexSet().size(),
+                        System.currentTimeMillis() - start);
+            }
         } while (!reduced.isEmpty() || !deleted.isEmpty());
 
+        if (constants.printWatch.isSet()) {
+            watch.print();
+        }
+
         return allRemoved;
     }
 
@@ -2103,6 +2285,19 @@ public class SigReducer
             extends ConstantSet
     {
 
+        private final Constant.Boolean printWatch = new Constant.Boolean(
+                false,
+                "Should we print out the stop watch?");
+
+        private final Constant.Boolean printEpochs = new Constant.Boolean(
+                false,
+                "Should we print out metrics of each reduction epoch?");
+
+        private final Constant.Integer minSlabInters = new Constant.Integer(
+                "inters",
+                200,
+                "Minimum number of inters per slab for parallel overlap detection");
+
         private final Scale.Fraction maxTupletSlurWidth = new Scale.Fraction(
                 3,
                 "Maximum width for slur around tuplet");
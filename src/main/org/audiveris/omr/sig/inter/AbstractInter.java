@@ -462,6 +462,10 @@ public abstract class AbstractInter
     public void setBounds (Rectangle bounds)
     {
         this.bounds = bounds;
+
+        if (sig != null) {
+            sig.boundsChanged(this);
+        }
     }
 
     //-----------//
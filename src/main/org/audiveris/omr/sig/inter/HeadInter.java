@@ -718,7 +718,7 @@ public class HeadInter
                 new Glyph(descBox.x + foreBox.x, descBox.y + foreBox.y, runTable));
 
         // Use glyph bounds as inter bounds
-        bounds = glyph.getBounds();
+        setBounds(glyph.getBounds());
 
         return glyph;
     }
@@ -49,6 +49,7 @@ public class ChordStemRelation
     {
         HeadChordInter headChord = (HeadChordInter) e.getEdgeSource();
         headChord.invalidateCache();
+        headChord.getSig().boundsChanged(headChord);
     }
 
     //----------------//
@@ -79,6 +80,7 @@ public class ChordStemRelation
 
         if (!headChord.isRemoved()) {
             headChord.invalidateCache();
+            headChord.getSig().boundsChanged(headChord);
         }
     }
 
@@ -49,6 +49,7 @@ public class Containment
     {
         InterEnsemble ensemble = (InterEnsemble) e.getEdgeSource();
         ensemble.invalidateCache();
+        ensemble.getSig().boundsChanged(ensemble);
     }
 
     //----------------//
@@ -79,6 +80,7 @@ public class Containment
 
         if (!ensemble.isRemoved()) {
             ensemble.invalidateCache();
+            ensemble.getSig().boundsChanged(ensemble);
         }
     }
 
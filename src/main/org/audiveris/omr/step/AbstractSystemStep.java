@@ -190,7 +190,16 @@ public abstract class AbstractSystemStep<C>
                                     AbstractSystemStep.this,
                                     system.getId());
 
-                            doSystem(system, context);
+                            final StepTelemetry.Record record = StepTelemetry.start(
+                                    sheet,
+                                    sheet.getStub().getCurrentStep(),
+                                    system);
+
+                            try {
+                                doSystem(system, context);
+                            } finally {
+                                StepTelemetry.stop(record);
+                            }
                         } catch (StepException ex) {
                             logger.warn(system.getLogPrefix() + ex, ex);
                         } finally {
@@ -207,7 +216,7 @@ public abstract class AbstractSystemStep<C>
             // Process all systems
             if (parallel) {
                 // In parallel
-                OmrExecutors.getLowExecutor().invokeAll(tasks);
+                OmrExecutors.invokeNested(tasks);
             } else {
                 // In sequence
                 for (Callable<Void> task : tasks) {
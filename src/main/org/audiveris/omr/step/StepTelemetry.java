@@ -0,0 +1,504 @@
+//------------------------------------------------------------------------------------------------//
+//                                                                                                //
+//                                   S t e p T e l e m e t r y                                    //
+//                                                                                                //
+//------------------------------------------------------------------------------------------------//
+// <editor-fold defaultstate="collapsed" desc="hdr">
+//
+//  Copyright © Audiveris 2018. All rights reserved.
+//
+//  This program is free software: you can redistribute it and/or modify it under the terms of the
+//  GNU Affero General Public License as published by the Free Software Foundation, either version
+//  3 of the License, or (at your option) any later version.
+//
+//  This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+//  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+//  See the GNU Affero General Public License for more details.
+//
+//  You should have received a copy of the GNU Affero General Public License along with this
+//  program.  If not, see <http://www.gnu.org/licenses/>.
+//------------------------------------------------------------------------------------------------//
+// </editor-fold>
+package org.audiveris.omr.step;
+
+import org.audiveris.omr.constant.Constant;
+import org.audiveris.omr.constant.ConstantSet;
+import org.audiveris.omr.sheet.Sheet;
+import org.audiveris.omr.sheet.SystemInfo;
+import org.audiveris.omr.sig.inter.Inter;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Class {@code StepTelemetry} records performance figures for each step performed on a
+ * sheet, and for each system when the step is a system step.
+ * <p>
+ * Each record gives wall time, CPU time and allocated bytes, as well as the counts of inters
+ * created and removed and, for a sheet record, the count of glyphs created.
+ * Inters are counted on the SIGs of the systems involved: an inter is "created" if it did not
+ * exist when the step began and still exists when it ends, an inter is "removed" if it existed
+ * when the step began and no longer exists when it ends.
+ * Glyphs are weakly indexed, so only their creations are counted, and only per sheet since the
+ * glyph index is shared by systems processed in parallel.
+ * <p>
+ * A sheet record also includes the CPU time and allocated bytes of its systems processed on other
+ * threads.
+ * CPU time and allocated bytes are read from per-thread counters. When a thread waiting for nested
+ * tasks runs another task meanwhile (work stealing), the figures of this other task are taken
+ * out of the waiting record, provided the other task is itself recorded. Wall time remains the
+ * elapsed time, including such stolen work.
+ * <p>
+ * A record keeps only scalar data once completed, so that no sheet is retained by telemetry.
+ * <p>
+ * Recording is disabled by default, see the {@code useTelemetry} constant.
+ * In batch mode, the records are exported at the end of the run to a CSV file located in the base
+ * output folder.
+ *
+ * @author Hervé Bitteur
+ */
+public abstract class StepTelemetry
+{
+
+    private static final Constants constants = new Constants();
+
+    private static final Logger logger = LoggerFactory.getLogger(StepTelemetry.class);
+
+    /** Header line of CSV export. */
+    private static final String CSV_HEADER = "sheet,step,system,wall_us,cpu_us,alloc_bytes,"
+                                             + "inters_created,inters_removed,glyphs_created";
+
+    /** All completed records. */
+    private static final List<Record> records = Collections.synchronizedList(
+            new ArrayList<Record>());
+
+    /** On-going sheet record, per sheet. */
+    private static final Map<Sheet, Record> sheetRecords = new ConcurrentHashMap<>();
+
+    /** Record on-going on current thread, if any. */
+    private static final ThreadLocal<Record> currentRecords = new ThreadLocal<>();
+
+    /** JVM thread management. */
+    private static final ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+
+    /**
+     * Not meant to be instantiated.
+     */
+    private StepTelemetry ()
+    {
+    }
+
+    //--------//
+    // export //
+    //--------//
+    /**
+     * Export all records so far to the provided CSV file, then clear the records.
+     *
+     * @param path path to the target CSV file
+     * @throws IOException if writing failed
+     */
+    public static void export (Path path)
+            throws IOException
+    {
+        final List<Record> copy;
+
+        synchronized (records) {
+            copy = new ArrayList<>(records);
+            records.clear();
+        }
+
+        try (BufferedWriter writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8)) {
+            writer.write(CSV_HEADER);
+            writer.newLine();
+
+            for (Record record : copy) {
+                writer.write(record.toCsv());
+                writer.newLine();
+            }
+        }
+
+        logger.info("{} telemetry records exported to {}", copy.size(), path);
+    }
+
+    //-------------//
+    // getFileName //
+    //-------------//
+    /**
+     * Report the name of the CSV file to export to.
+     *
+     * @return the file name
+     */
+    public static String getFileName ()
+    {
+        return constants.telemetryFile.getValue();
+    }
+
+    //------------//
+    // getRecords //
+    //------------//
+    /**
+     * Report a copy of the records completed so far.
+     *
+     * @return the completed records
+     */
+    public static List<Record> getRecords ()
+    {
+        synchronized (records) {
+            return new ArrayList<>(records);
+        }
+    }
+
+    //-----------//
+    // isEnabled //
+    //-----------//
+    /**
+     * Report whether telemetry is being recorded.
+     *
+     * @return true if enabled
+     */
+    public static boolean isEnabled ()
+    {
+        return constants.useTelemetry.isSet();
+    }
+
+    //-------//
+    // start //
+    //-------//
+    /**
+     * Start recording the processing of a step on a sheet or on one of its systems.
+     *
+     * @param sheet  the sheet processed
+     * @param step   the step performed
+     * @param system the system processed, or null for the whole sheet
+     * @return the started record, or null if telemetry is disabled
+     */
+    public static Record start (Sheet sheet,
+                                Step step,
+                                SystemInfo system)
+    {
+        if (!isEnabled()) {
+            return null;
+        }
+
+        final Record record = new Record(sheet, step, system);
+
+        if (system == null) {
+            sheetRecords.put(sheet, record);
+        } else {
+            record.parent = sheetRecords.get(sheet);
+        }
+
+        record.begin();
+
+        return record;
+    }
+
+    //------//
+    // stop //
+    //------//
+    /**
+     * Complete the provided record.
+     *
+     * @param record the record started by {@link #start}, perhaps null
+     */
+    public static void stop (Record record)
+    {
+        if (record == null) {
+            return;
+        }
+
+        if (record.system == null) {
+            sheetRecords.remove(record.sheet);
+        }
+
+        record.end();
+        records.add(record);
+    }
+
+    //------------------//
+    // allocatedBytesOf //
+    //------------------//
+    private static long allocatedBytesOf (long threadId)
+    {
+        if (threadBean instanceof com.sun.management.ThreadMXBean) {
+            return ((com.sun.management.ThreadMXBean) threadBean).getThreadAllocatedBytes(
+                    threadId);
+        }
+
+        return 0;
+    }
+
+    //-----------//
+    // cpuTimeOf //
+    //-----------//
+    private static long cpuTimeOf (long threadId)
+    {
+        if (threadBean.isThreadCpuTimeSupported()) {
+            return Math.max(0, threadBean.getThreadCpuTime(threadId));
+        }
+
+        return 0;
+    }
+
+    //--------//
+    // Record //
+    //--------//
+    /**
+     * Figures for one step on one sheet or on one system.
+     */
+    public static class Record
+    {
+
+        /** Processed sheet, released once the record is completed. */
+        private Sheet sheet;
+
+        /** Processed system, null for the whole sheet, released once completed. */
+        private SystemInfo system;
+
+        /** Sheet id. */
+        private final String sheetId;
+
+        /** Performed step name. */
+        private final String stepName;
+
+        /** System id, or 0 for the whole sheet. */
+        private final int systemId;
+
+        /** Sheet record, if any, of a system record. */
+        private Record parent;
+
+        /** Record that was on-going on the same thread at start, if any. */
+        private Record enclosing;
+
+        /** Processing thread. */
+        private long threadId;
+
+        /** Inter last id at start. */
+        private int interLastId;
+
+        /** Count of inters at start. */
+        private int interCount;
+
+        /** Glyph last id at start, for a sheet record. */
+        private int glyphLastId;
+
+        private long wall;
+
+        private long cpu;
+
+        private long alloc;
+
+        private int intersCreated;
+
+        private int intersRemoved;
+
+        private int glyphsCreated;
+
+        Record (Sheet sheet,
+                Step step,
+                SystemInfo system)
+        {
+            this.sheet = sheet;
+            this.system = system;
+            sheetId = sheet.getId();
+            stepName = step.toString();
+            systemId = (system != null) ? system.getId() : 0;
+        }
+
+        /**
+         * @return the allocated bytes
+         */
+        public long getAllocatedBytes ()
+        {
+            return alloc;
+        }
+
+        /**
+         * @return the CPU time, in nanoseconds
+         */
+        public long getCpuTime ()
+        {
+            return cpu;
+        }
+
+        /**
+         * @return the count of glyphs created, always 0 for a system record
+         */
+        public int getGlyphsCreated ()
+        {
+            return glyphsCreated;
+        }
+
+        /**
+         * @return the count of inters created
+         */
+        public int getIntersCreated ()
+        {
+            return intersCreated;
+        }
+
+        /**
+         * @return the count of inters removed
+         */
+        public int getIntersRemoved ()
+        {
+            return intersRemoved;
+        }
+
+        /**
+         * @return the sheet id
+         */
+        public String getSheetId ()
+        {
+            return sheetId;
+        }
+
+        /**
+         * @return the performed step name
+         */
+        public String getStepName ()
+        {
+            return stepName;
+        }
+
+        /**
+         * @return the processed system id, 0 for the whole sheet
+         */
+        public int getSystemId ()
+        {
+            return systemId;
+        }
+
+        /**
+         * @return the wall time, in nanoseconds
+         */
+        public long getWallTime ()
+        {
+            return wall;
+        }
+
+        @Override
+        public String toString ()
+        {
+            return "Record{" + toCsv() + "}";
+        }
+
+        private void begin ()
+        {
+            threadId = Thread.currentThread().getId();
+            enclosing = currentRecords.get();
+            currentRecords.set(this);
+            interLastId = (sheet.getInterIndex() != null) ? sheet.getInterIndex().getLastId() : 0;
+            interCount = 0;
+
+            for (SystemInfo s : getSystems()) {
+                interCount += s.getSig().vertexSet().size();
+            }
+
+            if (system == null) {
+                glyphLastId = sheet.getGlyphIndex().getLastId();
+            }
+
+            alloc = allocatedBytesOf(threadId);
+            cpu = cpuTimeOf(threadId);
+            wall = System.nanoTime();
+        }
+
+        private void end ()
+        {
+            currentRecords.set(enclosing);
+            wall = System.nanoTime() - wall;
+
+            synchronized (this) {
+                cpu = cpuTimeOf(threadId) - cpu;
+                alloc = allocatedBytesOf(threadId) - alloc;
+            }
+
+            int count = 0;
+
+            for (SystemInfo s : getSystems()) {
+                for (Inter inter : s.getSig().vertexSet()) {
+                    count++;
+
+                    if (inter.getId() > interLastId) {
+                        intersCreated++;
+                    }
+                }
+            }
+
+            intersRemoved = (interCount + intersCreated) - count;
+
+            if (system == null) {
+                glyphsCreated = sheet.getGlyphIndex().getLastId() - glyphLastId;
+            }
+
+            // Other records still hold their start values
+            if ((enclosing != null) && (enclosing != parent)) {
+                // Work stolen by the enclosing record thread: raising its values removes it
+                synchronized (enclosing) {
+                    enclosing.cpu += cpu;
+                    enclosing.alloc += alloc;
+                }
+            }
+
+            if ((parent != null) && (parent.threadId != threadId)) {
+                // Lowering parent values adds to its final figures
+                synchronized (parent) {
+                    parent.cpu -= cpu;
+                    parent.alloc -= alloc;
+                }
+            }
+
+            // Release references to sheet entities
+            sheet = null;
+            system = null;
+            parent = null;
+            enclosing = null;
+        }
+
+        private List<SystemInfo> getSystems ()
+        {
+            if (system != null) {
+                return Collections.singletonList(system);
+            }
+
+            return sheet.getSystems();
+        }
+
+        private String toCsv ()
+        {
+            return sheetId + "," + stepName + "," + ((systemId != 0) ? systemId : "") + ","
+                   + (wall / 1000) + "," + (cpu / 1000) + "," + alloc + "," + intersCreated + ","
+                   + intersRemoved + "," + ((systemId == 0) ? glyphsCreated : "");
+        }
+    }
+
+    //-----------//
+    // Constants //
+    //-----------//
+    private static class Constants
+            extends ConstantSet
+    {
+
+        private final Constant.Boolean useTelemetry = new Constant.Boolean(
+                false,
+                "Should we record time, memory and entities figures per step and system?");
+
+        private final Constant.String telemetryFile = new Constant.String(
+                "telemetry.csv",
+                "Name of CSV file, within base folder, where batch telemetry is exported");
+    }
+}
@@ -82,6 +82,9 @@ public class TesseractOCR
     /** To assign a serial number to each image processing order. */
     private final AtomicInteger serial = new AtomicInteger(0);
 
+    /** Pool of initialized engines, allocated on demand. */
+    private TesseractPool pool;
+
     /**
      * Creates the TesseractOCR singleton.
      */
@@ -89,6 +92,23 @@ public class TesseractOCR
     {
     }
 
+    //---------//
+    // dispose //
+    //---------//
+    /**
+     * Release all idle Tesseract engines kept in pool.
+     */
+    public synchronized void dispose ()
+    {
+        if (pool != null) {
+            if (constants.printPoolStatistics.isSet()) {
+                logger.info("{}", pool);
+            }
+
+            pool.dispose();
+        }
+    }
+
     //--------------//
     // getLanguages //
     //--------------//
@@ -142,6 +162,23 @@ public class TesseractOCR
         return OCR_FOLDER;
     }
 
+    //---------//
+    // getPool //
+    //---------//
+    /**
+     * Report the pool of initialized Tesseract engines, shared by all OCR orders.
+     *
+     * @return the engine pool, allocated if needed
+     */
+    public synchronized TesseractPool getPool ()
+    {
+        if (pool == null) {
+            pool = new TesseractPool(getOcrFolder(), constants.maxEngines.getValue());
+        }
+
+        return pool;
+    }
+
     //----------//
     // identify //
     //----------//
@@ -363,5 +400,14 @@ public class TesseractOCR
         private final Scale.Fraction maxDashWidth = new Scale.Fraction(
                 1.0,
                 "Maximum width for a dash character");
+
+        private final Constant.Integer maxEngines = new Constant.Integer(
+                "engines",
+                4,
+                "Maximum number of Tesseract engines kept initialized");
+
+        private final Constant.Boolean printPoolStatistics = new Constant.Boolean(
+                false,
+                "Should we print out statistics on Tesseract engines pool?");
     }
 }
@@ -147,7 +147,7 @@ public class TesseractOrder
     // process //
     //---------//
     /**
-     * Actually allocate a Tesseract API and recognize the image.
+     * Actually borrow a Tesseract API from the engine pool and recognize the image.
      *
      * @return the sequence of lines found
      */
@@ -157,14 +157,14 @@ public class TesseractOrder
             return Collections.EMPTY_LIST;
         }
 
-        try {
-            final Path ocrFolder = TesseractOCR.getInstance().getOcrFolder();
-            api = new TessBaseAPI();
+        final TesseractPool pool = TesseractOCR.getInstance().getPool();
+        boolean completed = false;
 
-            // Init API with proper language
-            if (api.Init(ocrFolder.toString(), lang) != 0) {
-                logger.warn("Could not initialize Tesseract with lang {}", lang);
+        try {
+            // Get an API already initialized with proper language
+            api = pool.borrow(lang);
 
+            if (api == null) {
                 return finish(null);
             }
 
@@ -180,12 +180,16 @@ public class TesseractOrder
 
             if (result != 0) {
                 logger.warn("Error in Tesseract recognize, exit code: {}", result);
+                completed = true;
 
                 return finish(null);
             }
 
             // Extract lines
-            return finish(getLines());
+            final List<TextLine> lines = getLines();
+            completed = true;
+
+            return finish(lines);
         } catch (UnsatisfiedLinkError ex) {
             if (!userWarned) {
                 logger.warn("Could not link Tesseract engine", ex);
@@ -194,6 +198,17 @@ public class TesseractOrder
             }
 
             throw new RuntimeException(ex);
+        } finally {
+            if (api != null) {
+                // Engine goes back to pool, unless it may be in an inconsistent state
+                if (completed) {
+                    pool.release(lang, api);
+                } else {
+                    pool.discard(api);
+                }
+
+                api = null;
+            }
         }
     }
 
@@ -201,10 +216,12 @@ public class TesseractOrder
     // finish //
     //--------//
     /**
-     * Convenient way to cleanup Tesseract resources while ending the current processing
+     * Convenient way to cleanup image resources while ending the current processing.
+     * <p>
+     * The Tesseract API itself is not ended here, it is given back to the engine pool.
      *
      * @param lines the lines found, if any
-     * @return the lines found, if nay
+     * @return the lines found, if any
      */
     private List<TextLine> finish (List<TextLine> lines)
     {
@@ -212,10 +229,6 @@ public class TesseractOrder
             pixDestroy(image);
         }
 
-        if (api != null) {
-            api.End();
-        }
-
         return lines;
     }
 
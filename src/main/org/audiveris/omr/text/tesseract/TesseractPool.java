@@ -0,0 +1,362 @@
+//------------------------------------------------------------------------------------------------//
+//                                                                                                //
+//                                   T e s s e r a c t P o o l                                    //
+//                                                                                                //
+//------------------------------------------------------------------------------------------------//
+// <editor-fold defaultstate="collapsed" desc="hdr">
+//
+//  Copyright © Audiveris 2018. All rights reserved.
+//
+//  This program is free software: you can redistribute it and/or modify it under the terms of the
+//  GNU Affero General Public License as published by the Free Software Foundation, either version
+//  3 of the License, or (at your option) any later version.
+//
+//  This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+//  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+//  See the GNU Affero General Public License for more details.
+//
+//  You should have received a copy of the GNU Affero General Public License along with this
+//  program.  If not, see <http://www.gnu.org/licenses/>.
+//------------------------------------------------------------------------------------------------//
+// </editor-fold>
+package org.audiveris.omr.text.tesseract;
+
+import org.bytedeco.javacpp.tesseract.TessBaseAPI;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * Class {@code TesseractPool} manages a bounded pool of initialized Tesseract engines,
+ * keyed by language specification.
+ * <p>
+ * Initializing a {@link TessBaseAPI} for a given language means loading the related
+ * traineddata files, which is much more costly than the recognition of a typical text image.
+ * Hence, engines are not ended after use but kept idle in this pool, ready for the next
+ * order on the same language.
+ * <p>
+ * The total number of engines (idle or borrowed) is bounded, to limit native memory.
+ * When the bound is reached, an idle engine for another language is ended to make room,
+ * otherwise the requesting thread waits for an engine to be released.
+ * <p>
+ * Basic metrics (hits, misses, evictions, waits) are recorded, see {@link #toString()}.
+ *
+ * @author Hervé Bitteur
+ */
+public class TesseractPool
+{
+
+    private static final Logger logger = LoggerFactory.getLogger(TesseractPool.class);
+
+    /** Folder of Tesseract material. */
+    private final Path ocrFolder;
+
+    /** Maximum number of engines allocated at the same time. */
+    private final int maxEngines;
+
+    /** Idle engines, per language specification. */
+    private final Map<String, Deque<TessBaseAPI>> idles = new HashMap<>();
+
+    /** Current number of allocated engines, whether idle or borrowed. */
+    private int engineCount;
+
+    /** Number of borrowings served by an idle engine. */
+    private int hitCount;
+
+    /** Number of borrowings that required a new engine. */
+    private int missCount;
+
+    /** Number of idle engines ended to make room for another language. */
+    private int evictionCount;
+
+    /** Number of borrowings that had to wait for a released engine. */
+    private int waitCount;
+
+    /** Cumulated waiting time, in nanoseconds. */
+    private long waitNanos;
+
+    //---------------//
+    // TesseractPool //
+    //---------------//
+    /**
+     * Creates a new {@code TesseractPool} object.
+     *
+     * @param ocrFolder  the folder where Tesseract material is stored
+     * @param maxEngines maximum number of engines allocated at the same time
+     */
+    public TesseractPool (Path ocrFolder,
+                          int maxEngines)
+    {
+        this.ocrFolder = ocrFolder;
+        this.maxEngines = Math.max(1, maxEngines);
+    }
+
+    //--------//
+    // borrow //
+    //--------//
+    /**
+     * Borrow an engine initialized for the provided language.
+     * <p>
+     * The engine must be given back via {@link #release} or {@link #discard}.
+     *
+     * @param lang the language specification
+     * @return the engine ready to use, or null if initialization failed
+     * @throws UnsatisfiedLinkError when bridge to C++ could not be loaded
+     */
+    public TessBaseAPI borrow (String lang)
+    {
+        final long start = System.nanoTime();
+        boolean waited = false;
+
+        synchronized (this) {
+            while (true) {
+                final Deque<TessBaseAPI> deque = idles.get(lang);
+
+                if ((deque != null) && !deque.isEmpty()) {
+                    hitCount++;
+                    recordWait(waited, start);
+
+                    return deque.pop();
+                }
+
+                if (engineCount < maxEngines) {
+                    engineCount++;
+                    missCount++;
+                    recordWait(waited, start);
+
+                    break;
+                }
+
+                // Make room by ending an idle engine of another language, if any
+                final TessBaseAPI victim = pollAnyIdle();
+
+                if (victim != null) {
+                    evictionCount++;
+                    engineCount--;
+                    victim.End();
+
+                    continue;
+                }
+
+                waited = true;
+
+                try {
+                    wait();
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+
+                    return null;
+                }
+            }
+        }
+
+        // Allocate and initialize a new engine, out of synchronized section
+        boolean ok = false;
+
+        try {
+            final TessBaseAPI api = new TessBaseAPI();
+
+            if (api.Init(ocrFolder.toString(), lang) != 0) {
+                logger.warn("Could not initialize Tesseract with lang {}", lang);
+                api.End();
+
+                return null;
+            }
+
+            logger.debug("New Tesseract engine for lang {}", lang);
+            ok = true;
+
+            return api;
+        } finally {
+            if (!ok) {
+                forget();
+            }
+        }
+    }
+
+    //---------//
+    // discard //
+    //---------//
+    /**
+     * Give back an engine which is no longer usable.
+     *
+     * @param api the engine to end
+     */
+    public void discard (TessBaseAPI api)
+    {
+        try {
+            api.End();
+        } finally {
+            forget();
+        }
+    }
+
+    //---------//
+    // dispose //
+    //---------//
+    /**
+     * End all idle engines.
+     * Engines currently borrowed will be pooled again when released.
+     */
+    public synchronized void dispose ()
+    {
+        for (Deque<TessBaseAPI> deque : idles.values()) {
+            for (TessBaseAPI api : deque) {
+                api.End();
+                engineCount--;
+            }
+        }
+
+        idles.clear();
+        notifyAll();
+    }
+
+    //-------------//
+    // getHitCount //
+    //-------------//
+    /**
+     * Report the number of borrowings served by an already initialized engine.
+     *
+     * @return the hit count
+     */
+    public synchronized int getHitCount ()
+    {
+        return hitCount;
+    }
+
+    //--------------//
+    // getMissCount //
+    //--------------//
+    /**
+     * Report the number of borrowings that required a new engine initialization.
+     *
+     * @return the miss count
+     */
+    public synchronized int getMissCount ()
+    {
+        return missCount;
+    }
+
+    //--------------//
+    // getWaitCount //
+    //--------------//
+    /**
+     * Report the number of borrowings that had to wait for an engine.
+     *
+     * @return the wait count
+     */
+    public synchronized int getWaitCount ()
+    {
+        return waitCount;
+    }
+
+    //-------------//
+    // getWaitTime //
+    //-------------//
+    /**
+     * Report the cumulated time spent waiting for an engine.
+     *
+     * @return waiting time, in milliseconds
+     */
+    public synchronized long getWaitTime ()
+    {
+        return waitNanos / 1_000_000;
+    }
+
+    //---------//
+    // release //
+    //---------//
+    /**
+     * Give back a borrowed engine, for later reuse on the same language.
+     *
+     * @param lang the language specification the engine was borrowed for
+     * @param api  the engine to give back
+     */
+    public void release (String lang,
+                         TessBaseAPI api)
+    {
+        // Free recognition results and image, but keep the language data loaded
+        api.Clear();
+
+        synchronized (this) {
+            Deque<TessBaseAPI> deque = idles.get(lang);
+
+            if (deque == null) {
+                idles.put(lang, deque = new ArrayDeque<>());
+            }
+
+            deque.push(api);
+            notifyAll();
+        }
+    }
+
+    //----------//
+    // toString //
+    //----------//
+    @Override
+    public synchronized String toString ()
+    {
+        return new StringBuilder(getClass().getSimpleName()).append("{engines:").append(
+                engineCount).append("/").append(maxEngines).append(" hits:").append(hitCount)
+                .append(" misses:").append(missCount).append(" evictions:").append(evictionCount)
+                .append(" waits:").append(waitCount).append(" waitMs:").append(
+                waitNanos / 1_000_000).append("}").toString();
+    }
+
+    //--------//
+    // forget //
+    //--------//
+    /**
+     * Forget about an engine slot, so that another engine can be allocated.
+     */
+    private synchronized void forget ()
+    {
+        engineCount--;
+        notifyAll();
+    }
+
+    //-------------//
+    // pollAnyIdle //
+    //-------------//
+    /**
+     * Remove and report any idle engine, whatever its language.
+     *
+     * @return an idle engine or null if none
+     */
+    private TessBaseAPI pollAnyIdle ()
+    {
+        for (Iterator<Deque<TessBaseAPI>> it = idles.values().iterator(); it.hasNext();) {
+            final Deque<TessBaseAPI> deque = it.next();
+            final TessBaseAPI api = deque.pollLast();
+
+            if (deque.isEmpty()) {
+                it.remove();
+            }
+
+            if (api != null) {
+                return api;
+            }
+        }
+
+        return null;
+    }
+
+    //------------//
+    // recordWait //
+    //------------//
+    private void recordWait (boolean waited,
+                             long start)
+    {
+        if (waited) {
+            waitCount++;
+            waitNanos += (System.nanoTime() - start);
+        }
+    }
+}
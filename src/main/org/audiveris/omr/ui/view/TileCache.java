@@ -0,0 +1,345 @@
+//------------------------------------------------------------------------------------------------//
+//                                                                                                //
+//                                       T i l e C a c h e                                        //
+//                                                                                                //
+//------------------------------------------------------------------------------------------------//
+// <editor-fold defaultstate="collapsed" desc="hdr">
+//
+//  Copyright © Audiveris 2018. All rights reserved.
+//
+//  This program is free software: you can redistribute it and/or modify it under the terms of the
+//  GNU Affero General Public License as published by the Free Software Foundation, either version
+//  3 of the License, or (at your option) any later version.
+//
+//  This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+//  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+//  See the GNU Affero General Public License for more details.
+//
+//  You should have received a copy of the GNU Affero General Public License along with this
+//  program.  If not, see <http://www.gnu.org/licenses/>.
+//------------------------------------------------------------------------------------------------//
+// </editor-fold>
+package org.audiveris.omr.ui.view;
+
+import org.audiveris.omr.constant.Constant;
+import org.audiveris.omr.constant.ConstantSet;
+import org.audiveris.omr.ui.PixelCount;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.geom.AffineTransform;
+import java.awt.image.BufferedImage;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Class {@code TileCache} keeps a static layer of a view as a set of pre-rendered image
+ * tiles, so that scrolling and repainting no longer have to draw the layer entities again.
+ * <p>
+ * Tiles are square areas of the device space, hence they depend on the current zoom ratio.
+ * Only the tiles which intersect the clip area are drawn, and they are rendered on demand by the
+ * provided {@link Painter}.
+ * The least recently used tiles are discarded when the cache is full.
+ * <p>
+ * The cache must be told when the layer content changes, either for an area via {@link
+ * #invalidate(Rectangle)}, or as a whole via {@link #invalidateAll()} or a new signature provided
+ * to {@link #validate(Object)}.
+ *
+ * @author Hervé Bitteur
+ */
+public class TileCache
+{
+
+    private static final Constants constants = new Constants();
+
+    private static final Logger logger = LoggerFactory.getLogger(TileCache.class);
+
+    /** Painter of layer content. */
+    private final Painter painter;
+
+    /** Tiles, in LRU order. */
+    private final Map<Key, BufferedImage> tiles = new LinkedHashMap<Key, BufferedImage>(
+            16,
+            0.75f,
+            true)
+    {
+        @Override
+        protected boolean removeEldestEntry (Map.Entry<Key, BufferedImage> eldest)
+        {
+            return size() > constants.maxTiles.getValue();
+        }
+    };
+
+    /** Modification stamp, to avoid caching a tile rendered during a modification. */
+    private int stamp;
+
+    /** Current content signature, if any. */
+    private Object signature;
+
+    /**
+     * Creates a new {@code TileCache} object.
+     *
+     * @param painter the painter of layer content
+     */
+    public TileCache (Painter painter)
+    {
+        this.painter = Objects.requireNonNull(painter, "Null painter");
+    }
+
+    //------------//
+    // invalidate //
+    //------------//
+    /**
+     * Discard the tiles, whatever their zoom ratio, that intersect the provided area.
+     *
+     * @param area the modified area, in model coordinates
+     */
+    public synchronized void invalidate (Rectangle area)
+    {
+        stamp++;
+
+        for (Iterator<Key> it = tiles.keySet().iterator(); it.hasNext();) {
+            if (it.next().getArea().intersects(area)) {
+                it.remove();
+            }
+        }
+    }
+
+    //---------------//
+    // invalidateAll //
+    //---------------//
+    /**
+     * Discard all tiles.
+     */
+    public synchronized void invalidateAll ()
+    {
+        stamp++;
+        tiles.clear();
+    }
+
+    //--------//
+    // render //
+    //--------//
+    /**
+     * Draw the layer on the provided graphics, using cached tiles as much as possible.
+     * <p>
+     * The graphics is expected to be scaled by the zoom ratio, as in {@link RubberPanel#render}.
+     * Without a clip or with a non-uniform scaling, the layer is simply painted directly.
+     *
+     * @param g the graphics context
+     */
+    public void render (Graphics2D g)
+    {
+        final AffineTransform at = g.getTransform();
+        final double ratio = at.getScaleX();
+        final Rectangle clip = g.getClipBounds();
+
+        if ((clip == null) || (ratio <= 0) || (at.getScaleY() != ratio) || (at.getShearX() != 0)
+            || (at.getShearY() != 0)) {
+            painter.paint(g);
+
+            return;
+        }
+
+        // Range of tiles, in device space, covering the clip area
+        final int side = constants.tileSize.getValue();
+        final int colMin = Math.max(0, (int) Math.floor((clip.x * ratio) / side));
+        final int colMax = (int) Math.floor(((clip.x + clip.width) * ratio) / side);
+        final int rowMin = Math.max(0, (int) Math.floor((clip.y * ratio) / side));
+        final int rowMax = (int) Math.floor(((clip.y + clip.height) * ratio) / side);
+
+        // Draw tiles in device space
+        final AffineTransform device = new AffineTransform(at);
+        device.scale(1 / ratio, 1 / ratio);
+        g.setTransform(device);
+
+        try {
+            for (int row = rowMin; row <= rowMax; row++) {
+                for (int col = colMin; col <= colMax; col++) {
+                    final BufferedImage tile = getTile(g, new Key(ratio, col, row, side));
+                    g.drawImage(tile, col * side, row * side, null);
+                }
+            }
+        } finally {
+            g.setTransform(at);
+        }
+    }
+
+    //----------//
+    // validate //
+    //----------//
+    /**
+     * Check the provided content signature against the current one, and discard all
+     * tiles if they differ.
+     *
+     * @param signature the signature of layer content, compared via equals()
+     */
+    public synchronized void validate (Object signature)
+    {
+        if (!Objects.equals(this.signature, signature)) {
+            logger.debug("New signature {}", signature);
+            this.signature = signature;
+            invalidateAll();
+        }
+    }
+
+    //---------//
+    // getTile //
+    //---------//
+    /**
+     * Report the tile for provided key, rendering it if not yet available.
+     *
+     * @param g   the target graphics, to copy rendering attributes from
+     * @param key tile key
+     * @return the tile image
+     */
+    private BufferedImage getTile (Graphics2D g,
+                                   Key key)
+    {
+        final int tileStamp;
+
+        synchronized (this) {
+            final BufferedImage tile = tiles.get(key);
+
+            if (tile != null) {
+                return tile;
+            }
+
+            tileStamp = stamp;
+        }
+
+        final BufferedImage tile = new BufferedImage(
+                key.side,
+                key.side,
+                BufferedImage.TYPE_INT_ARGB);
+        final Graphics2D tg = tile.createGraphics();
+
+        try {
+            tg.setRenderingHints(g.getRenderingHints());
+            tg.setColor(g.getColor());
+            tg.setFont(g.getFont());
+            tg.translate(-key.col * key.side, -key.row * key.side);
+            tg.scale(key.ratio, key.ratio);
+            tg.clip(key.getArea());
+            painter.paint(tg);
+        } finally {
+            tg.dispose();
+        }
+
+        synchronized (this) {
+            if (stamp == tileStamp) {
+                tiles.put(key, tile);
+            }
+        }
+
+        return tile;
+    }
+
+    //---------//
+    // Painter //
+    //---------//
+    /**
+     * Interface for the painting of layer content.
+     */
+    public static interface Painter
+    {
+
+        /**
+         * Paint the layer content, in model coordinates, on the provided graphics.
+         * The painting should be limited to the graphics clip area.
+         *
+         * @param g the graphics context
+         */
+        void paint (Graphics2D g);
+    }
+
+    //-----------//
+    // Constants //
+    //-----------//
+    private static class Constants
+            extends ConstantSet
+    {
+
+        private final PixelCount tileSize = new PixelCount(256, "Side of a cached tile");
+
+        private final Constant.Integer maxTiles = new Constant.Integer(
+                "Tiles",
+                128,
+                "Maximum number of cached tiles per layer");
+    }
+
+    //-----//
+    // Key //
+    //-----//
+    /**
+     * Identification of a tile.
+     */
+    private static class Key
+    {
+
+        final double ratio;
+
+        final int col;
+
+        final int row;
+
+        final int side;
+
+        Key (double ratio,
+             int col,
+             int row,
+             int side)
+        {
+            this.ratio = ratio;
+            this.col = col;
+            this.row = row;
+            this.side = side;
+        }
+
+        @Override
+        public boolean equals (Object obj)
+        {
+            if (!(obj instanceof Key)) {
+                return false;
+            }
+
+            final Key that = (Key) obj;
+
+            return (ratio == that.ratio) && (col == that.col) && (row == that.row)
+                   && (side == that.side);
+        }
+
+        /**
+         * Report the tile area, in model coordinates, slightly enlarged to include the
+         * pixels partly covered by the tile.
+         *
+         * @return the model area
+         */
+        Rectangle getArea ()
+        {
+            final int x1 = (int) Math.floor((col * side) / ratio);
+            final int y1 = (int) Math.floor((row * side) / ratio);
+            final int x2 = (int) Math.ceil(((col + 1) * side) / ratio);
+            final int y2 = (int) Math.ceil(((row + 1) * side) / ratio);
+
+            return new Rectangle(x1, y1, (x2 - x1) + 1, (y2 - y1) + 1);
+        }
+
+        @Override
+        public int hashCode ()
+        {
+            final long bits = Double.doubleToLongBits(ratio);
+            int hash = 7;
+            hash = (41 * hash) + (int) (bits ^ (bits >>> 32));
+            hash = (41 * hash) + col;
+            hash = (41 * hash) + row;
+
+            return (41 * hash) + side;
+        }
+    }
+}
@@ -21,6 +21,8 @@
 // </editor-fold>
 package org.audiveris.omr.util;
 
+import org.audiveris.omr.constant.Constant;
+import org.audiveris.omr.constant.ConstantSet;
 import org.audiveris.omr.glyph.Glyph;
 import org.audiveris.omr.ui.selection.EntityService;
 import org.audiveris.omr.ui.symbol.BasicSymbol;
@@ -37,6 +39,7 @@ import java.util.Comparator;
 import java.util.Iterator;
 import java.util.List;
 import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import javax.xml.bind.Unmarshaller;
@@ -52,6 +55,12 @@ import javax.xml.bind.annotation.adapters.XmlJavaTypeAdapter;
 
 /**
  * Class {@code BasicIndex}
+ * <p>
+ * Geometric lookups are served by a spatial {@link EntityGrid}, built on first need and then
+ * kept up to date by {@link #insert}, {@link #register}, {@link #remove} and {@link #reset}.
+ * A subclass whose entities may see their bounds modified after registration can disable the
+ * grid via {@link #isSpatiallyIndexed()}, or notify each modification via
+ * {@link #boundsChanged}.
  *
  * @param <E> precise type for indexed entities
  * @author HervÃ© Bitteur
@@ -63,6 +72,8 @@ public class BasicIndex<E extends Entity>
         implements EntityIndex<E>
 {
 
+    private static final Constants constants = new Constants();
+
     private static final Logger logger = LoggerFactory.getLogger(BasicIndex.class);
 
     // Persistent data
@@ -88,6 +99,15 @@ public class BasicIndex<E extends Entity>
     /** (debug) for easy inspection via browser. */
     private Collection<E> values;
 
+    /** Spatial index on entities, built on demand. */
+    private volatile EntityGrid<E> grid;
+
+    /** Lock for grid allocation and maintenance. */
+    private final Object gridLock = new Object();
+
+    /** Listeners on content modifications, if any. */
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+
     /**
      * Creates a new {@code BasicIndex} object.
      *
@@ -107,13 +127,53 @@ public class BasicIndex<E extends Entity>
         values = entities.values(); // Useful for debugging only
     }
 
+    //-------------//
+    // addListener //
+    //-------------//
+    @Override
+    public void addListener (Listener listener)
+    {
+        listeners.add(listener);
+    }
+
+    //---------------//
+    // boundsChanged //
+    //---------------//
+    /**
+     * Notify that the bounds of the provided entity may have changed, so that the
+     * spatial index can be kept up to date.
+     * <p>
+     * Former bounds are not known, hence listeners are told that the whole index may have
+     * changed.
+     *
+     * @param entity the modified entity
+     */
+    public void boundsChanged (E entity)
+    {
+        synchronized (gridLock) {
+            if ((grid != null) && entities.containsKey(entity.getId())) {
+                grid.update(entity);
+            }
+        }
+
+        if (entities.containsKey(entity.getId())) {
+            fireContentChanged(null);
+        }
+    }
+
     //----------------------//
     // getContainedEntities //
     //----------------------//
     @Override
     public List<E> getContainedEntities (Rectangle rectangle)
     {
-        return Entities.containedEntities(iterator(), rectangle);
+        final EntityGrid<E> g = getGrid();
+
+        if (g == null) {
+            return Entities.containedEntities(iterator(), rectangle);
+        }
+
+        return Entities.containedEntities(validEntities(g.getCandidates(rectangle)), rectangle);
     }
 
     //-----------------------//
@@ -122,7 +182,13 @@ public class BasicIndex<E extends Entity>
     @Override
     public List<E> getContainingEntities (Point point)
     {
-        return Entities.containingEntities(iterator(), point);
+        final EntityGrid<E> g = getGrid();
+
+        if (g == null) {
+            return Entities.containingEntities(iterator(), point);
+        }
+
+        return Entities.containingEntities(validEntities(g.getCandidates(point)), point);
     }
 
     //-------------//
@@ -241,6 +307,33 @@ public class BasicIndex<E extends Entity>
         return "";
     }
 
+    //--------------------//
+    // getNearestEntities //
+    //--------------------//
+    @Override
+    public List<E> getNearestEntities (Point point,
+                                       int count)
+    {
+        final EntityGrid<E> g = getGrid();
+
+        if (g == null) {
+            return Entities.nearestEntities(iterator(), point, count);
+        }
+
+        // Collected entities, if any, have no bounds and are thus never reported
+        return g.getNearest(
+                point,
+                count,
+                new Predicate<E>()
+        {
+            @Override
+            public boolean check (E entity)
+            {
+                return isValid(entity);
+            }
+        });
+    }
+
     //--------//
     // insert //
     //--------//
@@ -259,6 +352,8 @@ public class BasicIndex<E extends Entity>
         }
 
         entities.put(id, entity);
+        gridInsert(entity);
+        fireContentChanged(entity);
 
         if (isVipId(id)) {
             entity.setVip(true);
@@ -299,6 +394,8 @@ public class BasicIndex<E extends Entity>
         entity.setId(id);
 
         entities.put(id, entity);
+        gridInsert(entity);
+        fireContentChanged(entity);
 
         if (isVipId(id)) {
             entity.setVip(true);
@@ -315,6 +412,23 @@ public class BasicIndex<E extends Entity>
     public void remove (E entity)
     {
         entities.remove(entity.getId());
+
+        synchronized (gridLock) {
+            if (grid != null) {
+                grid.remove(entity);
+            }
+        }
+
+        fireContentChanged(entity);
+    }
+
+    //----------------//
+    // removeListener //
+    //----------------//
+    @Override
+    public void removeListener (Listener listener)
+    {
+        listeners.remove(listener);
     }
 
     //-------//
@@ -325,6 +439,12 @@ public class BasicIndex<E extends Entity>
     {
         lastId.set(0);
         entities.clear();
+
+        synchronized (gridLock) {
+            grid = null;
+        }
+
+        fireContentChanged(null);
     }
 
     //-----------//
@@ -354,6 +474,39 @@ public class BasicIndex<E extends Entity>
         return sb.toString();
     }
 
+    //--------//
+    // areaOf //
+    //--------//
+    /**
+     * Report the area impacted by the insertion or removal of the provided entity.
+     *
+     * @param entity the inserted or removed entity
+     * @return the entity bounds by default, null if not known
+     */
+    protected Rectangle areaOf (E entity)
+    {
+        return entity.getBounds();
+    }
+
+    //--------------------//
+    // fireContentChanged //
+    //--------------------//
+    /**
+     * Notify all listeners, if any, of a content modification.
+     *
+     * @param entity the inserted or removed entity, null for a modification of unknown extent
+     */
+    protected void fireContentChanged (E entity)
+    {
+        if (!listeners.isEmpty()) {
+            final Rectangle area = (entity != null) ? areaOf(entity) : null;
+
+            for (Listener listener : listeners) {
+                listener.contentChanged(area);
+            }
+        }
+    }
+
     //------------//
     // generateId //
     //------------//
@@ -380,6 +533,36 @@ public class BasicIndex<E extends Entity>
         return getName();
     }
 
+    //-----------//
+    // isLocated //
+    //-----------//
+    /**
+     * Report whether the provided entity can be located in spatial index according to
+     * its current bounds.
+     * An entity whose bounds may change without notice must not be located, it is then
+     * considered by every geometric lookup.
+     *
+     * @param entity the entity to check
+     * @return true by default
+     */
+    protected boolean isLocated (E entity)
+    {
+        return true;
+    }
+
+    //--------------------//
+    // isSpatiallyIndexed //
+    //--------------------//
+    /**
+     * Report whether geometric lookups can use a spatial index.
+     *
+     * @return true by default
+     */
+    protected boolean isSpatiallyIndexed ()
+    {
+        return true;
+    }
+
     //---------//
     // isValid //
     //---------//
@@ -408,6 +591,92 @@ public class BasicIndex<E extends Entity>
         values = entities.values();
     }
 
+    //---------//
+    // getGrid //
+    //---------//
+    /**
+     * Report the spatial index, built on first call.
+     *
+     * @return the spatial index, or null if not used
+     */
+    private EntityGrid<E> getGrid ()
+    {
+        if (!isSpatiallyIndexed()) {
+            return null;
+        }
+
+        EntityGrid<E> g = grid;
+
+        if (g == null) {
+            synchronized (gridLock) {
+                if ((g = grid) == null) {
+                    g = new EntityGrid<>(constants.gridCellSize.getValue());
+
+                    for (E entity : entities.values()) {
+                        gridIndex(g, entity);
+                    }
+
+                    grid = g;
+                    logger.debug("{} {}", getName(), g);
+                }
+            }
+        }
+
+        return g;
+    }
+
+    //-----------//
+    // gridIndex //
+    //-----------//
+    private void gridIndex (EntityGrid<E> g,
+                            E entity)
+    {
+        if (isLocated(entity)) {
+            g.insert(entity);
+        } else {
+            g.insertUnlocated(entity);
+        }
+    }
+
+    //------------//
+    // gridInsert //
+    //------------//
+    private void gridInsert (E entity)
+    {
+        synchronized (gridLock) {
+            if (grid != null) {
+                gridIndex(grid, entity);
+            }
+        }
+    }
+
+    //---------------//
+    // validEntities //
+    //---------------//
+    private Iterator<E> validEntities (List<E> candidates)
+    {
+        for (Iterator<E> it = candidates.iterator(); it.hasNext();) {
+            if (!isValid(it.next())) {
+                it.remove();
+            }
+        }
+
+        return candidates.iterator();
+    }
+
+    //-----------//
+    // Constants //
+    //-----------//
+    private static class Constants
+            extends ConstantSet
+    {
+
+        private final Constant.Integer gridCellSize = new Constant.Integer(
+                "Pixels",
+                100,
+                "Side length of cells in spatial index of entities");
+    }
+
     //------------------//
     // InterfaceAdapter //
     //------------------//
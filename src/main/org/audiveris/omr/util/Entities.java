@@ -180,4 +180,71 @@ public class Entities
 
         return sb.toString();
     }
+
+    //-----------------//
+    // nearestEntities //
+    //-----------------//
+    /**
+     * Look up in an iteration on Entity instances for the instances nearest to the
+     * provided point, according to the distance between point and entity bounds.
+     *
+     * @param <E>      precise type of entity handled
+     * @param iterator the iterator on the collection of entities to be browsed
+     * @param point    the provided point
+     * @param count    the maximum number of entities to report
+     * @return the nearest entities, sorted by increasing distance, perhaps empty
+     */
+    public static <E extends Entity> List<E> nearestEntities (Iterator<? extends E> iterator,
+                                                              final Point point,
+                                                              int count)
+    {
+        final List<E> list = new ArrayList<>();
+
+        while (iterator.hasNext()) {
+            E entity = iterator.next();
+
+            if (entity.getBounds() != null) {
+                list.add(entity);
+            }
+        }
+
+        Collections.sort(list, new Comparator<E>()
+                 {
+                     @Override
+                     public int compare (E e1,
+                                         E e2)
+                     {
+                         final int comp = Long.compare(
+                                 squareDistance(e1.getBounds(), point),
+                                 squareDistance(e2.getBounds(), point));
+
+                         return (comp != 0) ? comp : Integer.compare(e1.getId(), e2.getId());
+                     }
+                 });
+
+        return new ArrayList<>(list.subList(0, Math.min(Math.max(0, count), list.size())));
+    }
+
+    //----------------//
+    // squareDistance //
+    //----------------//
+    /**
+     * Report the square of euclidian distance between the provided point and rectangle.
+     *
+     * @param rect  the rectangle
+     * @param point the point
+     * @return the square distance, 0 if point lies within rectangle
+     */
+    public static long squareDistance (Rectangle rect,
+                                       Point point)
+    {
+        final long dx = Math.max(
+                0,
+                Math.max(rect.x - point.x, point.x - ((rect.x + rect.width) - 1)));
+        final long dy = Math.max(
+                0,
+                Math.max(rect.y - point.y, point.y - ((rect.y + rect.height) - 1)));
+
+        return (dx * dx) + (dy * dy);
+    }
 }
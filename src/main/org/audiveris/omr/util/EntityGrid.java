@@ -0,0 +1,604 @@
+//------------------------------------------------------------------------------------------------//
+//                                                                                                //
+//                                      E n t i t y G r i d                                       //
+//                                                                                                //
+//------------------------------------------------------------------------------------------------//
+// <editor-fold defaultstate="collapsed" desc="hdr">
+//
+//  Copyright © Audiveris 2018. All rights reserved.
+//
+//  This program is free software: you can redistribute it and/or modify it under the terms of the
+//  GNU Affero General Public License as published by the Free Software Foundation, either version
+//  3 of the License, or (at your option) any later version.
+//
+//  This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+//  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+//  See the GNU Affero General Public License for more details.
+//
+//  You should have received a copy of the GNU Affero General Public License along with this
+//  program.  If not, see <http://www.gnu.org/licenses/>.
+//------------------------------------------------------------------------------------------------//
+// </editor-fold>
+package org.audiveris.omr.util;
+
+import java.awt.Point;
+import java.awt.Rectangle;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Class {@code EntityGrid} is a spatial index on entities, based on a uniform grid of
+ * square cells.
+ * <p>
+ * Each located entity is registered in every cell its bounds intersect, using the bounds known
+ * at registration time. If the bounds of an entity change, the entity must be {@link #update
+ * updated} in the grid.
+ * <p>
+ * An entity inserted with no bounds yet is kept aside and ignored by lookups, until an update
+ * provides its bounds.
+ * <p>
+ * An entity whose bounds may vary without notice can be registered as <i>unlocated</i>: it is
+ * then always part of the candidates reported by any lookup.
+ * <p>
+ * Lookups report <b>candidates</b>, that is a superset of the entities actually relevant.
+ * The caller is responsible for the precise check, using the current entity geometry.
+ * <p>
+ * Entities are handled via their ID, which must remain constant while they are in the grid.
+ * The grid can be accessed concurrently: lookups share a read lock, modifications use a write
+ * lock.
+ *
+ * @param <E> precise entity type
+ * @author Hervé Bitteur
+ */
+public class EntityGrid<E extends Entity>
+{
+
+    /** Side length of each square cell. */
+    private final int cellSize;
+
+    /** Located items, per cell. */
+    private final Map<Long, List<Item<E>>> cells = new HashMap<>();
+
+    /** Located items, per entity ID. */
+    private final Map<Integer, Item<E>> located = new HashMap<>();
+
+    /** Items not located in grid, per entity ID. */
+    private final Map<Integer, Item<E>> unlocated = new LinkedHashMap<>();
+
+    /** Items with no bounds yet, per entity ID. */
+    private final Map<Integer, Item<E>> boundless = new HashMap<>();
+
+    /** Range of cell indices currently occupied, if any. */
+    private Rectangle extent;
+
+    /** Lock to allow concurrent lookups. */
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /**
+     * Creates a new {@code EntityGrid} object.
+     *
+     * @param cellSize side length of each cell
+     */
+    public EntityGrid (int cellSize)
+    {
+        if (cellSize <= 0) {
+            throw new IllegalArgumentException("Non-positive cell size " + cellSize);
+        }
+
+        this.cellSize = cellSize;
+    }
+
+    //---------------//
+    // getCandidates //
+    //---------------//
+    /**
+     * Report the entities that may intersect the provided rectangle.
+     *
+     * @param rect the area of interest
+     * @return the candidate entities, perhaps empty but not null, sorted by ID
+     */
+    public List<E> getCandidates (Rectangle rect)
+    {
+        final List<Item<E>> found;
+        lock.readLock().lock();
+
+        try {
+            found = new ArrayList<>(unlocated.values());
+
+            final Rectangle range = rangeOf(rect);
+
+            for (int cy = range.y, cyBreak = range.y + range.height; cy < cyBreak; cy++) {
+                for (int cx = range.x, cxBreak = range.x + range.width; cx < cxBreak; cx++) {
+                    final List<Item<E>> list = cells.get(keyOf(cx, cy));
+
+                    if (list == null) {
+                        continue;
+                    }
+
+                    for (Item<E> item : list) {
+                        // Report item only once, in its first cell within the lookup range
+                        final Rectangle r = item.range;
+
+                        if ((cx == Math.max(range.x, r.x)) && (cy == Math.max(range.y, r.y))) {
+                            found.add(item);
+                        }
+                    }
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        Collections.sort(found, Item.byId);
+
+        final List<E> entities = new ArrayList<>(found.size());
+
+        for (Item<E> item : found) {
+            entities.add(item.entity);
+        }
+
+        return entities;
+    }
+
+    //---------------//
+    // getCandidates //
+    //---------------//
+    /**
+     * Report the entities that may contain the provided point.
+     *
+     * @param point the point of interest
+     * @return the candidate entities, perhaps empty but not null, sorted by ID
+     */
+    public List<E> getCandidates (Point point)
+    {
+        return getCandidates(new Rectangle(point.x, point.y, 1, 1));
+    }
+
+    //------------//
+    // getNearest //
+    //------------//
+    /**
+     * Report the entities nearest to the provided point, according to the euclidian
+     * distance between the point and the current entity bounds.
+     * <p>
+     * Cells are browsed in concentric rings around the point cell, until no farther ring can
+     * contain a closer entity.
+     *
+     * @param point  the point of interest
+     * @param count  the maximum number of entities to report
+     * @param filter filter on acceptable entities, or null for all entities
+     * @return the nearest entities, perhaps empty but not null, sorted by increasing distance
+     */
+    public List<E> getNearest (Point point,
+                               int count,
+                               Predicate<E> filter)
+    {
+        final List<Neighbor<E>> neighbors = new ArrayList<>();
+
+        if (count <= 0) {
+            return Collections.emptyList();
+        }
+
+        lock.readLock().lock();
+
+        try {
+            for (Item<E> item : unlocated.values()) {
+                addNeighbor(neighbors, item.entity, point, filter);
+            }
+
+            if (extent != null) {
+                final int pcx = cellIndex(point.x);
+                final int pcy = cellIndex(point.y);
+                final int maxRing = Math.max(
+                        Math.max(pcx - extent.x, (extent.x + extent.width) - 1 - pcx),
+                        Math.max(pcy - extent.y, (extent.y + extent.height) - 1 - pcy));
+
+                for (int ring = 0; ring <= maxRing; ring++) {
+                    for (int cy = pcy - ring; cy <= (pcy + ring); cy++) {
+                        final boolean fullRow = (cy == (pcy - ring)) || (cy == (pcy + ring));
+                        final int step = fullRow ? 1 : (2 * ring);
+
+                        for (int cx = pcx - ring; cx <= (pcx + ring); cx += Math.max(1, step)) {
+                            final List<Item<E>> list = cells.get(keyOf(cx, cy));
+
+                            if (list == null) {
+                                continue;
+                            }
+
+                            for (Item<E> item : list) {
+                                // Process item only once, in its cell closest to point cell
+                                final Rectangle r = item.range;
+                                final int ccx = Math.max(r.x, Math.min(pcx, (r.x + r.width) - 1));
+                                final int ccy = Math.max(r.y, Math.min(pcy, (r.y + r.height) - 1));
+
+                                if ((cx == ccx) && (cy == ccy)) {
+                                    addNeighbor(neighbors, item.entity, point, filter);
+                                }
+                            }
+                        }
+                    }
+
+                    // Any entity not yet seen lies at least ring * cellSize away
+                    if (neighbors.size() >= count) {
+                        Collections.sort(neighbors);
+
+                        final double limit = (double) ring * cellSize;
+
+                        if (neighbors.get(count - 1).sqDist <= (limit * limit)) {
+                            break;
+                        }
+                    }
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        Collections.sort(neighbors);
+
+        final List<E> entities = new ArrayList<>();
+
+        for (Neighbor<E> neighbor : neighbors.subList(0, Math.min(count, neighbors.size()))) {
+            entities.add(neighbor.entity);
+        }
+
+        return entities;
+    }
+
+    //--------//
+    // insert //
+    //--------//
+    /**
+     * Insert an entity, using its current bounds.
+     * An entity with no bounds is kept aside until it gets some.
+     *
+     * @param entity the entity to insert
+     */
+    public void insert (E entity)
+    {
+        final Rectangle bounds = entity.getBounds();
+        lock.writeLock().lock();
+
+        try {
+            removeItem(entity.getId());
+
+            if (bounds == null) {
+                boundless.put(entity.getId(), new Item<>(entity, null));
+            } else {
+                insertLocated(new Item<>(entity, rangeOf(bounds)));
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    //-----------------//
+    // insertUnlocated //
+    //-----------------//
+    /**
+     * Insert an entity whose bounds may change without notice.
+     *
+     * @param entity the entity to insert
+     */
+    public void insertUnlocated (E entity)
+    {
+        lock.writeLock().lock();
+
+        try {
+            removeItem(entity.getId());
+            unlocated.put(entity.getId(), new Item<>(entity, null));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    //--------//
+    // remove //
+    //--------//
+    /**
+     * Remove an entity from the grid.
+     *
+     * @param entity the entity to remove
+     * @return true if entity was actually found and removed
+     */
+    public boolean remove (E entity)
+    {
+        lock.writeLock().lock();
+
+        try {
+            return removeItem(entity.getId());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    //-------//
+    // reset //
+    //-------//
+    /**
+     * Remove all entities from the grid.
+     */
+    public void reset ()
+    {
+        lock.writeLock().lock();
+
+        try {
+            cells.clear();
+            located.clear();
+            unlocated.clear();
+            boundless.clear();
+            extent = null;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    //------//
+    // size //
+    //------//
+    /**
+     * Report the number of entities in grid.
+     *
+     * @return count of located, unlocated and boundless entities
+     */
+    public int size ()
+    {
+        lock.readLock().lock();
+
+        try {
+            return located.size() + unlocated.size() + boundless.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    //--------//
+    // update //
+    //--------//
+    /**
+     * Re-index a located or boundless entity, according to its current bounds.
+     * This method is a no-op for an unlocated or unknown entity.
+     *
+     * @param entity the entity whose bounds may have changed
+     */
+    public void update (E entity)
+    {
+        final Rectangle bounds = entity.getBounds();
+        lock.writeLock().lock();
+
+        try {
+            final int id = entity.getId();
+            final Item<E> old = located.containsKey(id) ? located.get(id) : boundless.get(id);
+
+            if (old != null) {
+                final Rectangle range = (bounds != null) ? rangeOf(bounds) : null;
+
+                if (!Objects.equals(old.range, range)) {
+                    removeItem(id);
+
+                    if (range != null) {
+                        insertLocated(new Item<>(entity, range));
+                    } else {
+                        boundless.put(id, new Item<>(entity, null));
+                    }
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    //----------//
+    // toString //
+    //----------//
+    @Override
+    public String toString ()
+    {
+        lock.readLock().lock();
+
+        try {
+            return new StringBuilder(getClass().getSimpleName()).append("{cellSize:").append(
+                    cellSize).append(" cells:").append(cells.size()).append(" located:")
+                    .append(located.size()).append(" unlocated:").append(unlocated.size())
+                    .append(" boundless:").append(boundless.size()).append("}").toString();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    //-------------//
+    // addNeighbor //
+    //-------------//
+    private static <E extends Entity> void addNeighbor (List<Neighbor<E>> neighbors,
+                                                        E entity,
+                                                        Point point,
+                                                        Predicate<E> filter)
+    {
+        if ((filter != null) && !filter.check(entity)) {
+            return;
+        }
+
+        final Rectangle bounds = entity.getBounds();
+
+        if (bounds != null) {
+            neighbors.add(new Neighbor<>(entity, Entities.squareDistance(bounds, point)));
+        }
+    }
+
+    //-----------//
+    // cellIndex //
+    //-----------//
+    /**
+     * Report the index of cell containing the provided coordinate, even if negative.
+     */
+    private int cellIndex (int coord)
+    {
+        return (coord >= 0) ? (coord / cellSize) : (((coord + 1) / cellSize) - 1);
+    }
+
+    //---------------//
+    // insertLocated //
+    //---------------//
+    private void insertLocated (Item<E> item)
+    {
+        final Rectangle range = item.range;
+        located.put(item.id, item);
+
+        for (int cy = range.y, cyBreak = range.y + range.height; cy < cyBreak; cy++) {
+            for (int cx = range.x, cxBreak = range.x + range.width; cx < cxBreak; cx++) {
+                final Long key = keyOf(cx, cy);
+                List<Item<E>> list = cells.get(key);
+
+                if (list == null) {
+                    cells.put(key, list = new ArrayList<>());
+                }
+
+                list.add(item);
+            }
+        }
+
+        if (extent == null) {
+            extent = new Rectangle(range);
+        } else {
+            extent.add(range);
+        }
+    }
+
+    //-------//
+    // keyOf //
+    //-------//
+    private static Long keyOf (int cx,
+                               int cy)
+    {
+        return (((long) cx) << 32) | (cy & 0xFFFFFFFFL);
+    }
+
+    //---------//
+    // rangeOf //
+    //---------//
+    /**
+     * Report the range of cells intersected by the provided rectangle.
+     *
+     * @param rect the provided rectangle (an empty rectangle is processed as a point)
+     * @return the range of cell indices, as a rectangle
+     */
+    private Rectangle rangeOf (Rectangle rect)
+    {
+        final int x1 = cellIndex(rect.x);
+        final int y1 = cellIndex(rect.y);
+        final int x2 = cellIndex((rect.x + Math.max(1, rect.width)) - 1);
+        final int y2 = cellIndex((rect.y + Math.max(1, rect.height)) - 1);
+
+        return new Rectangle(x1, y1, x2 - x1 + 1, y2 - y1 + 1);
+    }
+
+    //------------//
+    // removeItem //
+    //------------//
+    private boolean removeItem (int id)
+    {
+        if ((unlocated.remove(id) != null) || (boundless.remove(id) != null)) {
+            return true;
+        }
+
+        final Item<E> item = located.remove(id);
+
+        if (item == null) {
+            return false;
+        }
+
+        final Rectangle range = item.range;
+
+        for (int cy = range.y, cyBreak = range.y + range.height; cy < cyBreak; cy++) {
+            for (int cx = range.x, cxBreak = range.x + range.width; cx < cxBreak; cx++) {
+                final Long key = keyOf(cx, cy);
+                final List<Item<E>> list = cells.get(key);
+
+                if (list != null) {
+                    list.remove(item);
+
+                    if (list.isEmpty()) {
+                        cells.remove(key);
+                    }
+                }
+            }
+        }
+
+        if (located.isEmpty()) {
+            extent = null; // Extent is never shrunk otherwise, it's just an upper bound
+        }
+
+        return true;
+    }
+
+    //------//
+    // Item //
+    //------//
+    /**
+     * Entity registration, with the ID and cell range known at insertion time.
+     */
+    private static class Item<E extends Entity>
+    {
+
+        static final Comparator<Item<?>> byId = new Comparator<Item<?>>()
+        {
+            @Override
+            public int compare (Item<?> i1,
+                                Item<?> i2)
+            {
+                return Integer.compare(i1.id, i2.id);
+            }
+        };
+
+        final E entity;
+
+        final int id;
+
+        final Rectangle range;
+
+        Item (E entity,
+              Rectangle range)
+        {
+            this.entity = entity;
+            this.id = entity.getId();
+            this.range = range;
+        }
+    }
+
+    //----------//
+    // Neighbor //
+    //----------//
+    private static class Neighbor<E extends Entity>
+            implements Comparable<Neighbor<E>>
+    {
+
+        final E entity;
+
+        final long sqDist;
+
+        Neighbor (E entity,
+                  long sqDist)
+        {
+            this.entity = entity;
+            this.sqDist = sqDist;
+        }
+
+        @Override
+        public int compareTo (Neighbor<E> that)
+        {
+            if (sqDist != that.sqDist) {
+                return Long.compare(sqDist, that.sqDist);
+            }
+
+            return Integer.compare(entity.getId(), that.entity.getId());
+        }
+    }
+}
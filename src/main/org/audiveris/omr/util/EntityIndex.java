@@ -42,6 +42,13 @@ import javax.xml.bind.annotation.adapters.XmlJavaTypeAdapter;
 public interface EntityIndex<E extends Entity>
 {
 
+    /**
+     * Register a listener to be notified of index content modifications.
+     *
+     * @param listener the listener to add
+     */
+    void addListener (Listener listener);
+
     /**
      * Look up the index for all entities contained in the provided rectangle.
      *
@@ -110,6 +117,17 @@ public interface EntityIndex<E extends Entity>
      */
     String getName ();
 
+    /**
+     * Look up the index for the entities nearest to the provided point, according to the
+     * distance between point and entity bounds.
+     *
+     * @param point the provided point
+     * @param count the maximum number of entities to report
+     * @return the nearest entities, sorted by increasing distance, perhaps empty but not null
+     */
+    List<E> getNearestEntities (Point point,
+                                int count);
+
     /**
      * Check whether the provided ID has been declared as VIP.
      *
@@ -140,6 +158,13 @@ public interface EntityIndex<E extends Entity>
      */
     void remove (E entity);
 
+    /**
+     * Unregister a listener on index content modifications.
+     *
+     * @param listener the listener to remove
+     */
+    void removeListener (Listener listener);
+
     /**
      * Reset index internals (entities and last ID value).
      */
@@ -158,4 +183,22 @@ public interface EntityIndex<E extends Entity>
      * @param lastId ID assigned
      */
     void setLastId (int lastId);
+
+    //----------//
+    // Listener //
+    //----------//
+    /**
+     * Interface for the notification of index content modifications, meant for views
+     * which cache a rendering of index entities.
+     */
+    interface Listener
+    {
+
+        /**
+         * Notify that index content has changed within the provided area.
+         *
+         * @param area the modified area, or null if the whole index may have changed
+         */
+        void contentChanged (Rectangle area);
+    }
 }
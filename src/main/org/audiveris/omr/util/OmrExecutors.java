@@ -28,11 +28,22 @@ import org.audiveris.omr.util.param.Param;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.slf4j.MDC;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.Future;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
@@ -44,7 +55,15 @@ import java.util.concurrent.atomic.AtomicInteger;
  * <li>lowExecutor: a fixed nb (#cpu+1) of threads with low priority</li>
  * <li>highExecutor: a fixed nb (#cpu+1) of threads with high priority</li>
  * <li>cachedLowExecutor: a varying nb of threads with low priority</li>
+ * <li>workPool: a work-stealing pool (#cpu threads) with low priority, meant for book
+ * processing</li>
  * </ul>
+ * <p>
+ * Sheets of a book are submitted to the work pool through {@link #invokeSheets}, which admits a
+ * new sheet only when the count of sheets in flight and the occupied memory allow it.
+ * Tasks nested within a sheet task (such as one task per system) are submitted through
+ * {@link #invokeNested}: within the work pool they are forked, so that a thread waiting for their
+ * completion executes pending tasks rather than blocking.
  *
  * @author Hervé Bitteur
  */
@@ -68,8 +87,16 @@ public class OmrExecutors
 
     private static final Pool cachedLows = new CachedLows();
 
+    private static final Pool works = new Works();
+
     /** To handle all the pools as a whole. */
-    private static final Collection<Pool> allPools = Arrays.asList(cachedLows, lows, highs);
+    private static final Collection<Pool> allPools = Arrays.asList(works, cachedLows, lows, highs);
+
+    /** Lock for sheet admission. */
+    private static final Object admissionLock = new Object();
+
+    /** Number of sheets currently admitted. */
+    private static int sheetsInFlight;
 
     /** To prevent parallel creation of pools when closing. */
     private static volatile boolean creationAllowed = true;
@@ -129,6 +156,21 @@ public class OmrExecutors
         return lows.getPool();
     }
 
+    //----------------------//
+    // getMaxSheetsInFlight //
+    //----------------------//
+    /**
+     * Report the maximum number of sheets processed concurrently.
+     *
+     * @return the maximum count of sheets in flight
+     */
+    public static int getMaxSheetsInFlight ()
+    {
+        final int max = constants.maxSheetsInFlight.getValue();
+
+        return (max > 0) ? max : cpuCount;
+    }
+
     //-----------------//
     // getNumberOfCpus //
     //-----------------//
@@ -142,6 +184,118 @@ public class OmrExecutors
         return cpuCount;
     }
 
+    //-------------//
+    // getWorkPool //
+    //-------------//
+    /**
+     * Return the (single) work-stealing pool of low priority threads.
+     *
+     * @return the work pool, allocated if needed
+     */
+    public static ForkJoinPool getWorkPool ()
+    {
+        return (ForkJoinPool) works.getPool();
+    }
+
+    //--------------//
+    // invokeNested //
+    //--------------//
+    /**
+     * Execute the provided tasks, nested within a task already running, and wait for their
+     * completion.
+     * <p>
+     * If current thread belongs to the work pool, tasks are forked into this pool and, while
+     * waiting for them, current thread helps executing pending tasks.
+     * Otherwise, tasks are run on the low executor.
+     *
+     * @param <T>   type of task result
+     * @param tasks the tasks to execute
+     * @return the futures, all completed, in tasks order
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public static <T> List<Future<T>> invokeNested (Collection<? extends Callable<T>> tasks)
+            throws InterruptedException
+    {
+        final Thread thread = Thread.currentThread();
+
+        if (!(thread instanceof ForkJoinWorkerThread)
+                    || (((ForkJoinWorkerThread) thread).getPool() != works.pool)) {
+            return getLowExecutor().invokeAll(tasks);
+        }
+
+        final List<ForkJoinTask<T>> forks = new ArrayList<>();
+
+        for (Callable<T> task : tasks) {
+            forks.add(ForkJoinTask.adapt(new Contained<>(task)));
+        }
+
+        for (ForkJoinTask<T> fork : forks) {
+            fork.fork();
+        }
+
+        // Join in reverse order, the most recently forked tasks being at top of local queue
+        for (int i = forks.size() - 1; i >= 0; i--) {
+            forks.get(i).quietlyJoin();
+        }
+
+        if (Thread.interrupted()) {
+            throw new InterruptedException("invokeNested");
+        }
+
+        return new ArrayList<Future<T>>(forks);
+    }
+
+    //--------------//
+    // invokeSheets //
+    //--------------//
+    /**
+     * Execute the provided sheet tasks on the work pool and wait for their completion.
+     * <p>
+     * A task is submitted only when admitted, that is when the count of sheets in flight is below
+     * the maximum allowed and the occupied memory is below the admission threshold.
+     * At least one sheet is always admitted.
+     *
+     * @param <T>   type of task result
+     * @param tasks the sheet tasks to execute
+     * @return the futures, all completed, in tasks order
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public static <T> List<Future<T>> invokeSheets (Collection<? extends Callable<T>> tasks)
+            throws InterruptedException
+    {
+        final ForkJoinPool pool = getWorkPool();
+        final List<Future<T>> futures = new ArrayList<>();
+
+        try {
+            for (Callable<T> task : tasks) {
+                admitSheet();
+
+                try {
+                    futures.add(pool.submit(new Admitted<>(task)));
+                } catch (RuntimeException ex) {
+                    releaseSheet();
+                    throw ex;
+                }
+            }
+
+            for (Future<T> future : futures) {
+                try {
+                    future.get();
+                } catch (CancellationException | ExecutionException ignored) {
+                    // Reported through the future itself
+                }
+            }
+
+            return futures;
+        } catch (InterruptedException | RuntimeException ex) {
+            for (Future<T> future : futures) {
+                future.cancel(true);
+            }
+
+            throw ex;
+        }
+    }
+
     //---------//
     // restart //
     //---------//
@@ -185,6 +339,59 @@ public class OmrExecutors
         return result;
     }
 
+    //------------//
+    // admitSheet //
+    //------------//
+    /**
+     * Wait until a new sheet can be admitted, then register it as in flight.
+     *
+     * @throws InterruptedException if interrupted while waiting
+     */
+    private static void admitSheet ()
+            throws InterruptedException
+    {
+        final int maxSheets = getMaxSheetsInFlight();
+        final long maxMemory = (long) (Runtime.getRuntime().maxMemory()
+                                       * constants.admissionMemoryRatio.getValue());
+        boolean collected = false;
+
+        synchronized (admissionLock) {
+            while (sheetsInFlight > 0) {
+                if (sheetsInFlight < maxSheets) {
+                    if (Memory.occupied() <= maxMemory) {
+                        break;
+                    }
+
+                    if (!collected) {
+                        // Occupied memory may include much garbage
+                        Memory.gc();
+                        collected = true;
+
+                        continue;
+                    }
+
+                    logger.debug("Sheet admission delayed, occupied memory: {}", Memory.occupied());
+                }
+
+                // Released sheets notify us, but memory may get freed silently
+                admissionLock.wait(constants.admissionPeriod.getValue());
+            }
+
+            sheetsInFlight++;
+        }
+    }
+
+    //--------------//
+    // releaseSheet //
+    //--------------//
+    private static void releaseSheet ()
+    {
+        synchronized (admissionLock) {
+            sheetsInFlight--;
+            admissionLock.notifyAll();
+        }
+    }
+
     //------//
     // Pool //
     //------//
@@ -297,6 +504,47 @@ public class OmrExecutors
                 "seconds",
                 60,
                 "Time to wait for terminating tasks");
+
+        private final Constant.Integer maxSheetsInFlight = new Constant.Integer(
+                "sheets",
+                0,
+                "Maximum number of sheets processed concurrently (0 for number of CPUs)");
+
+        private final Constant.Ratio admissionMemoryRatio = new Constant.Ratio(
+                0.75,
+                "Ratio of max memory beyond which no additional sheet is admitted");
+
+        private final Constant.Integer admissionPeriod = new Constant.Integer(
+                "ms",
+                1000,
+                "Period for checking memory when sheet admission is delayed");
+    }
+
+    //----------//
+    // Admitted //
+    //----------//
+    /**
+     * Sheet task, which releases its admission when completed.
+     */
+    private static class Admitted<T>
+            extends Contained<T>
+    {
+
+        Admitted (Callable<T> task)
+        {
+            super(task);
+        }
+
+        @Override
+        public T call ()
+                throws Exception
+        {
+            try {
+                return super.call();
+            } finally {
+                releaseSheet();
+            }
+        }
     }
 
     //------------//
@@ -320,6 +568,42 @@ public class OmrExecutors
         }
     }
 
+    //-----------//
+    // Contained //
+    //-----------//
+    /**
+     * Task wrapper which restores the log context of the executing thread, since a work pool
+     * thread may execute a task while waiting for another one.
+     */
+    private static class Contained<T>
+            implements Callable<T>
+    {
+
+        private final Callable<T> task;
+
+        Contained (Callable<T> task)
+        {
+            this.task = task;
+        }
+
+        @Override
+        public T call ()
+                throws Exception
+        {
+            final Map<String, String> context = MDC.getCopyOfContextMap();
+
+            try {
+                return task.call();
+            } finally {
+                if (context != null) {
+                    MDC.setContextMap(context);
+                } else {
+                    MDC.clear();
+                }
+            }
+        }
+    }
+
     //---------//
     // Default //
     //---------//
@@ -458,4 +742,66 @@ public class OmrExecutors
                     new Factory(getName(), Thread.MIN_PRIORITY, 0));
         }
     }
+
+    //-------------//
+    // WorkFactory //
+    //-------------//
+    private static class WorkFactory
+            implements ForkJoinPool.ForkJoinWorkerThreadFactory
+    {
+
+        private final String threadPrefix;
+
+        private final int threadPriority;
+
+        private final AtomicInteger threadNumber = new AtomicInteger(0);
+
+        WorkFactory (String threadPrefix,
+                     int threadPriority)
+        {
+            this.threadPrefix = threadPrefix;
+            this.threadPriority = threadPriority;
+        }
+
+        @Override
+        public ForkJoinWorkerThread newThread (ForkJoinPool pool)
+        {
+            final ForkJoinWorkerThread t = new ForkJoinWorkerThread(pool)
+            {
+            };
+
+            t.setName(threadPrefix + "-thread-" + threadNumber.incrementAndGet());
+
+            if (t.getPriority() != threadPriority) {
+                t.setPriority(threadPriority);
+            }
+
+            return t;
+        }
+    }
+
+    //-------//
+    // Works //
+    //-------//
+    /** Work-stealing pool with low priority. */
+    private static class Works
+            extends Pool
+    {
+
+        @Override
+        public String getName ()
+        {
+            return "work";
+        }
+
+        @Override
+        protected ExecutorService createPool ()
+        {
+            return new ForkJoinPool(
+                    defaultParallelism.getValue() ? cpuCount : 1,
+                    new WorkFactory(getName(), Thread.MIN_PRIORITY),
+                    null,
+                    false);
+        }
+    }
 }
@@ -5,14 +5,24 @@
  */
 package org.audiveris.omr.glyph;
 
-import static org.audiveris.omr.run.Orientation.HORIZONTAL;
+import ij.process.ByteProcessor;
 
+import static org.audiveris.omr.run.Orientation.HORIZONTAL;
+import static org.audiveris.omr.run.Orientation.VERTICAL;
+import org.audiveris.omr.run.Orientation;
 import org.audiveris.omr.run.Run;
 import org.audiveris.omr.run.RunTable;
+import org.audiveris.omr.run.RunTableFactory;
 
+import static org.junit.Assert.*;
 import org.junit.Test;
 
 import java.awt.Dimension;
+import java.awt.Point;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.Random;
 
 /**
  *
@@ -42,7 +52,110 @@ public class GlyphFactoryTest
         System.out.println("createGlyphs");
 
         RunTable runTable = createHorizontalInstance();
-        GlyphFactory.buildGlyphs(runTable, null);
+        List<Glyph> glyphs = GlyphFactory.buildGlyphs(runTable, null);
+        assertEquals(3, glyphs.size());
+        assertEquals(2, glyphs.get(0).getWeight());
+        assertEquals(0, glyphs.get(1).getLeft());
+        assertEquals(49, glyphs.get(1).getWeight());
+        assertEquals(1, glyphs.get(2).getTop());
+        assertEquals(1, glyphs.get(2).getWeight());
+    }
+
+    /**
+     * Labeling by strips must give the same glyphs as a plain flood fill.
+     */
+    @Test
+    public void testRandom ()
+    {
+        Random random = new Random(123);
+
+        for (Orientation orientation : new Orientation[]{HORIZONTAL, VERTICAL}) {
+            for (int loop = 0; loop < 20; loop++) {
+                int width = 1 + random.nextInt(120);
+                int height = 1 + random.nextInt(120);
+                ByteProcessor img = new ByteProcessor(width, height);
+                int density = 20 + random.nextInt(50);
+
+                for (int y = 0; y < height; y++) {
+                    for (int x = 0; x < width; x++) {
+                        img.set(x, y, (random.nextInt(100) < density) ? 0 : 255);
+                    }
+                }
+
+                RunTable table = new RunTableFactory(orientation).createTable(img);
+                Point offset = new Point(7, 13);
+                List<Glyph> glyphs = GlyphFactory.buildGlyphs(table, offset, null, 1);
+                checkGlyphs(img, orientation, offset, glyphs);
+
+                for (int strips : new int[]{2, 3, 7}) {
+                    assertEquals(glyphs, GlyphFactory.buildGlyphs(table, offset, null, strips));
+                }
+            }
+        }
+    }
+
+    //-------------//
+    // checkGlyphs //
+    //-------------//
+    /**
+     * Check glyphs against a flood fill of image, components being met in sequence order.
+     */
+    private void checkGlyphs (ByteProcessor img,
+                              Orientation orientation,
+                              Point offset,
+                              List<Glyph> glyphs)
+    {
+        int width = img.getWidth();
+        int height = img.getHeight();
+        int[] labels = new int[width * height];
+        int label = 0;
+        int seqCount = (orientation == HORIZONTAL) ? height : width;
+        int posCount = (orientation == HORIZONTAL) ? width : height;
+
+        for (int seq = 0; seq < seqCount; seq++) {
+            for (int pos = 0; pos < posCount; pos++) {
+                int x = (orientation == HORIZONTAL) ? pos : seq;
+                int y = (orientation == HORIZONTAL) ? seq : pos;
+
+                if ((img.get(x, y) != 0) || (labels[(y * width) + x] != 0)) {
+                    continue;
+                }
+
+                // Flood fill a new component
+                Glyph glyph = glyphs.get(label++);
+                int weight = 0;
+                Deque<Integer> stack = new ArrayDeque<>();
+                stack.push((y * width) + x);
+                labels[(y * width) + x] = label;
+
+                while (!stack.isEmpty()) {
+                    int index = stack.pop();
+                    int px = index % width;
+                    int py = index / width;
+                    weight++;
+                    assertEquals(
+                            0,
+                            glyph.getRunTable().get(
+                                    (px + offset.x) - glyph.getLeft(),
+                                    (py + offset.y) - glyph.getTop()));
+
+                    for (int[] d : new int[][]{{-1, 0}, {1, 0}, {0, -1}, {0, 1}}) {
+                        int nx = px + d[0];
+                        int ny = py + d[1];
+
+                        if ((nx >= 0) && (nx < width) && (ny >= 0) && (ny < height)
+                            && (img.get(nx, ny) == 0) && (labels[(ny * width) + nx] == 0)) {
+                            labels[(ny * width) + nx] = label;
+                            stack.push((ny * width) + nx);
+                        }
+                    }
+                }
+
+                assertEquals(weight, glyph.getWeight());
+            }
+        }
+
+        assertEquals(label, glyphs.size());
     }
 
     //--------------------------//
@@ -0,0 +1,118 @@
+//------------------------------------------------------------------------------------------------//
+//                                                                                                //
+//                              A d a p t i v e F i l t e r T e s t                               //
+//                                                                                                //
+//------------------------------------------------------------------------------------------------//
+// <editor-fold defaultstate="collapsed" desc="hdr">
+//
+//  Copyright © Audiveris 2018. All rights reserved.
+//
+//  This program is free software: you can redistribute it and/or modify it under the terms of the
+//  GNU Affero General Public License as published by the Free Software Foundation, either version
+//  3 of the License, or (at your option) any later version.
+//
+//  This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+//  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+//  See the GNU Affero General Public License for more details.
+//
+//  You should have received a copy of the GNU Affero General Public License along with this
+//  program.  If not, see <http://www.gnu.org/licenses/>.
+//------------------------------------------------------------------------------------------------//
+// </editor-fold>
+package org.audiveris.omr.image;
+
+import ij.process.ByteProcessor;
+
+import org.audiveris.omr.run.Orientation;
+import org.audiveris.omr.run.RunTable;
+import org.audiveris.omr.run.RunTableFactory;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+import java.util.Random;
+
+/**
+ * Class {@code AdaptiveFilterTest} checks that runs built directly by strips are identical
+ * to runs retrieved from the filtered image.
+ *
+ * @author Hervé Bitteur
+ */
+public class AdaptiveFilterTest
+{
+
+    private static final double MEAN_COEFF = 0.7;
+
+    private static final double STD_DEV_COEFF = 0.9;
+
+    private final Random random = new Random(654);
+
+    @Test
+    public void testRandomFilter ()
+    {
+        final ByteProcessor source = createScan(437, 291);
+
+        for (int strips : new int[]{1, 2, 5}) {
+            assertEquals(
+                    referenceTable(new RandomFilter(source, MEAN_COEFF, STD_DEV_COEFF)),
+                    new RandomFilter(source, MEAN_COEFF, STD_DEV_COEFF).filteredTable(strips));
+        }
+    }
+
+    @Test
+    public void testVerticalFilter ()
+    {
+        final ByteProcessor source = createScan(613, 405);
+
+        for (int strips : new int[]{1, 3, 8, 40}) {
+            assertEquals(
+                    referenceTable(new VerticalFilter(source, MEAN_COEFF, STD_DEV_COEFF)),
+                    new VerticalFilter(source, MEAN_COEFF, STD_DEV_COEFF).filteredTable(strips));
+        }
+    }
+
+    /**
+     * Create a gray image with uneven lighting, noise and dark strokes.
+     */
+    private ByteProcessor createScan (int width,
+                                      int height)
+    {
+        final ByteProcessor ip = new ByteProcessor(width, height);
+
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                final int light = 160 + ((80 * (x + y)) / (width + height));
+                ip.set(x, y, Math.min(255, light + random.nextInt(16)));
+            }
+        }
+
+        // Horizontal lines, like staff lines
+        for (int y = 20; y < (height - 3); y += 12) {
+            for (int x = 10; x < (width - 10); x++) {
+                ip.set(x, y, 30 + random.nextInt(40));
+                ip.set(x, y + 1, 30 + random.nextInt(40));
+            }
+        }
+
+        // Random blobs
+        for (int i = (width * height) / 2000; i > 0; i--) {
+            final int x0 = random.nextInt(width - 12);
+            final int y0 = random.nextInt(height - 12);
+            final int w = 2 + random.nextInt(10);
+            final int h = 2 + random.nextInt(10);
+
+            for (int y = y0; y < (y0 + h); y++) {
+                for (int x = x0; x < (x0 + w); x++) {
+                    ip.set(x, y, random.nextInt(90));
+                }
+            }
+        }
+
+        return ip;
+    }
+
+    private static RunTable referenceTable (PixelFilter filter)
+    {
+        return new RunTableFactory(Orientation.VERTICAL).createTable(filter.filteredImage());
+    }
+}
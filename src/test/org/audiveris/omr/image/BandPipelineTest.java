@@ -0,0 +1,179 @@
+//------------------------------------------------------------------------------------------------//
+//                                                                                                //
+//                                B a n d P i p e l i n e T e s t                                 //
+//                                                                                                //
+//------------------------------------------------------------------------------------------------//
+// <editor-fold defaultstate="collapsed" desc="hdr">
+//
+//  Copyright © Audiveris 2018. All rights reserved.
+//
+//  This program is free software: you can redistribute it and/or modify it under the terms of the
+//  GNU Affero General Public License as published by the Free Software Foundation, either version
+//  3 of the License, or (at your option) any later version.
+//
+//  This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+//  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+//  See the GNU Affero General Public License for more details.
+//
+//  You should have received a copy of the GNU Affero General Public License along with this
+//  program.  If not, see <http://www.gnu.org/licenses/>.
+//------------------------------------------------------------------------------------------------//
+// </editor-fold>
+
+package org.audiveris.omr.image;
+
+import ij.process.ByteProcessor;
+
+import org.audiveris.omr.run.Orientation;
+import org.audiveris.omr.run.RunTable;
+import org.audiveris.omr.run.RunTableFactory;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+import java.awt.Rectangle;
+import java.util.Random;
+
+/**
+ * Class {@code BandPipelineTest} checks that a band pipeline gives the same results as the
+ * sequence of whole image operations it replaces.
+ *
+ * @author Hervé Bitteur
+ */
+public class BandPipelineTest
+{
+
+    private static final int STEM = 4;
+
+    private static final int THRESHOLD = 140;
+
+    private final Random random = new Random(654);
+
+    @Test
+    public void testBands ()
+    {
+        final ByteProcessor source = createSource(230, 170);
+        final ChordMorphology morpho = createMorphology(3.5f);
+        final ByteProcessor expected = reference(source, morpho);
+        final RunTableFactory vFactory = new RunTableFactory(Orientation.VERTICAL);
+        final RunTableFactory hFactory = new RunTableFactory(Orientation.HORIZONTAL);
+        final ByteProcessor binary = (ByteProcessor) expected.duplicate();
+        binary.threshold(THRESHOLD);
+
+        final RunTable vExpected = vFactory.createTable(binary);
+        final RunTable hExpected = hFactory.createTable(binary);
+
+        for (int bandHeight : new int[]{1, 7, 50, 1000}) {
+            for (boolean parallel : new boolean[]{false, true}) {
+                final BandPipeline.TableSink vSink = new BandPipeline.TableSink(
+                        Orientation.VERTICAL,
+                        THRESHOLD,
+                        230,
+                        170);
+                final BandPipeline.TableSink hSink = new BandPipeline.TableSink(
+                        Orientation.HORIZONTAL,
+                        THRESHOLD,
+                        230,
+                        170);
+                final BandPipeline.BufferSink bufferSink = new BandPipeline.BufferSink(230, 170);
+                final BandPipeline pipeline = createPipeline(source, morpho);
+                pipeline.addSink(vSink);
+                pipeline.addSink(hSink);
+                pipeline.addSink(bufferSink);
+                pipeline.run(bandHeight, parallel);
+
+                final String msg = "bandHeight " + bandHeight + " parallel " + parallel;
+                assertArrayEquals(
+                        msg,
+                        (byte[]) expected.getPixels(),
+                        (byte[]) bufferSink.getBuffer().getPixels());
+                assertEquals(msg, vExpected, vSink.getTable());
+                assertEquals(msg, hExpected, hSink.getTable());
+            }
+        }
+    }
+
+    @Test
+    public void testNoStage ()
+    {
+        final ByteProcessor source = createSource(40, 30);
+        final BandPipeline.BufferSink sink = new BandPipeline.BufferSink(40, 30);
+        final BandPipeline pipeline = new BandPipeline(source);
+        pipeline.addSink(sink);
+        pipeline.run(8, false);
+        assertArrayEquals((byte[]) source.getPixels(), (byte[]) sink.getBuffer().getPixels());
+    }
+
+    private ChordMorphology createMorphology (float radius)
+    {
+        return new ChordMorphology(new StructureElement(0, 1, radius, new int[]{0, 0}));
+    }
+
+    private BandPipeline createPipeline (ByteProcessor source,
+                                         ChordMorphology morpho)
+    {
+        final BandPipeline pipeline = new BandPipeline(source);
+        pipeline.add(new BandPipeline.LengthStage(STEM));
+        pipeline.add(new MedianGrayFilter(1));
+        pipeline.add(new GaussianGrayFilter(2));
+        pipeline.add(morpho.getStage(true));
+        pipeline.add(morpho.getStage(false));
+
+        return pipeline;
+    }
+
+    /**
+     * Binary image with beam-like blocks, stem-like lines and noise.
+     */
+    private ByteProcessor createSource (int width,
+                                        int height)
+    {
+        final ByteProcessor proc = new ByteProcessor(width, height);
+        proc.setValue(255);
+        proc.fill();
+        proc.setValue(0);
+
+        for (int i = 0; i < ((width * height) / 300); i++) {
+            final int x = random.nextInt(width + 20) - 10;
+            final int y = random.nextInt(height + 20) - 10;
+
+            switch (random.nextInt(3)) {
+            case 0:
+                proc.setRoi(new Rectangle(x, y, 10 + random.nextInt(40), 4 + random.nextInt(6)));
+                proc.fill();
+                proc.resetRoi();
+
+                break;
+
+            case 1:
+                proc.setRoi(new Rectangle(x, y, 1 + random.nextInt(3), 10 + random.nextInt(40)));
+                proc.fill();
+                proc.resetRoi();
+
+                break;
+
+            default:
+                proc.putPixel(x, y, 0); // Ignored if outside image
+            }
+        }
+
+        return proc;
+    }
+
+    /**
+     * Former sequence of whole image operations.
+     */
+    private ByteProcessor reference (ByteProcessor source,
+                                     ChordMorphology morpho)
+    {
+        final RunTableFactory factory = new RunTableFactory(
+                Orientation.HORIZONTAL,
+                new RunTableFactory.LengthFilter(STEM));
+        ByteProcessor buffer = factory.createTable(source).getBuffer();
+        buffer = new MedianGrayFilter(1).filter(buffer);
+        buffer = new GaussianGrayFilter(2).filter(buffer);
+        morpho.close(buffer);
+
+        return buffer;
+    }
+}
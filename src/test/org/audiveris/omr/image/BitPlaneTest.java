@@ -0,0 +1,107 @@
+//------------------------------------------------------------------------------------------------//
+//                                                                                                //
+//                                    B i t P l a n e T e s t                                     //
+//                                                                                                //
+//------------------------------------------------------------------------------------------------//
+// <editor-fold defaultstate="collapsed" desc="hdr">
+//
+//  Copyright © Audiveris 2018. All rights reserved.
+//
+//  This program is free software: you can redistribute it and/or modify it under the terms of the
+//  GNU Affero General Public License as published by the Free Software Foundation, either version
+//  3 of the License, or (at your option) any later version.
+//
+//  This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+//  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+//  See the GNU Affero General Public License for more details.
+//
+//  You should have received a copy of the GNU Affero General Public License along with this
+//  program.  If not, see <http://www.gnu.org/licenses/>.
+//------------------------------------------------------------------------------------------------//
+// </editor-fold>
+package org.audiveris.omr.image;
+
+import ij.process.ByteProcessor;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+import java.util.Random;
+
+/**
+ * Class {@code BitPlaneTest} checks the bit plane accessors against a plain buffer.
+ *
+ * @author Hervé Bitteur
+ */
+public class BitPlaneTest
+{
+
+    private final Random random = new Random(987);
+
+    @Test
+    public void testClearRange ()
+    {
+        final int width = 200;
+        final BitPlane plane = new BitPlane(width, 3);
+
+        for (int x = 0; x < width; x++) {
+            plane.set(x, 1);
+        }
+
+        plane.clearRange(1, 60, 130);
+        plane.clearRange(1, -5, 2);
+        plane.clearRange(1, 198, 300);
+        plane.clearRange(-1, 0, 10);
+
+        for (int x = 0; x < width; x++) {
+            final boolean cleared = (x <= 2) || ((x >= 60) && (x <= 130)) || (x >= 198);
+            assertEquals(!cleared, plane.get(x, 1));
+            assertFalse(plane.get(x, 0));
+        }
+    }
+
+    @Test
+    public void testFore ()
+    {
+        final ByteProcessor buffer = createBuffer(130, 40);
+        final BitPlane plane = BitPlane.fromFore(buffer);
+        final BitPlane transposed = plane.transpose();
+        assertArrayEquals(
+                (byte[]) buffer.getPixels(),
+                (byte[]) plane.toByteProcessor().getPixels());
+
+        for (int y = 0; y < 40; y++) {
+            int next = plane.nextSetBit(y, 0);
+
+            for (int x = 0; x < 130; x++) {
+                final boolean fore = buffer.get(x, y) == 0;
+                assertEquals(fore, plane.get(x, y));
+                assertEquals(fore, transposed.get(y, x));
+
+                if (x == next) {
+                    assertTrue(fore);
+                    next = plane.nextSetBit(y, x + 1);
+                } else {
+                    assertTrue((next == -1) || (next > x));
+                    assertFalse(fore);
+                }
+            }
+
+            assertEquals(-1, next);
+        }
+    }
+
+    private ByteProcessor createBuffer (int width,
+                                        int height)
+    {
+        final ByteProcessor buffer = new ByteProcessor(width, height);
+
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                buffer.set(x, y, (random.nextInt(5) == 0) ? 0 : 255);
+            }
+        }
+
+        return buffer;
+    }
+}
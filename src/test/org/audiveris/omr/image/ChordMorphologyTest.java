@@ -0,0 +1,201 @@
+//------------------------------------------------------------------------------------------------//
+//                                                                                                //
+//                             C h o r d M o r p h o l o g y T e s t                              //
+//                                                                                                //
+//------------------------------------------------------------------------------------------------//
+// <editor-fold defaultstate="collapsed" desc="hdr">
+//
+//  Copyright © Audiveris 2018. All rights reserved.
+//
+//  This program is free software: you can redistribute it and/or modify it under the terms of the
+//  GNU Affero General Public License as published by the Free Software Foundation, either version
+//  3 of the License, or (at your option) any later version.
+//
+//  This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+//  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+//  See the GNU Affero General Public License for more details.
+//
+//  You should have received a copy of the GNU Affero General Public License along with this
+//  program.  If not, see <http://www.gnu.org/licenses/>.
+//------------------------------------------------------------------------------------------------//
+// </editor-fold>
+
+package org.audiveris.omr.image;
+
+import ij.process.ByteProcessor;
+
+import org.audiveris.omr.run.Orientation;
+import org.audiveris.omr.run.RunTable;
+import org.audiveris.omr.run.RunTableFactory;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+import java.awt.Rectangle;
+import java.util.Random;
+
+/**
+ * Class {@code ChordMorphologyTest} checks chord morphology against the plain
+ * {@link MorphoProcessor}, for gray images and for binary run tables.
+ *
+ * @author Hervé Bitteur
+ */
+public class ChordMorphologyTest
+{
+
+    private static final float[] RADII = new float[]{0.5f, 1.1f, 2f, 3.5f, 5.6f, 8f};
+
+    private static final int[] OFFSET = new int[]{0, 0};
+
+    private final Random random = new Random(321);
+
+    @Test
+    public void testAsymmetric ()
+    {
+        // Rows of different lengths, not centered
+        final int[] mask = new int[]{
+            0, 255, 255, 0, 0,
+            0, 0, 255, 255, 255,
+            255, 255, 255, 0, 0};
+        final StructureElement se = new StructureElement(mask, 5);
+        final ChordMorphology morpho = new ChordMorphology(se);
+        final MorphoProcessor ref = new MorphoProcessor(se);
+        final ByteProcessor source = createGray(60, 40);
+
+        ByteProcessor expected = (ByteProcessor) source.duplicate();
+        ref.dilate(expected);
+
+        ByteProcessor actual = (ByteProcessor) source.duplicate();
+        morpho.dilate(actual);
+        assertArrayEquals((byte[]) expected.getPixels(), (byte[]) actual.getPixels());
+
+        expected = (ByteProcessor) source.duplicate();
+        ref.erode(expected);
+        actual = (ByteProcessor) source.duplicate();
+        morpho.erode(actual);
+        assertArrayEquals((byte[]) expected.getPixels(), (byte[]) actual.getPixels());
+    }
+
+    @Test
+    public void testGray ()
+    {
+        for (float radius : RADII) {
+            final StructureElement se = new StructureElement(0, 1, radius, OFFSET);
+            final ChordMorphology morpho = new ChordMorphology(se);
+            final MorphoProcessor ref = new MorphoProcessor(se);
+            final ByteProcessor source = createGray(150, 90);
+
+            ByteProcessor expected = (ByteProcessor) source.duplicate();
+            ref.close(expected);
+
+            ByteProcessor actual = (ByteProcessor) source.duplicate();
+            morpho.close(actual);
+            assertArrayEquals(
+                    "close radius " + radius,
+                    (byte[]) expected.getPixels(),
+                    (byte[]) actual.getPixels());
+
+            expected = (ByteProcessor) source.duplicate();
+            ref.dilate(expected);
+
+            for (int bandCount = 1; bandCount <= 4; bandCount++) {
+                final byte[] target = new byte[150 * 90];
+                morpho.apply((byte[]) source.getPixels(), target, 150, 90, true, bandCount);
+                assertArrayEquals(
+                        "dilate radius " + radius + " bands " + bandCount,
+                        (byte[]) expected.getPixels(),
+                        target);
+            }
+
+            expected = (ByteProcessor) source.duplicate();
+            ref.erode(expected);
+            actual = (ByteProcessor) source.duplicate();
+            morpho.erode(actual);
+            assertArrayEquals(
+                    "erode radius " + radius,
+                    (byte[]) expected.getPixels(),
+                    (byte[]) actual.getPixels());
+        }
+    }
+
+    @Test
+    public void testRuns ()
+    {
+        final RunTableFactory factory = new RunTableFactory(Orientation.HORIZONTAL);
+
+        for (float radius : RADII) {
+            final StructureElement se = new StructureElement(0, 1, radius, OFFSET);
+            final ChordMorphology morpho = new ChordMorphology(se);
+            final ByteProcessor source = createBinary(170, 80);
+            final RunTable table = factory.createTable(source);
+
+            // Gray dilation shrinks black foreground
+            ByteProcessor gray = (ByteProcessor) source.duplicate();
+            morpho.dilate(gray);
+            assertSame("erode radius " + radius, gray, morpho.erode(table));
+
+            gray = (ByteProcessor) source.duplicate();
+            morpho.erode(gray);
+            assertSame("dilate radius " + radius, gray, morpho.dilate(table));
+
+            gray = (ByteProcessor) source.duplicate();
+            morpho.close(gray);
+            assertSame("open radius " + radius, gray, morpho.open(table));
+
+            gray = (ByteProcessor) source.duplicate();
+            morpho.open(gray);
+            assertSame("close radius " + radius, gray, morpho.close(table));
+        }
+    }
+
+    private void assertSame (String message,
+                             ByteProcessor expected,
+                             RunTable actual)
+    {
+        assertArrayEquals(message, (byte[]) expected.getPixels(), (byte[]) actual.getBuffer()
+                .getPixels());
+    }
+
+    /**
+     * Binary image with blobs and thin lines of foreground, some touching image borders.
+     */
+    private ByteProcessor createBinary (int width,
+                                        int height)
+    {
+        final ByteProcessor proc = new ByteProcessor(width, height);
+        proc.setValue(255);
+        proc.fill();
+        proc.setValue(0);
+
+        for (int i = 0; i < ((width * height) / 400); i++) {
+            final int x = random.nextInt(width + 20) - 10;
+            final int y = random.nextInt(height + 20) - 10;
+
+            if (random.nextBoolean()) {
+                proc.setRoi(new Rectangle(x, y, 1 + random.nextInt(30), 1 + random.nextInt(12)));
+                proc.fill();
+                proc.resetRoi();
+            } else {
+                proc.drawLine(x, y, x + random.nextInt(40), y + random.nextInt(40) - 20);
+            }
+        }
+
+        return proc;
+    }
+
+    private ByteProcessor createGray (int width,
+                                      int height)
+    {
+        final ByteProcessor proc = createBinary(width, height);
+
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                if (random.nextInt(5) == 0) {
+                    proc.set(x, y, random.nextInt(256));
+                }
+            }
+        }
+
+        return proc;
+    }
+}
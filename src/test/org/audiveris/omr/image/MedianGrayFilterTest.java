@@ -21,12 +21,17 @@
 // </editor-fold>
 package org.audiveris.omr.image;
 
+import ij.process.ByteProcessor;
+
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.fail;
 import org.junit.Test;
 
 import java.awt.image.BufferedImage;
 import java.awt.image.Raster;
 import java.awt.image.WritableRaster;
+import java.util.Arrays;
+import java.util.Random;
 
 /**
  * Class {@code MedianGrayFilterTest}
@@ -139,6 +144,35 @@ public class MedianGrayFilterTest
         }
     }
 
+    /**
+     * Check sliding histograms (sequential and by bands) against the brute force filter,
+     * on noisy images of various sizes.
+     */
+    @Test
+    public void testRandom ()
+    {
+        final Random random = new Random(123);
+        final int[][] sizes = new int[][]{{1, 1}, {3, 2}, {9, 9}, {37, 23}, {120, 80}};
+
+        for (int radius = 1; radius <= 4; radius++) {
+            final MedianGrayFilter instance = new MedianGrayFilter(radius);
+
+            for (int[] size : sizes) {
+                final ByteProcessor input = createRandomProcessor(random, size[0], size[1]);
+                final byte[] expected = reference(input, radius);
+
+                for (int bandCount : new int[]{1, 3}) {
+                    final ByteProcessor output = new ByteProcessor(size[0], size[1]);
+                    instance.filter(input, output, bandCount);
+                    assertArrayEquals(
+                            "radius " + radius + " size " + Arrays.toString(size),
+                            expected,
+                            (byte[]) output.getPixels());
+                }
+            }
+        }
+    }
+
     private boolean areEqual (BufferedImage one,
                               BufferedImage two)
     {
@@ -236,4 +270,63 @@ public class MedianGrayFilterTest
             System.out.println();
         }
     }
+
+    private ByteProcessor createRandomProcessor (Random random,
+                                                int width,
+                                                int height)
+    {
+        final ByteProcessor proc = new ByteProcessor(width, height);
+
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                // Mostly white background, with some dark areas and noise
+                final boolean dark = ((x / 7) + (y / 5)) % 3 == 0;
+                final int val = dark ? random.nextInt(80) : (255 - random.nextInt(40));
+                proc.set(x, y, (random.nextInt(10) == 0) ? random.nextInt(256) : val);
+            }
+        }
+
+        return proc;
+    }
+
+    /**
+     * Brute force median, with radius reduced near image boundaries.
+     */
+    private static byte[] reference (ByteProcessor input,
+                                     int radius)
+    {
+        final int width = input.getWidth();
+        final int height = input.getHeight();
+        final byte[] result = new byte[width * height];
+        final int[] histogram = new int[256];
+
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                final int rad = Math.min(
+                        Math.min(radius, Math.min(x, y)),
+                        Math.min(width - 1 - x, height - 1 - y));
+                Arrays.fill(histogram, 0);
+
+                for (int i = x - rad; i <= (x + rad); i++) {
+                    for (int j = y - rad; j <= (y + rad); j++) {
+                        histogram[input.get(i, j)]++;
+                    }
+                }
+
+                final int side = (2 * rad) + 1;
+                final int medianCount = ((side * side) + 1) / 2;
+                int median = 255;
+                int sum = 0;
+
+                while (sum < medianCount) {
+                    sum += histogram[median];
+                    median--;
+                }
+
+                result[(y * width) + x] = (byte) (median + 1);
+            }
+        }
+
+        return result;
+    }
 }
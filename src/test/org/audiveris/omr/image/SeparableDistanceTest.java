@@ -0,0 +1,144 @@
+//------------------------------------------------------------------------------------------------//
+//                                                                                                //
+//                           S e p a r a b l e D i s t a n c e T e s t                            //
+//                                                                                                //
+//------------------------------------------------------------------------------------------------//
+// <editor-fold defaultstate="collapsed" desc="hdr">
+//
+//  Copyright © Audiveris 2018. All rights reserved.
+//
+//  This program is free software: you can redistribute it and/or modify it under the terms of the
+//  GNU Affero General Public License as published by the Free Software Foundation, either version
+//  3 of the License, or (at your option) any later version.
+//
+//  This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+//  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+//  See the GNU Affero General Public License for more details.
+//
+//  You should have received a copy of the GNU Affero General Public License along with this
+//  program.  If not, see <http://www.gnu.org/licenses/>.
+//------------------------------------------------------------------------------------------------//
+// </editor-fold>
+package org.audiveris.omr.image;
+
+import ij.process.ByteProcessor;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+import java.util.Random;
+
+/**
+ * Class {@code SeparableDistanceTest} checks the separable transform against a brute force
+ * Euclidean transform and against the chamfer transform for reference pixels.
+ *
+ * @author Hervé Bitteur
+ */
+public class SeparableDistanceTest
+{
+
+    private final Random random = new Random(321);
+
+    @Test
+    public void testCompute ()
+    {
+        for (int loop = 0; loop < 20; loop++) {
+            final int width = 1 + random.nextInt(60);
+            final int height = 1 + random.nextInt(60);
+            final ByteProcessor input = createImage(width, height, random.nextInt(30));
+
+            checkTable(input, new SeparableDistance().computeToFore(input), true);
+            checkTable(input, new SeparableDistance().computeToBack(input), false);
+        }
+    }
+
+    @Test
+    public void testComputeBooleans ()
+    {
+        final boolean[][] input = new boolean[40][30];
+        input[3][4] = true;
+        input[35][20] = true;
+
+        final DistanceTable table = new SeparableDistance().compute(input);
+        assertEquals(0, table.getValue(3, 4));
+        assertEquals(0, table.getValue(35, 20));
+        assertEquals(Math.round(3 * Math.hypot(3, 4)), table.getValue(0, 0));
+        assertEquals(Math.round(3 * Math.hypot(4, 9)), table.getValue(39, 29));
+    }
+
+    @Test
+    public void testEmpty ()
+    {
+        final ByteProcessor input = createImage(50, 20, 0);
+        final DistanceTable table = new SeparableDistance().computeToFore(input);
+
+        for (int i = (50 * 20) - 1; i >= 0; i--) {
+            assertEquals(ChamferDistance.VALUE_UNKNOWN, table.getValue(i));
+        }
+    }
+
+    /**
+     * Compare the table with a brute force transform, and with the chamfer transform for
+     * reference pixels.
+     */
+    private void checkTable (ByteProcessor input,
+                             DistanceTable table,
+                             boolean toFore)
+    {
+        final int width = input.getWidth();
+        final int height = input.getHeight();
+        final DistanceTable chamfer = toFore ? new ChamferDistance.Short().computeToFore(input)
+                : new ChamferDistance.Short().computeToBack(input);
+        assertEquals(width, table.getWidth());
+        assertEquals(height, table.getHeight());
+        assertEquals(chamfer.getNormalizer(), table.getNormalizer());
+
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                long best = Long.MAX_VALUE;
+
+                for (int ty = 0; ty < height; ty++) {
+                    for (int tx = 0; tx < width; tx++) {
+                        if ((input.get(tx, ty) == 0) == toFore) {
+                            final long dx = tx - x;
+                            final long dy = ty - y;
+                            best = Math.min(best, (dx * dx) + (dy * dy));
+                        }
+                    }
+                }
+
+                final int expected = (best == Long.MAX_VALUE) ? ChamferDistance.VALUE_UNKNOWN
+                        : (int) Math.round(3 * Math.sqrt(best));
+                assertEquals(expected, table.getValue(x, y));
+                assertEquals(chamfer.getValue(x, y), table.getValue(x, y), 1 + (expected / 10.0));
+            }
+        }
+    }
+
+    /**
+     * Create an image with a few black rectangles on a white background.
+     */
+    private ByteProcessor createImage (int width,
+                                       int height,
+                                       int count)
+    {
+        final ByteProcessor img = new ByteProcessor(width, height);
+        img.setValue(255);
+        img.fill();
+
+        for (int i = 0; i < count; i++) {
+            final int x = random.nextInt(width);
+            final int y = random.nextInt(height);
+            final int w = 1 + random.nextInt(Math.max(1, width / 8));
+            final int h = 1 + random.nextInt(Math.max(1, height / 8));
+
+            for (int yy = y; yy < Math.min(height, y + h); yy++) {
+                for (int xx = x; xx < Math.min(width, x + w); xx++) {
+                    img.set(xx, yy, 0);
+                }
+            }
+        }
+
+        return img;
+    }
+}
@@ -0,0 +1,306 @@
+//------------------------------------------------------------------------------------------------//
+//                                                                                                //
+//                              T e m p l a t e K e r n e l T e s t                               //
+//                                                                                                //
+//------------------------------------------------------------------------------------------------//
+// <editor-fold defaultstate="collapsed" desc="hdr">
+//
+//  Copyright © Audiveris 2018. All rights reserved.
+//
+//  This program is free software: you can redistribute it and/or modify it under the terms of the
+//  GNU Affero General Public License as published by the Free Software Foundation, either version
+//  3 of the License, or (at your option) any later version.
+//
+//  This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+//  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+//  See the GNU Affero General Public License for more details.
+//
+//  You should have received a copy of the GNU Affero General Public License along with this
+//  program.  If not, see <http://www.gnu.org/licenses/>.
+//------------------------------------------------------------------------------------------------//
+// </editor-fold>
+package org.audiveris.omr.image;
+
+import org.audiveris.omr.glyph.Shape;
+import org.audiveris.omr.image.Anchored.Anchor;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+import java.awt.Rectangle;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Class {@code TemplateKernelTest} checks compiled template evaluation against a plain
+ * evaluation of key points.
+ *
+ * @author Hervé Bitteur
+ */
+public class TemplateKernelTest
+{
+
+    private static final int WIDTH = 300;
+
+    private static final int HEIGHT = 200;
+
+    private final Random random = new Random(789);
+
+    @Test
+    public void testEvaluate ()
+    {
+        final DistanceTable table = createTable();
+        final Template template = createTemplate(Shape.NOTEHEAD_BLACK, 16, 14);
+
+        // Locations both inside and across table borders
+        for (int y = -20; y < (HEIGHT + 5); y += 3) {
+            for (int x = -20; x < (WIDTH + 5); x += 7) {
+                assertEquals(
+                        reference(template, x, y, Anchor.CENTER, table),
+                        template.evaluate(x, y, Anchor.CENTER, table),
+                        1e-9);
+            }
+        }
+    }
+
+    @Test
+    public void testEvaluateHole ()
+    {
+        final DistanceTable table = createTable();
+        final Template template = createTemplate(Shape.NOTEHEAD_VOID, 16, 14);
+
+        for (int y = -10; y < HEIGHT; y += 5) {
+            for (int x = -10; x < WIDTH; x += 5) {
+                assertEquals(
+                        referenceHole(template, x, y, Anchor.CENTER, table),
+                        template.evaluateHole(x, y, Anchor.CENTER, table),
+                        1e-9);
+            }
+        }
+    }
+
+    @Test
+    public void testMulti ()
+    {
+        final DistanceTable table = createTable();
+        final List<Template> templates = createTemplates();
+        final TemplateKernel.Multi multi = new TemplateKernel.Multi(templates, Anchor.CENTER);
+
+        for (int y = -20; y < (HEIGHT + 5); y += 3) {
+            for (int x = -20; x < (WIDTH + 5); x += 7) {
+                final double[] dists = Template.evaluateBatch(multi, x, y, table);
+
+                for (int t = 0; t < templates.size(); t++) {
+                    assertEquals(
+                            reference(templates.get(t), x, y, Anchor.CENTER, table),
+                            dists[t],
+                            1e-9);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testPacked ()
+    {
+        final DistanceTable table = createTable();
+        final DistanceTable packed = createPacked(table);
+        final List<Template> templates = createTemplates();
+        final TemplateKernel.Multi multi = new TemplateKernel.Multi(templates, Anchor.CENTER);
+
+        for (int y = -20; y < (HEIGHT + 5); y += 3) {
+            for (int x = -70; x < (WIDTH + 5); x += 7) {
+                for (Template template : templates) {
+                    assertEquals(
+                            template.evaluate(x, y, Anchor.CENTER, table),
+                            template.evaluate(x, y, Anchor.CENTER, packed),
+                            1e-9);
+                    assertEquals(
+                            template.evaluateHole(x, y, Anchor.CENTER, table),
+                            template.evaluateHole(x, y, Anchor.CENTER, packed),
+                            1e-9);
+                }
+
+                assertArrayEquals(
+                        Template.evaluateBatch(multi, x, y, table),
+                        Template.evaluateBatch(multi, x, y, packed),
+                        1e-9);
+            }
+        }
+    }
+
+    @Test
+    public void testPackedTable ()
+    {
+        final DistanceTable table = createTable();
+        final DistanceTable packed = createPacked(table);
+
+        for (int i = (WIDTH * HEIGHT) - 1; i >= 0; i--) {
+            assertEquals(Integer.signum(table.getValue(i)), packed.getValue(i));
+        }
+
+        final Rectangle roi = new Rectangle(37, 11, 90, 40);
+        final DistanceTable view = (DistanceTable) packed.getView(roi);
+        final DistanceTable copy = (DistanceTable) packed.getCopy(roi);
+
+        for (int y = 0; y < roi.height; y++) {
+            for (int x = 0; x < roi.width; x++) {
+                final int expected = Integer.signum(table.getValue(x + roi.x, y + roi.y));
+                assertEquals(expected, view.getValue(x, y));
+                assertEquals(expected, copy.getValue(x, y));
+            }
+        }
+
+        view.fill(ChamferDistance.VALUE_UNKNOWN);
+        assertEquals(ChamferDistance.VALUE_UNKNOWN, packed.getValue(roi.x, roi.y));
+        assertEquals(Integer.signum(table.getValue(roi.x - 1, roi.y)),
+                     packed.getValue(roi.x - 1, roi.y));
+
+        packed.fill(0);
+        assertEquals(0, packed.getValue(WIDTH - 1, HEIGHT - 1));
+    }
+
+    private DistanceTable createPacked (DistanceTable table)
+    {
+        final DistanceTable packed = new DistanceTable.Packed(WIDTH, HEIGHT, 3);
+
+        for (int y = 0; y < HEIGHT; y++) {
+            for (int x = 0; x < WIDTH; x++) {
+                packed.setValue(x, y, table.getValue(x, y));
+            }
+        }
+
+        return packed;
+    }
+
+    private DistanceTable createTable ()
+    {
+        final DistanceTable table = new DistanceTable.Short(WIDTH, HEIGHT, 3);
+
+        for (int y = 0; y < HEIGHT; y++) {
+            for (int x = 0; x < WIDTH; x++) {
+                final int r = random.nextInt(20);
+                table.setValue(x, y, (r < 8) ? 0 : ((r == 19) ? ChamferDistance.VALUE_UNKNOWN : r));
+            }
+        }
+
+        return table;
+    }
+
+    /**
+     * Create a template roughly similar to a head: an elliptic foreground, with background
+     * around it and, for a void shape, a hole in its middle.
+     */
+    private Template createTemplate (Shape shape,
+                                     int width,
+                                     int height)
+    {
+        final boolean hasHole = shape != Shape.NOTEHEAD_BLACK;
+        final List<PixelDistance> keyPoints = new ArrayList<>();
+        final double a = (width - 4) / 2.0;
+        final double b = (height - 4) / 2.0;
+
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                final double dx = (x - ((width - 1) / 2.0)) / a;
+                final double dy = (y - ((height - 1) / 2.0)) / b;
+                final double r = Math.hypot(dx, dy);
+
+                if (r > 1.2) {
+                    keyPoints.add(new PixelDistance(x, y, 2));
+                } else if (r <= 1) {
+                    keyPoints.add(new PixelDistance(x, y, (hasHole && (r < 0.5)) ? -1 : 0));
+                }
+            }
+        }
+
+        final Template template = new Template(
+                shape,
+                20,
+                null,
+                width,
+                height,
+                keyPoints,
+                new Rectangle(0, 0, width, height));
+        template.addAnchor(Anchor.CENTER, width / 2, height / 2);
+
+        return template;
+    }
+
+    private List<Template> createTemplates ()
+    {
+        return Arrays.asList(
+                createTemplate(Shape.NOTEHEAD_BLACK, 16, 14),
+                createTemplate(Shape.NOTEHEAD_VOID, 16, 14),
+                createTemplate(Shape.WHOLE_NOTE, 20, 14),
+                createTemplate(Shape.NOTEHEAD_BLACK_SMALL, 11, 10));
+    }
+
+    /**
+     * Plain evaluation, as performed on key points before template compilation.
+     */
+    private static double reference (Template template,
+                                     int x,
+                                     int y,
+                                     Anchor anchor,
+                                     DistanceTable distances)
+    {
+        final int ulx = x - template.getOffset(anchor).x;
+        final int uly = y - template.getOffset(anchor).y;
+        double weights = 0;
+        double total = 0;
+
+        for (PixelDistance pix : template.getKeyPoints()) {
+            final int nx = ulx + pix.x;
+            final int ny = uly + pix.y;
+
+            if ((nx >= 0) && (nx < distances.getWidth()) && (ny >= 0)
+                && (ny < distances.getHeight())) {
+                final int actualDist = distances.getValue(nx, ny);
+
+                if (actualDist != ChamferDistance.VALUE_UNKNOWN) {
+                    final double expected = (pix.d == 0) ? 0 : 1;
+                    final double actual = (actualDist == 0) ? 0 : 1;
+                    total += Math.abs(actual - expected);
+                    weights += 1;
+                }
+            }
+        }
+
+        return (weights == 0) ? Double.MAX_VALUE : (total / weights);
+    }
+
+    private static double referenceHole (Template template,
+                                         int x,
+                                         int y,
+                                         Anchor anchor,
+                                         DistanceTable distances)
+    {
+        final int ulx = x - template.getOffset(anchor).x;
+        final int uly = y - template.getOffset(anchor).y;
+        int expected = 0;
+        int actual = 0;
+
+        for (PixelDistance pix : template.getKeyPoints()) {
+            final int nx = ulx + pix.x;
+            final int ny = uly + pix.y;
+
+            if ((pix.d < 0) && (nx >= 0) && (nx < distances.getWidth()) && (ny >= 0)
+                && (ny < distances.getHeight())) {
+                final int actualDist = distances.getValue(nx, ny);
+
+                if (actualDist != ChamferDistance.VALUE_UNKNOWN) {
+                    expected++;
+
+                    if (actualDist != 0) {
+                        actual++;
+                    }
+                }
+            }
+        }
+
+        return (expected == 0) ? 0 : ((double) actual / expected);
+    }
+}
@@ -0,0 +1,96 @@
+//------------------------------------------------------------------------------------------------//
+//                                                                                                //
+//                                    T h i n n i n g T e s t                                     //
+//                                                                                                //
+//------------------------------------------------------------------------------------------------//
+// <editor-fold defaultstate="collapsed" desc="hdr">
+//
+//  Copyright © Audiveris 2018. All rights reserved.
+//
+//  This program is free software: you can redistribute it and/or modify it under the terms of the
+//  GNU Affero General Public License as published by the Free Software Foundation, either version
+//  3 of the License, or (at your option) any later version.
+//
+//  This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+//  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+//  See the GNU Affero General Public License for more details.
+//
+//  You should have received a copy of the GNU Affero General Public License along with this
+//  program.  If not, see <http://www.gnu.org/licenses/>.
+//------------------------------------------------------------------------------------------------//
+// </editor-fold>
+package org.audiveris.omr.image;
+
+import ij.process.ByteProcessor;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+import java.util.Random;
+
+/**
+ * Class {@code ThinningTest} checks packed thinning against ImageJ skeletonization.
+ *
+ * @author Hervé Bitteur
+ */
+public class ThinningTest
+{
+
+    private final Random random = new Random(654);
+
+    @Test
+    public void testSkeletonize ()
+    {
+        for (int loop = 0; loop < 20; loop++) {
+            final ByteProcessor input = createImage(
+                    3 + random.nextInt(150),
+                    3 + random.nextInt(100),
+                    random.nextInt(40));
+
+            for (int bandCount : new int[]{1, 3}) {
+                final BitPlane plane = BitPlane.fromFore(input);
+                Thinning.skeletonize(plane, bandCount);
+                assertArrayEquals(
+                        (byte[]) reference(input).getPixels(),
+                        (byte[]) plane.toByteProcessor().getPixels());
+            }
+        }
+    }
+
+    /**
+     * Create an image with a few black ellipses and bars on a white background.
+     */
+    private ByteProcessor createImage (int width,
+                                       int height,
+                                       int count)
+    {
+        final ByteProcessor img = new ByteProcessor(width, height);
+        img.setValue(255);
+        img.fill();
+        img.setValue(0);
+
+        for (int i = 0; i < count; i++) {
+            final int x = random.nextInt(width);
+            final int y = random.nextInt(height);
+            final int w = 1 + random.nextInt(Math.max(1, Math.min(300, width / 6)));
+            final int h = 1 + random.nextInt(Math.max(1, Math.min(300, height / 6)));
+
+            if (random.nextBoolean()) {
+                img.fillOval(x, y, w, h);
+            } else {
+                img.setLineWidth(1 + random.nextInt(5));
+                img.drawLine(x, y, x + w, y + h - (h / 2));
+            }
+        }
+
+        return img;
+    }
+
+    private ByteProcessor reference (ByteProcessor input)
+    {
+        final ByteProcessor ref = (ByteProcessor) input.duplicate();
+        ref.skeletonize();
+
+        return ref;
+    }
+}
@@ -77,6 +77,31 @@ public class GeometricMomentsTest
         }
     }
 
+    @Test
+    public void testAccumulator ()
+    {
+        GeometricMoments m = new GeometricMoments(xx, yy, xx.length, 2);
+
+        // Split points into two disjoint accumulators, then combine them
+        GeometricMoments.Accumulator first = new GeometricMoments.Accumulator(1, 0);
+        GeometricMoments.Accumulator second = new GeometricMoments.Accumulator(1, 0);
+
+        for (int i = 0; i < xx.length; i++) {
+            ((i < 2) ? first : second).include(xx[i], yy[i]);
+        }
+
+        GeometricMoments.Accumulator all = new GeometricMoments.Accumulator(first);
+        all.include(second);
+        assertEquals(xx.length, all.getWeight());
+
+        double[] k = m.getValues();
+        double[] ka = all.getMoments(2).getValues();
+
+        for (int i = 0; i < GeometricMoments.size; i++) {
+            assertNears(GeometricMoments.getLabel(i), ka[i], k[i]);
+        }
+    }
+
     @Test
     public void testDefaultConstructor ()
     {
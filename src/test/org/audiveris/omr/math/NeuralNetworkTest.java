@@ -0,0 +1,123 @@
+//------------------------------------------------------------------------------------------------//
+//                                                                                                //
+//                               N e u r a l N e t w o r k T e s t                                //
+//                                                                                                //
+//------------------------------------------------------------------------------------------------//
+// <editor-fold defaultstate="collapsed" desc="hdr">
+//
+//  Copyright © Audiveris 2018. All rights reserved.
+//
+//  This program is free software: you can redistribute it and/or modify it under the terms of the
+//  GNU Affero General Public License as published by the Free Software Foundation, either version
+//  3 of the License, or (at your option) any later version.
+//
+//  This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+//  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+//  See the GNU Affero General Public License for more details.
+//
+//  You should have received a copy of the GNU Affero General Public License along with this
+//  program.  If not, see <http://www.gnu.org/licenses/>.
+//------------------------------------------------------------------------------------------------//
+// </editor-fold>
+package org.audiveris.omr.math;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+import java.util.Random;
+
+/**
+ * Class {@code NeuralNetworkTest} checks the batch evaluation of a network against its
+ * pattern-by-pattern run.
+ *
+ * @author Hervé Bitteur
+ */
+public class NeuralNetworkTest
+{
+
+    private static final int INPUTS = 110;
+
+    private static final int HIDDENS = 180;
+
+    private static final int OUTPUTS = 180;
+
+    private final Random random = new Random(321);
+
+    @Test
+    public void testEvaluate ()
+    {
+        final NeuralNetwork network = createNetwork();
+
+        for (int count : new int[]{1, 7, 32, 75}) {
+            final float[] ins = createInputs(count);
+            final float[] outs = network.evaluate(ins, count, null);
+
+            for (int p = 0; p < count; p++) {
+                final double[] refs = network.run(row(ins, p), null, null);
+
+                for (int o = 0; o < OUTPUTS; o++) {
+                    assertEquals(refs[o], outs[(p * OUTPUTS) + o], 1e-4);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testRestore ()
+    {
+        final NeuralNetwork network = createNetwork();
+        final NeuralNetwork.Backup backup = network.backup();
+        final float[] ins = createInputs(3);
+        final float[] outs = network.evaluate(ins, 3, null);
+
+        network.train(
+                new double[][]{row(ins, 0)},
+                new double[][]{new double[OUTPUTS]},
+                null,
+                1);
+        assertTrue(Math.abs(outs[0] - network.evaluate(ins, 3, null)[0]) > 1e-9);
+
+        network.restore(backup);
+        assertArrayEquals(outs, network.evaluate(ins, 3, null), 0f);
+    }
+
+    private float[] createInputs (int count)
+    {
+        final float[] ins = new float[count * INPUTS];
+
+        for (int i = 0; i < ins.length; i++) {
+            // Normalized features, some of them being null
+            ins[i] = (random.nextInt(5) == 0) ? 0 : (float) random.nextGaussian();
+        }
+
+        return ins;
+    }
+
+    private NeuralNetwork createNetwork ()
+    {
+        final String[] inputLabels = new String[INPUTS];
+        final String[] outputLabels = new String[OUTPUTS];
+
+        for (int i = 0; i < INPUTS; i++) {
+            inputLabels[i] = "in" + i;
+        }
+
+        for (int o = 0; o < OUTPUTS; o++) {
+            outputLabels[o] = "out" + o;
+        }
+
+        return new NeuralNetwork(INPUTS, HIDDENS, OUTPUTS, 0.5, inputLabels, outputLabels);
+    }
+
+    private static double[] row (float[] ins,
+                                 int pattern)
+    {
+        final double[] row = new double[INPUTS];
+
+        for (int i = 0; i < INPUTS; i++) {
+            row[i] = ins[(pattern * INPUTS) + i];
+        }
+
+        return row;
+    }
+}
@@ -55,6 +55,8 @@ public class RunTableBindingTest
     //~ Instance fields ----------------------------------------------------------------------------
     private final File fileTable = new File(dir, "runtable.xml");
 
+    private final File binaryFileTable = new File(dir, "runtable" + RunTableCodec.EXTENSION);
+
     private JAXBContext jaxbContext;
 
     //~ Methods ------------------------------------------------------------------------------------
@@ -94,6 +96,25 @@ public class RunTableBindingTest
         assertEquals(table, newTable);
     }
 
+    @Test
+    public void testBinaryTable ()
+            throws IOException, JAXBException, XMLStreamException
+    {
+        dir.mkdirs();
+        Files.deleteIfExists(binaryFileTable.toPath());
+
+        RunTable table = createHorizontalInstance();
+        table.marshal(binaryFileTable.toPath());
+        System.out.println("Marshalled to " + binaryFileTable);
+
+        RunTable newTable = RunTable.unmarshal(binaryFileTable.toPath());
+        newTable.dumpSequences();
+        System.out.println("newTable: " + newTable.dumpOf());
+
+        assertEquals(table.dumpOf(), newTable.dumpOf());
+        assertEquals(table, newTable);
+    }
+
     //--------------------------//
     // createHorizontalInstance //
     //--------------------------//
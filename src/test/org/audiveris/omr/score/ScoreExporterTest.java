@@ -0,0 +1,97 @@
+//------------------------------------------------------------------------------------------------//
+//                                                                                                //
+//                               S c o r e E x p o r t e r T e s t                                //
+//                                                                                                //
+//------------------------------------------------------------------------------------------------//
+// <editor-fold defaultstate="collapsed" desc="hdr">
+//
+//  Copyright © Audiveris 2018. All rights reserved.
+//
+//  This program is free software: you can redistribute it and/or modify it under the terms of the
+//  GNU Affero General Public License as published by the Free Software Foundation, either version
+//  3 of the License, or (at your option) any later version.
+//
+//  This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+//  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+//  See the GNU Affero General Public License for more details.
+//
+//  You should have received a copy of the GNU Affero General Public License along with this
+//  program.  If not, see <http://www.gnu.org/licenses/>.
+//------------------------------------------------------------------------------------------------//
+// </editor-fold>
+package org.audiveris.omr.score;
+
+import org.audiveris.omr.OMR;
+import org.audiveris.omr.sheet.Book;
+import org.audiveris.omr.sheet.BookManager;
+
+import static org.junit.Assert.*;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.file.Paths;
+
+/**
+ * Class {@code ScoreExporterTest} checks that a score streamed page after page is
+ * exported exactly as when marshalled at once.
+ *
+ * @author Hervé Bitteur
+ */
+public class ScoreExporterTest
+{
+
+    @BeforeClass
+    public static void setUpClass ()
+    {
+        if (OMR.engine == null) {
+            OMR.engine = BookManager.getInstance();
+        }
+    }
+
+    @Test
+    public void testStreamingMultiPage ()
+            throws Exception
+    {
+        // Two sheets, hence more than one page to stream
+        checkStreaming("data/examples/Dichterliebe01.pdf");
+    }
+
+    @Test
+    public void testStreamingSinglePage ()
+            throws Exception
+    {
+        checkStreaming("data/examples/chula.png");
+    }
+
+    private void checkStreaming (String input)
+            throws Exception
+    {
+        final Book book = new Book(Paths.get(input));
+
+        try {
+            book.createStubs(null);
+            book.transcribe();
+            assertFalse(book.getScores().isEmpty());
+
+            for (Score score : book.getScores()) {
+                final byte[] expected = export(score, Integer.MAX_VALUE);
+                final byte[] streamed = export(score, 1);
+                assertTrue(expected.length > 0);
+                assertArrayEquals(score.toString(), expected, streamed);
+            }
+        } finally {
+            book.close();
+        }
+    }
+
+    private byte[] export (Score score,
+                           int minStreamingPages)
+            throws Exception
+    {
+        final ByteArrayOutputStream os = new ByteArrayOutputStream();
+        ScoreExporter.marshal(score, os, true, minStreamingPages);
+
+        return os.toByteArray();
+    }
+}
@@ -0,0 +1,221 @@
+//------------------------------------------------------------------------------------------------//
+//                                                                                                //
+//                                   T i l e C a c h e T e s t                                    //
+//                                                                                                //
+//------------------------------------------------------------------------------------------------//
+// <editor-fold defaultstate="collapsed" desc="hdr">
+//
+//  Copyright © Audiveris 2018. All rights reserved.
+//
+//  This program is free software: you can redistribute it and/or modify it under the terms of the
+//  GNU Affero General Public License as published by the Free Software Foundation, either version
+//  3 of the License, or (at your option) any later version.
+//
+//  This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+//  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+//  See the GNU Affero General Public License for more details.
+//
+//  You should have received a copy of the GNU Affero General Public License along with this
+//  program.  If not, see <http://www.gnu.org/licenses/>.
+//------------------------------------------------------------------------------------------------//
+// </editor-fold>
+package org.audiveris.omr.ui.view;
+
+import ij.process.ByteProcessor;
+
+import static org.audiveris.omr.run.Orientation.HORIZONTAL;
+import org.audiveris.omr.run.RunTable;
+import org.audiveris.omr.run.RunTableFactory;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.Point;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Class {@code TileCacheTest} checks that a tiled rendering gives the same pixels as a
+ * direct rendering, and that tiles are reused until invalidated.
+ *
+ * @author Hervé Bitteur
+ */
+public class TileCacheTest
+{
+
+    private static final int WIDTH = 700;
+
+    private static final int HEIGHT = 500;
+
+    private final Random random = new Random(321);
+
+    @Test
+    public void testAffectedTiles ()
+    {
+        final RunTable table = createTable();
+        final List<Rectangle> painted = new ArrayList<>();
+        final TileCache cache = new TileCache(new TileCache.Painter()
+        {
+            @Override
+            public void paint (Graphics2D g)
+            {
+                painted.add(g.getClipBounds());
+                table.render(g, new Point(0, 0));
+            }
+        });
+
+        final Rectangle clip = new Rectangle(0, 0, WIDTH, HEIGHT);
+        final BufferedImage before = draw(cache, 2.0, clip);
+        assertTrue(painted.size() > 2);
+
+        // Modified area straddles the border between the first two tiles
+        final Rectangle area = new Rectangle(120, 60, 20, 10);
+        painted.clear();
+        cache.invalidate(area);
+
+        final BufferedImage after = draw(cache, 2.0, clip);
+        assertEquals(2, painted.size());
+
+        for (Rectangle rect : painted) {
+            assertTrue(rect + " vs " + area, rect.intersects(area));
+        }
+
+        // Table unchanged, hence same pixels
+        assertImageEquals(before, after);
+    }
+
+    @Test
+    public void testInvalidate ()
+    {
+        final RunTable table = createTable();
+        final int[] count = new int[1];
+        final TileCache cache = new TileCache(new TileCache.Painter()
+        {
+            @Override
+            public void paint (Graphics2D g)
+            {
+                count[0]++;
+                table.render(g, new Point(0, 0));
+            }
+        });
+
+        final Rectangle clip = new Rectangle(0, 0, 300, 300);
+        draw(cache, 1.0, clip);
+
+        final int first = count[0];
+        assertTrue(first > 0);
+
+        // Same area: all tiles reused
+        draw(cache, 1.0, clip);
+        assertEquals(first, count[0]);
+
+        // Invalidate just one tile
+        cache.invalidate(new Rectangle(10, 10, 5, 5));
+        draw(cache, 1.0, clip);
+        assertEquals(first + 1, count[0]);
+
+        // Same signature: no effect, new signature: all tiles rendered again
+        cache.validate("a");
+        draw(cache, 1.0, clip);
+        assertEquals(first + first + 1, count[0]);
+        cache.validate("a");
+        draw(cache, 1.0, clip);
+        assertEquals(first + first + 1, count[0]);
+    }
+
+    @Test
+    public void testRender ()
+    {
+        final RunTable table = createTable();
+        final TileCache cache = new TileCache(new TileCache.Painter()
+        {
+            @Override
+            public void paint (Graphics2D g)
+            {
+                table.render(g, new Point(0, 0));
+            }
+        });
+
+        for (double ratio : new double[]{1.0, 2.0, 0.5, 3.0}) {
+            for (int i = 0; i < 5; i++) {
+                final Rectangle clip = new Rectangle(
+                        random.nextInt(WIDTH / 2),
+                        random.nextInt(HEIGHT / 2),
+                        50 + random.nextInt(WIDTH / 2),
+                        50 + random.nextInt(HEIGHT / 2));
+                final BufferedImage expected = createImage(ratio);
+                final Graphics2D g = createGraphics(expected, ratio, clip);
+                table.render(g, new Point(0, 0));
+                g.dispose();
+
+                assertImageEquals(expected, draw(cache, ratio, clip));
+            }
+        }
+    }
+
+    private void assertImageEquals (BufferedImage expected,
+                                    BufferedImage actual)
+    {
+        for (int y = 0; y < expected.getHeight(); y++) {
+            for (int x = 0; x < expected.getWidth(); x++) {
+                assertEquals("x:" + x + " y:" + y, expected.getRGB(x, y), actual.getRGB(x, y));
+            }
+        }
+    }
+
+    private Graphics2D createGraphics (BufferedImage img,
+                                       double ratio,
+                                       Rectangle clip)
+    {
+        final Graphics2D g = img.createGraphics();
+        g.setColor(Color.BLACK);
+        g.scale(ratio, ratio);
+        g.clip(clip);
+
+        return g;
+    }
+
+    private BufferedImage createImage (double ratio)
+    {
+        final BufferedImage img = new BufferedImage(
+                (int) Math.ceil(WIDTH * ratio),
+                (int) Math.ceil(HEIGHT * ratio),
+                BufferedImage.TYPE_INT_ARGB);
+        final Graphics2D g = img.createGraphics();
+        g.setColor(Color.WHITE);
+        g.fillRect(0, 0, img.getWidth(), img.getHeight());
+        g.dispose();
+
+        return img;
+    }
+
+    private RunTable createTable ()
+    {
+        final ByteProcessor img = new ByteProcessor(WIDTH, HEIGHT);
+
+        for (int y = 0; y < HEIGHT; y++) {
+            for (int x = 0; x < WIDTH; x++) {
+                img.set(x, y, (random.nextInt(100) < 30) ? 0 : 255);
+            }
+        }
+
+        return new RunTableFactory(HORIZONTAL).createTable(img);
+    }
+
+    private BufferedImage draw (TileCache cache,
+                                double ratio,
+                                Rectangle clip)
+    {
+        final BufferedImage img = createImage(ratio);
+        final Graphics2D g = createGraphics(img, ratio, clip);
+        cache.render(g);
+        g.dispose();
+
+        return img;
+    }
+}
@@ -0,0 +1,505 @@
+//------------------------------------------------------------------------------------------------//
+//                                                                                                //
+//                                   B i n a r y X m l T e s t                                    //
+//                                                                                                //
+//------------------------------------------------------------------------------------------------//
+// <editor-fold defaultstate="collapsed" desc="hdr">
+//
+//  Copyright © Audiveris 2018. All rights reserved.
+//
+//  This program is free software: you can redistribute it and/or modify it under the terms of the
+//  GNU Affero General Public License as published by the Free Software Foundation, either version
+//  3 of the License, or (at your option) any later version.
+//
+//  This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+//  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+//  See the GNU Affero General Public License for more details.
+//
+//  You should have received a copy of the GNU Affero General Public License along with this
+//  program.  If not, see <http://www.gnu.org/licenses/>.
+//------------------------------------------------------------------------------------------------//
+// </editor-fold>
+package org.audiveris.omr.util;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import javax.xml.bind.JAXBContext;
+import javax.xml.bind.JAXBException;
+import javax.xml.bind.Unmarshaller;
+import javax.xml.bind.annotation.XmlAccessType;
+import javax.xml.bind.annotation.XmlAccessorType;
+import javax.xml.bind.annotation.XmlAttribute;
+import javax.xml.bind.annotation.XmlElement;
+import javax.xml.bind.annotation.XmlElementRef;
+import javax.xml.bind.annotation.XmlList;
+import javax.xml.bind.annotation.XmlRootElement;
+import javax.xml.bind.annotation.XmlSeeAlso;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.stream.XMLStreamWriter;
+
+/**
+ * Class {@code BinaryXmlTest} checks that JAXB marshalling through binary XML gives the
+ * same object model as through plain XML, and that a sheet-like XML content goes through
+ * binary XML unchanged.
+ *
+ * @author Hervé Bitteur
+ */
+public class BinaryXmlTest
+{
+
+    private final Random random = new Random(123);
+
+    private final JAXBContext jaxbContext;
+
+    public BinaryXmlTest ()
+            throws JAXBException
+    {
+        jaxbContext = JAXBContext.newInstance(Book.class);
+    }
+
+    @Test
+    public void testIsBinary ()
+            throws Exception
+    {
+        final Book book = createBook(10);
+
+        assertTrue(BinaryXml.isBinary(toStream(toBinary(book))));
+        assertFalse(BinaryXml.isBinary(toStream(toXml(book))));
+        assertFalse(BinaryXml.isBinary(toStream(new byte[2])));
+    }
+
+    @Test
+    public void testRoundTrip ()
+            throws Exception
+    {
+        final Book book = createBook(200);
+        final byte[] xml = toXml(book);
+        final Book copy = fromBinary(toBinary(book));
+
+        assertEquals(new String(xml, "UTF-8"), new String(toXml(copy), "UTF-8"));
+
+        // Unmarshalling hooks are called as usual
+        for (Page page : copy.pages) {
+            assertSame(copy, page.book);
+        }
+    }
+
+    @Test
+    public void testSheetRoundTrip ()
+            throws Exception
+    {
+        final byte[] xml = createSheet(12);
+        final XMLInputFactory inputFactory = XMLInputFactory.newInstance();
+
+        // Plain XML -> binary XML -> plain XML
+        final ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        copy(inputFactory.createXMLStreamReader(toStream(xml)), new BinaryXml.StreamWriter(bos));
+
+        final byte[] binary = bos.toByteArray();
+        assertTrue(BinaryXml.isBinary(toStream(binary)));
+
+        final String expected = toPlainXml(inputFactory.createXMLStreamReader(toStream(xml)));
+        final String actual = toPlainXml(new BinaryXml.StreamReader(toStream(binary)));
+        assertEquals(expected, actual);
+    }
+
+    @Test
+    public void testSheetSize ()
+            throws Exception
+    {
+        final byte[] xml = createSheet(12);
+        final ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        copy(XMLInputFactory.newInstance().createXMLStreamReader(toStream(xml)),
+             new BinaryXml.StreamWriter(bos));
+
+        // Element and attribute names are written only once
+        assertTrue(bos.size() + " vs " + xml.length, (2 * bos.size()) < xml.length);
+    }
+
+    @Test(expected = XMLStreamException.class)
+    public void testVersion ()
+            throws Exception
+    {
+        final byte[] bytes = toBinary(createBook(10));
+        bytes[4]++;
+
+        new BinaryXml.StreamReader(toStream(bytes));
+    }
+
+    /**
+     * Copy all events of the provided reader to the provided writer.
+     */
+    private void copy (XMLStreamReader reader,
+                       XMLStreamWriter writer)
+            throws XMLStreamException
+    {
+        for (int event = reader.getEventType();; event = reader.next()) {
+            switch (event) {
+            case XMLStreamConstants.START_ELEMENT:
+                writer.writeStartElement(
+                        nonNull(reader.getPrefix()),
+                        reader.getLocalName(),
+                        nonNull(reader.getNamespaceURI()));
+
+                for (int i = 0; i < reader.getNamespaceCount(); i++) {
+                    writer.writeNamespace(
+                            nonNull(reader.getNamespacePrefix(i)),
+                            reader.getNamespaceURI(i));
+                }
+
+                for (int i = 0; i < reader.getAttributeCount(); i++) {
+                    writer.writeAttribute(
+                            nonNull(reader.getAttributePrefix(i)),
+                            nonNull(reader.getAttributeNamespace(i)),
+                            reader.getAttributeLocalName(i),
+                            reader.getAttributeValue(i));
+                }
+
+                break;
+
+            case XMLStreamConstants.CHARACTERS:
+            case XMLStreamConstants.SPACE:
+            case XMLStreamConstants.CDATA:
+                writer.writeCharacters(reader.getText());
+
+                break;
+
+            case XMLStreamConstants.END_ELEMENT:
+                writer.writeEndElement();
+
+                break;
+
+            case XMLStreamConstants.END_DOCUMENT:
+                writer.writeEndDocument();
+                writer.flush();
+
+                return;
+
+            default:
+                break;
+            }
+        }
+    }
+
+    private Book createBook (int pageCount)
+    {
+        final Book book = new Book();
+        book.title = "Dichterliebe été <&> \"op. 48\"";
+
+        for (int i = 0; i < pageCount; i++) {
+            final Page page = ((i % 3) == 0) ? new TextPage() : new Page();
+            page.id = i + 1;
+            page.width = 2000 + random.nextInt(500);
+            page.ratio = random.nextDouble();
+
+            for (int j = random.nextInt(12); j > 0; j--) {
+                page.links.add(1 + random.nextInt(pageCount));
+            }
+
+            if (page instanceof TextPage) {
+                ((TextPage) page).text = "Text of page " + page.id + ((i % 2 == 0) ? "" : " \n ");
+            }
+
+            book.pages.add(page);
+        }
+
+        final TextPage cover = new TextPage();
+        cover.text = "Cover";
+        book.cover = cover;
+
+        return book;
+    }
+
+    /**
+     * Build the XML of a sheet-like structure, in the shape of a sheet#N.xml file:
+     * picture, scale, glyph index with run tables, and systems with staves and SIG.
+     */
+    private byte[] createSheet (int systemCount)
+            throws Exception
+    {
+        final String xsi = "http://www.w3.org/2001/XMLSchema-instance";
+        final ByteArrayOutputStream os = new ByteArrayOutputStream();
+        final XMLStreamWriter w = new IndentingXMLStreamWriter(
+                XMLOutputFactory.newInstance().createXMLStreamWriter(os, "UTF-8"));
+        final int glyphCount = 40 * systemCount;
+        int id = 0;
+
+        w.writeStartDocument("UTF-8", "1.0");
+        w.writeStartElement("sheet");
+        w.writeNamespace("xsi", xsi);
+        w.writeAttribute("number", "1");
+        w.writeAttribute("last-persistent-id", Integer.toString(glyphCount + (100 * systemCount)));
+
+        w.writeStartElement("picture");
+        w.writeAttribute("width", "2480");
+        w.writeAttribute("height", "3508");
+        w.writeEmptyElement("tables");
+        w.writeEndElement();
+
+        w.writeEmptyElement("scale");
+        w.writeAttribute("interline", "20");
+        w.writeAttribute("line-thickness", "3");
+        w.writeEmptyElement("skew");
+        w.writeAttribute("angle", "-0.0012");
+
+        // Glyphs with their runs
+        w.writeStartElement("glyph-index");
+        w.writeStartElement("entities");
+
+        for (int i = 0; i < glyphCount; i++) {
+            w.writeStartElement("glyph");
+            w.writeAttribute("id", Integer.toString(++id));
+            w.writeAttribute("left", Integer.toString(random.nextInt(2400)));
+            w.writeAttribute("top", Integer.toString(random.nextInt(3400)));
+            w.writeStartElement("run-table");
+            w.writeAttribute("orientation", "VERTICAL");
+            w.writeAttribute("width", Integer.toString(8 + random.nextInt(30)));
+            w.writeAttribute("height", Integer.toString(8 + random.nextInt(60)));
+            w.writeStartElement("runs");
+
+            for (int j = 8 + random.nextInt(30); j > 0; j--) {
+                w.writeStartElement("sequence");
+                w.writeCharacters(random.nextInt(20) + " " + (1 + random.nextInt(20)));
+                w.writeEndElement();
+            }
+
+            w.writeEndElement(); // runs
+            w.writeEndElement(); // run-table
+            w.writeEndElement(); // glyph
+        }
+
+        w.writeEndElement(); // entities
+        w.writeEndElement(); // glyph-index
+
+        // Systems
+        w.writeStartElement("page");
+
+        for (int s = 1; s <= systemCount; s++) {
+            w.writeStartElement("system");
+            w.writeAttribute("id", Integer.toString(s));
+
+            w.writeStartElement("part");
+            w.writeAttribute("id", "1");
+
+            for (int st = 1; st <= 2; st++) {
+                w.writeStartElement("staff");
+                w.writeAttribute("id", Integer.toString((2 * s) + st - 2));
+                w.writeAttribute("left", "120");
+                w.writeAttribute("right", "2360");
+                w.writeStartElement("lines");
+
+                for (int l = 0; l < 5; l++) {
+                    w.writeStartElement("line");
+
+                    for (int x = 120; x <= 2360; x += 560) {
+                        w.writeEmptyElement("point");
+                        w.writeAttribute("x", Integer.toString(x));
+                        w.writeAttribute("y", String.format("%.1f", 300 + (20.0 * l)
+                                                                       + random.nextDouble()));
+                    }
+
+                    w.writeEndElement(); // line
+                }
+
+                w.writeEndElement(); // lines
+                w.writeEndElement(); // staff
+            }
+
+            w.writeEndElement(); // part
+
+            // SIG: inters, then relations between them
+            final int firstInter = id + 1;
+            w.writeStartElement("sig");
+            w.writeStartElement("inters");
+
+            for (int i = 0; i < 90; i++) {
+                final String kind = (i % 3 == 0) ? "stem" : "head";
+                w.writeStartElement(kind);
+                w.writeAttribute("id", Integer.toString(++id));
+                w.writeAttribute("shape", (i % 3 == 0) ? "STEM" : "NOTEHEAD_BLACK");
+                w.writeAttribute("grade", String.format("%.3f", random.nextDouble()));
+                w.writeAttribute("glyph", Integer.toString(1 + random.nextInt(glyphCount)));
+
+                if (kind.equals("head")) {
+                    w.writeAttribute("staff", Integer.toString(2 * s));
+                    w.writeAttribute("pitch", Integer.toString(random.nextInt(13) - 6));
+                }
+
+                w.writeEmptyElement("bounds");
+                w.writeAttribute("x", Integer.toString(random.nextInt(2400)));
+                w.writeAttribute("y", Integer.toString(random.nextInt(3400)));
+                w.writeAttribute("w", Integer.toString(2 + random.nextInt(20)));
+                w.writeAttribute("h", Integer.toString(2 + random.nextInt(60)));
+                w.writeEndElement();
+            }
+
+            w.writeStartElement("sentence");
+            w.writeAttribute("id", Integer.toString(++id));
+            w.writeAttribute("role", "Lyrics");
+            w.writeStartElement("word");
+            w.writeAttribute("value", "Im wunderschönen <Monat> \"Mai\" & été");
+            w.writeEndElement();
+            w.writeStartElement("text");
+            w.writeCharacters(" Im wunderschönen Monat Mai,\n  als alle Knospen sprangen ");
+            w.writeEndElement();
+            w.writeEndElement(); // sentence
+
+            w.writeEndElement(); // inters
+            w.writeStartElement("relations");
+
+            for (int i = 0; i < 60; i++) {
+                w.writeStartElement("relation");
+                w.writeAttribute("source", Integer.toString(firstInter + random.nextInt(90)));
+                w.writeAttribute("target", Integer.toString(firstInter + random.nextInt(90)));
+
+                // Polymorphic relation, as JAXB writes it
+                w.writeEmptyElement("support");
+                w.writeAttribute("xsi", xsi, "type", "head-stem");
+                w.writeAttribute("grade", String.format("%.3f", random.nextDouble()));
+                w.writeEndElement();
+            }
+
+            w.writeEndElement(); // relations
+            w.writeEndElement(); // sig
+            w.writeEndElement(); // system
+        }
+
+        w.writeEndElement(); // page
+        w.writeEndElement(); // sheet
+        w.writeEndDocument();
+        w.flush();
+
+        return os.toByteArray();
+    }
+
+    private Book fromBinary (byte[] bytes)
+            throws Exception
+    {
+        final InputStream is = toStream(bytes);
+
+        return (Book) jaxbContext.createUnmarshaller().unmarshal(new BinaryXml.StreamReader(is));
+    }
+
+    private String nonNull (String str)
+    {
+        return (str != null) ? str : "";
+    }
+
+    private byte[] toBinary (Book book)
+            throws Exception
+    {
+        final ByteArrayOutputStream os = new ByteArrayOutputStream();
+        final XMLStreamWriter writer = new BinaryXml.StreamWriter(os);
+        jaxbContext.createMarshaller().marshal(book, writer);
+        writer.flush();
+
+        return os.toByteArray();
+    }
+
+    private InputStream toStream (byte[] bytes)
+    {
+        return new BufferedInputStream(new ByteArrayInputStream(bytes));
+    }
+
+    /**
+     * Copy the provided reader into a plain XML string.
+     */
+    private String toPlainXml (XMLStreamReader reader)
+            throws Exception
+    {
+        final ByteArrayOutputStream os = new ByteArrayOutputStream();
+        copy(reader, XMLOutputFactory.newInstance().createXMLStreamWriter(os, "UTF-8"));
+
+        return new String(os.toByteArray(), "UTF-8");
+    }
+
+    private byte[] toXml (Book book)
+            throws Exception
+    {
+        final ByteArrayOutputStream os = new ByteArrayOutputStream();
+        final XMLStreamWriter writer = new IndentingXMLStreamWriter(
+                XMLOutputFactory.newInstance().createXMLStreamWriter(os, "UTF-8"));
+        jaxbContext.createMarshaller().marshal(book, writer);
+        writer.flush();
+
+        return os.toByteArray();
+    }
+
+    //------//
+    // Book //
+    //------//
+    @XmlAccessorType(XmlAccessType.NONE)
+    @XmlRootElement(name = "book")
+    private static class Book
+    {
+
+        @XmlAttribute(name = "title")
+        String title;
+
+        /** Polymorphic element, to exercise namespaces and xsi:type. */
+        @XmlElement(name = "cover")
+        Page cover;
+
+        @XmlElementRef
+        final List<Page> pages = new ArrayList<>();
+    }
+
+    //------//
+    // Page //
+    //------//
+    @XmlAccessorType(XmlAccessType.NONE)
+    @XmlRootElement(name = "page")
+    @XmlSeeAlso(TextPage.class)
+    private static class Page
+    {
+
+        @XmlAttribute(name = "id")
+        int id;
+
+        @XmlAttribute(name = "width")
+        int width;
+
+        @XmlElement(name = "ratio")
+        double ratio;
+
+        @XmlList
+        @XmlElement(name = "links")
+        final List<Integer> links = new ArrayList<>();
+
+        /** Transient link, set at unmarshalling time. */
+        Book book;
+
+        @SuppressWarnings("unused")
+        private void afterUnmarshal (Unmarshaller um,
+                                     Object parent)
+        {
+            book = (Book) parent;
+        }
+    }
+
+    //----------//
+    // TextPage //
+    //----------//
+    @XmlAccessorType(XmlAccessType.NONE)
+    @XmlRootElement(name = "text-page")
+    private static class TextPage
+            extends Page
+    {
+
+        @XmlElement(name = "text")
+        String text;
+    }
+}
@@ -0,0 +1,292 @@
+//------------------------------------------------------------------------------------------------//
+//                                                                                                //
+//                                  E n t i t y G r i d T e s t                                   //
+//                                                                                                //
+//------------------------------------------------------------------------------------------------//
+// <editor-fold defaultstate="collapsed" desc="hdr">
+//
+//  Copyright © Audiveris 2018. All rights reserved.
+//
+//  This program is free software: you can redistribute it and/or modify it under the terms of the
+//  GNU Affero General Public License as published by the Free Software Foundation, either version
+//  3 of the License, or (at your option) any later version.
+//
+//  This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+//  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+//  See the GNU Affero General Public License for more details.
+//
+//  You should have received a copy of the GNU Affero General Public License along with this
+//  program.  If not, see <http://www.gnu.org/licenses/>.
+//------------------------------------------------------------------------------------------------//
+// </editor-fold>
+package org.audiveris.omr.util;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+import java.awt.Point;
+import java.awt.Rectangle;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Class {@code EntityGridTest} checks that grid lookups are consistent with a linear scan
+ * on a dense population.
+ *
+ * @author Hervé Bitteur
+ */
+public class EntityGridTest
+{
+
+    private static final int WIDTH = 4000;
+
+    private static final int HEIGHT = 1000;
+
+    private final Random random = new Random(456);
+
+    @Test
+    public void testContained ()
+    {
+        final List<Item> items = createItems(5000);
+        final EntityGrid<Item> grid = createGrid(items);
+
+        for (int i = 0; i < 500; i++) {
+            final Rectangle rect = randomRect(200);
+            assertEquals(
+                    Entities.containedEntities(items.iterator(), rect),
+                    contained(grid.getCandidates(rect), rect));
+        }
+    }
+
+    @Test
+    public void testContaining ()
+    {
+        final List<Item> items = createItems(5000);
+        final EntityGrid<Item> grid = createGrid(items);
+
+        for (int i = 0; i < 500; i++) {
+            final Point pt = new Point(random.nextInt(WIDTH), random.nextInt(HEIGHT));
+            assertEquals(
+                    Entities.containingEntities(items.iterator(), pt),
+                    Entities.containingEntities(grid.getCandidates(pt).iterator(), pt));
+        }
+    }
+
+    @Test
+    public void testNearest ()
+    {
+        final List<Item> items = createItems(3000);
+        final EntityGrid<Item> grid = createGrid(items);
+        grid.insertUnlocated(new Item(5000, new Rectangle(2000, 500, 10, 10)));
+        items.add(new Item(5000, new Rectangle(2000, 500, 10, 10)));
+
+        for (int i = 0; i < 300; i++) {
+            final Point pt = new Point(
+                    random.nextInt(WIDTH + 400) - 200,
+                    random.nextInt(HEIGHT + 400) - 200);
+            final int count = 1 + random.nextInt(8);
+            final List<Item> found = grid.getNearest(pt, count, null);
+            assertEquals(count, found.size());
+
+            // Compare distances with those of a linear scan
+            final List<Long> expected = new ArrayList<>();
+
+            for (Item item : items) {
+                expected.add(sqDistance(item, pt));
+            }
+
+            Collections.sort(expected);
+
+            for (int k = 0; k < count; k++) {
+                assertEquals((long) expected.get(k), sqDistance(found.get(k), pt));
+            }
+        }
+
+        assertTrue(new EntityGrid<Item>(50).getNearest(new Point(0, 0), 3, null).isEmpty());
+    }
+
+    @Test
+    public void testNearestFiltered ()
+    {
+        final List<Item> items = createItems(3000);
+        final EntityGrid<Item> grid = createGrid(items);
+        final Predicate<Item> even = new Predicate<Item>()
+        {
+            @Override
+            public boolean check (Item item)
+            {
+                return (item.getId() % 2) == 0;
+            }
+        };
+
+        for (int i = 0; i < 300; i++) {
+            final Point pt = new Point(random.nextInt(WIDTH), random.nextInt(HEIGHT));
+            final int count = 1 + random.nextInt(8);
+            final List<Item> found = grid.getNearest(pt, count, even);
+            assertEquals(count, found.size());
+
+            // Rejected items must neither be reported nor use up the requested count
+            final List<Long> expected = new ArrayList<>();
+
+            for (Item item : items) {
+                if (even.check(item)) {
+                    expected.add(sqDistance(item, pt));
+                }
+            }
+
+            Collections.sort(expected);
+
+            for (int k = 0; k < count; k++) {
+                assertTrue(even.check(found.get(k)));
+                assertEquals((long) expected.get(k), sqDistance(found.get(k), pt));
+            }
+        }
+    }
+
+    @Test
+    public void testUpdateAndRemove ()
+    {
+        final List<Item> items = createItems(1000);
+        final EntityGrid<Item> grid = createGrid(items);
+
+        // Move some items, remove some others
+        for (int i = 0; i < 100; i++) {
+            final Item item = items.get(i);
+            item.bounds.translate(500, 0);
+            grid.update(item);
+        }
+
+        for (Item item : new ArrayList<>(items.subList(100, 200))) {
+            assertTrue(grid.remove(item));
+            items.remove(item);
+        }
+
+        assertEquals(items.size(), grid.size());
+
+        for (int i = 0; i < 200; i++) {
+            final Rectangle rect = randomRect(400);
+            assertEquals(
+                    Entities.containedEntities(items.iterator(), rect),
+                    contained(grid.getCandidates(rect), rect));
+        }
+    }
+
+    @Test
+    public void testUnlocated ()
+    {
+        final EntityGrid<Item> grid = new EntityGrid<>(50);
+        final Item item = new Item(1, new Rectangle(10, 10, 5, 5));
+        grid.insertUnlocated(item);
+
+        // Unlocated item is always a candidate
+        assertEquals(1, grid.getCandidates(new Point(3000, 3000)).size());
+        assertTrue(grid.remove(item));
+        assertEquals(0, grid.size());
+    }
+
+    @Test
+    public void testBoundless ()
+    {
+        final EntityGrid<Item> grid = createGrid(createItems(200));
+        final Item item = new Item(1000, null);
+        grid.insert(item);
+
+        // An entity with no bounds yet is known but never reported
+        assertEquals(201, grid.size());
+        assertFalse(grid.getCandidates(new Rectangle(-100, -100, WIDTH + 200, HEIGHT + 200))
+                .contains(item));
+        assertFalse(grid.getNearest(new Point(0, 0), 201, null).contains(item));
+
+        // Once its bounds are known, it is located like any other entity
+        item.bounds = new Rectangle(3000, 500, 20, 20);
+        grid.update(item);
+        assertTrue(grid.getCandidates(new Point(3010, 510)).contains(item));
+        assertFalse(grid.getCandidates(new Point(100, 100)).contains(item));
+
+        // And it goes back aside when it loses them
+        item.bounds = null;
+        grid.update(item);
+        assertFalse(grid.getCandidates(new Point(3010, 510)).contains(item));
+        assertEquals(201, grid.size());
+        assertTrue(grid.remove(item));
+        assertEquals(200, grid.size());
+    }
+
+    private List<Item> contained (List<Item> candidates,
+                                  Rectangle rect)
+    {
+        return Entities.containedEntities(candidates.iterator(), rect);
+    }
+
+    private EntityGrid<Item> createGrid (List<Item> items)
+    {
+        final EntityGrid<Item> grid = new EntityGrid<>(80);
+
+        for (Item item : items) {
+            grid.insert(item);
+        }
+
+        return grid;
+    }
+
+    private List<Item> createItems (int count)
+    {
+        final List<Item> items = new ArrayList<>();
+
+        for (int i = 1; i <= count; i++) {
+            items.add(new Item(i, randomRect(i % 50 == 0 ? 300 : 30)));
+        }
+
+        return items;
+    }
+
+    private static long sqDistance (Item item,
+                                    Point pt)
+    {
+        final Rectangle b = item.bounds;
+        final long dx = Math.max(0, Math.max(b.x - pt.x, pt.x - (b.x + b.width - 1)));
+        final long dy = Math.max(0, Math.max(b.y - pt.y, pt.y - (b.y + b.height - 1)));
+
+        return (dx * dx) + (dy * dy);
+    }
+
+    private Rectangle randomRect (int maxSide)
+    {
+        return new Rectangle(
+                random.nextInt(WIDTH) - 20,
+                random.nextInt(HEIGHT) - 20,
+                1 + random.nextInt(maxSide),
+                1 + random.nextInt(maxSide));
+    }
+
+    //------//
+    // Item //
+    //------//
+    private static class Item
+            extends AbstractEntity
+    {
+
+        Rectangle bounds;
+
+        Item (int id,
+              Rectangle bounds)
+        {
+            this.id = id;
+            this.bounds = bounds;
+        }
+
+        @Override
+        public boolean contains (Point point)
+        {
+            return bounds.contains(point);
+        }
+
+        @Override
+        public Rectangle getBounds ()
+        {
+            return (bounds != null) ? new Rectangle(bounds) : null;
+        }
+    }
+}
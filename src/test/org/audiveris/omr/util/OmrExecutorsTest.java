@@ -0,0 +1,132 @@
+//------------------------------------------------------------------------------------------------//
+//                                                                                                //
+//                                O m r E x e c u t o r s T e s t                                 //
+//                                                                                                //
+//------------------------------------------------------------------------------------------------//
+// <editor-fold defaultstate="collapsed" desc="hdr">
+//
+//  Copyright © Audiveris 2018. All rights reserved.
+//
+//  This program is free software: you can redistribute it and/or modify it under the terms of the
+//  GNU Affero General Public License as published by the Free Software Foundation, either version
+//  3 of the License, or (at your option) any later version.
+//
+//  This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+//  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+//  See the GNU Affero General Public License for more details.
+//
+//  You should have received a copy of the GNU Affero General Public License along with this
+//  program.  If not, see <http://www.gnu.org/licenses/>.
+//------------------------------------------------------------------------------------------------//
+// </editor-fold>
+package org.audiveris.omr.util;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Class {@code OmrExecutorsTest} checks the processing of sheet tasks and of their nested
+ * tasks on the work pool.
+ *
+ * @author Hervé Bitteur
+ */
+public class OmrExecutorsTest
+{
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    private final AtomicInteger maxInFlight = new AtomicInteger();
+
+    @Test
+    public void testInvokeSheets ()
+            throws Exception
+    {
+        final List<Callable<Integer>> sheetTasks = new ArrayList<>();
+
+        for (int i = 0; i < 20; i++) {
+            final int sheet = i;
+            sheetTasks.add(new Callable<Integer>()
+            {
+                @Override
+                public Integer call ()
+                        throws Exception
+                {
+                    final int count = inFlight.incrementAndGet();
+
+                    try {
+                        synchronized (maxInFlight) {
+                            maxInFlight.set(Math.max(maxInFlight.get(), count));
+                        }
+
+                        return processSystems(sheet);
+                    } finally {
+                        inFlight.decrementAndGet();
+                    }
+                }
+            });
+        }
+
+        final List<Future<Integer>> futures = OmrExecutors.invokeSheets(sheetTasks);
+        assertEquals(sheetTasks.size(), futures.size());
+
+        for (int i = 0; i < futures.size(); i++) {
+            assertEquals(expected(i), (int) futures.get(i).get());
+        }
+
+        assertTrue(maxInFlight.get() <= OmrExecutors.getNumberOfCpus());
+        assertEquals(0, inFlight.get());
+    }
+
+    @Test
+    public void testInvokeNestedOutside ()
+            throws Exception
+    {
+        assertEquals(expected(3), processSystems(3));
+    }
+
+    private static int expected (int sheet)
+    {
+        int sum = 0;
+
+        for (int s = 0; s < 5; s++) {
+            sum += (sheet * 10) + s;
+        }
+
+        return sum;
+    }
+
+    private static int processSystems (final int sheet)
+            throws Exception
+    {
+        final List<Callable<Integer>> systemTasks = new ArrayList<>();
+
+        for (int s = 0; s < 5; s++) {
+            final int system = s;
+            systemTasks.add(new Callable<Integer>()
+            {
+                @Override
+                public Integer call ()
+                        throws Exception
+                {
+                    Thread.sleep(2);
+
+                    return (sheet * 10) + system;
+                }
+            });
+        }
+
+        int sum = 0;
+
+        for (Future<Integer> future : OmrExecutors.invokeNested(systemTasks)) {
+            sum += future.get();
+        }
+
+        return sum;
+    }
+}